@@ -19,6 +19,7 @@ public class ZookeeperConfigProperties {
     private final String serviceBasePath;
     private final String dataSourceBasePath;
     private final String globalsBasePath;
+    private final String locksBasePath;
 
     public ZookeeperConfigProperties(ZookeeperConfigService configService) {
         this.configService = configService;
@@ -35,6 +36,7 @@ public class ZookeeperConfigProperties {
         this.serviceBasePath = "/" + env + "/" + service;
         this.dataSourceBasePath = "/" + env + "/dataSource";
         this.globalsBasePath = "/" + env + "/Globals";
+        this.locksBasePath = "/" + env + "/locks/" + service;
     }
 
     // ========== Service Configuration ==========
@@ -54,6 +56,14 @@ public class ZookeeperConfigProperties {
         return serviceBasePath + "/endpoints";
     }
 
+    /**
+     * Gets the base path of this service's distributed locks in Zookeeper
+     * Kept outside the watched service tree, so lock nodes never look like configuration
+     */
+    public String getLocksBasePath() {
+        return locksBasePath;
+    }
+
     // ========== PostgreSQL DataSource Configuration ==========
 
     public String getPostgresHost() {
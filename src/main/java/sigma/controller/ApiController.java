@@ -18,22 +18,26 @@ import org.springframework.web.bind.annotation.*;
 public class ApiController {
 
     private static final Logger logger = LoggerFactory.getLogger(ApiController.class);
+    private static final String OPERATIONS_PATH = "/_operations/";
 
     private final ZookeeperConfigProperties configProperties;
     private final EndpointRegistry endpointRegistry;
     private final RestEndpointHandler restEndpointHandler;
     private final GraphQLEndpointHandler graphQLEndpointHandler;
+    private final RestApiController restApiController;
 
     private String apiPrefix;
 
     public ApiController(ZookeeperConfigProperties configProperties,
                         EndpointRegistry endpointRegistry,
                         RestEndpointHandler restEndpointHandler,
-                        GraphQLEndpointHandler graphQLEndpointHandler) {
+                        GraphQLEndpointHandler graphQLEndpointHandler,
+                        RestApiController restApiController) {
         this.configProperties = configProperties;
         this.endpointRegistry = endpointRegistry;
         this.restEndpointHandler = restEndpointHandler;
         this.graphQLEndpointHandler = graphQLEndpointHandler;
+        this.restApiController = restApiController;
     }
 
     @PostConstruct
@@ -60,8 +64,16 @@ public class ApiController {
             relativePath = fullPath.substring(apiPrefix.length());
         }
 
+        // Async write status is served for all endpoints under the API prefix
+        if ("GET".equalsIgnoreCase(method) && relativePath.startsWith(OPERATIONS_PATH)) {
+            return restApiController.handleOperationStatusRequest(relativePath.substring(OPERATIONS_PATH.length()));
+        }
+
         // Look up endpoint in registry
         Endpoint endpoint = endpointRegistry.findEndpoint(relativePath, method);
+        if (endpoint == null) {
+            endpoint = findActionEndpoint(relativePath, method);
+        }
 
         if (endpoint == null) {
             logger.warn("No endpoint found for {} {}", method, relativePath);
@@ -75,4 +87,16 @@ public class ApiController {
         EndpointHandler handler = endpoint.getType().getHandler(restEndpointHandler, graphQLEndpointHandler);
         return handler.handle(method, relativePath, body, endpoint, request);
     }
+
+    /**
+     * Resolves action sub-resources such as {endpoint}/_bulk against their parent endpoint.
+     * The handler receives the full path and dispatches on the action segment.
+     */
+    private Endpoint findActionEndpoint(String relativePath, String method) {
+        int lastSlash = relativePath.lastIndexOf('/');
+        if (lastSlash <= 0 || !relativePath.startsWith("_", lastSlash + 1)) {
+            return null;
+        }
+        return endpointRegistry.findEndpoint(relativePath.substring(0, lastSlash), method);
+    }
 }
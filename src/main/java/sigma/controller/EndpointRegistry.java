@@ -2,9 +2,13 @@ package sigma.controller;
 
 import sigma.config.properties.ZookeeperConfigProperties;
 import sigma.model.Endpoint;
+import sigma.model.GroupCommitConfig;
+import sigma.model.TtlConfig;
 import sigma.model.filter.FilterConfig;
 import sigma.model.filter.FilterOperator;
+import sigma.model.filter.IndexedFieldType;
 import sigma.model.schema.SchemaReference;
+import sigma.persistence.repository.DocumentTtlPolicies;
 import sigma.zookeeper.ZookeeperConfigService;
 import sigma.zookeeper.util.ZookeeperUtils;
 import jakarta.annotation.PostConstruct;
@@ -12,6 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -24,15 +29,19 @@ import java.util.stream.Collectors;
 public class EndpointRegistry {
 
     private static final Logger logger = LoggerFactory.getLogger(EndpointRegistry.class);
+    private static final int DEFAULT_GROUP_COMMIT_BATCH_SIZE = 64;
 
     private final ZookeeperConfigService configService;
     private final ZookeeperConfigProperties configProperties;
+    private final DocumentTtlPolicies ttlPolicies;
     private final Map<String, Endpoint> endpointCache = new ConcurrentHashMap<>();
 
     public EndpointRegistry(ZookeeperConfigService configService,
-                           ZookeeperConfigProperties configProperties) {
+                           ZookeeperConfigProperties configProperties,
+                           DocumentTtlPolicies ttlPolicies) {
         this.configService = configService;
         this.configProperties = configProperties;
+        this.ttlPolicies = ttlPolicies;
     }
 
     /**
@@ -99,6 +108,28 @@ public class EndpointRegistry {
                 // Load nested document configuration
                 String fatherDocument = properties.get("fatherDocument");
 
+                // Load upsert key fields
+                List<String> upsertKeys = loadUpsertKeys(name, properties.get("upsertKey"));
+
+                // Load group-commit settings for single-document creates
+                GroupCommitConfig groupCommit = loadGroupCommit(name,
+                        properties.get("groupCommitMaxDelayMs"), properties.get("groupCommitMaxBatchSize"));
+
+                // Load sub-entity storage mode; nested reads from the child table need the field to be written there
+                Endpoint.SubEntityStorage subEntityStorage =
+                        Endpoint.SubEntityStorage.fromString(properties.get("subEntityStorage"));
+                if (subEntityStorage == Endpoint.SubEntityStorage.TABLE && fatherDocument != null
+                        && !subEntities.contains(fatherDocument)) {
+                    throw new IllegalArgumentException("fatherDocument '" + fatherDocument
+                            + "' must be listed in subEntities when subEntityStorage is TABLE");
+                }
+
+                // Load document TTL, enforced by the expiry worker and hidden from reads
+                TtlConfig ttl = loadTtl(name, properties.get("ttlSeconds"), properties.get("ttlField"));
+
+                // Load how long soft-deleted documents stay before the archiver moves them out
+                Duration deletedRetention = loadDeletedRetention(name, properties.get("deletedRetentionSeconds"));
+
                 Endpoint endpoint = new Endpoint(
                     name,
                     path,
@@ -112,7 +143,13 @@ public class EndpointRegistry {
                     schemaReference,
                     allowedWriteMethods,
                     subEntities,
-                    fatherDocument
+                    fatherDocument,
+                    upsertKeys,
+                    groupCommit,
+                    subEntityStorage,
+                    Endpoint.WriteReturn.fromString(properties.get("writeReturn")),
+                    ttl,
+                    deletedRetention
                 );
 
                 String cacheKey = endpoint.getCacheKey();
@@ -125,6 +162,7 @@ public class EndpointRegistry {
         });
 
         logger.info("Loaded {} endpoints from Zookeeper", endpointCache.size());
+        publishTtlPolicies();
     }
 
     /**
@@ -150,6 +188,7 @@ public class EndpointRegistry {
         String cacheKey = endpoint.getCacheKey();
         endpointCache.put(cacheKey, endpoint);
         logger.info("Updated endpoint: {} -> {}", cacheKey, endpoint);
+        publishTtlPolicies();
     }
 
     /**
@@ -160,13 +199,34 @@ public class EndpointRegistry {
         Endpoint removed = endpointCache.remove(cacheKey);
         if (removed != null) {
             logger.info("Removed endpoint: {}", cacheKey);
+            publishTtlPolicies();
         }
     }
 
+    /**
+     * Hands the TTL of each collection to the repositories
+     * Endpoints sharing a collection should agree on it; otherwise the first endpoint by name wins
+     */
+    private void publishTtlPolicies() {
+        Map<String, TtlConfig> policies = new HashMap<>();
+        endpointCache.values().stream()
+                .filter(endpoint -> endpoint.getTtl().isEnabled())
+                .sorted(Comparator.comparing(Endpoint::getName))
+                .forEach(endpoint -> {
+                    TtlConfig existing = policies.putIfAbsent(endpoint.getDatabaseCollection(), endpoint.getTtl());
+                    if (existing != null && !existing.equals(endpoint.getTtl())) {
+                        logger.warn("Endpoint {} configures {} on collection {}, which already has {}. Ignoring it.",
+                                endpoint.getName(), endpoint.getTtl(), endpoint.getDatabaseCollection(), existing);
+                    }
+                });
+        ttlPolicies.replaceAll(policies);
+    }
+
     /**
      * Loads filter configuration for an endpoint from Zookeeper
      * Structure: /{ENV}/{SERVICE}/endpoints/{endpointName}/{filterType}/{fieldName}
      * Each field contains comma-separated operators: eq,gt,lt
+     * A readFilter field can also declare an index on the collection: eq,in;index=text or gt,lt;index=number
      *
      * @param endpointName Name of the endpoint
      * @param endpointsBasePath Base path for endpoints in ZooKeeper
@@ -176,6 +236,7 @@ public class EndpointRegistry {
         String filterBasePath = endpointsBasePath + "/" + endpointName + "/" + filterType;
         Map<String, byte[]> allConfig = configService.getAllConfiguration();
         Map<String, List<FilterOperator>> fieldOperators = new HashMap<>();
+        Map<String, IndexedFieldType> indexedFields = new HashMap<>();
         boolean filterEnabled = false;
 
         // Look for filter configuration nodes
@@ -184,7 +245,17 @@ public class EndpointRegistry {
             if (path.startsWith(filterBasePath + "/")) {
                 filterEnabled = true;
                 String fieldName = path.substring(filterBasePath.length() + 1);
-                String operatorsStr = ZookeeperUtils.bytesToString(entry.getValue()).orElse("");
+                String[] parts = ZookeeperUtils.bytesToString(entry.getValue()).orElse("").split(";");
+                String operatorsStr = parts[0];
+                for (int i = 1; i < parts.length; i++) {
+                    String option = parts[i].trim();
+                    if (option.startsWith("index=")) {
+                        indexedFields.put(fieldName, IndexedFieldType.fromString(option.substring("index=".length())));
+                    } else if (!option.isEmpty()) {
+                        throw new IllegalArgumentException("Unknown option for " + filterType + " field '" + fieldName
+                                + "': " + option);
+                    }
+                }
 
                 // Parse operators (comma-separated)
                 List<FilterOperator> operators = Arrays.stream(operatorsStr.split(","))
@@ -198,9 +269,10 @@ public class EndpointRegistry {
             }
         }
 
-        FilterConfig config = new FilterConfig(fieldOperators, filterEnabled);
+        FilterConfig config = new FilterConfig(fieldOperators, filterEnabled, indexedFields);
         if (filterEnabled) {
-            logger.info("Filter enabled for endpoint: {} with {} filterable fields", endpointName, fieldOperators.size());
+            logger.info("Filter enabled for endpoint: {} with {} filterable fields, indexed: {}",
+                    endpointName, fieldOperators.size(), indexedFields);
         }
         return config;
     }
@@ -291,4 +363,81 @@ public class EndpointRegistry {
         logger.info("Loaded sub-entities for endpoint {}: {}", endpointName, subEntities);
         return subEntities;
     }
+
+    /**
+     * Parses the upsert key fields of an endpoint
+     * Structure: /{ENV}/{SERVICE}/endpoints/{endpointName}/upsertKey
+     * Value format: comma-separated list of document field names, e.g. "tenantId,sku"
+     */
+    private List<String> loadUpsertKeys(String endpointName, String rawValue) {
+        if (rawValue == null || rawValue.isBlank()) {
+            return List.of();
+        }
+
+        List<String> upsertKeys = Arrays.stream(rawValue.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+
+        logger.info("Loaded upsert keys for endpoint {}: {}", endpointName, upsertKeys);
+        return upsertKeys;
+    }
+
+    /**
+     * Parses the group-commit settings of an endpoint
+     * Structure: /{ENV}/{SERVICE}/endpoints/{endpointName}/groupCommitMaxDelayMs (enables it, e.g. "5")
+     *            /{ENV}/{SERVICE}/endpoints/{endpointName}/groupCommitMaxBatchSize (optional, default 64)
+     */
+    private GroupCommitConfig loadGroupCommit(String endpointName, String maxDelayRaw, String maxBatchSizeRaw) {
+        if (maxDelayRaw == null || maxDelayRaw.isBlank()) {
+            return GroupCommitConfig.disabled();
+        }
+
+        long maxDelayMs = Long.parseLong(maxDelayRaw.trim());
+        int maxBatchSize = maxBatchSizeRaw != null && !maxBatchSizeRaw.isBlank()
+                ? Integer.parseInt(maxBatchSizeRaw.trim())
+                : DEFAULT_GROUP_COMMIT_BATCH_SIZE;
+        GroupCommitConfig groupCommit = GroupCommitConfig.of(maxDelayMs, maxBatchSize);
+
+        logger.info("Loaded group commit for endpoint {}: {}", endpointName, groupCommit);
+        return groupCommit;
+    }
+
+    /**
+     * Parses the document TTL of an endpoint
+     * Structure: /{ENV}/{SERVICE}/endpoints/{endpointName}/ttlSeconds (enables it, e.g. "86400")
+     *            /{ENV}/{SERVICE}/endpoints/{endpointName}/ttlField (optional: createdAt (default),
+     *            lastModifiedAt, or a data field holding a UTC ISO-8601 instant)
+     */
+    private TtlConfig loadTtl(String endpointName, String ttlSecondsRaw, String ttlFieldRaw) {
+        if (ttlSecondsRaw == null || ttlSecondsRaw.isBlank()) {
+            return TtlConfig.disabled();
+        }
+
+        Duration ttl = Duration.ofSeconds(Long.parseLong(ttlSecondsRaw.trim()));
+        String field = ttlFieldRaw != null && !ttlFieldRaw.isBlank() ? ttlFieldRaw.trim() : TtlConfig.CREATED_AT;
+        TtlConfig ttlConfig = TtlConfig.of(ttl, field);
+
+        logger.info("Loaded TTL for endpoint {}: {}", endpointName, ttlConfig);
+        return ttlConfig;
+    }
+
+    /**
+     * Parses the retention of soft-deleted documents of an endpoint
+     * Structure: /{ENV}/{SERVICE}/endpoints/{endpointName}/deletedRetentionSeconds (enables archiving, e.g. "604800")
+     */
+    private Duration loadDeletedRetention(String endpointName, String rawValue) {
+        if (rawValue == null || rawValue.isBlank()) {
+            return null;
+        }
+
+        Duration retention = Duration.ofSeconds(Long.parseLong(rawValue.trim()));
+        if (retention.isNegative()) {
+            throw new IllegalArgumentException("deletedRetentionSeconds must not be negative: " + rawValue);
+        }
+
+        logger.info("Loaded deleted-document retention for endpoint {}: {}", endpointName, retention);
+        return retention;
+    }
 }
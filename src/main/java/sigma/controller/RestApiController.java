@@ -34,6 +34,8 @@ import org.springframework.web.bind.annotation.*;
 public class RestApiController {
 
     private static final Logger logger = LoggerFactory.getLogger(RestApiController.class);
+    private static final String BULK_ACTION = "/_bulk";
+    private static final String CLAIM_ACTION = "/_claim";
 
     private final RequestParser requestParser;
     private final Orchestrator orchestrator;
@@ -65,6 +67,13 @@ public class RestApiController {
         logger.debug("REST: {} {} -> {}", method, path, endpoint.getName());
 
         try {
+            if (isAction(method, path, BULK_ACTION)) {
+                return handleBulkWriteRequest(body, endpoint, request);
+            }
+            if (isAction(method, path, CLAIM_ACTION)) {
+                return handleClaimRequest(body, endpoint, request);
+            }
+
             // Determine if this is a read or write operation
             // POST can be used for both filtered reads and CREATE writes
             // We inspect the body structure for POST to distinguish read from write
@@ -112,12 +121,57 @@ public class RestApiController {
         WriteRequest writeRequest = requestParser.parseWrite(method, body, request, endpoint);
 
         // 2. Call business logic (orchestrator handles validation + execution)
-        sigma.dto.response.Response writeResponse = orchestrator.executeWrite(writeRequest, endpoint);
+        sigma.dto.response.Response writeResponse = dispatchWrite(writeRequest, endpoint, request);
 
         // 3. Format WriteResponse DTO → HTTP ResponseEntity
         return responseBuilder.buildWrite(writeResponse);
     }
 
+    /**
+     * Executes the write now, or queues it and answers 202 when the client sent Prefer: respond-async
+     */
+    private sigma.dto.response.Response dispatchWrite(WriteRequest writeRequest,
+                                                     Endpoint endpoint,
+                                                     HttpServletRequest request) {
+        return requestParser.isRespondAsync(request)
+                ? orchestrator.submitWrite(writeRequest, endpoint)
+                : orchestrator.executeWrite(writeRequest, endpoint);
+    }
+
+    /**
+     * Handles GET {apiPrefix}/_operations/{id} for writes submitted with Prefer: respond-async
+     */
+    public ResponseEntity<?> handleOperationStatusRequest(String operationId) {
+        logger.debug("REST: operation status {}", operationId);
+        return responseBuilder.buildWrite(orchestrator.getOperation(operationId));
+    }
+
+    /**
+     * Handles POST {endpoint}/_bulk; each operation is validated against the endpoint's write methods
+     */
+    private ResponseEntity<?> handleBulkWriteRequest(String body,
+                                                    Endpoint endpoint,
+                                                    HttpServletRequest request) {
+        WriteRequest bulkRequest = requestParser.parseBulkWrite(body, request);
+        sigma.dto.response.Response writeResponse = dispatchWrite(bulkRequest, endpoint, request);
+        return responseBuilder.buildWrite(writeResponse);
+    }
+
+    /**
+     * Handles POST {endpoint}/_claim; the endpoint must allow PATCH, since claimed documents are patched
+     */
+    private ResponseEntity<?> handleClaimRequest(String body,
+                                                Endpoint endpoint,
+                                                HttpServletRequest request) {
+        WriteRequest claimRequest = requestParser.parseClaim(body, request, endpoint);
+        sigma.dto.response.Response writeResponse = dispatchWrite(claimRequest, endpoint, request);
+        return responseBuilder.buildWrite(writeResponse);
+    }
+
+    private boolean isAction(String method, String path, String action) {
+        return "POST".equalsIgnoreCase(method) && path != null && path.endsWith(action);
+    }
+
     /**
      * Checks if HTTP method is a write operation for this endpoint
      *
@@ -0,0 +1,48 @@
+package sigma.dto.request;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request to execute an ordered list of write operations in one transaction
+ *
+ * Ordered requests stop at the first failed operation; unordered requests
+ * attempt every operation and report each outcome
+ */
+@Getter
+public class BulkWriteRequest implements WriteRequest {
+
+    private final List<WriteRequest> operations;
+    private final String requestId;
+    private final boolean ordered;
+
+    public BulkWriteRequest(List<WriteRequest> operations, String requestId, boolean ordered) {
+        this.operations = operations;
+        this.requestId = requestId;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public WriteType getType() {
+        return WriteType.BULK;
+    }
+
+    @Override
+    public Map<String, Object> getFilter() {
+        return null; // Each operation carries its own filter
+    }
+
+    @Override
+    public sigma.dto.response.WriteResponse execute(
+            sigma.service.write.WriteService service,
+            String collectionName) {
+        return service.executeBulk(this, collectionName);
+    }
+
+    @Override
+    public String getHttpMethod() {
+        return "POST";
+    }
+}
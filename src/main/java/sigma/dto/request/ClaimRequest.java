@@ -0,0 +1,62 @@
+package sigma.dto.request;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Request to claim documents of a collection used as a work queue
+ *
+ * Behavior:
+ * - Locks up to limit documents matching filter, skipping documents locked by concurrent claims
+ * - Merges set into each locked document (typically a status / owner field) and returns them
+ * - Workers polling the same filter never receive the same document and never wait on each other
+ */
+@Getter
+public class ClaimRequest implements WriteRequest {
+
+    private final Map<String, Object> filter;
+    private final Map<String, Object> set;
+    private final int limit;
+    private final String requestId;
+    private final boolean returnMinimal;
+
+    public ClaimRequest(Map<String, Object> filter,
+                        Map<String, Object> set,
+                        int limit,
+                        String requestId) {
+        this(filter, set, limit, requestId, false);
+    }
+
+    public ClaimRequest(Map<String, Object> filter,
+                        Map<String, Object> set,
+                        int limit,
+                        String requestId,
+                        boolean returnMinimal) {
+        this.filter = filter;
+        this.set = set;
+        this.limit = limit;
+        this.requestId = requestId;
+        this.returnMinimal = returnMinimal;
+    }
+
+    @Override
+    public WriteType getType() {
+        return WriteType.CLAIM;
+    }
+
+    @Override
+    public sigma.dto.response.WriteResponse execute(
+            sigma.service.write.WriteService service,
+            String collectionName) {
+        return service.executeClaim(this, collectionName);
+    }
+
+    /**
+     * A claim patches the claimed documents, so the endpoint must allow PATCH
+     */
+    @Override
+    public String getHttpMethod() {
+        return "PATCH";
+    }
+}
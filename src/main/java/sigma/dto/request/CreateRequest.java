@@ -16,17 +16,27 @@ public class CreateRequest implements WriteRequest {
 
     private final List<Map<String, Object>> documents;
     private final String requestId;
+    private final boolean returnMinimal;
 
     public CreateRequest(List<Map<String, Object>> documents, String requestId) {
+        this(documents, requestId, false);
+    }
+
+    public CreateRequest(List<Map<String, Object>> documents, String requestId, boolean returnMinimal) {
         this.documents = documents;
         this.requestId = requestId;
+        this.returnMinimal = returnMinimal;
     }
 
     /**
      * Convenience constructor for single document creation
      */
     public CreateRequest(Map<String, Object> document, String requestId) {
-        this(List.of(document), requestId);
+        this(document, requestId, false);
+    }
+
+    public CreateRequest(Map<String, Object> document, String requestId, boolean returnMinimal) {
+        this(List.of(document), requestId, returnMinimal);
     }
 
     @Override
@@ -46,6 +56,14 @@ public class CreateRequest implements WriteRequest {
         return documents.size() > 1;
     }
 
+    /**
+     * Single-document creates can be group-committed with concurrent creates
+     */
+    @Override
+    public boolean isCoalescable() {
+        return documents.size() == 1;
+    }
+
     /**
      * Returns documents for schema validation (polymorphic OOP approach)
      */
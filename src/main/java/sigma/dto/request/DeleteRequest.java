@@ -11,6 +11,7 @@ import java.util.Map;
  * - Filter determines which documents to delete
  * - Can delete single document (filter by _id) or multiple (filter by other fields)
  * - Supports soft delete if needed (would update a field instead of actual deletion)
+ * - Optional If-Match precondition guards a single-document delete on its version
  */
 @Getter
 public class DeleteRequest implements WriteRequest {
@@ -18,13 +19,32 @@ public class DeleteRequest implements WriteRequest {
     private final Map<String, Object> filter;
     private final String requestId;
     private final boolean deleteMultiple;
+    private final WritePrecondition precondition;
+    private final boolean returnMinimal;
 
     public DeleteRequest(Map<String, Object> filter,
                         String requestId,
                         boolean deleteMultiple) {
+        this(filter, requestId, deleteMultiple, WritePrecondition.none());
+    }
+
+    public DeleteRequest(Map<String, Object> filter,
+                        String requestId,
+                        boolean deleteMultiple,
+                        WritePrecondition precondition) {
+        this(filter, requestId, deleteMultiple, precondition, false);
+    }
+
+    public DeleteRequest(Map<String, Object> filter,
+                        String requestId,
+                        boolean deleteMultiple,
+                        WritePrecondition precondition,
+                        boolean returnMinimal) {
         this.filter = filter;
         this.requestId = requestId;
         this.deleteMultiple = deleteMultiple;
+        this.precondition = precondition;
+        this.returnMinimal = returnMinimal;
     }
 
     @Override
@@ -1,7 +1,9 @@
 package sigma.dto.request;
 
+import sigma.model.update.UpdateOperation;
 import lombok.Getter;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -12,6 +14,8 @@ import java.util.Map;
  * - Only provided fields are updated (partial update)
  * - Audit fields are automatically updated by the system
  * - Can update single document (filter by _id) or multiple (filter by other fields)
+ * - Optional If-Match precondition guards a single-document update on its version
+ * - Alternatively, update operators ($set, $unset, $inc, $push, $pull) executed by the database
  */
 @Getter
 public class UpdateRequest implements WriteRequest {
@@ -20,15 +24,55 @@ public class UpdateRequest implements WriteRequest {
     private final Map<String, Object> updates;
     private final String requestId;
     private final boolean updateMultiple;
+    private final WritePrecondition precondition;
+    private final List<UpdateOperation> updateOperations;
+    private final boolean returnMinimal;
 
     public UpdateRequest(Map<String, Object> filter,
                         Map<String, Object> updates,
                         String requestId,
                         boolean updateMultiple) {
+        this(filter, updates, requestId, updateMultiple, WritePrecondition.none());
+    }
+
+    public UpdateRequest(Map<String, Object> filter,
+                        Map<String, Object> updates,
+                        String requestId,
+                        boolean updateMultiple,
+                        WritePrecondition precondition) {
+        this(filter, updates, requestId, updateMultiple, precondition, List.of());
+    }
+
+    public UpdateRequest(Map<String, Object> filter,
+                        Map<String, Object> updates,
+                        String requestId,
+                        boolean updateMultiple,
+                        WritePrecondition precondition,
+                        List<UpdateOperation> updateOperations) {
+        this(filter, updates, requestId, updateMultiple, precondition, updateOperations, false);
+    }
+
+    public UpdateRequest(Map<String, Object> filter,
+                        Map<String, Object> updates,
+                        String requestId,
+                        boolean updateMultiple,
+                        WritePrecondition precondition,
+                        List<UpdateOperation> updateOperations,
+                        boolean returnMinimal) {
         this.filter = filter;
         this.updates = updates;
         this.requestId = requestId;
         this.updateMultiple = updateMultiple;
+        this.precondition = precondition;
+        this.updateOperations = updateOperations;
+        this.returnMinimal = returnMinimal;
+    }
+
+    /**
+     * Returns true if the body used update operators instead of replacement values
+     */
+    public boolean hasUpdateOperators() {
+        return !updateOperations.isEmpty();
     }
 
     @Override
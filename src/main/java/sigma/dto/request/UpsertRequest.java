@@ -11,6 +11,7 @@ import java.util.Map;
  * Behavior:
  * - If document matching filter exists: UPDATE it with provided data
  * - If no document matches filter: INSERT new document with provided data
+ * - If-Match restricts it to updating the matched version, If-None-Match: * to inserting
  *
  * Use cases:
  * - Idempotent operations
@@ -23,13 +24,32 @@ public class UpsertRequest implements WriteRequest {
     private final Map<String, Object> filter;
     private final Map<String, Object> document;
     private final String requestId;
+    private final WritePrecondition precondition;
+    private final boolean returnMinimal;
 
     public UpsertRequest(Map<String, Object> filter,
                         Map<String, Object> document,
                         String requestId) {
+        this(filter, document, requestId, WritePrecondition.none());
+    }
+
+    public UpsertRequest(Map<String, Object> filter,
+                        Map<String, Object> document,
+                        String requestId,
+                        WritePrecondition precondition) {
+        this(filter, document, requestId, precondition, false);
+    }
+
+    public UpsertRequest(Map<String, Object> filter,
+                        Map<String, Object> document,
+                        String requestId,
+                        WritePrecondition precondition,
+                        boolean returnMinimal) {
         this.filter = filter;
         this.document = document;
         this.requestId = requestId;
+        this.precondition = precondition;
+        this.returnMinimal = returnMinimal;
     }
 
     @Override
@@ -0,0 +1,82 @@
+package sigma.dto.request;
+
+import lombok.Getter;
+
+/**
+ * Conditional-write precondition taken from the If-Match / If-None-Match headers.
+ *
+ * - If-Match: <version>  → write only if the document still has that version
+ * - If-Match: *          → write only if a matching document exists
+ * - If-None-Match: *     → write only if no matching document exists (create-only PUT)
+ */
+@Getter
+public final class WritePrecondition {
+
+    private static final WritePrecondition NONE = new WritePrecondition(null, false, false);
+    private static final WritePrecondition IF_EXISTS = new WritePrecondition(null, true, false);
+    private static final WritePrecondition IF_ABSENT = new WritePrecondition(null, false, true);
+
+    private final Long expectedVersion;
+    private final boolean mustExist;
+    private final boolean mustNotExist;
+
+    private WritePrecondition(Long expectedVersion, boolean mustExist, boolean mustNotExist) {
+        this.expectedVersion = expectedVersion;
+        this.mustExist = mustExist;
+        this.mustNotExist = mustNotExist;
+    }
+
+    public static WritePrecondition none() {
+        return NONE;
+    }
+
+    /**
+     * If-Match: <version>
+     */
+    public static WritePrecondition ifVersion(long expectedVersion) {
+        return new WritePrecondition(expectedVersion, true, false);
+    }
+
+    /**
+     * If-Match: *
+     */
+    public static WritePrecondition ifExists() {
+        return IF_EXISTS;
+    }
+
+    /**
+     * If-None-Match: *
+     */
+    public static WritePrecondition ifAbsent() {
+        return IF_ABSENT;
+    }
+
+    public boolean isPresent() {
+        return mustExist || mustNotExist;
+    }
+
+    public boolean hasExpectedVersion() {
+        return expectedVersion != null;
+    }
+
+    /**
+     * Whether an existing document with the given version satisfies this precondition
+     */
+    public boolean isSatisfiedBy(Long currentVersion) {
+        if (mustNotExist) {
+            return false;
+        }
+        return expectedVersion == null || expectedVersion == (currentVersion != null ? currentVersion : 0L);
+    }
+
+    @Override
+    public String toString() {
+        if (hasExpectedVersion()) {
+            return "If-Match: " + expectedVersion;
+        }
+        if (mustExist) {
+            return "If-Match: *";
+        }
+        return mustNotExist ? "If-None-Match: *" : "none";
+    }
+}
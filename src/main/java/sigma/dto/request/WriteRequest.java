@@ -5,10 +5,15 @@ import java.util.Map;
 
 /**
  * Base interface for all write request types
- * Represents a request to modify data in MongoDB (Create, Update, Delete, Upsert)
+ * Represents a request to modify data in MongoDB (Create, Update, Delete, Upsert, Bulk, Claim)
  */
 public interface WriteRequest {
 
+    /**
+     * Prefix of request IDs generated server-side when the client sent no X-Request-ID
+     */
+    String GENERATED_REQUEST_ID_PREFIX = "gen-";
+
     /**
      * Returns the type of this write operation
      */
@@ -19,6 +24,14 @@ public interface WriteRequest {
      */
     String getRequestId();
 
+    /**
+     * Returns true if the request ID was chosen by the client, so a retry carries the same ID
+     */
+    default boolean hasClientRequestId() {
+        String requestId = getRequestId();
+        return requestId != null && !requestId.startsWith(GENERATED_REQUEST_ID_PREFIX);
+    }
+
     /**
      * Returns the optional filter for targeting specific documents
      * Used in UPDATE and DELETE operations to specify which documents to modify
@@ -35,6 +48,37 @@ public interface WriteRequest {
         return null;
     }
 
+    /**
+     * Returns the conditional-write precondition sent by the client (If-Match / If-None-Match)
+     */
+    default WritePrecondition getPrecondition() {
+        return WritePrecondition.none();
+    }
+
+    /**
+     * Returns true if the response should carry only ids and counts (Prefer: return=minimal),
+     * so the written documents are neither re-read nor serialized
+     */
+    default boolean isReturnMinimal() {
+        return false;
+    }
+
+    /**
+     * Returns the individual operations carried by this request.
+     * A BULK request returns its ordered operations; every other request is its own single operation.
+     */
+    default List<WriteRequest> getOperations() {
+        return List.of(this);
+    }
+
+    /**
+     * Returns true if this request may be queued and inserted together with concurrent requests
+     * of other clients (group commit). Only single-document creates qualify.
+     */
+    default boolean isCoalescable() {
+        return false;
+    }
+
     /**
      * Template Method: Execute this write request
      * Polymorphic dispatch - no switch needed
@@ -60,6 +104,8 @@ public interface WriteRequest {
         CREATE,     // Insert new document(s)
         UPDATE,     // Update existing document(s) matching filter
         DELETE,     // Delete document(s) matching filter
-        UPSERT      // Update if exists, insert if not
+        UPSERT,     // Update if exists, insert if not
+        BULK,       // Ordered batch of the operations above in one transaction
+        CLAIM       // Lock and patch up to N unclaimed documents matching filter (work queue)
     }
 }
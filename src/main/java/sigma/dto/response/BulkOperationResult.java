@@ -0,0 +1,61 @@
+package sigma.dto.response;
+
+import sigma.dto.request.WriteRequest;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of one operation inside a BULK write
+ */
+@Getter
+public class BulkOperationResult {
+
+    public enum Status {
+        SUCCEEDED,
+        FAILED,
+        /** Not attempted because an earlier operation of an ordered request failed */
+        SKIPPED
+    }
+
+    private final int index;
+    private final WriteRequest.WriteType type;
+    private final Status status;
+    private final long affectedCount;
+    private final List<String> ids;
+    private final ErrorType errorType;
+    private final String error;
+
+    private BulkOperationResult(int index, WriteRequest.WriteType type, Status status, long affectedCount,
+                                List<String> ids, ErrorType errorType, String error) {
+        this.index = index;
+        this.type = type;
+        this.status = status;
+        this.affectedCount = affectedCount;
+        this.ids = ids;
+        this.errorType = errorType;
+        this.error = error;
+    }
+
+    public static BulkOperationResult succeeded(int index, WriteRequest.WriteType type, long affectedCount,
+                                                List<String> ids) {
+        return new BulkOperationResult(index, type, Status.SUCCEEDED, affectedCount, ids, null, null);
+    }
+
+    /**
+     * Summarises a single-operation response by its affected count and the ids of the documents it returned
+     */
+    public static BulkOperationResult succeeded(int index, WriteResponse response) {
+        return succeeded(index, response.getType(), response.getAffectedCount(),
+                response.getDocumentIds());
+    }
+
+    public static BulkOperationResult failed(int index, WriteRequest.WriteType type, ErrorType errorType,
+                                             String error) {
+        return new BulkOperationResult(index, type, Status.FAILED, 0, List.of(), errorType, error);
+    }
+
+    public static BulkOperationResult skipped(int index, WriteRequest.WriteType type) {
+        return new BulkOperationResult(index, type, Status.SKIPPED, 0, List.of(), null, null);
+    }
+}
@@ -0,0 +1,78 @@
+package sigma.dto.response;
+
+import sigma.dto.request.WriteRequest;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response for BULK operations
+ * Carries one result per requested operation, in request order
+ */
+@Getter
+public class BulkWriteResponse implements WriteResponse {
+
+    private final boolean ordered;
+    private final List<BulkOperationResult> results;
+    private final long succeededCount;
+    private final long failedCount;
+    private final long skippedCount;
+
+    public BulkWriteResponse(boolean ordered, List<BulkOperationResult> results) {
+        this.ordered = ordered;
+        this.results = results;
+        this.succeededCount = count(results, BulkOperationResult.Status.SUCCEEDED);
+        this.failedCount = count(results, BulkOperationResult.Status.FAILED);
+        this.skippedCount = count(results, BulkOperationResult.Status.SKIPPED);
+    }
+
+    private static long count(List<BulkOperationResult> results, BulkOperationResult.Status status) {
+        return results.stream().filter(result -> result.getStatus() == status).count();
+    }
+
+    @Override
+    public WriteRequest.WriteType getType() {
+        return WriteRequest.WriteType.BULK;
+    }
+
+    /**
+     * True when every operation succeeded
+     */
+    @Override
+    public boolean isSuccess() {
+        return failedCount == 0 && skippedCount == 0;
+    }
+
+    @Override
+    public long getAffectedCount() {
+        return results.stream().mapToLong(BulkOperationResult::getAffectedCount).sum();
+    }
+
+    /**
+     * Documents are not echoed for bulk writes; each result lists the ids it touched
+     */
+    @Override
+    public List<Map<String, Object>> getDocuments() {
+        return null;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("Bulk write completed: %d succeeded, %d failed, %d skipped.",
+                succeededCount, failedCount, skippedCount);
+    }
+
+    /**
+     * Already minimal: results carry ids only
+     */
+    @Override
+    public WriteResponse toMinimal() {
+        return this;
+    }
+
+    @Override
+    public <T> T accept(ResponseVisitor<T> visitor) {
+        return visitor.visitBulk(this);
+    }
+}
@@ -0,0 +1,78 @@
+package sigma.dto.response;
+
+import sigma.dto.request.WriteRequest;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response for CLAIM operations
+ * Contains the claimed documents as patched by the claim
+ */
+@Getter
+public class ClaimResponse implements WriteResponse {
+
+    private final long claimedCount;
+    private final List<Map<String, Object>> documents;
+    private final List<String> documentIds;
+    private final String message;
+
+    public ClaimResponse(long claimedCount, List<Map<String, Object>> documents, String message) {
+        this(claimedCount, documents, null, message);
+    }
+
+    /**
+     * documentIds is set instead of documents for Prefer: return=minimal
+     */
+    public ClaimResponse(long claimedCount, List<Map<String, Object>> documents, List<String> documentIds,
+                         String message) {
+        this.claimedCount = claimedCount;
+        this.documents = documents;
+        this.documentIds = documentIds;
+        this.message = message;
+    }
+
+    @Override
+    public WriteRequest.WriteType getType() {
+        return WriteRequest.WriteType.CLAIM;
+    }
+
+    /**
+     * True even when nothing was claimed; an empty queue is not an error
+     */
+    @Override
+    public boolean isSuccess() {
+        return true;
+    }
+
+    @Override
+    public long getAffectedCount() {
+        return claimedCount;
+    }
+
+    @Override
+    public List<Map<String, Object>> getDocuments() {
+        return documents;
+    }
+
+    @Override
+    public List<String> getDocumentIds() {
+        return documentIds != null ? documentIds : WriteResponse.documentIds(documents);
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public WriteResponse toMinimal() {
+        return new ClaimResponse(claimedCount, null, WriteResponse.documentIds(documents), message);
+    }
+
+    @Override
+    public <T> T accept(ResponseVisitor<T> visitor) {
+        return visitor.visitClaim(this);
+    }
+}
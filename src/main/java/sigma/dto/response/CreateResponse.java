@@ -50,6 +50,16 @@ public class CreateResponse implements WriteResponse {
         return message;
     }
 
+    @Override
+    public List<String> getDocumentIds() {
+        return insertedIds;
+    }
+
+    @Override
+    public WriteResponse toMinimal() {
+        return new CreateResponse(insertedIds, null, message);
+    }
+
     @Override
     public <T> T accept(ResponseVisitor<T> visitor) {
         return visitor.visitCreate(this);
@@ -15,11 +15,21 @@ public class DeleteResponse implements WriteResponse {
 
     private final long deletedCount;
     private final List<Map<String, Object>> documents;
+    private final List<String> documentIds;
     private final String message;
 
     public DeleteResponse(long deletedCount, List<Map<String, Object>> documents, String message) {
+        this(deletedCount, documents, null, message);
+    }
+
+    /**
+     * documentIds is set instead of documents for Prefer: return=minimal
+     */
+    public DeleteResponse(long deletedCount, List<Map<String, Object>> documents, List<String> documentIds,
+                          String message) {
         this.deletedCount = deletedCount;
         this.documents = documents;
+        this.documentIds = documentIds;
         this.message = message;
     }
 
@@ -48,6 +58,16 @@ public class DeleteResponse implements WriteResponse {
         return message;
     }
 
+    @Override
+    public List<String> getDocumentIds() {
+        return documentIds != null ? documentIds : WriteResponse.documentIds(documents);
+    }
+
+    @Override
+    public WriteResponse toMinimal() {
+        return new DeleteResponse(deletedCount, null, WriteResponse.documentIds(documents), message);
+    }
+
     @Override
     public <T> T accept(ResponseVisitor<T> visitor) {
         return visitor.visitDelete(this);
@@ -22,6 +22,11 @@ public class DocumentListResponse extends QueryResponse {
         return documents != null ? documents.size() : 0;
     }
 
+    @Override
+    public List<Map<String, Object>> resultDocuments() {
+        return documents != null ? documents : List.of();
+    }
+
     @Override
     public String getResponseSizeForLogging() {
         return String.valueOf(getCount());
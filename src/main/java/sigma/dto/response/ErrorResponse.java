@@ -11,15 +11,24 @@ import java.util.List;
 public class ErrorResponse extends QueryResponse {
 
     private final List<String> details;
+    private final ErrorType errorType;
 
     public ErrorResponse(String message) {
-        super(false, message);
-        this.details = null;
+        this(message, null, ErrorType.BAD_REQUEST);
     }
 
     public ErrorResponse(String message, List<String> details) {
+        this(message, details, ErrorType.BAD_REQUEST);
+    }
+
+    public ErrorResponse(String message, ErrorType errorType) {
+        this(message, null, errorType);
+    }
+
+    public ErrorResponse(String message, List<String> details, ErrorType errorType) {
         super(false, message);
         this.details = details;
+        this.errorType = errorType;
     }
 
     @Override
@@ -0,0 +1,20 @@
+package sigma.dto.response;
+
+/**
+ * Category of an error response.
+ * Protocol-agnostic: each entry point maps it to its own status codes.
+ */
+public enum ErrorType {
+    /** Malformed or invalid request */
+    BAD_REQUEST,
+    /** Write lost a concurrent-modification race and could not be retried */
+    CONFLICT,
+    /** Conditional write whose If-Match / If-None-Match precondition did not hold */
+    PRECONDITION_FAILED,
+    /** Unexpected failure while executing an otherwise valid request */
+    INTERNAL_ERROR,
+    /** Referenced resource (e.g. an async operation) does not exist or has expired */
+    NOT_FOUND,
+    /** Request was valid but cannot be accepted right now (e.g. the async write queue is full) */
+    UNAVAILABLE
+}
@@ -0,0 +1,48 @@
+package sigma.dto.response;
+
+import sigma.dto.request.WriteRequest;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of an asynchronous write operation (Prefer: respond-async)
+ * The result is the write's final response once the operation has completed
+ */
+@Getter
+public class OperationStatusResponse implements Response {
+
+    public enum State {
+        /** Queued, waiting for an executor thread */
+        PENDING,
+        RUNNING,
+        /** Finished; the result holds the write response or the error it produced */
+        COMPLETED
+    }
+
+    private final String operationId;
+    private final WriteRequest.WriteType writeType;
+    private final State state;
+    private final Instant submittedAt;
+    private final Instant completedAt;
+    private final Response result;
+
+    public OperationStatusResponse(String operationId, WriteRequest.WriteType writeType, State state,
+                                   Instant submittedAt, Instant completedAt, Response result) {
+        this.operationId = operationId;
+        this.writeType = writeType;
+        this.state = state;
+        this.submittedAt = submittedAt;
+        this.completedAt = completedAt;
+        this.result = result;
+    }
+
+    public boolean isCompleted() {
+        return state == State.COMPLETED;
+    }
+
+    @Override
+    public <T> T accept(ResponseVisitor<T> visitor) {
+        return visitor.visitOperation(this);
+    }
+}
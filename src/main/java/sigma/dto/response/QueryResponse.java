@@ -1,5 +1,8 @@
 package sigma.dto.response;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Base class for all query responses
  * 
@@ -37,6 +40,14 @@ public abstract class QueryResponse implements Response {
         return new ErrorResponse(message);
     }
 
+    /**
+     * Documents carried by the response, for post-processing such as attaching sub-entity rows
+     * (not a bean property, so it is not serialized)
+     */
+    public List<Map<String, Object>> resultDocuments() {
+        return List.of();
+    }
+
     /**
      * Template Method pattern for logging response size
      * Polymorphic behavior - no instanceof needed
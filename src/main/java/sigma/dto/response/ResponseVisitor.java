@@ -28,4 +28,10 @@ public interface ResponseVisitor<T> {
     T visitDelete(DeleteResponse response);
     
     T visitUpsert(UpsertResponse response);
+
+    T visitBulk(BulkWriteResponse response);
+
+    T visitClaim(ClaimResponse response);
+
+    T visitOperation(OperationStatusResponse response);
 }
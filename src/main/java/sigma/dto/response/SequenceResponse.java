@@ -22,6 +22,19 @@ public class SequenceResponse extends QueryResponse {
         this.hasMore = hasMore;
     }
 
+    /**
+     * The full documents of the change entries
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> resultDocuments() {
+        return data.stream()
+                .map(entry -> entry.get("fullDocument"))
+                .filter(Map.class::isInstance)
+                .map(document -> (Map<String, Object>) document)
+                .toList();
+    }
+
     @Override
     public String getResponseSizeForLogging() {
         return data.size() + " (sequence)";
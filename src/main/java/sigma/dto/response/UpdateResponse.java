@@ -16,14 +16,26 @@ public class UpdateResponse implements WriteResponse {
     private final long matchedCount;
     private final long modifiedCount;
     private final List<Map<String, Object>> documents;
+    private final List<String> documentIds;
     private final String message;
 
     public UpdateResponse(long matchedCount, long modifiedCount,
                           List<Map<String, Object>> documents,
                           String message) {
+        this(matchedCount, modifiedCount, documents, null, message);
+    }
+
+    /**
+     * documentIds is set instead of documents for Prefer: return=minimal
+     */
+    public UpdateResponse(long matchedCount, long modifiedCount,
+                          List<Map<String, Object>> documents,
+                          List<String> documentIds,
+                          String message) {
         this.matchedCount = matchedCount;
         this.modifiedCount = modifiedCount;
         this.documents = documents;
+        this.documentIds = documentIds;
         this.message = message;
     }
 
@@ -52,6 +64,16 @@ public class UpdateResponse implements WriteResponse {
         return message;
     }
 
+    @Override
+    public List<String> getDocumentIds() {
+        return documentIds != null ? documentIds : WriteResponse.documentIds(documents);
+    }
+
+    @Override
+    public WriteResponse toMinimal() {
+        return new UpdateResponse(matchedCount, modifiedCount, null, WriteResponse.documentIds(documents), message);
+    }
+
     @Override
     public <T> T accept(ResponseVisitor<T> visitor) {
         return visitor.visitUpdate(this);
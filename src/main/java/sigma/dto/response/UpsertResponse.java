@@ -59,6 +59,19 @@ public class UpsertResponse implements WriteResponse {
         return message;
     }
 
+    @Override
+    public List<String> getDocumentIds() {
+        if (documents != null || documentId == null) {
+            return WriteResponse.documentIds(documents);
+        }
+        return List.of(documentId);
+    }
+
+    @Override
+    public WriteResponse toMinimal() {
+        return new UpsertResponse(wasInserted, documentId, matchedCount, modifiedCount, null, message);
+    }
+
     @Override
     public <T> T accept(ResponseVisitor<T> visitor) {
         return visitor.visitUpsert(this);
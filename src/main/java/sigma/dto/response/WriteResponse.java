@@ -4,6 +4,8 @@ import sigma.dto.request.WriteRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Base interface for all write operation responses
@@ -33,11 +35,37 @@ public interface WriteResponse extends Response {
      */
     List<Map<String, Object>> getDocuments();
 
+    /**
+     * Returns the ids of the documents impacted by the write operation
+     */
+    default List<String> getDocumentIds() {
+        return documentIds(getDocuments());
+    }
+
     /**
      * Human readable explanation describing the outcome of the operation.
      */
     String getMessage();
 
+    /**
+     * Returns this response without documents, keeping ids and counts (Prefer: return=minimal)
+     */
+    WriteResponse toMinimal();
+
+    /**
+     * Returns the ids of the given documents, skipping documents without one
+     */
+    static List<String> documentIds(List<Map<String, Object>> documents) {
+        if (documents == null) {
+            return List.of();
+        }
+        return documents.stream()
+                .map(document -> document.get("id"))
+                .filter(Objects::nonNull)
+                .map(String::valueOf)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Visitor pattern for building HTTP responses
      * Allows polymorphic dispatch without instanceof checks
@@ -0,0 +1,75 @@
+package sigma.filter;
+
+import sigma.model.filter.FilterConfig;
+import sigma.model.filter.ParameterNames;
+import sigma.model.filter.SqlPredicate;
+import sigma.model.filter.node.FilterNode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A parsed filter shape with its validation results and SQL template.
+ *
+ * Validation only depends on the shape and the endpoint's filter config, so its errors are kept
+ * per config. The WHERE clause is built once, from the optimized tree; every request, including
+ * the one that built it, binds its own literals into the recorded parameter slots. The tree holds
+ * the literals of whichever request parsed the shape, so its values are never bound.
+ */
+public final class CompiledFilter {
+
+    private final FilterNode tree;
+    private final FilterOptimizer optimizer;
+    private final Map<FilterConfig, List<String>> errorsByConfig = new ConcurrentHashMap<>();
+    private volatile Template template;
+
+    public CompiledFilter(FilterNode tree, FilterOptimizer optimizer) {
+        this.tree = tree;
+        this.optimizer = optimizer;
+    }
+
+    public FilterNode getTree() {
+        return tree;
+    }
+
+    /**
+     * Returns the validation errors of this shape against the config, validating on first use
+     */
+    public List<String> validationErrors(FilterConfig config, Function<FilterConfig, List<String>> validation) {
+        return errorsByConfig.computeIfAbsent(config, validation);
+    }
+
+    /**
+     * Builds the predicate for a request of this shape from its literals (in FilterShape order)
+     */
+    public SqlPredicate toPredicate(List<Object> literals) {
+        Template compiled = template();
+        Map<String, Object> parameters = new HashMap<>();
+        for (ParameterNames.Slot slot : compiled.slots()) {
+            parameters.put(slot.name(), slot.bind(literals));
+        }
+        return new SqlPredicate(compiled.sql(), parameters);
+    }
+
+    private Template template() {
+        Template compiled = template;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = template;
+                if (compiled == null) {
+                    ParameterNames names = new ParameterNames();
+                    String sql = optimizer.optimize(tree).toPredicate(names).getSql();
+                    compiled = new Template(sql, List.copyOf(names.getSlots()));
+                    template = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private record Template(String sql, List<ParameterNames.Slot> slots) {
+    }
+}
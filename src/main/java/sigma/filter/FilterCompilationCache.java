@@ -0,0 +1,77 @@
+package sigma.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import sigma.model.filter.FilterShape;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of compiled filters keyed by filter shape.
+ *
+ * Validation and translation of a request look up the same entry, so a filter shape is parsed,
+ * validated (once per endpoint filter config) and turned into SQL once; later requests only bind
+ * their literals. Filters that fail to parse are not cached.
+ */
+@Component
+public class FilterCompilationCache {
+
+    private final FilterParser parser;
+    private final FilterOptimizer optimizer;
+    private final Map<String, CompiledFilter> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public FilterCompilationCache(FilterParser parser,
+                                  FilterOptimizer optimizer,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${sigma.query.filter-cache.size:1000}") int cacheSize) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("sigma.query.filter-cache.size must be positive: " + cacheSize);
+        }
+        this.parser = parser;
+        this.optimizer = optimizer;
+        this.hits = meterRegistry.counter("sigma.query.filter-cache", "result", "hit");
+        this.misses = meterRegistry.counter("sigma.query.filter-cache", "result", "miss");
+        this.evictions = meterRegistry.counter("sigma.query.filter-cache.evictions");
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledFilter> eldest) {
+                if (size() > cacheSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        meterRegistry.gaugeMapSize("sigma.query.filter-cache.size", Tags.empty(), cache);
+    }
+
+    /**
+     * Returns the compiled filter of the shape, parsing the filter if the shape is not cached
+     *
+     * @throws IllegalArgumentException if the filter cannot be parsed
+     */
+    public CompiledFilter get(FilterShape shape, Map<String, Object> filter) {
+        CompiledFilter compiled;
+        synchronized (cache) {
+            compiled = cache.get(shape.getKey());
+        }
+        if (compiled != null) {
+            hits.increment();
+            return compiled;
+        }
+
+        misses.increment();
+        CompiledFilter parsed = new CompiledFilter(parser.parse(filter), optimizer);
+        synchronized (cache) {
+            compiled = cache.putIfAbsent(shape.getKey(), parsed);
+        }
+        return compiled != null ? compiled : parsed;
+    }
+}
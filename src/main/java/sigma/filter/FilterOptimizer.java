@@ -0,0 +1,291 @@
+package sigma.filter;
+
+import sigma.model.filter.FilterOperator;
+import sigma.model.filter.node.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites a parsed filter tree into an equivalent one that yields simpler SQL.
+ *
+ * Nested and/or are flattened, always-true and always-false terms are pruned, gte and lte on the
+ * same field under an and become a BETWEEN, two or more equalities on the same field under an or
+ * become an IN, and not is folded into range comparisons and double negations. Every rewrite holds
+ * in SQL's three-valued logic. not is not folded into eq/ne or in/nin: ne and nin also match
+ * documents missing the field, so their negations are not plain equalities.
+ *
+ * Rewrites depend only on the filter shape (fields, operators, structure, literal kinds), never on
+ * literal values, so a compiled template stays valid for every request of its shape.
+ */
+@Component
+public class FilterOptimizer {
+
+    private static final Map<FilterOperator, FilterOperator> NEGATED_COMPARISONS = Map.of(
+            FilterOperator.GT, FilterOperator.LTE,
+            FilterOperator.GTE, FilterOperator.LT,
+            FilterOperator.LT, FilterOperator.GTE,
+            FilterOperator.LTE, FilterOperator.GT
+    );
+
+    private final boolean enabled;
+
+    public FilterOptimizer(@Value("${sigma.query.filter-optimizer.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns an equivalent, simplified tree; the given tree is left untouched
+     */
+    public FilterNode optimize(FilterNode tree) {
+        if (!enabled) {
+            return tree;
+        }
+        return simplify(normalize(tree));
+    }
+
+    /**
+     * Splits field filters into single comparisons and rewrites composite/nor into and/not/or
+     */
+    private FilterNode normalize(FilterNode node) {
+        if (node instanceof FieldFilterNode field) {
+            return normalizeField(field);
+        }
+        if (node instanceof CompositeFilterNode composite) {
+            return and(normalizeAll(composite.getChildren()));
+        }
+        if (node instanceof LogicalFilterNode logical) {
+            List<FilterNode> children = normalizeAll(logical.getChildren());
+            switch (logical.getOperator()) {
+                case NOR:
+                    return not(or(children));
+                case NOT:
+                    return children.isEmpty() ? alwaysTrue() : new LogicalFilterNode(FilterOperator.NOT, children);
+                default:
+                    return new LogicalFilterNode(logical.getOperator(), children);
+            }
+        }
+        return node;
+    }
+
+    private List<FilterNode> normalizeAll(List<FilterNode> nodes) {
+        List<FilterNode> normalized = new ArrayList<>(nodes.size());
+        for (FilterNode node : nodes) {
+            normalized.add(normalize(node));
+        }
+        return normalized;
+    }
+
+    private FilterNode normalizeField(FieldFilterNode field) {
+        List<FilterNode> comparisons = new ArrayList<>();
+        int literal = field.getFirstLiteral();
+        for (Map.Entry<String, Object> entry : field.getOperators().entrySet()) {
+            FilterOperator operator;
+            try {
+                operator = FilterOperator.fromString(entry.getKey());
+            } catch (IllegalArgumentException e) {
+                return field;
+            }
+            if (operator.isLogical()) {
+                return field;
+            }
+            comparisons.add(new ComparisonFilterNode(field.getFieldName(), operator, entry.getValue(), literal++));
+        }
+        return and(comparisons);
+    }
+
+    /**
+     * Simplifies bottom-up; expects a normalized tree
+     */
+    private FilterNode simplify(FilterNode node) {
+        if (!(node instanceof LogicalFilterNode logical)) {
+            return node;
+        }
+        List<FilterNode> children = new ArrayList<>();
+        for (FilterNode child : logical.getChildren()) {
+            children.add(simplify(child));
+        }
+        switch (logical.getOperator()) {
+            case AND:
+                return simplifyAnd(children);
+            case OR:
+                return simplifyOr(children);
+            case NOT:
+                return children.size() == 1 ? simplifyNot(children.get(0)) : node;
+            default:
+                return node;
+        }
+    }
+
+    private FilterNode simplifyAnd(List<FilterNode> children) {
+        List<FilterNode> terms = new ArrayList<>();
+        for (FilterNode child : children) {
+            if (isAlwaysFalse(child)) {
+                return alwaysFalse();
+            }
+            if (isLogical(child, FilterOperator.AND)) {
+                terms.addAll(((LogicalFilterNode) child).getChildren());
+            } else if (!isAlwaysTrue(child)) {
+                terms.add(child);
+            }
+        }
+        return and(mergeRanges(terms));
+    }
+
+    private FilterNode simplifyOr(List<FilterNode> children) {
+        List<FilterNode> terms = new ArrayList<>();
+        for (FilterNode child : children) {
+            if (isAlwaysTrue(child)) {
+                return alwaysTrue();
+            }
+            if (isLogical(child, FilterOperator.OR)) {
+                terms.addAll(((LogicalFilterNode) child).getChildren());
+            } else if (!isAlwaysFalse(child)) {
+                terms.add(child);
+            }
+        }
+        return or(mergeEqualities(terms));
+    }
+
+    private FilterNode simplifyNot(FilterNode child) {
+        if (isAlwaysTrue(child)) {
+            return alwaysFalse();
+        }
+        if (isAlwaysFalse(child)) {
+            return alwaysTrue();
+        }
+        if (child instanceof LogicalFilterNode logical && logical.getOperator() == FilterOperator.NOT
+                && logical.getChildren().size() == 1) {
+            return logical.getChildren().get(0);
+        }
+        if (child instanceof ComparisonFilterNode comparison
+                && NEGATED_COMPARISONS.containsKey(comparison.getOperator())) {
+            return new ComparisonFilterNode(comparison.getFieldName(),
+                    NEGATED_COMPARISONS.get(comparison.getOperator()), comparison.getValue(), comparison.getLiteral());
+        }
+        return new LogicalFilterNode(FilterOperator.NOT, List.of(child));
+    }
+
+    /**
+     * Pairs gte and lte terms on the same field into BETWEENs, placed where the first of the pair was
+     */
+    private List<FilterNode> mergeRanges(List<FilterNode> terms) {
+        Map<String, List<Integer>> lows = new LinkedHashMap<>();
+        Map<String, List<Integer>> highs = new LinkedHashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            if (terms.get(i) instanceof ComparisonFilterNode comparison) {
+                if (comparison.getOperator() == FilterOperator.GTE) {
+                    lows.computeIfAbsent(comparison.getFieldName(), f -> new ArrayList<>()).add(i);
+                } else if (comparison.getOperator() == FilterOperator.LTE) {
+                    highs.computeIfAbsent(comparison.getFieldName(), f -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        FilterNode[] merged = terms.toArray(new FilterNode[0]);
+        for (Map.Entry<String, List<Integer>> fieldLows : lows.entrySet()) {
+            List<Integer> fieldHighs = highs.getOrDefault(fieldLows.getKey(), List.of());
+            int pairs = Math.min(fieldLows.getValue().size(), fieldHighs.size());
+            for (int p = 0; p < pairs; p++) {
+                int lowIndex = fieldLows.getValue().get(p);
+                int highIndex = fieldHighs.get(p);
+                ComparisonFilterNode low = (ComparisonFilterNode) terms.get(lowIndex);
+                ComparisonFilterNode high = (ComparisonFilterNode) terms.get(highIndex);
+                merged[Math.min(lowIndex, highIndex)] = new BetweenFilterNode(low.getFieldName(),
+                        low.getValue(), high.getValue(), low.getLiteral(), high.getLiteral());
+                merged[Math.max(lowIndex, highIndex)] = null;
+            }
+        }
+        return withoutNulls(merged);
+    }
+
+    /**
+     * Collapses two or more scalar equalities on the same field into an IN, placed where the first was
+     */
+    private List<FilterNode> mergeEqualities(List<FilterNode> terms) {
+        Map<String, List<Integer>> equalities = new LinkedHashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            if (terms.get(i) instanceof ComparisonFilterNode comparison
+                    && comparison.getOperator() == FilterOperator.EQ
+                    && !(comparison.getValue() instanceof List) && !(comparison.getValue() instanceof Map)) {
+                equalities.computeIfAbsent(comparison.getFieldName(), f -> new ArrayList<>()).add(i);
+            }
+        }
+
+        FilterNode[] merged = terms.toArray(new FilterNode[0]);
+        for (Map.Entry<String, List<Integer>> fieldEqualities : equalities.entrySet()) {
+            List<Integer> indexes = fieldEqualities.getValue();
+            if (indexes.size() < 2) {
+                continue;
+            }
+            List<Object> values = new ArrayList<>(indexes.size());
+            int[] literals = new int[indexes.size()];
+            for (int i = 0; i < indexes.size(); i++) {
+                ComparisonFilterNode equality = (ComparisonFilterNode) terms.get(indexes.get(i));
+                values.add(equality.getValue());
+                literals[i] = equality.getLiteral();
+                merged[indexes.get(i)] = null;
+            }
+            merged[indexes.get(0)] = new InFilterNode(fieldEqualities.getKey(), values, literals);
+        }
+        return withoutNulls(merged);
+    }
+
+    private static List<FilterNode> withoutNulls(FilterNode[] nodes) {
+        List<FilterNode> result = new ArrayList<>(nodes.length);
+        for (FilterNode node : nodes) {
+            if (node != null) {
+                result.add(node);
+            }
+        }
+        return result;
+    }
+
+    private static FilterNode and(List<FilterNode> terms) {
+        if (terms.isEmpty()) {
+            return alwaysTrue();
+        }
+        return terms.size() == 1 ? terms.get(0) : new LogicalFilterNode(FilterOperator.AND, terms);
+    }
+
+    private static FilterNode or(List<FilterNode> terms) {
+        if (terms.isEmpty()) {
+            return alwaysFalse();
+        }
+        return terms.size() == 1 ? terms.get(0) : new LogicalFilterNode(FilterOperator.OR, terms);
+    }
+
+    private static FilterNode not(FilterNode node) {
+        return new LogicalFilterNode(FilterOperator.NOT, List.of(node));
+    }
+
+    /**
+     * An empty composite, which translates to 1=1
+     */
+    private static FilterNode alwaysTrue() {
+        return new CompositeFilterNode(List.of());
+    }
+
+    /**
+     * An empty or, which translates to 1=0
+     */
+    private static FilterNode alwaysFalse() {
+        return new LogicalFilterNode(FilterOperator.OR, List.of());
+    }
+
+    private static boolean isAlwaysTrue(FilterNode node) {
+        return node instanceof CompositeFilterNode composite && composite.getChildren().isEmpty();
+    }
+
+    private static boolean isAlwaysFalse(FilterNode node) {
+        return isLogical(node, FilterOperator.OR) && ((LogicalFilterNode) node).getChildren().isEmpty();
+    }
+
+    private static boolean isLogical(FilterNode node, FilterOperator operator) {
+        return node instanceof LogicalFilterNode logical && logical.getOperator() == operator;
+    }
+}
@@ -1,6 +1,7 @@
 package sigma.filter;
 
 import sigma.model.filter.FilterOperator;
+import sigma.model.filter.FilterShape;
 import sigma.model.filter.node.*;
 import org.springframework.stereotype.Component;
 
@@ -22,6 +23,10 @@ public class FilterParser {
      * @return Root FilterNode
      */
     public FilterNode parse(Map<String, Object> filterMap) {
+        return parse(filterMap, new LiteralCounter());
+    }
+
+    private FilterNode parse(Map<String, Object> filterMap, LiteralCounter literals) {
         if (filterMap == null || filterMap.isEmpty()) {
             return new CompositeFilterNode(List.of());
         }
@@ -34,11 +39,11 @@ public class FilterParser {
 
             if (isLogicalOperator(key)) {
                 // Logical operator
-                FilterNode logicalNode = parseLogicalOperator(key, value);
+                FilterNode logicalNode = parseLogicalOperator(key, value, literals);
                 nodes.add(logicalNode);
             } else {
                 // Field filter
-                FilterNode fieldNode = parseFieldFilter(key, value);
+                FilterNode fieldNode = parseFieldFilter(key, value, literals);
                 nodes.add(fieldNode);
             }
         }
@@ -52,6 +57,96 @@ public class FilterParser {
         return new CompositeFilterNode(nodes);
     }
 
+    /**
+     * Describes a filter map the way parse would read it, without building the tree.
+     * Literals are collected in the order parse numbers them on the FieldFilterNodes.
+     */
+    public FilterShape shapeOf(Map<String, Object> filterMap) {
+        StringBuilder key = new StringBuilder();
+        List<Object> literals = new ArrayList<>();
+        appendShape(filterMap, key, literals);
+        return new FilterShape(key.toString(), literals);
+    }
+
+    private void appendShape(Map<?, ?> filterMap, StringBuilder key, List<Object> literals) {
+        key.append('{');
+        if (filterMap != null) {
+            for (Map.Entry<?, ?> entry : filterMap.entrySet()) {
+                String name = String.valueOf(entry.getKey());
+                Object value = entry.getValue();
+                appendName(name, key);
+
+                if (isLogicalOperator(name)) {
+                    appendConditionsShape(value, key, literals);
+                } else if (value instanceof Map<?, ?> operatorMap) {
+                    key.append('{');
+                    for (Map.Entry<?, ?> operator : operatorMap.entrySet()) {
+                        appendName(String.valueOf(operator.getKey()), key);
+                        appendLiteral(String.valueOf(operator.getKey()), operator.getValue(), key, literals);
+                    }
+                    key.append('}');
+                } else {
+                    appendLiteral("eq", value, key, literals);
+                }
+            }
+        }
+        key.append('}');
+    }
+
+    private void appendConditionsShape(Object value, StringBuilder key, List<Object> literals) {
+        if (value instanceof Map<?, ?> condition) {
+            appendShape(condition, key, literals);
+        } else if (value instanceof List<?> conditions) {
+            key.append('[');
+            for (Object condition : conditions) {
+                appendConditionsShape(condition, key, literals);
+            }
+            key.append(']');
+        } else {
+            key.append(literalKind(value));
+        }
+    }
+
+    private void appendLiteral(String operatorSymbol, Object value, StringBuilder key, List<Object> literals) {
+        literals.add(value);
+        key.append(literalKind(value));
+        if (inlinesValue(operatorSymbol) && value != null) {
+            key.append('=');
+            appendName(value.toString(), key);
+        }
+    }
+
+    private boolean inlinesValue(String operatorSymbol) {
+        try {
+            return FilterOperator.fromString(operatorSymbol).getStrategy().inlinesValue();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void appendName(String name, StringBuilder key) {
+        key.append(name.length()).append(':').append(name);
+    }
+
+    private static char literalKind(Object value) {
+        if (value == null) {
+            return '0';
+        }
+        if (value instanceof String) {
+            return 's';
+        }
+        if (value instanceof Number) {
+            return 'n';
+        }
+        if (value instanceof Boolean) {
+            return 'b';
+        }
+        if (value instanceof List) {
+            return 'l';
+        }
+        return value instanceof Map ? 'm' : 'o';
+    }
+
     /**
      * Checks if the given key is a logical operator (and, or, not, nor)
      */
@@ -64,7 +159,7 @@ public class FilterParser {
     /**
      * Parses a logical operator node
      */
-    private FilterNode parseLogicalOperator(String operatorSymbol, Object value) {
+    private FilterNode parseLogicalOperator(String operatorSymbol, Object value, LiteralCounter literals) {
         FilterOperator operator = FilterOperator.fromString(operatorSymbol);
 
         if (!operator.isLogical()) {
@@ -78,7 +173,7 @@ public class FilterParser {
             if (value instanceof Map) {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> notCondition = (Map<String, Object>) value;
-                children.add(parse(notCondition));
+                children.add(parse(notCondition, literals));
             } else {
                 throw new IllegalArgumentException("not operator requires an object value");
             }
@@ -93,7 +188,7 @@ public class FilterParser {
                 if (condition instanceof Map) {
                     @SuppressWarnings("unchecked")
                     Map<String, Object> conditionMap = (Map<String, Object>) condition;
-                    children.add(parse(conditionMap));
+                    children.add(parse(conditionMap, literals));
                 } else {
                     throw new IllegalArgumentException("Invalid condition type in " + operatorSymbol + ": expected object");
                 }
@@ -106,15 +201,29 @@ public class FilterParser {
     /**
      * Parses a field filter node
      */
-    private FilterNode parseFieldFilter(String fieldName, Object value) {
+    private FilterNode parseFieldFilter(String fieldName, Object value, LiteralCounter literals) {
         if (value instanceof Map) {
             // Field has operators: { "price": { "gte": 100, "lte": 500 } }
             @SuppressWarnings("unchecked")
             Map<String, Object> operatorMap = (Map<String, Object>) value;
-            return new FieldFilterNode(fieldName, operatorMap);
+            return new FieldFilterNode(fieldName, operatorMap, literals.take(operatorMap.size()));
         } else {
             // Direct equality: { "category": "electronics" }
-            return new FieldFilterNode(fieldName, value);
+            return new FieldFilterNode(fieldName, value, literals.take(1));
+        }
+    }
+
+    /**
+     * Numbers operator values in the order shapeOf collects them as literals
+     */
+    private static final class LiteralCounter {
+
+        private int next;
+
+        int take(int count) {
+            int first = next;
+            next += count;
+            return first;
         }
     }
 }
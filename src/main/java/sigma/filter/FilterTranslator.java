@@ -2,9 +2,10 @@ package sigma.filter;
 
 import sigma.model.filter.FilterRequest;
 import sigma.model.filter.FilterResult;
+import sigma.model.filter.FilterShape;
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 import sigma.model.filter.node.FieldFilterNode;
-import sigma.model.filter.node.FilterNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -19,21 +20,28 @@ public class FilterTranslator {
 
     private static final Logger logger = LoggerFactory.getLogger(FilterTranslator.class);
     private final FilterParser parser;
+    private final FilterCompilationCache filterCache;
+    private final StatementCacheMetrics statementCacheMetrics;
 
-    public FilterTranslator(FilterParser parser) {
+    public FilterTranslator(FilterParser parser, FilterCompilationCache filterCache,
+                            StatementCacheMetrics statementCacheMetrics) {
         this.parser = parser;
+        this.filterCache = filterCache;
+        this.statementCacheMetrics = statementCacheMetrics;
     }
 
     /**
-     * Translates a FilterRequest into a FilterResult for PostgreSQL queries
+     * Translates a FilterRequest into a FilterResult for PostgreSQL queries.
+     * The WHERE clause comes from the compiled filter of the request's shape, so the same shape
+     * always yields the same SQL and only the literals are bound per call.
      */
     public FilterResult translate(FilterRequest filterRequest) {
         FilterResult.Builder builder = FilterResult.builder();
 
         // Parse and translate filter criteria
         if (filterRequest.getFilter() != null && !filterRequest.getFilter().isEmpty()) {
-            FilterNode filterTree = parser.parse(filterRequest.getFilter());
-            SqlPredicate predicate = filterTree.toPredicate();
+            FilterShape shape = parser.shapeOf(filterRequest.getFilter());
+            SqlPredicate predicate = filterCache.get(shape, filterRequest.getFilter()).toPredicate(shape.getLiterals());
             builder.whereClause(predicate.getSql());
             builder.addParameters(predicate.getParameters());
         }
@@ -44,6 +52,7 @@ public class FilterTranslator {
         }
 
         FilterResult result = builder.build();
+        statementCacheMetrics.record(result.getWhereClause(), result.getOrderByClause());
         logger.debug("Translated filter request to PostgreSQL query: {}", result);
         return result;
     }
@@ -55,6 +64,7 @@ public class FilterTranslator {
     public FilterResult translateGetParameters(Map<String, String> params) {
         FilterResult.Builder builder = FilterResult.builder();
         List<SqlPredicate> predicates = new ArrayList<>();
+        ParameterNames names = new ParameterNames();
 
         for (Map.Entry<String, String> entry : params.entrySet()) {
             String field = entry.getKey();
@@ -67,7 +77,7 @@ public class FilterTranslator {
 
             // Create field filter node and convert to predicate
             FieldFilterNode fieldNode = new FieldFilterNode(field, value);
-            predicates.add(fieldNode.toPredicate());
+            predicates.add(fieldNode.toPredicate(names));
         }
 
         if (!predicates.isEmpty()) {
@@ -94,6 +104,7 @@ public class FilterTranslator {
         }
 
         FilterResult result = builder.build();
+        statementCacheMetrics.record(result.getWhereClause(), result.getOrderByClause());
         logger.debug("Translated GET parameters to query: {}", result);
         return result;
     }
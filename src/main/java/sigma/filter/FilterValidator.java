@@ -1,7 +1,6 @@
 package sigma.filter;
 
 import sigma.model.filter.FilterConfig;
-import sigma.model.filter.node.FilterNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -12,16 +11,18 @@ import java.util.Map;
 
 /**
  * Validates filter requests against endpoint filter configurations
- * Uses OOP approach with FilterNode tree
+ * Uses OOP approach with FilterNode tree; results are cached per filter shape and config
  */
 @Component
 public class FilterValidator {
 
     private static final Logger logger = LoggerFactory.getLogger(FilterValidator.class);
     private final FilterParser parser;
+    private final FilterCompilationCache filterCache;
 
-    public FilterValidator(FilterParser parser) {
+    public FilterValidator(FilterParser parser, FilterCompilationCache filterCache) {
         this.parser = parser;
+        this.filterCache = filterCache;
     }
 
     /**
@@ -41,11 +42,11 @@ public class FilterValidator {
         }
 
         try {
-            // Parse the filter into a tree
-            FilterNode filterTree = parser.parse(filter);
+            // Parse the filter into a tree, or reuse the tree of an earlier filter with the same shape
+            CompiledFilter compiled = filterCache.get(parser.shapeOf(filter), filter);
 
             // Validate the tree
-            errors.addAll(filterTree.validate(config));
+            errors.addAll(compiled.validationErrors(config, compiled.getTree()::validate));
 
         } catch (IllegalArgumentException e) {
             errors.add("Invalid filter structure: " + e.getMessage());
@@ -0,0 +1,52 @@
+package sigma.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates how often translated filters can reuse a prepared statement.
+ *
+ * The drivers cache statements by SQL text (pgjdbc keeps the last preparedStatementCacheQueries,
+ * 256 by default, per connection), so a translation whose WHERE/ORDER BY text was seen among the
+ * recent distinct shapes counts as a hit. The window is cleared once it is full, which keeps
+ * recording lock-free at the cost of a few extra misses after each reset.
+ */
+@Component
+public class StatementCacheMetrics {
+
+    private final Set<String> recentShapes = ConcurrentHashMap.newKeySet();
+    private final int windowSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    public StatementCacheMetrics(MeterRegistry meterRegistry,
+                                 @Value("${sigma.query.statement-cache.window-size:256}") int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("sigma.query.statement-cache.window-size must be positive: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.hits = meterRegistry.counter("sigma.query.statement-cache", "result", "hit");
+        this.misses = meterRegistry.counter("sigma.query.statement-cache", "result", "miss");
+    }
+
+    /**
+     * Records one translated statement shape
+     */
+    public void record(String whereClause, String orderByClause) {
+        String shape = whereClause + "\u0000" + orderByClause;
+        if (recentShapes.contains(shape)) {
+            hits.increment();
+            return;
+        }
+        misses.increment();
+        if (recentShapes.size() >= windowSize) {
+            recentShapes.clear();
+        }
+        recentShapes.add(shape);
+    }
+}
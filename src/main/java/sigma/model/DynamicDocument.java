@@ -58,6 +58,13 @@ public class DynamicDocument extends AuditableBaseDocument {
     @Column("sequence_number")
     private Long sequenceNumber;
 
+    /**
+     * SHA-256 of the canonical JSON of dynamicFields, null when a write computed the data in the database.
+     * Lets writes of identical content be skipped without comparing documents.
+     */
+    @Column("content_hash")
+    private String contentHash;
+
     /**
      * Default constructor
      */
@@ -3,6 +3,8 @@ package sigma.model;
 import sigma.model.filter.FilterConfig;
 import sigma.model.schema.SchemaReference;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -24,12 +26,20 @@ public class Endpoint {
     private final Set<String> allowedWriteMethods;
     private final Set<String> subEntities;
     private final String fatherDocument;
+    private final List<String> upsertKeys;
+    private final GroupCommitConfig groupCommit;
+    private final SubEntityStorage subEntityStorage;
+    private final WriteReturn writeReturn;
+    private final TtlConfig ttl;
+    private final Duration deletedRetention;
 
     public Endpoint(String name, String path, String httpMethod, String databaseCollection,
                    EndpointType type, boolean sequenceEnabled, int defaultBulkSize,
                    FilterConfig readFilterConfig, FilterConfig writeFilterConfig,
                    SchemaReference schemaReference, Set<String> allowedWriteMethods,
-                   Set<String> subEntities, String fatherDocument) {
+                   Set<String> subEntities, String fatherDocument, List<String> upsertKeys,
+                   GroupCommitConfig groupCommit, SubEntityStorage subEntityStorage, WriteReturn writeReturn,
+                   TtlConfig ttl, Duration deletedRetention) {
         this.name = name;
         this.path = path;
         this.httpMethod = httpMethod;
@@ -43,6 +53,12 @@ public class Endpoint {
         this.allowedWriteMethods = allowedWriteMethods != null ? Set.copyOf(allowedWriteMethods) : Set.of();
         this.subEntities = subEntities != null ? Set.copyOf(subEntities) : Set.of();
         this.fatherDocument = fatherDocument != null && !fatherDocument.isBlank() ? fatherDocument : null;
+        this.upsertKeys = upsertKeys != null ? List.copyOf(upsertKeys) : List.of();
+        this.groupCommit = groupCommit != null ? groupCommit : GroupCommitConfig.disabled();
+        this.subEntityStorage = subEntityStorage != null ? subEntityStorage : SubEntityStorage.DOCUMENT;
+        this.writeReturn = writeReturn != null ? writeReturn : WriteReturn.REPRESENTATION;
+        this.ttl = ttl != null ? ttl : TtlConfig.disabled();
+        this.deletedRetention = deletedRetention;
     }
 
     public String getName() {
@@ -106,6 +122,61 @@ public class Endpoint {
         return fatherDocument;
     }
 
+    /**
+     * Gets the document fields that identify a document for PUT (upsert)
+     * Backed by a unique index per collection
+     */
+    public List<String> getUpsertKeys() {
+        return upsertKeys;
+    }
+
+    public boolean hasUpsertKeys() {
+        return !upsertKeys.isEmpty();
+    }
+
+    /**
+     * Gets the group-commit settings for single-document creates (disabled unless configured)
+     */
+    public GroupCommitConfig getGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Gets where the sub-entity arrays of this endpoint are stored (inside the document unless configured)
+     */
+    public SubEntityStorage getSubEntityStorage() {
+        return subEntityStorage;
+    }
+
+    /**
+     * Gets what writes return when the client sends no Prefer: return preference (documents unless configured)
+     */
+    public WriteReturn getWriteReturn() {
+        return writeReturn;
+    }
+
+    /**
+     * Gets the time-to-live of the collection's documents (disabled unless configured)
+     */
+    public TtlConfig getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Gets how long soft-deleted documents stay in dynamic_documents before they are archived
+     * (null keeps them there)
+     */
+    public Duration getDeletedRetention() {
+        return deletedRetention;
+    }
+
+    /**
+     * Indicates whether the sub-entity fields live as rows of the dynamic_sub_entities table
+     */
+    public boolean storesSubEntitiesInTable() {
+        return subEntityStorage == SubEntityStorage.TABLE && !subEntities.isEmpty();
+    }
+
     /**
      * Indicates whether this endpoint represents a nested document list inside another collection
      */
@@ -150,9 +221,57 @@ public class Endpoint {
                 ", allowedWriteMethods=" + allowedWriteMethods +
                 ", subEntities=" + subEntities +
                 ", fatherDocument='" + fatherDocument + '\'' +
+                ", upsertKeys=" + upsertKeys +
+                ", groupCommit=" + groupCommit +
+                ", subEntityStorage=" + subEntityStorage +
+                ", writeReturn=" + writeReturn +
+                ", ttl=" + ttl +
+                ", deletedRetention=" + deletedRetention +
                 '}';
     }
 
+    /**
+     * Storage of sub-entity arrays
+     */
+    public enum SubEntityStorage {
+        /** Arrays are embedded in the parent document's JSON */
+        DOCUMENT,
+        /** Each element is a row of dynamic_sub_entities keyed by (parent_id, field, sub_id) */
+        TABLE;
+
+        public static SubEntityStorage fromString(String storage) {
+            if (storage == null || storage.isBlank()) {
+                return DOCUMENT;
+            }
+            return switch (storage.trim().toUpperCase()) {
+                case "TABLE" -> TABLE;
+                case "DOCUMENT" -> DOCUMENT;
+                default -> throw new IllegalArgumentException("Unknown subEntityStorage: " + storage);
+            };
+        }
+    }
+
+    /**
+     * Body of write responses, as in the Prefer: return preference (RFC 7240)
+     */
+    public enum WriteReturn {
+        /** The written documents in their stored state */
+        REPRESENTATION,
+        /** Only the ids and counts of the written documents */
+        MINIMAL;
+
+        public static WriteReturn fromString(String writeReturn) {
+            if (writeReturn == null || writeReturn.isBlank()) {
+                return REPRESENTATION;
+            }
+            return switch (writeReturn.trim().toUpperCase()) {
+                case "MINIMAL" -> MINIMAL;
+                case "REPRESENTATION" -> REPRESENTATION;
+                default -> throw new IllegalArgumentException("Unknown writeReturn: " + writeReturn);
+            };
+        }
+    }
+
     public enum EndpointType {
         REST,
         GRAPHQL;
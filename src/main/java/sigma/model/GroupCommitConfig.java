@@ -0,0 +1,49 @@
+package sigma.model;
+
+/**
+ * Group-commit settings of an endpoint
+ * Concurrent single-document creates are queued for up to maxDelayMs, or until
+ * maxBatchSize documents are waiting, and inserted together in one transaction
+ */
+public final class GroupCommitConfig {
+
+    private static final GroupCommitConfig DISABLED = new GroupCommitConfig(0, 0);
+
+    private final long maxDelayMs;
+    private final int maxBatchSize;
+
+    private GroupCommitConfig(long maxDelayMs, int maxBatchSize) {
+        this.maxDelayMs = maxDelayMs;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public static GroupCommitConfig disabled() {
+        return DISABLED;
+    }
+
+    public static GroupCommitConfig of(long maxDelayMs, int maxBatchSize) {
+        if (maxDelayMs <= 0 || maxBatchSize < 2) {
+            throw new IllegalArgumentException("Group commit requires a positive delay and a batch size of at least 2");
+        }
+        return new GroupCommitConfig(maxDelayMs, maxBatchSize);
+    }
+
+    public boolean isEnabled() {
+        return maxDelayMs > 0;
+    }
+
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public String toString() {
+        return isEnabled()
+                ? "GroupCommitConfig{maxDelayMs=" + maxDelayMs + ", maxBatchSize=" + maxBatchSize + '}'
+                : "GroupCommitConfig{disabled}";
+    }
+}
@@ -0,0 +1,89 @@
+package sigma.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Time-to-live of the documents of an endpoint's collection
+ * A document expires ttl after the instant held by field: createdAt, lastModifiedAt, or a data
+ * field holding a UTC ISO-8601 instant (e.g. "2024-05-01T12:00:00Z"). Documents without the
+ * data field never expire.
+ */
+public final class TtlConfig {
+
+    public static final String CREATED_AT = "createdAt";
+    public static final String LAST_MODIFIED_AT = "lastModifiedAt";
+
+    private static final TtlConfig DISABLED = new TtlConfig(null, null);
+
+    private final Duration ttl;
+    private final String field;
+
+    private TtlConfig(Duration ttl, String field) {
+        this.ttl = ttl;
+        this.field = field;
+    }
+
+    public static TtlConfig disabled() {
+        return DISABLED;
+    }
+
+    public static TtlConfig of(Duration ttl, String field) {
+        if (ttl == null || ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+        if (field == null || field.isBlank()) {
+            throw new IllegalArgumentException("TTL field must not be empty");
+        }
+        if (ttl.isZero() && !isDataField(field)) {
+            throw new IllegalArgumentException("TTL on " + field + " must be positive");
+        }
+        return new TtlConfig(ttl, field);
+    }
+
+    public boolean isEnabled() {
+        return ttl != null;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Indicates whether the expiry instant is read from the document's data rather than an audit column
+     */
+    public boolean isDataField() {
+        return isDataField(field);
+    }
+
+    private static boolean isDataField(String field) {
+        return !CREATED_AT.equals(field) && !LAST_MODIFIED_AT.equals(field);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TtlConfig other)) {
+            return false;
+        }
+        return Objects.equals(ttl, other.ttl) && Objects.equals(field, other.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ttl, field);
+    }
+
+    @Override
+    public String toString() {
+        return isEnabled()
+                ? "TtlConfig{ttl=" + ttl + ", field='" + field + "'}"
+                : "TtlConfig{disabled}";
+    }
+}
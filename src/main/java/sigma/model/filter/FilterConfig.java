@@ -20,10 +20,17 @@ public class FilterConfig {
 
     private final Map<String, List<FilterOperator>> fieldOperators;
     private final boolean enabled;
+    private final Map<String, IndexedFieldType> indexedFields; // field -> type of its collection index
 
     public FilterConfig(Map<String, List<FilterOperator>> fieldOperators, boolean enabled) {
+        this(fieldOperators, enabled, Map.of());
+    }
+
+    public FilterConfig(Map<String, List<FilterOperator>> fieldOperators, boolean enabled,
+                        Map<String, IndexedFieldType> indexedFields) {
         this.fieldOperators = fieldOperators;
         this.enabled = enabled;
+        this.indexedFields = indexedFields;
     }
 
     /**
@@ -69,6 +76,7 @@ public class FilterConfig {
         return "FilterConfig{" +
                 "fieldOperators=" + fieldOperators +
                 ", enabled=" + enabled +
+                ", indexedFields=" + indexedFields +
                 '}';
     }
 }
@@ -0,0 +1,32 @@
+package sigma.model.filter;
+
+import java.util.List;
+
+/**
+ * A filter with its literals taken out: the key describes the structure (fields, operators,
+ * literal kinds and values written into the SQL), the literals are the rest in filter order.
+ * Filters with the same key validate and translate the same way.
+ */
+public final class FilterShape {
+
+    private final String key;
+    private final List<Object> literals;
+
+    public FilterShape(String key, List<Object> literals) {
+        this.key = key;
+        this.literals = literals;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public List<Object> getLiterals() {
+        return literals;
+    }
+
+    @Override
+    public String toString() {
+        return "FilterShape{" + key + "}";
+    }
+}
@@ -0,0 +1,39 @@
+package sigma.model.filter;
+
+import sigma.persistence.dialect.DatabaseDialect;
+
+/**
+ * Type of a field declared as indexed in an endpoint's readFilter config.
+ * The index expression is the one the filters of that type compare, so the planner can match them:
+ * text for eq/ne/in/regex, number for gt/gte/lt/lte.
+ */
+public enum IndexedFieldType {
+    TEXT(DatabaseDialect::jsonExtractText),
+    NUMBER(DatabaseDialect::jsonNumericValue);
+
+    private final FieldExpression expression;
+
+    IndexedFieldType(FieldExpression expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * Returns the dialect's expression for the field, as used by filters of this type
+     */
+    public String expression(DatabaseDialect dialect, String column, String fieldPath) {
+        return expression.apply(dialect, column, fieldPath);
+    }
+
+    public static IndexedFieldType fromString(String type) {
+        try {
+            return valueOf(type.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown index type: " + type + ". Expected text or number");
+        }
+    }
+
+    @FunctionalInterface
+    private interface FieldExpression {
+        String apply(DatabaseDialect dialect, String column, String fieldPath);
+    }
+}
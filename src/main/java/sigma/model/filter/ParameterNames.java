@@ -0,0 +1,116 @@
+package sigma.model.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Allocates the named parameters of one filter translation.
+ * Names are numbered in the order the predicates are built, so the same filter shape always
+ * produces the same SQL text and the driver can reuse its prepared statement.
+ *
+ * Each name is recorded as a slot: which filter literal it was taken from and how that literal
+ * becomes the bound value. A compiled filter replays the slots to bind another request's literals.
+ * Not thread-safe: create one per translation.
+ */
+public final class ParameterNames {
+
+    private final List<Slot> slots = new ArrayList<>();
+    private int counter;
+    private Function<List<Object>, Object> currentLiteral = literals -> null;
+    private boolean negated;
+
+    /**
+     * Makes the literal at the index (in FilterShape order) the one the next names are bound to
+     */
+    public void atLiteral(int index) {
+        currentLiteral = literals -> literals.get(index);
+    }
+
+    /**
+     * Makes the list of the literals at the indexes the current literal, for predicates merged
+     * from several operators (e.g. an IN built from ORed equalities)
+     */
+    public void atLiterals(int... indexes) {
+        int[] copy = indexes.clone();
+        currentLiteral = literals -> {
+            List<Object> values = new ArrayList<>(copy.length);
+            for (int index : copy) {
+                values.add(literals.get(index));
+            }
+            return values;
+        };
+    }
+
+    /**
+     * Returns the next parameter name for the base, e.g. status_1, bound to the current literal as is
+     */
+    public String next(String base) {
+        return next(base, Function.identity());
+    }
+
+    /**
+     * Returns the next parameter name for the base, bound to the current literal through the binding
+     */
+    public String next(String base, Function<Object, ?> binding) {
+        String name = base + "_" + (++counter);
+        slots.add(new Slot(name, currentLiteral.andThen(binding)));
+        return name;
+    }
+
+    /**
+     * Returns a second parameter name for the value last named, e.g. status_1_json, bound to the
+     * current literal through the binding. Cannot collide with next, whose names end in a number.
+     */
+    public String companion(String name, String suffix, Function<Object, ?> binding) {
+        String companion = companionName(name, suffix);
+        slots.add(new Slot(companion, currentLiteral.andThen(binding)));
+        return companion;
+    }
+
+    /**
+     * Returns the name companion gives the value last named, without binding it
+     */
+    public String companionName(String name, String suffix) {
+        return name + "_" + suffix;
+    }
+
+    /**
+     * Builds the operands of a not/nor. Under an odd number of negations an UNKNOWN predicate
+     * no longer filters like FALSE, so predicates built there must keep their exact NULL behavior.
+     */
+    public <T> T negated(Supplier<T> operands) {
+        negated = !negated;
+        try {
+            return operands.get();
+        } finally {
+            negated = !negated;
+        }
+    }
+
+    /**
+     * Whether predicates built now sit under an odd number of negations
+     */
+    public boolean isNegated() {
+        return negated;
+    }
+
+    /**
+     * Gets the slots allocated so far, in allocation order
+     */
+    public List<Slot> getSlots() {
+        return Collections.unmodifiableList(slots);
+    }
+
+    /**
+     * A named parameter and how its value is computed from a request's filter literals
+     */
+    public record Slot(String name, Function<List<Object>, ?> binding) {
+
+        public Object bind(List<Object> literals) {
+            return binding.apply(literals);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package sigma.model.filter;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a SQL predicate with named parameters for PostgreSQL JSONB queries.
@@ -11,8 +10,6 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class SqlPredicate {
 
-    private static final AtomicInteger paramCounter = new AtomicInteger(0);
-
     private final String sql;
     private final Map<String, Object> parameters;
 
@@ -40,13 +37,6 @@ public class SqlPredicate {
         return Collections.unmodifiableMap(parameters);
     }
 
-    /**
-     * Generates a unique parameter name to avoid collisions
-     */
-    public static String generateParamName(String base) {
-        return base + "_" + paramCounter.incrementAndGet();
-    }
-
     /**
      * Combines multiple predicates with AND
      */
@@ -110,14 +100,14 @@ public class SqlPredicate {
      * Creates a predicate for JSONB field comparison using text extraction
      * data->>'fieldName' = :param
      */
-    public static SqlPredicate jsonbEquals(String fieldName, Object value) {
+    public static SqlPredicate jsonbEquals(ParameterNames names, String fieldName, Object value) {
         // Handle id field specially - it's a direct column, not in JSONB
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id = :" + paramName, paramName, value);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = String.format("d.dynamicFields->>'%s' = :%s", escapeJsonKey(fieldName), paramName);
         return new SqlPredicate(sql, paramName, value != null ? value.toString() : null);
     }
@@ -125,13 +115,13 @@ public class SqlPredicate {
     /**
      * Creates a predicate for JSONB field not equals
      */
-    public static SqlPredicate jsonbNotEquals(String fieldName, Object value) {
+    public static SqlPredicate jsonbNotEquals(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id != :" + paramName, paramName, value);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = String.format("(d.dynamicFields->>'%s' IS NULL OR d.dynamicFields->>'%s' != :%s)",
                 escapeJsonKey(fieldName), escapeJsonKey(fieldName), paramName);
         return new SqlPredicate(sql, paramName, value != null ? value.toString() : null);
@@ -140,13 +130,13 @@ public class SqlPredicate {
     /**
      * Creates a predicate for numeric JSONB comparison (greater than)
      */
-    public static SqlPredicate jsonbGreaterThan(String fieldName, Object value) {
+    public static SqlPredicate jsonbGreaterThan(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id > :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         // Cast to numeric for comparison
         String sql = String.format("CAST(d.dynamicFields->>'%s' AS DOUBLE PRECISION) > :%s",
                 escapeJsonKey(fieldName), paramName);
@@ -156,13 +146,13 @@ public class SqlPredicate {
     /**
      * Creates a predicate for numeric JSONB comparison (greater than or equal)
      */
-    public static SqlPredicate jsonbGreaterThanOrEqual(String fieldName, Object value) {
+    public static SqlPredicate jsonbGreaterThanOrEqual(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id >= :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = String.format("CAST(d.dynamicFields->>'%s' AS DOUBLE PRECISION) >= :%s",
                 escapeJsonKey(fieldName), paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
@@ -171,13 +161,13 @@ public class SqlPredicate {
     /**
      * Creates a predicate for numeric JSONB comparison (less than)
      */
-    public static SqlPredicate jsonbLessThan(String fieldName, Object value) {
+    public static SqlPredicate jsonbLessThan(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id < :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = String.format("CAST(d.dynamicFields->>'%s' AS DOUBLE PRECISION) < :%s",
                 escapeJsonKey(fieldName), paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
@@ -186,13 +176,13 @@ public class SqlPredicate {
     /**
      * Creates a predicate for numeric JSONB comparison (less than or equal)
      */
-    public static SqlPredicate jsonbLessThanOrEqual(String fieldName, Object value) {
+    public static SqlPredicate jsonbLessThanOrEqual(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id <= :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = String.format("CAST(d.dynamicFields->>'%s' AS DOUBLE PRECISION) <= :%s",
                 escapeJsonKey(fieldName), paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
@@ -201,13 +191,13 @@ public class SqlPredicate {
     /**
      * Creates a predicate for JSONB IN clause
      */
-    public static SqlPredicate jsonbIn(String fieldName, java.util.List<?> values) {
+    public static SqlPredicate jsonbIn(ParameterNames names, String fieldName, java.util.List<?> values) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("ids");
+            String paramName = names.next("ids");
             return new SqlPredicate("d.id IN (:" + paramName + ")", paramName, values);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = String.format("d.dynamicFields->>'%s' IN (:%s)", escapeJsonKey(fieldName), paramName);
         // Convert all values to strings for text comparison
         java.util.List<String> stringValues = values.stream()
@@ -219,13 +209,13 @@ public class SqlPredicate {
     /**
      * Creates a predicate for JSONB NOT IN clause
      */
-    public static SqlPredicate jsonbNotIn(String fieldName, java.util.List<?> values) {
+    public static SqlPredicate jsonbNotIn(ParameterNames names, String fieldName, java.util.List<?> values) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("ids");
+            String paramName = names.next("ids");
             return new SqlPredicate("d.id NOT IN (:" + paramName + ")", paramName, values);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = String.format("(d.dynamicFields->>'%s' IS NULL OR d.dynamicFields->>'%s' NOT IN (:%s))",
                 escapeJsonKey(fieldName), escapeJsonKey(fieldName), paramName);
         java.util.List<String> stringValues = values.stream()
@@ -237,8 +227,8 @@ public class SqlPredicate {
     /**
      * Creates a predicate for JSONB regex match (LIKE pattern)
      */
-    public static SqlPredicate jsonbRegex(String fieldName, Object pattern) {
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+    public static SqlPredicate jsonbRegex(ParameterNames names, String fieldName, Object pattern) {
+        String paramName = names.next(sanitizeParamName(fieldName));
         // Convert regex to SQL LIKE pattern (basic conversion)
         String likePattern = convertRegexToLike(pattern.toString());
         String sql = String.format("d.dynamicFields->>'%s' LIKE :%s", escapeJsonKey(fieldName), paramName);
@@ -4,7 +4,6 @@ import sigma.persistence.dialect.DatabaseDialect;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -14,7 +13,6 @@ import java.util.stream.Collectors;
 @Component
 public class SqlPredicateBuilder {
 
-    private static final AtomicInteger paramCounter = new AtomicInteger(0);
     private static final String DATA_COLUMN = "d.data";
 
     private final DatabaseDialect dialect;
@@ -23,13 +21,6 @@ public class SqlPredicateBuilder {
         this.dialect = dialect;
     }
 
-    /**
-     * Generates a unique parameter name to avoid collisions
-     */
-    public static String generateParamName(String base) {
-        return base + "_" + paramCounter.incrementAndGet();
-    }
-
     /**
      * Sanitizes a field name to be used as a parameter name
      */
@@ -40,14 +31,14 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for JSON field equals
      */
-    public SqlPredicate jsonEquals(String fieldName, Object value) {
+    public SqlPredicate jsonEquals(ParameterNames names, String fieldName, Object value) {
         // Handle id field specially - it's a direct column, not in JSON
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id = :" + paramName, paramName, value);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = dialect.jsonEquals(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, value != null ? value.toString() : null);
     }
@@ -55,13 +46,13 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for JSON field not equals
      */
-    public SqlPredicate jsonNotEquals(String fieldName, Object value) {
+    public SqlPredicate jsonNotEquals(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id != :" + paramName, paramName, value);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = dialect.jsonNotEquals(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, value != null ? value.toString() : null);
     }
@@ -69,13 +60,13 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for numeric JSON comparison (greater than)
      */
-    public SqlPredicate jsonGreaterThan(String fieldName, Object value) {
+    public SqlPredicate jsonGreaterThan(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id > :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = dialect.jsonGreaterThan(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
     }
@@ -83,13 +74,13 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for numeric JSON comparison (greater than or equal)
      */
-    public SqlPredicate jsonGreaterThanOrEqual(String fieldName, Object value) {
+    public SqlPredicate jsonGreaterThanOrEqual(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id >= :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = dialect.jsonGreaterThanOrEqual(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
     }
@@ -97,13 +88,13 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for numeric JSON comparison (less than)
      */
-    public SqlPredicate jsonLessThan(String fieldName, Object value) {
+    public SqlPredicate jsonLessThan(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id < :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = dialect.jsonLessThan(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
     }
@@ -111,13 +102,13 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for numeric JSON comparison (less than or equal)
      */
-    public SqlPredicate jsonLessThanOrEqual(String fieldName, Object value) {
+    public SqlPredicate jsonLessThanOrEqual(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id <= :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = dialect.jsonLessThanOrEqual(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
     }
@@ -125,13 +116,13 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for JSON IN clause
      */
-    public SqlPredicate jsonIn(String fieldName, List<?> values) {
+    public SqlPredicate jsonIn(ParameterNames names, String fieldName, List<?> values) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("ids");
+            String paramName = names.next("ids");
             return new SqlPredicate("d.id IN (:" + paramName + ")", paramName, values);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = dialect.jsonIn(DATA_COLUMN, fieldName, paramName);
         // Convert all values to strings for text comparison
         List<String> stringValues = values.stream()
@@ -143,13 +134,13 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for JSON NOT IN clause
      */
-    public SqlPredicate jsonNotIn(String fieldName, List<?> values) {
+    public SqlPredicate jsonNotIn(ParameterNames names, String fieldName, List<?> values) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("ids");
+            String paramName = names.next("ids");
             return new SqlPredicate("d.id NOT IN (:" + paramName + ")", paramName, values);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName));
         String sql = dialect.jsonNotIn(DATA_COLUMN, fieldName, paramName);
         List<String> stringValues = values.stream()
                 .map(v -> v != null ? v.toString() : null)
@@ -160,8 +151,8 @@ public class SqlPredicateBuilder {
     /**
      * Creates a predicate for JSON regex match (LIKE pattern)
      */
-    public SqlPredicate jsonRegex(String fieldName, Object pattern) {
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+    public SqlPredicate jsonRegex(ParameterNames names, String fieldName, Object pattern) {
+        String paramName = names.next(sanitizeParamName(fieldName));
         String likePattern = convertRegexToLike(pattern.toString());
         String sql = dialect.jsonLike(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, likePattern);
@@ -1,10 +1,21 @@
 package sigma.model.filter;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
 import sigma.persistence.dialect.DatabaseDialect;
 import sigma.persistence.dialect.PostgreSqlDialect;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -14,11 +25,17 @@ import java.util.stream.Collectors;
  */
 public final class SqlPredicateFactory {
 
-    private static final AtomicInteger paramCounter = new AtomicInteger(0);
     private static final String DATA_COLUMN = "d.data";
 
     private static volatile DatabaseDialect dialect = new PostgreSqlDialect();
 
+    private static final JsonNodeFactory JSON = JsonNodeFactory.withExactBigDecimals(true);
+
+    // Exact numbers: a rounded double would no longer contain the stored value
+    private static final ObjectMapper JSON_READER = new ObjectMapper()
+            .setNodeFactory(JSON)
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
     private SqlPredicateFactory() {
         // Singleton - no instantiation
     }
@@ -40,13 +57,6 @@ public final class SqlPredicateFactory {
         return dialect;
     }
 
-    /**
-     * Generates a unique parameter name to avoid collisions
-     */
-    public static String generateParamName(String base) {
-        return base + "_" + paramCounter.incrementAndGet();
-    }
-
     /**
      * Sanitizes a field name to be used as a parameter name
      */
@@ -57,41 +67,42 @@ public final class SqlPredicateFactory {
     /**
      * Creates a predicate for JSON field equals
      */
-    public static SqlPredicate jsonEquals(String fieldName, Object value) {
+    public static SqlPredicate jsonEquals(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id = :" + paramName, paramName, value);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toText);
         String sql = dialect.jsonEquals(DATA_COLUMN, fieldName, paramName);
-        return new SqlPredicate(sql, paramName, value != null ? value.toString() : null);
+        return indexable(names, fieldName, new SqlPredicate(sql, paramName, toText(value)),
+                paramName, Collections::singletonList, value);
     }
 
     /**
      * Creates a predicate for JSON field not equals
      */
-    public static SqlPredicate jsonNotEquals(String fieldName, Object value) {
+    public static SqlPredicate jsonNotEquals(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id");
             return new SqlPredicate("d.id != :" + paramName, paramName, value);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toText);
         String sql = dialect.jsonNotEquals(DATA_COLUMN, fieldName, paramName);
-        return new SqlPredicate(sql, paramName, value != null ? value.toString() : null);
+        return new SqlPredicate(sql, paramName, toText(value));
     }
 
     /**
      * Creates a predicate for numeric JSON comparison (greater than)
      */
-    public static SqlPredicate jsonGreaterThan(String fieldName, Object value) {
+    public static SqlPredicate jsonGreaterThan(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id", SqlPredicateFactory::toLong);
             return new SqlPredicate("d.id > :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toDouble);
         String sql = dialect.jsonGreaterThan(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
     }
@@ -99,13 +110,13 @@ public final class SqlPredicateFactory {
     /**
      * Creates a predicate for numeric JSON comparison (greater than or equal)
      */
-    public static SqlPredicate jsonGreaterThanOrEqual(String fieldName, Object value) {
+    public static SqlPredicate jsonGreaterThanOrEqual(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id", SqlPredicateFactory::toLong);
             return new SqlPredicate("d.id >= :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toDouble);
         String sql = dialect.jsonGreaterThanOrEqual(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
     }
@@ -113,13 +124,13 @@ public final class SqlPredicateFactory {
     /**
      * Creates a predicate for numeric JSON comparison (less than)
      */
-    public static SqlPredicate jsonLessThan(String fieldName, Object value) {
+    public static SqlPredicate jsonLessThan(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id", SqlPredicateFactory::toLong);
             return new SqlPredicate("d.id < :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toDouble);
         String sql = dialect.jsonLessThan(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
     }
@@ -127,59 +138,75 @@ public final class SqlPredicateFactory {
     /**
      * Creates a predicate for numeric JSON comparison (less than or equal)
      */
-    public static SqlPredicate jsonLessThanOrEqual(String fieldName, Object value) {
+    public static SqlPredicate jsonLessThanOrEqual(ParameterNames names, String fieldName, Object value) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("id");
+            String paramName = names.next("id", SqlPredicateFactory::toLong);
             return new SqlPredicate("d.id <= :" + paramName, paramName, toLong(value));
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toDouble);
         String sql = dialect.jsonLessThanOrEqual(DATA_COLUMN, fieldName, paramName);
         return new SqlPredicate(sql, paramName, toDouble(value));
     }
 
+    /**
+     * Creates a predicate for an inclusive numeric range.
+     * The current literal of names is the [low, high] pair.
+     */
+    public static SqlPredicate jsonBetween(ParameterNames names, String fieldName, Object low, Object high) {
+        Map<String, Object> parameters = new HashMap<>();
+        if ("id".equals(fieldName)) {
+            String lowName = names.next("id", bounds -> toLong(((List<?>) bounds).get(0)));
+            String highName = names.next("id", bounds -> toLong(((List<?>) bounds).get(1)));
+            parameters.put(lowName, toLong(low));
+            parameters.put(highName, toLong(high));
+            return new SqlPredicate("d.id BETWEEN :" + lowName + " AND :" + highName, parameters);
+        }
+
+        String base = sanitizeParamName(fieldName);
+        String lowName = names.next(base, bounds -> toDouble(((List<?>) bounds).get(0)));
+        String highName = names.next(base, bounds -> toDouble(((List<?>) bounds).get(1)));
+        parameters.put(lowName, toDouble(low));
+        parameters.put(highName, toDouble(high));
+        return new SqlPredicate(dialect.jsonBetween(DATA_COLUMN, fieldName, lowName, highName), parameters);
+    }
+
     /**
      * Creates a predicate for JSON IN clause
      */
-    public static SqlPredicate jsonIn(String fieldName, List<?> values) {
+    public static SqlPredicate jsonIn(ParameterNames names, String fieldName, List<?> values) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("ids");
+            String paramName = names.next("ids");
             return new SqlPredicate("d.id IN (:" + paramName + ")", paramName, values);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toTextList);
         String sql = dialect.jsonIn(DATA_COLUMN, fieldName, paramName);
-        List<String> stringValues = values.stream()
-                .map(v -> v != null ? v.toString() : null)
-                .collect(Collectors.toList());
-        return new SqlPredicate(sql, paramName, stringValues);
+        return indexable(names, fieldName, new SqlPredicate(sql, paramName, toTextList(values)),
+                paramName, literal -> (List<?>) literal, values);
     }
 
     /**
      * Creates a predicate for JSON NOT IN clause
      */
-    public static SqlPredicate jsonNotIn(String fieldName, List<?> values) {
+    public static SqlPredicate jsonNotIn(ParameterNames names, String fieldName, List<?> values) {
         if ("id".equals(fieldName)) {
-            String paramName = generateParamName("ids");
+            String paramName = names.next("ids");
             return new SqlPredicate("d.id NOT IN (:" + paramName + ")", paramName, values);
         }
 
-        String paramName = generateParamName(sanitizeParamName(fieldName));
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toTextList);
         String sql = dialect.jsonNotIn(DATA_COLUMN, fieldName, paramName);
-        List<String> stringValues = values.stream()
-                .map(v -> v != null ? v.toString() : null)
-                .collect(Collectors.toList());
-        return new SqlPredicate(sql, paramName, stringValues);
+        return new SqlPredicate(sql, paramName, toTextList(values));
     }
 
     /**
      * Creates a predicate for JSON regex match (LIKE pattern)
      */
-    public static SqlPredicate jsonRegex(String fieldName, Object pattern) {
-        String paramName = generateParamName(sanitizeParamName(fieldName));
-        String likePattern = convertRegexToLike(pattern.toString());
+    public static SqlPredicate jsonRegex(ParameterNames names, String fieldName, Object pattern) {
+        String paramName = names.next(sanitizeParamName(fieldName), SqlPredicateFactory::toLikePattern);
         String sql = dialect.jsonLike(DATA_COLUMN, fieldName, paramName);
-        return new SqlPredicate(sql, paramName, likePattern);
+        return new SqlPredicate(sql, paramName, toLikePattern(pattern));
     }
 
     /**
@@ -199,6 +226,69 @@ public final class SqlPredicateFactory {
         return new SqlPredicate(sql);
     }
 
+    /**
+     * ANDs a containment test the GIN index can serve to a text match, if the dialect supports it.
+     * The containment documents match every value the text match accepts (and a few it does not,
+     * e.g. 5.0 for "5"), so the text match rechecks them. A missing field turns the containment
+     * FALSE where the text match is UNKNOWN, which only filters the same way outside not/nor.
+     */
+    private static SqlPredicate indexable(ParameterNames names, String fieldName, SqlPredicate textMatch,
+                                          String paramName, Function<Object, List<?>> valuesOf, Object literal) {
+        if (names.isNegated()) {
+            return textMatch;
+        }
+        String containment = dialect.jsonContainsAny(DATA_COLUMN, names.companionName(paramName, "json"));
+        if (containment == null) {
+            return textMatch;
+        }
+        String documentsName = names.companion(paramName, "json",
+                bound -> toContainmentDocuments(fieldName, valuesOf.apply(bound)));
+        Map<String, Object> parameters = new HashMap<>(textMatch.getParameters());
+        parameters.put(documentsName, toContainmentDocuments(fieldName, valuesOf.apply(literal)));
+        return new SqlPredicate("(" + containment + " AND " + textMatch.getSql() + ")", parameters);
+    }
+
+    /**
+     * Two documents per value: the field holding the value's text as a JSON string, and holding
+     * that text read as JSON (number, boolean, ...) when it is valid JSON
+     */
+    private static List<String> toContainmentDocuments(String fieldName, List<?> values) {
+        List<String> documents = new ArrayList<>(values.size() * 2);
+        for (Object value : values) {
+            String text = toText(value);
+            JsonNode asString = text != null ? TextNode.valueOf(text) : NullNode.getInstance();
+            documents.add(JSON.objectNode().set(fieldName, asString).toString());
+            documents.add(JSON.objectNode().set(fieldName, readJsonOr(text, asString)).toString());
+        }
+        return documents;
+    }
+
+    private static JsonNode readJsonOr(String text, JsonNode fallback) {
+        if (text == null) {
+            return fallback;
+        }
+        try {
+            JsonNode node = JSON_READER.readTree(text);
+            return node == null || node.isMissingNode() ? fallback : node;
+        } catch (JsonProcessingException e) {
+            return fallback;
+        }
+    }
+
+    private static String toText(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static List<String> toTextList(Object values) {
+        return ((List<?>) values).stream()
+                .map(SqlPredicateFactory::toText)
+                .collect(Collectors.toList());
+    }
+
+    private static String toLikePattern(Object pattern) {
+        return convertRegexToLike(pattern.toString());
+    }
+
     private static Double toDouble(Object value) {
         if (value == null) return null;
         if (value instanceof Number) {
@@ -0,0 +1,63 @@
+package sigma.model.filter.node;
+
+import sigma.model.filter.FilterConfig;
+import sigma.model.filter.ParameterNames;
+import sigma.model.filter.SqlPredicate;
+import sigma.model.filter.SqlPredicateFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents an inclusive range on one field.
+ * Produced by FilterOptimizer from ANDed gte and lte on the same field.
+ * Example: { "price": { "gte": 100, "lte": 200 } }
+ */
+public class BetweenFilterNode extends FilterNode {
+
+    private final String fieldName;
+    private final Object low;
+    private final Object high;
+    private final int lowLiteral;  // FilterShape index of low
+    private final int highLiteral; // FilterShape index of high
+
+    public BetweenFilterNode(String fieldName, Object low, Object high, int lowLiteral, int highLiteral) {
+        this.fieldName = fieldName;
+        this.low = low;
+        this.high = high;
+        this.lowLiteral = lowLiteral;
+        this.highLiteral = highLiteral;
+    }
+
+    @Override
+    public SqlPredicate toPredicate(ParameterNames names) {
+        names.atLiterals(lowLiteral, highLiteral);
+        return SqlPredicateFactory.jsonBetween(names, fieldName, low, high);
+    }
+
+    @Override
+    public List<String> validate(FilterConfig config) {
+        Map<String, Object> operators = new LinkedHashMap<>();
+        operators.put("gte", low);
+        operators.put("lte", high);
+        return new FieldFilterNode(fieldName, operators).validate(config);
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public Object getLow() {
+        return low;
+    }
+
+    public Object getHigh() {
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        return "BetweenFilter{" + fieldName + " between " + low + " and " + high + "}";
+    }
+}
@@ -0,0 +1,65 @@
+package sigma.model.filter.node;
+
+import sigma.model.filter.FilterConfig;
+import sigma.model.filter.FilterOperator;
+import sigma.model.filter.ParameterNames;
+import sigma.model.filter.SqlPredicate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a single operator applied to a field.
+ * Produced by FilterOptimizer when it splits a FieldFilterNode into its operators.
+ * Example: { "price": { "gte": 100 } }
+ */
+public class ComparisonFilterNode extends FilterNode {
+
+    private final String fieldName;
+    private final FilterOperator operator;
+    private final Object value;
+    private final int literal; // FilterShape index of the value
+
+    public ComparisonFilterNode(String fieldName, FilterOperator operator, Object value, int literal) {
+        if (operator.isLogical()) {
+            throw new IllegalArgumentException("Operator must not be logical: " + operator);
+        }
+        this.fieldName = fieldName;
+        this.operator = operator;
+        this.value = value;
+        this.literal = literal;
+    }
+
+    @Override
+    public SqlPredicate toPredicate(ParameterNames names) {
+        names.atLiteral(literal);
+        return operator.getStrategy().apply(fieldName, value, names);
+    }
+
+    @Override
+    public List<String> validate(FilterConfig config) {
+        return new FieldFilterNode(fieldName, Collections.singletonMap(operator.getOperatorSymbol(), value))
+                .validate(config);
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public FilterOperator getOperator() {
+        return operator;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public int getLiteral() {
+        return literal;
+    }
+
+    @Override
+    public String toString() {
+        return "ComparisonFilter{" + fieldName + " " + operator.getOperatorSymbol() + " " + value + "}";
+    }
+}
@@ -1,6 +1,7 @@
 package sigma.model.filter.node;
 
 import sigma.model.filter.FilterConfig;
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 
 import java.util.ArrayList;
@@ -21,18 +22,18 @@ public class CompositeFilterNode extends FilterNode {
     }
 
     @Override
-    public SqlPredicate toPredicate() {
+    public SqlPredicate toPredicate(ParameterNames names) {
         if (children.isEmpty()) {
             return new SqlPredicate("1=1");
         }
 
         if (children.size() == 1) {
-            return children.get(0).toPredicate();
+            return children.get(0).toPredicate(names);
         }
 
         // Multiple children are implicitly ANDed
         List<SqlPredicate> predicates = children.stream()
-                .map(FilterNode::toPredicate)
+                .map(child -> child.toPredicate(names))
                 .collect(Collectors.toList());
 
         return SqlPredicate.and(predicates.toArray(new SqlPredicate[0]));
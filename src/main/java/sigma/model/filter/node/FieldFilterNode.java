@@ -2,6 +2,7 @@ package sigma.model.filter.node;
 
 import sigma.model.filter.FilterConfig;
 import sigma.model.filter.FilterOperator;
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 import sigma.model.filter.operator.OperatorStrategy;
 
@@ -17,22 +18,33 @@ public class FieldFilterNode extends FilterNode {
 
     private final String fieldName;
     private final Map<String, Object> operators; // operator -> value
+    private final int firstLiteral; // FilterShape index of the first operator value
 
     public FieldFilterNode(String fieldName, Map<String, Object> operators) {
+        this(fieldName, operators, 0);
+    }
+
+    public FieldFilterNode(String fieldName, Map<String, Object> operators, int firstLiteral) {
         this.fieldName = fieldName;
         this.operators = operators;
+        this.firstLiteral = firstLiteral;
     }
 
     /**
      * Constructor for simple equality: { "fieldName": value }
      */
     public FieldFilterNode(String fieldName, Object value) {
+        this(fieldName, value, 0);
+    }
+
+    public FieldFilterNode(String fieldName, Object value, int literal) {
         this.fieldName = fieldName;
         this.operators = Map.of("eq", value);
+        this.firstLiteral = literal;
     }
 
     @Override
-    public SqlPredicate toPredicate() {
+    public SqlPredicate toPredicate(ParameterNames names) {
         if (operators.isEmpty()) {
             return new SqlPredicate("1=1");
         }
@@ -44,11 +56,13 @@ public class FieldFilterNode extends FilterNode {
             Object value = entry.getValue();
 
             FilterOperator operator = FilterOperator.fromString(operatorSymbol);
-            return operator.getStrategy().apply(fieldName, value);
+            names.atLiteral(firstLiteral);
+            return operator.getStrategy().apply(fieldName, value, names);
         }
 
         // Multiple operators on same field - AND them together
         List<SqlPredicate> predicates = new ArrayList<>();
+        int literal = firstLiteral;
         for (Map.Entry<String, Object> entry : operators.entrySet()) {
             String operatorSymbol = entry.getKey();
             Object value = entry.getValue();
@@ -56,7 +70,8 @@ public class FieldFilterNode extends FilterNode {
             FilterOperator operator = FilterOperator.fromString(operatorSymbol);
             OperatorStrategy strategy = operator.getStrategy();
 
-            predicates.add(strategy.apply(fieldName, value));
+            names.atLiteral(literal++);
+            predicates.add(strategy.apply(fieldName, value, names));
         }
 
         return SqlPredicate.and(predicates.toArray(new SqlPredicate[0]));
@@ -108,6 +123,10 @@ public class FieldFilterNode extends FilterNode {
         return operators;
     }
 
+    public int getFirstLiteral() {
+        return firstLiteral;
+    }
+
     @Override
     public String toString() {
         return "FieldFilter{" + fieldName + ": " + operators + "}";
@@ -1,6 +1,7 @@
 package sigma.model.filter.node;
 
 import sigma.model.filter.FilterConfig;
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 
 import java.util.List;
@@ -13,8 +14,10 @@ public abstract class FilterNode {
 
     /**
      * Converts this node to a SQL predicate for PostgreSQL JSONB queries
+     *
+     * @param names Allocates the parameter names of the translation this node is part of
      */
-    public abstract SqlPredicate toPredicate();
+    public abstract SqlPredicate toPredicate(ParameterNames names);
 
     /**
      * Validates this node against the filter configuration
@@ -0,0 +1,63 @@
+package sigma.model.filter.node;
+
+import sigma.model.filter.FilterConfig;
+import sigma.model.filter.FilterOperator;
+import sigma.model.filter.ParameterNames;
+import sigma.model.filter.SqlPredicate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents equalities on one field merged into a single IN.
+ * Produced by FilterOptimizer from ORed equalities; each value keeps its own literal index.
+ * Example: { "or": [ { "status": "A" }, { "status": "B" } ] }
+ */
+public class InFilterNode extends FilterNode {
+
+    private final String fieldName;
+    private final List<Object> values;
+    private final int[] literals; // FilterShape index of each value
+
+    public InFilterNode(String fieldName, List<Object> values, int[] literals) {
+        if (values.size() != literals.length) {
+            throw new IllegalArgumentException("Each IN value needs a literal index");
+        }
+        this.fieldName = fieldName;
+        this.values = values;
+        this.literals = literals.clone();
+    }
+
+    @Override
+    public SqlPredicate toPredicate(ParameterNames names) {
+        names.atLiterals(literals);
+        return FilterOperator.IN.getStrategy().apply(fieldName, values, names);
+    }
+
+    @Override
+    public List<String> validate(FilterConfig config) {
+        List<String> errors = new ArrayList<>();
+        for (Object value : values) {
+            errors.addAll(new FieldFilterNode(fieldName, Collections.singletonMap("eq", value)).validate(config));
+        }
+        return errors;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public int[] getLiterals() {
+        return literals.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "InFilter{" + fieldName + " in " + values + "}";
+    }
+}
@@ -2,6 +2,7 @@ package sigma.model.filter.node;
 
 import sigma.model.filter.FilterConfig;
 import sigma.model.filter.FilterOperator;
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 import sigma.model.filter.operator.LogicalOperator;
 
@@ -27,16 +28,22 @@ public class LogicalFilterNode extends FilterNode {
     }
 
     @Override
-    public SqlPredicate toPredicate() {
+    public SqlPredicate toPredicate(ParameterNames names) {
         LogicalOperator logicalOp = (LogicalOperator) operator.getStrategy();
 
-        List<SqlPredicate> childPredicates = children.stream()
-                .map(FilterNode::toPredicate)
-                .collect(Collectors.toList());
+        List<SqlPredicate> childPredicates = logicalOp.negatesOperands()
+                ? names.negated(() -> childPredicates(names))
+                : childPredicates(names);
 
         return logicalOp.applyPredicates(childPredicates);
     }
 
+    private List<SqlPredicate> childPredicates(ParameterNames names) {
+        return children.stream()
+                .map(child -> child.toPredicate(names))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public List<String> validate(FilterConfig config) {
         List<String> errors = new ArrayList<>();
@@ -1,5 +1,6 @@
 package sigma.model.filter.operator;
 
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 import sigma.model.filter.SqlPredicateFactory;
 
@@ -13,7 +14,7 @@ public class ExistsOperator extends ComparisonOperator {
     }
 
     @Override
-    public SqlPredicate apply(String fieldName, Object value) {
+    public SqlPredicate apply(String fieldName, Object value, ParameterNames names) {
         boolean shouldExist = true;
         if (value instanceof Boolean) {
             shouldExist = (Boolean) value;
@@ -21,6 +22,11 @@ public class ExistsOperator extends ComparisonOperator {
         return SqlPredicateFactory.jsonExists(fieldName, shouldExist);
     }
 
+    @Override
+    public boolean inlinesValue() {
+        return true;
+    }
+
     @Override
     public boolean isValidValue(Object value) {
         return value instanceof Boolean;
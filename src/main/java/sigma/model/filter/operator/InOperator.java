@@ -1,5 +1,6 @@
 package sigma.model.filter.operator;
 
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 import sigma.model.filter.SqlPredicateFactory;
 
@@ -15,9 +16,9 @@ public class InOperator extends ComparisonOperator {
     }
 
     @Override
-    public SqlPredicate apply(String fieldName, Object value) {
+    public SqlPredicate apply(String fieldName, Object value, ParameterNames names) {
         if (value instanceof List) {
-            return SqlPredicateFactory.jsonIn(fieldName, (List<?>) value);
+            return SqlPredicateFactory.jsonIn(names, fieldName, (List<?>) value);
         }
         throw new IllegalArgumentException("in operator requires a list value");
     }
@@ -1,5 +1,6 @@
 package sigma.model.filter.operator;
 
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 import sigma.model.filter.SqlPredicateFactory;
 
@@ -13,7 +14,7 @@ public class LessThanEqualOperator extends ComparisonOperator {
     }
 
     @Override
-    public SqlPredicate apply(String fieldName, Object value) {
-        return SqlPredicateFactory.jsonLessThanOrEqual(fieldName, value);
+    public SqlPredicate apply(String fieldName, Object value, ParameterNames names) {
+        return SqlPredicateFactory.jsonLessThanOrEqual(names, fieldName, value);
     }
 }
@@ -1,5 +1,6 @@
 package sigma.model.filter.operator;
 
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 import sigma.model.filter.SqlPredicateFactory;
 
@@ -13,7 +14,7 @@ public class LessThanOperator extends ComparisonOperator {
     }
 
     @Override
-    public SqlPredicate apply(String fieldName, Object value) {
-        return SqlPredicateFactory.jsonLessThan(fieldName, value);
+    public SqlPredicate apply(String fieldName, Object value, ParameterNames names) {
+        return SqlPredicateFactory.jsonLessThan(names, fieldName, value);
     }
 }
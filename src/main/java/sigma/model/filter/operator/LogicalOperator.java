@@ -1,5 +1,6 @@
 package sigma.model.filter.operator;
 
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 
 import java.util.List;
@@ -30,7 +31,7 @@ public abstract class LogicalOperator implements OperatorStrategy {
      * This method should not be called directly
      */
     @Override
-    public SqlPredicate apply(String fieldName, Object value) {
+    public SqlPredicate apply(String fieldName, Object value, ParameterNames names) {
         throw new UnsupportedOperationException(
             "Logical operators should use applyPredicates() instead of apply()");
     }
@@ -43,6 +44,13 @@ public abstract class LogicalOperator implements OperatorStrategy {
      */
     public abstract SqlPredicate applyPredicates(List<SqlPredicate> predicates);
 
+    /**
+     * Returns true if the combined predicate negates its operands (not, nor)
+     */
+    public boolean negatesOperands() {
+        return false;
+    }
+
     @Override
     public boolean isValidValue(Object value) {
         return value instanceof List;
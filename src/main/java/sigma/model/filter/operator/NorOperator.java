@@ -14,6 +14,11 @@ public class NorOperator extends LogicalOperator {
         super("nor");
     }
 
+    @Override
+    public boolean negatesOperands() {
+        return true;
+    }
+
     @Override
     public SqlPredicate applyPredicates(List<SqlPredicate> predicates) {
         if (predicates.isEmpty()) {
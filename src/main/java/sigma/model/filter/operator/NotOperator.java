@@ -14,6 +14,11 @@ public class NotOperator extends LogicalOperator {
         super("not");
     }
 
+    @Override
+    public boolean negatesOperands() {
+        return true;
+    }
+
     @Override
     public SqlPredicate applyPredicates(List<SqlPredicate> predicates) {
         if (predicates.isEmpty()) {
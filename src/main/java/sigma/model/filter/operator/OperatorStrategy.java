@@ -1,5 +1,6 @@
 package sigma.model.filter.operator;
 
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 
 /**
@@ -14,9 +15,10 @@ public interface OperatorStrategy {
      *
      * @param fieldName The field to apply the operator to
      * @param value The value for the operation
+     * @param names Parameter names of the translation this predicate belongs to
      * @return SqlPredicate with the SQL fragment and parameters
      */
-    SqlPredicate apply(String fieldName, Object value);
+    SqlPredicate apply(String fieldName, Object value, ParameterNames names);
 
     /**
      * Validates that the value is appropriate for this operator
@@ -26,6 +28,14 @@ public interface OperatorStrategy {
      */
     boolean isValidValue(Object value);
 
+    /**
+     * Returns true if the value is written into the SQL text instead of being bound as a parameter,
+     * so filters differing in it have different shapes
+     */
+    default boolean inlinesValue() {
+        return false;
+    }
+
     /**
      * Returns the operator symbol (e.g., "eq", "gt")
      */
@@ -1,5 +1,6 @@
 package sigma.model.filter.operator;
 
+import sigma.model.filter.ParameterNames;
 import sigma.model.filter.SqlPredicate;
 import sigma.model.filter.SqlPredicateFactory;
 
@@ -14,10 +15,15 @@ public class TypeOperator extends ComparisonOperator {
     }
 
     @Override
-    public SqlPredicate apply(String fieldName, Object value) {
+    public SqlPredicate apply(String fieldName, Object value, ParameterNames names) {
         return SqlPredicateFactory.jsonType(fieldName, value);
     }
 
+    @Override
+    public boolean inlinesValue() {
+        return true;
+    }
+
     @Override
     public boolean isValidValue(Object value) {
         return value instanceof Number || value instanceof String;
@@ -0,0 +1,39 @@
+package sigma.model.update;
+
+import java.util.Map;
+
+/**
+ * One targeted change to an element of a sub-entity array, located by the element's id
+ *
+ * @param value the full element for APPEND, the attributes to merge for MERGE, null for DELETE
+ */
+public record SubEntityChange(Kind kind, Long id, Map<String, Object> value) {
+
+    public enum Kind {
+        /** Appends a new element; its id must not exist in the array yet */
+        APPEND,
+        /** Merges attributes into the live element with the id */
+        MERGE,
+        /** Marks the live element with the id as deleted (isDeleted = true) */
+        DELETE
+    }
+
+    public static SubEntityChange append(Long id, Map<String, Object> element) {
+        return new SubEntityChange(Kind.APPEND, id, element);
+    }
+
+    public static SubEntityChange merge(Long id, Map<String, Object> attributes) {
+        return new SubEntityChange(Kind.MERGE, id, attributes);
+    }
+
+    public static SubEntityChange delete(Long id) {
+        return new SubEntityChange(Kind.DELETE, id, null);
+    }
+
+    /**
+     * Returns true if the element must already exist and be live, false if the id must be unused
+     */
+    public boolean requiresLiveElement() {
+        return kind != Kind.APPEND;
+    }
+}
@@ -0,0 +1,26 @@
+package sigma.model.update;
+
+import java.util.List;
+
+/**
+ * One update operator applied to one dotted path of the document, e.g. $inc on "stats.views"
+ *
+ * @param value the operand; null for $unset
+ */
+public record UpdateOperation(UpdateOperator operator, String path, Object value) {
+
+    /**
+     * Returns the path split into its field names
+     */
+    public List<String> segments() {
+        return List.of(path.split("\\."));
+    }
+
+    /**
+     * Returns the top-level field the operation writes to
+     */
+    public String rootField() {
+        int dot = path.indexOf('.');
+        return dot < 0 ? path : path.substring(0, dot);
+    }
+}
@@ -0,0 +1,52 @@
+package sigma.model.update;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Server-side update operators accepted in PATCH bodies
+ * Each operator is compiled by the database dialect into its JSON functions
+ */
+public enum UpdateOperator {
+    /** Replaces the value at the path, creating missing parent objects */
+    SET("$set"),
+    /** Removes the field at the path */
+    UNSET("$unset"),
+    /** Adds a number to the value at the path; a missing value counts as 0 */
+    INC("$inc"),
+    /** Appends a value to the array at the path; a missing array is created */
+    PUSH("$push"),
+    /** Removes every element equal to a scalar value from the array at the path */
+    PULL("$pull");
+
+    private static final Map<String, UpdateOperator> BY_KEY = Arrays.stream(values())
+            .collect(Collectors.toMap(UpdateOperator::getKey, Function.identity()));
+
+    private final String key;
+
+    UpdateOperator(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the operator for a body key such as "$inc"
+     */
+    public static UpdateOperator fromKey(String key) {
+        UpdateOperator operator = BY_KEY.get(key);
+        if (operator == null) {
+            throw new IllegalArgumentException("Unsupported update operator '" + key + "'; supported: "
+                    + BY_KEY.keySet());
+        }
+        return operator;
+    }
+
+    public static boolean isOperatorKey(String key) {
+        return key != null && key.startsWith("$");
+    }
+}
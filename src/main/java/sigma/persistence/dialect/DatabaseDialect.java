@@ -1,5 +1,9 @@
 package sigma.persistence.dialect;
 
+import sigma.model.filter.IndexedFieldType;
+import sigma.model.update.SubEntityChange;
+import sigma.model.update.UpdateOperation;
+
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +23,12 @@ public interface DatabaseDialect {
      */
     String getCreateTableSql();
 
+    /**
+     * Returns the SQL adding content_hash to a dynamic_documents table created before the column existed.
+     * Executed right after the table is created; fails harmlessly when the column is present.
+     */
+    List<String> getContentHashColumnSql();
+
     /**
      * Returns the SQL for creating indexes
      */
@@ -29,6 +39,50 @@ public interface DatabaseDialect {
      */
     List<String> getSequenceSupportSql();
 
+    /**
+     * Returns the SQL for creating sequences the table definition depends on.
+     * Executed before the table is created.
+     */
+    default List<String> getIdSequenceSql() {
+        return List.of();
+    }
+
+    /**
+     * Returns the SQL moving a dynamic_documents table created before the id sequence onto it.
+     * Executed after the schema is created; must be a no-op on a table that already uses the sequence.
+     */
+    default List<String> getIdSequenceUpgradeSql() {
+        return List.of();
+    }
+
+    /**
+     * Returns the SQL for creating the write_idempotency table (stored write responses per X-Request-ID)
+     * and its indexes
+     */
+    List<String> getIdempotencyTableSql();
+
+    /**
+     * Returns the SQL for creating the dynamic_sub_entities table (one row per sub-entity element
+     * for endpoints with subEntityStorage TABLE) and its indexes
+     */
+    List<String> getSubEntityTableSql();
+
+    /**
+     * Returns the SQL for creating the dynamic_documents_archive table (soft-deleted documents moved out of
+     * dynamic_documents after their retention, same columns plus archived_at) and its indexes
+     */
+    List<String> getArchiveTableSql();
+
+    /**
+     * Returns the SQL for creating sub_entity_id_seq, whose values number the sub-entity id blocks
+     */
+    List<String> getSubEntityIdSequenceSql();
+
+    /**
+     * Returns the query reading the next value of sub_entity_id_seq (the next id block)
+     */
+    String getNextSubEntityIdBlockSql();
+
     // ===== JSON Field Access =====
 
     /**
@@ -48,6 +102,11 @@ public interface DatabaseDialect {
      */
     String jsonNumericValue(String column, String fieldPath);
 
+    /**
+     * Returns SQL expression reading an ISO-8601 instant in a JSON field as a timestamp with time zone
+     */
+    String jsonTimestampValue(String column, String fieldPath);
+
     // ===== JSON Predicates =====
 
     /**
@@ -80,6 +139,11 @@ public interface DatabaseDialect {
      */
     String jsonLessThanOrEqual(String column, String fieldPath, String paramName);
 
+    /**
+     * Returns SQL predicate for JSON field within an inclusive numeric range
+     */
+    String jsonBetween(String column, String fieldPath, String lowParamName, String highParamName);
+
     /**
      * Returns SQL predicate for JSON field IN list
      */
@@ -90,6 +154,15 @@ public interface DatabaseDialect {
      */
     String jsonNotIn(String column, String fieldPath, String paramName);
 
+    /**
+     * Returns SQL predicate true when the column contains any of the JSON documents bound, as text,
+     * to the list parameter, which an inverted index on the data column can serve. Eq and in filters
+     * add it to their text match; returns null when they should not (no such index).
+     */
+    default String jsonContainsAny(String column, String documentsParamName) {
+        return null;
+    }
+
     /**
      * Returns SQL predicate for JSON field LIKE/regex
      */
@@ -127,12 +200,14 @@ public interface DatabaseDialect {
     String getInsertSql();
 
     /**
-     * Returns UPDATE SQL
+     * Returns UPDATE SQL guarded by the version the caller read (:expectedVersion).
+     * Zero affected rows means a concurrent write won.
      */
     String getUpdateSql();
 
     /**
-     * Whether this dialect supports RETURNING clause for INSERT
+     * Whether generated ids can be read back from the INSERT itself
+     * (RETURNING clause or driver generated keys)
      */
     boolean supportsReturningClause();
 
@@ -141,6 +216,175 @@ public interface DatabaseDialect {
      */
     String getLastInsertIdSql();
 
+    /**
+     * Returns INSERT SQL for JDBC batch execution.
+     * When ids are reserved upfront the statement also binds :id.
+     */
+    String getBatchInsertSql();
+
+    /**
+     * Returns INSERT SQL that writes the document only when no row satisfies the condition.
+     * Binds :id like getBatchInsertSql when batch generated keys are not supported.
+     */
+    String getInsertIfAbsentSql(String condition);
+
+    /**
+     * Whether the driver returns generated keys for batched INSERT statements
+     */
+    boolean supportsBatchGeneratedKeys();
+
+    /**
+     * Returns the SQL reserving :count document ids ahead of a batch insert
+     * (if batch generated keys not supported)
+     */
+    String getReserveIdsSql();
+
+    // ===== Set-based Writes =====
+
+    /**
+     * Returns SQL expression merging the JSON object bound to paramName into the column.
+     * Top-level keys of the patch replace the stored ones as they are: nested objects are not merged
+     * and null values are stored as null. Binds :{paramName} to the JSON of the patch and
+     * :{paramName}{i} to the JSON of the value of keys[i]; each dialect reads the ones it needs.
+     * e.g., PostgreSQL: column || :patch::jsonb, Oracle: JSON_TRANSFORM(column, SET '$."key"' = :patch0 ...)
+     */
+    String jsonMerge(String column, String paramName, List<String> keys);
+
+    /**
+     * Returns a condition that is true when the two JSON expressions hold different documents,
+     * comparing object keys regardless of their order; used to skip writes that would change nothing
+     */
+    String jsonDiffers(String left, String right);
+
+    /**
+     * Returns SQL expression applying update operators to the column, so the new value is computed
+     * from the stored one inside the UPDATE. Paths of the operations are disjoint.
+     * Operation i binds :{paramPrefix}{i} to the JSON text of its operand.
+     * e.g., PostgreSQL: jsonb_set / jsonb_insert / #-, Oracle: JSON_TRANSFORM
+     */
+    String jsonApplyOperations(String column, List<UpdateOperation> operations, String paramPrefix);
+
+    /**
+     * Returns SQL expression applying sub-entity changes to the array field of expression.
+     * Elements are located by id in the stored column, so only the changed elements are sent and built.
+     * Change i binds :{paramPrefix}{i}Id to the element id and :{paramPrefix}{i} to the JSON of its value.
+     */
+    String jsonApplySubEntityChanges(String expression, String column, String field,
+                                     List<SubEntityChange> changes, String paramPrefix);
+
+    /**
+     * Returns SQL predicate checking that the array field has an element with the id bound to idParam
+     * (optionally only a live one, i.e. not isDeleted)
+     */
+    String jsonArrayHasElement(String column, String field, String idParam, boolean liveOnly);
+
+    /**
+     * Wraps an UPDATE so it returns the given columns of the affected rows in the same round trip,
+     * or returns null when the dialect cannot; callers then select the affected ids first.
+     * e.g., PostgreSQL: UPDATE ... RETURNING id, H2: SELECT id FROM FINAL TABLE (UPDATE ...)
+     */
+    String updateReturning(String updateSql, String columns);
+
+    /**
+     * Makes a SELECT of document ids lock up to limit of the rows it reads, skipping rows locked by
+     * concurrent transactions. The statement runs with fetch size limit and the caller reads at most
+     * limit rows. e.g., PostgreSQL/H2: ... ORDER BY d.id LIMIT n FOR UPDATE SKIP LOCKED,
+     * Oracle: ... FOR UPDATE SKIP LOCKED
+     */
+    String selectForClaim(String selectSql, int limit);
+
+    // ===== Upsert =====
+
+    /**
+     * Returns SQL creating the unique index that backs upserts on the key fields of one collection.
+     * Only live (not deleted) documents take part. Returns null if the dialect cannot index JSON expressions.
+     */
+    String getCreateUpsertKeyIndexSql(String tableName, List<String> keyFields);
+
+    /**
+     * Returns a single statement that inserts the document or merges it into the live document
+     * with the same key field values. Binds the insert parameters plus :upsertKey0..:upsertKeyN,
+     * and :data0..:dataN for the top-level dataKeys of the document as in jsonMerge.
+     * Inserted rows keep version 0; merged rows get version + 1.
+     */
+    String getUpsertSql(String tableName, List<String> keyFields, List<String> dataKeys);
+
+    /**
+     * Returns the condition selecting the live document of a collection by its upsert key values,
+     * written the way the upsert key index is so the index serves it. Binds :upsertKey0..:upsertKeyN.
+     */
+    String upsertKeyMatch(String alias, String tableName, List<String> keyFields);
+
+    /**
+     * Returns a query for the existing upsert key indexes in the shape of getFieldIndexesQuery,
+     * or null if a failed build of the dialect's upsert key index leaves nothing behind
+     */
+    default String getUpsertKeyIndexesQuery() {
+        return null;
+    }
+
+    /**
+     * Returns the name of the upsert key index for a collection
+     */
+    default String upsertKeyIndexName(String tableName, List<String> keyFields) {
+        String sanitized = tableName.toLowerCase().replaceAll("[^a-z0-9]", "_");
+        if (sanitized.length() > 30) {
+            sanitized = sanitized.substring(0, 30);
+        }
+        String hash = Integer.toHexString((tableName + ":" + String.join(",", keyFields)).hashCode());
+        return "uq_dyn_docs_" + sanitized + "_" + hash;
+    }
+
+    /**
+     * Returns the SQL string literal for a collection name
+     */
+    default String tableNameLiteral(String tableName) {
+        return "'" + tableName.replace("'", "''") + "'";
+    }
+
+    // ===== Field Indexes =====
+
+    /**
+     * Prefix of the indexes created from readFilter index declarations; indexes with it that are
+     * no longer declared are dropped
+     */
+    String FIELD_INDEX_PREFIX = "ix_dyn_docs_";
+
+    /**
+     * Returns the name of the index on a collection's field
+     */
+    default String fieldIndexName(String tableName, String field, IndexedFieldType type) {
+        String sanitized = tableName.toLowerCase().replaceAll("[^a-z0-9]", "_");
+        if (sanitized.length() > 30) {
+            sanitized = sanitized.substring(0, 30);
+        }
+        String hash = Integer.toHexString((tableName + ":" + field + ":" + type).hashCode());
+        return FIELD_INDEX_PREFIX + sanitized + "_" + hash;
+    }
+
+    /**
+     * Returns the SQL creating the index on a collection's field, built online where the database
+     * supports it, or null if the dialect cannot index JSON fields
+     */
+    default String getCreateFieldIndexSql(String tableName, String field, IndexedFieldType type) {
+        return null;
+    }
+
+    /**
+     * Returns the SQL dropping a field index
+     */
+    default String getDropFieldIndexSql(String indexName) {
+        return "DROP INDEX " + indexName;
+    }
+
+    /**
+     * Returns a query for the existing field indexes as rows of (index_name, valid, building),
+     * building being whether an online build of the index is in progress; null if the dialect creates none
+     */
+    default String getFieldIndexesQuery() {
+        return null;
+    }
+
     // ===== Pagination =====
 
     /**
@@ -2,6 +2,7 @@ package sigma.persistence.dialect;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
@@ -16,18 +17,24 @@ public class DatabaseDialectFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseDialectFactory.class);
 
-    private static final Map<DatabaseType, Supplier<DatabaseDialect>> DIALECT_SUPPLIERS = Map.of(
-            DatabaseType.POSTGRESQL, PostgreSqlDialect::new,
-            DatabaseType.ORACLE, OracleDialect::new,
-            DatabaseType.H2, H2Dialect::new
-    );
+    private final Map<DatabaseType, Supplier<DatabaseDialect>> dialectSuppliers;
+
+    public DatabaseDialectFactory(
+            @Value("${sigma.database.postgres.containment-filters:true}") boolean postgresContainmentFilters,
+            @Value("${sigma.database.postgres.gin-operator-class:jsonb_ops}") String postgresGinOperatorClass) {
+        this.dialectSuppliers = Map.of(
+                DatabaseType.POSTGRESQL, () -> new PostgreSqlDialect(postgresContainmentFilters, postgresGinOperatorClass),
+                DatabaseType.ORACLE, OracleDialect::new,
+                DatabaseType.H2, H2Dialect::new
+        );
+    }
 
     /**
      * Creates a dialect instance for the specified database type.
      */
     public DatabaseDialect createDialect(DatabaseType type) {
         logger.info("Creating database dialect for type: {}", type);
-        Supplier<DatabaseDialect> supplier = DIALECT_SUPPLIERS.get(type);
+        Supplier<DatabaseDialect> supplier = dialectSuppliers.get(type);
         if (supplier == null) {
             throw new IllegalArgumentException("No dialect available for type: " + type);
         }
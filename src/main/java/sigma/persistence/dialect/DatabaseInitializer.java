@@ -1,13 +1,21 @@
 package sigma.persistence.dialect;
 
+import sigma.config.properties.ZookeeperConfigProperties;
+import sigma.controller.EndpointRegistry;
+import sigma.model.Endpoint;
+import sigma.zookeeper.ZookeeperLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Initializes the database schema based on the configured dialect.
@@ -17,13 +25,35 @@ import java.util.List;
 public class DatabaseInitializer {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseInitializer.class);
+    private static final String FIELD_INDEX_LOCK_NAME = "/field-indexes";
 
     private final JdbcTemplate jdbcTemplate;
     private final DatabaseDialect dialect;
+    private final EndpointRegistry endpointRegistry;
+    private final ZookeeperLock lock;
+    private final ZookeeperConfigProperties zookeeperConfigProperties;
+    private final Executor fieldIndexExecutor;
 
-    public DatabaseInitializer(JdbcTemplate jdbcTemplate, DatabaseDialect dialect) {
+    @Autowired
+    public DatabaseInitializer(JdbcTemplate jdbcTemplate, DatabaseDialect dialect,
+                               EndpointRegistry endpointRegistry, ZookeeperLock lock,
+                               ZookeeperConfigProperties zookeeperConfigProperties) {
+        this(jdbcTemplate, dialect, endpointRegistry, lock, zookeeperConfigProperties, runnable -> {
+            Thread thread = new Thread(runnable, "field-index-reconciler");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    DatabaseInitializer(JdbcTemplate jdbcTemplate, DatabaseDialect dialect,
+                        EndpointRegistry endpointRegistry, ZookeeperLock lock,
+                        ZookeeperConfigProperties zookeeperConfigProperties, Executor fieldIndexExecutor) {
         this.jdbcTemplate = jdbcTemplate;
         this.dialect = dialect;
+        this.endpointRegistry = endpointRegistry;
+        this.lock = lock;
+        this.zookeeperConfigProperties = zookeeperConfigProperties;
+        this.fieldIndexExecutor = fieldIndexExecutor;
     }
 
     @EventListener(ApplicationReadyEvent.class)
@@ -31,9 +61,17 @@ public class DatabaseInitializer {
         logger.info("Initializing database schema for dialect: {}", dialect.getType());
 
         try {
+            // Create sequences the table depends on
+            for (String sql : dialect.getIdSequenceSql()) {
+                executeSafely(sql, "id sequence");
+            }
+
             // Create table
             String createTableSql = dialect.getCreateTableSql();
             executeIfNotExists(createTableSql, "dynamic_documents");
+            for (String sql : dialect.getContentHashColumnSql()) {
+                executeSafely(sql, "content hash column");
+            }
             logger.info("Table dynamic_documents ready");
 
             // Create indexes
@@ -50,6 +88,29 @@ public class DatabaseInitializer {
             }
             logger.info("Sequence support configured");
 
+            // Create the table of stored write responses used for X-Request-ID replays
+            for (String sql : dialect.getIdempotencyTableSql()) {
+                executeSafely(sql, "write idempotency table");
+            }
+            logger.info("Table write_idempotency ready");
+
+            // Create the sequence numbering sub-entity id blocks
+            for (String sql : dialect.getSubEntityIdSequenceSql()) {
+                executeSafely(sql, "sub-entity id sequence");
+            }
+
+            // Create the child table of endpoints storing sub-entities as rows
+            for (String sql : dialect.getSubEntityTableSql()) {
+                executeSafely(sql, "sub-entity table");
+            }
+            logger.info("Table dynamic_sub_entities ready");
+
+            // Create the table soft-deleted documents are archived into
+            for (String sql : dialect.getArchiveTableSql()) {
+                executeSafely(sql, "archive table");
+            }
+            logger.info("Table dynamic_documents_archive ready");
+
             logger.info("Database schema initialization completed for {}", dialect.getType());
 
         } catch (Exception e) {
@@ -57,6 +118,181 @@ public class DatabaseInitializer {
                 dialect.getType(), e.getMessage(), e);
             // Don't fail startup - schema might already exist
         }
+
+        // Unlike the rest of the schema these fail startup: inserts and upserts depend on them
+        upgradeIdSequence();
+        createUpsertKeyIndexes();
+
+        // Online builds of the expression indexes declared in readFilter configs can take long;
+        // they run in the background so the service does not wait for them to become ready
+        fieldIndexExecutor.execute(this::createFieldIndexes);
+    }
+
+    /**
+     * Moves a dynamic_documents table created before the id sequence onto it
+     *
+     * @throws IllegalStateException if the table cannot be moved; batch inserts would reuse ids
+     */
+    private void upgradeIdSequence() {
+        for (String sql : dialect.getIdSequenceUpgradeSql()) {
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not move dynamic_documents ids onto their sequence: "
+                        + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Creates the unique index backing the upsert keys of each collection
+     *
+     * @throws IllegalStateException if an index cannot be built, e.g. live documents already share a key
+     */
+    private void createUpsertKeyIndexes() {
+        Map<String, List<String>> keysByCollection = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpointRegistry.getAllEndpoints().values()) {
+            if (endpoint.hasUpsertKeys()) {
+                List<String> previous = keysByCollection.putIfAbsent(
+                        endpoint.getDatabaseCollection(), endpoint.getUpsertKeys());
+                if (previous != null && !previous.equals(endpoint.getUpsertKeys())) {
+                    logger.warn("Conflicting upsert keys for collection {}: {} vs {}",
+                            endpoint.getDatabaseCollection(), previous, endpoint.getUpsertKeys());
+                }
+            }
+        }
+
+        String indexesQuery = dialect.getUpsertKeyIndexesQuery();
+        Map<String, ExistingIndex> existing = indexesQuery != null ? findIndexes(indexesQuery) : Map.of();
+        keysByCollection.forEach((collection, keyFields) -> {
+            String sql = dialect.getCreateUpsertKeyIndexSql(collection, keyFields);
+            if (sql == null) {
+                return;
+            }
+            String indexName = dialect.upsertKeyIndexName(collection, keyFields);
+            ExistingIndex index = existing.get(indexName);
+            if (index != null && index.building()) {
+                logger.info("Upsert key index {} is being built by another node", indexName);
+                return;
+            }
+            // A failed online build leaves an invalid index that IF NOT EXISTS would keep; rebuild it
+            if (index != null && index.failed()) {
+                executeSafely(dialect.getDropFieldIndexSql(indexName), "invalid upsert key index");
+                logger.info("Dropped invalid upsert key index {}", indexName);
+            }
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (Exception e) {
+                // The invalid index would go on rejecting duplicate keys while upserts cannot use it
+                if (indexesQuery != null) {
+                    executeSafely(dialect.getDropFieldIndexSql(indexName), "failed upsert key index");
+                }
+                throw new IllegalStateException("Could not create the upsert key index of collection "
+                        + collection + " on " + keyFields + ": " + e.getMessage(), e);
+            }
+            logger.info("Upsert key index ready for collection {} on {}", collection, keyFields);
+        });
+    }
+
+    /**
+     * Creates the declared field indexes and drops stale or failed ones. Online builds and drops
+     * from several nodes would collide, so only the node holding the Zookeeper lock does this.
+     */
+    private void createFieldIndexes() {
+        if (dialect.getFieldIndexesQuery() == null) {
+            return;
+        }
+        String lockPath = zookeeperConfigProperties.getLocksBasePath() + FIELD_INDEX_LOCK_NAME;
+        try {
+            if (!lock.tryAcquire(lockPath)) {
+                logger.info("Field indexes are being reconciled by another node");
+                return;
+            }
+            try {
+                reconcileFieldIndexes();
+                logger.info("Field indexes reconciled");
+            } finally {
+                lock.release(lockPath);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to reconcile field indexes: {}", e.getMessage(), e);
+        }
+    }
+
+    private void reconcileFieldIndexes() {
+        Map<String, String> wanted = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpointRegistry.getAllEndpoints().values()) {
+            if (endpoint.getReadFilterConfig() == null) {
+                continue;
+            }
+            String collection = endpoint.getDatabaseCollection();
+            endpoint.getReadFilterConfig().getIndexedFields().forEach((field, type) -> {
+                String sql = dialect.getCreateFieldIndexSql(collection, field, type);
+                if (sql != null) {
+                    wanted.putIfAbsent(dialect.fieldIndexName(collection, field, type), sql);
+                }
+            });
+        }
+
+        Map<String, ExistingIndex> existing = findIndexes(dialect.getFieldIndexesQuery());
+
+        // A failed online build leaves an invalid index that IF NOT EXISTS would keep; rebuild it.
+        // An index still being built is invalid too, so it is left alone.
+        existing.forEach((indexName, index) -> {
+            if (index.failed() && wanted.containsKey(indexName)) {
+                executeSafely(dialect.getDropFieldIndexSql(indexName), "invalid field index");
+                logger.info("Dropped invalid field index {}", indexName);
+            }
+        });
+
+        wanted.forEach((indexName, sql) -> {
+            ExistingIndex index = existing.get(indexName);
+            if (index == null || index.failed()) {
+                executeSafely(sql, "field index");
+                logger.info("Field index {} ready", indexName);
+            }
+        });
+
+        // Without endpoints the registry most likely failed to load; keep the indexes
+        if (endpointRegistry.getAllEndpoints().isEmpty()) {
+            return;
+        }
+        existing.forEach((indexName, index) -> {
+            if (!wanted.containsKey(indexName) && !index.building()) {
+                executeSafely(dialect.getDropFieldIndexSql(indexName), "stale field index");
+                logger.info("Dropped stale field index {}", indexName);
+            }
+        });
+    }
+
+    /**
+     * Returns the indexes listed by a getFieldIndexesQuery-shaped query by name
+     */
+    private Map<String, ExistingIndex> findIndexes(String query) {
+        Map<String, ExistingIndex> indexes = new LinkedHashMap<>();
+        try {
+            for (Map<String, Object> row : jdbcTemplate.queryForList(query)) {
+                indexes.put((String) row.get("index_name"),
+                        new ExistingIndex(isTrue(row.get("valid")), isTrue(row.get("building"))));
+            }
+        } catch (Exception e) {
+            logger.warn("Could not list indexes: {}", e.getMessage());
+        }
+        return indexes;
+    }
+
+    private static boolean isTrue(Object flag) {
+        return flag instanceof Number number ? number.intValue() != 0 : Boolean.TRUE.equals(flag);
+    }
+
+    /**
+     * An existing index; building while an online CREATE INDEX on it is in progress
+     */
+    private record ExistingIndex(boolean valid, boolean building) {
+
+        boolean failed() {
+            return !valid && !building;
+        }
     }
 
     private void executeIfNotExists(String sql, String objectName) {
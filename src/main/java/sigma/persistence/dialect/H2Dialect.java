@@ -1,5 +1,9 @@
 package sigma.persistence.dialect;
 
+import sigma.model.update.SubEntityChange;
+import sigma.model.update.UpdateOperation;
+
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -28,11 +32,86 @@ public class H2Dialect implements DatabaseDialect {
                 last_modified_by VARCHAR(255),
                 created_at TIMESTAMP WITH TIME ZONE,
                 last_modified_at TIMESTAMP WITH TIME ZONE,
-                sequence_number BIGINT DEFAULT 0 NOT NULL
+                sequence_number BIGINT DEFAULT 0 NOT NULL,
+                content_hash VARCHAR(64)
             )
             """;
     }
 
+    @Override
+    public List<String> getIdempotencyTableSql() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS write_idempotency (
+                request_id VARCHAR(255) NOT NULL,
+                endpoint VARCHAR(255) NOT NULL,
+                response_type VARCHAR(32) NOT NULL,
+                response CLOB NOT NULL,
+                created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                PRIMARY KEY (request_id, endpoint)
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_write_idempotency_created_at ON write_idempotency(created_at)"
+        );
+    }
+
+    @Override
+    public List<String> getSubEntityTableSql() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS dynamic_sub_entities (
+                parent_id BIGINT NOT NULL REFERENCES dynamic_documents(id) ON DELETE CASCADE,
+                field VARCHAR(255) NOT NULL,
+                sub_id BIGINT NOT NULL,
+                item_index INT NOT NULL,
+                is_deleted BOOLEAN DEFAULT FALSE,
+                data CLOB NOT NULL,
+                PRIMARY KEY (parent_id, field, sub_id)
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_dynamic_sub_entities_order ON dynamic_sub_entities(parent_id, field, item_index)"
+        );
+    }
+
+    @Override
+    public List<String> getArchiveTableSql() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS dynamic_documents_archive (
+                id BIGINT PRIMARY KEY,
+                table_name VARCHAR(255) NOT NULL,
+                data CLOB,
+                version BIGINT,
+                is_deleted BOOLEAN,
+                latest_request_id VARCHAR(255),
+                created_by VARCHAR(255),
+                last_modified_by VARCHAR(255),
+                created_at TIMESTAMP WITH TIME ZONE,
+                last_modified_at TIMESTAMP WITH TIME ZONE,
+                sequence_number BIGINT NOT NULL,
+                content_hash VARCHAR(64),
+                archived_at TIMESTAMP WITH TIME ZONE NOT NULL
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_dynamic_documents_archive_sequence ON dynamic_documents_archive(table_name, sequence_number)"
+        );
+    }
+
+    @Override
+    public List<String> getSubEntityIdSequenceSql() {
+        return List.of("CREATE SEQUENCE IF NOT EXISTS sub_entity_id_seq START WITH 1 INCREMENT BY 1");
+    }
+
+    @Override
+    public String getNextSubEntityIdBlockSql() {
+        return "SELECT NEXT VALUE FOR sub_entity_id_seq";
+    }
+
+    @Override
+    public List<String> getContentHashColumnSql() {
+        return List.of("ALTER TABLE dynamic_documents ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64)");
+    }
+
     @Override
     public List<String> getCreateIndexesSql() {
         return List.of(
@@ -46,6 +125,12 @@ public class H2Dialect implements DatabaseDialect {
     @Override
     public List<String> getSequenceSupportSql() {
         return List.of(
+            "CREATE ALIAS IF NOT EXISTS JSON_MERGE_TOP_LEVEL FOR 'sigma.persistence.dialect.H2JsonFunctions.mergeTopLevel'",
+            "CREATE ALIAS IF NOT EXISTS JSON_DIFFERS FOR 'sigma.persistence.dialect.H2JsonFunctions.differs'",
+            "CREATE ALIAS IF NOT EXISTS JSON_APPLY_OPERATION FOR 'sigma.persistence.dialect.H2JsonFunctions.applyOperation'",
+            "CREATE ALIAS IF NOT EXISTS JSON_APPLY_SUB_ENTITY_CHANGE FOR 'sigma.persistence.dialect.H2JsonFunctions.applySubEntityChange'",
+            "CREATE ALIAS IF NOT EXISTS JSON_ARRAY_HAS_ELEMENT FOR 'sigma.persistence.dialect.H2JsonFunctions.arrayHasElement'",
+            "CREATE ALIAS IF NOT EXISTS JSON_TIMESTAMP_VALUE FOR 'sigma.persistence.dialect.H2JsonFunctions.timestampValue'",
             "CREATE SEQUENCE IF NOT EXISTS dynamic_documents_seq_num START WITH 1 INCREMENT BY 1",
             """
                 CREATE TRIGGER IF NOT EXISTS trg_update_sequence_number
@@ -79,6 +164,14 @@ public class H2Dialect implements DatabaseDialect {
         return String.format("CAST(JSON_VALUE(%s, '$.%s') AS DOUBLE)", column, escapeFieldPath(fieldPath));
     }
 
+    /**
+     * Values that are not ISO-8601 instants read as NULL instead of failing the cast
+     */
+    @Override
+    public String jsonTimestampValue(String column, String fieldPath) {
+        return "JSON_TIMESTAMP_VALUE(" + jsonExtractText(column, fieldPath) + ")";
+    }
+
     @Override
     public String jsonEquals(String column, String fieldPath, String paramName) {
         return String.format("CAST(JSON_VALUE(%s, '$.%s') AS VARCHAR) = :%s",
@@ -116,6 +209,12 @@ public class H2Dialect implements DatabaseDialect {
             column, escapeFieldPath(fieldPath), paramName);
     }
 
+    @Override
+    public String jsonBetween(String column, String fieldPath, String lowParamName, String highParamName) {
+        return String.format("CAST(JSON_VALUE(%s, '$.%s') AS DOUBLE) BETWEEN :%s AND :%s",
+            column, escapeFieldPath(fieldPath), lowParamName, highParamName);
+    }
+
     @Override
     public String jsonIn(String column, String fieldPath, String paramName) {
         return String.format("CAST(JSON_VALUE(%s, '$.%s') AS VARCHAR) IN (:%s)",
@@ -189,9 +288,9 @@ public class H2Dialect implements DatabaseDialect {
     public String getInsertSql() {
         return """
             INSERT INTO dynamic_documents (table_name, data, version, is_deleted, latest_request_id,
-                created_by, last_modified_by, created_at, last_modified_at)
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
             VALUES (:tableName, :data, :version, :isDeleted, :latestRequestId,
-                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt)
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash)
             """;
     }
 
@@ -201,15 +300,15 @@ public class H2Dialect implements DatabaseDialect {
             UPDATE dynamic_documents
             SET data = :data, version = :version, is_deleted = :isDeleted,
                 latest_request_id = :latestRequestId, last_modified_by = :lastModifiedBy,
-                last_modified_at = :lastModifiedAt
-            WHERE id = :id
+                last_modified_at = :lastModifiedAt, content_hash = :contentHash
+            WHERE id = :id AND COALESCE(version, 0) = :expectedVersion
             """;
     }
 
     @Override
     public boolean supportsReturningClause() {
-        // H2 2.x supports RETURNING but behavior varies; use IDENTITY() for consistency
-        return false;
+        // Generated keys are returned by the driver; IDENTITY() no longer exists in H2 2.x
+        return true;
     }
 
     @Override
@@ -217,6 +316,125 @@ public class H2Dialect implements DatabaseDialect {
         return "CALL IDENTITY()";
     }
 
+    @Override
+    public String getBatchInsertSql() {
+        return getInsertSql();
+    }
+
+    @Override
+    public boolean supportsBatchGeneratedKeys() {
+        // H2 2.x returns the keys of every row in the batch
+        return true;
+    }
+
+    @Override
+    public String getInsertIfAbsentSql(String condition) {
+        return """
+            INSERT INTO dynamic_documents (table_name, data, version, is_deleted, latest_request_id,
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
+            SELECT :tableName, :data, :version, :isDeleted, :latestRequestId,
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash
+            WHERE NOT EXISTS (SELECT 1 FROM dynamic_documents d WHERE %s)
+            """.formatted(condition);
+    }
+
+    @Override
+    public String getReserveIdsSql() {
+        // AUTO_INCREMENT has no addressable sequence; ids come from generated keys
+        return null;
+    }
+
+    @Override
+    public String jsonMerge(String column, String paramName, List<String> keys) {
+        // H2 has no JSON merge function; JSON_MERGE_TOP_LEVEL is a Java alias (see H2JsonFunctions)
+        return String.format("JSON_MERGE_TOP_LEVEL(%s, :%s)", column, paramName);
+    }
+
+    @Override
+    public String jsonDiffers(String left, String right) {
+        // Stored JSON text differs in key order and formatting; JSON_DIFFERS is a Java alias (see H2JsonFunctions)
+        return String.format("JSON_DIFFERS(%s, %s)", left, right);
+    }
+
+    @Override
+    public String jsonApplyOperations(String column, List<UpdateOperation> operations, String paramPrefix) {
+        // JSON_APPLY_OPERATION is a Java alias (see H2JsonFunctions), nested once per operator
+        String expression = column;
+        for (int i = 0; i < operations.size(); i++) {
+            UpdateOperation operation = operations.get(i);
+            expression = String.format("JSON_APPLY_OPERATION(%s, '%s', '%s', :%s%d)", expression,
+                operation.operator().getKey(), escapeFieldPath(operation.path()), paramPrefix, i);
+        }
+        return expression;
+    }
+
+    @Override
+    public String jsonApplySubEntityChanges(String expression, String column, String field,
+                                            List<SubEntityChange> changes, String paramPrefix) {
+        // JSON_APPLY_SUB_ENTITY_CHANGE is a Java alias (see H2JsonFunctions), nested once per change
+        String result = expression;
+        for (int i = 0; i < changes.size(); i++) {
+            result = String.format("JSON_APPLY_SUB_ENTITY_CHANGE(%s, '%s', '%s', :%s%dId, :%s%d)", result,
+                escapeFieldPath(field), changes.get(i).kind(), paramPrefix, i, paramPrefix, i);
+        }
+        return result;
+    }
+
+    @Override
+    public String jsonArrayHasElement(String column, String field, String idParam, boolean liveOnly) {
+        return String.format("JSON_ARRAY_HAS_ELEMENT(%s, '%s', :%s, %s)",
+            column, escapeFieldPath(field), idParam, liveOnly ? "TRUE" : "FALSE");
+    }
+
+    @Override
+    public String updateReturning(String updateSql, String columns) {
+        return "SELECT " + columns + " FROM FINAL TABLE (" + updateSql + ")";
+    }
+
+    @Override
+    public String selectForClaim(String selectSql, int limit) {
+        return selectSql + " ORDER BY d.id " + limitClause(limit) + " FOR UPDATE SKIP LOCKED";
+    }
+
+    @Override
+    public String getCreateUpsertKeyIndexSql(String tableName, List<String> keyFields) {
+        // H2 supports neither expression nor partial indexes
+        return null;
+    }
+
+    /**
+     * Without a unique index this MERGE is not atomic: two concurrent upserts of a new key can both
+     * find no match and insert. Acceptable for the development and test databases H2 serves.
+     */
+    @Override
+    public String getUpsertSql(String tableName, List<String> keyFields, List<String> dataKeys) {
+        return String.format("""
+            MERGE INTO dynamic_documents d
+            USING (SELECT (SELECT e.id FROM dynamic_documents e WHERE %s LIMIT 1) AS id) s
+            ON (d.id = s.id)
+            WHEN MATCHED AND (d.content_hash IS NULL OR d.content_hash <> :contentHash)
+                AND JSON_DIFFERS(d.data, JSON_MERGE_TOP_LEVEL(d.data, :data))
+            THEN UPDATE SET data = JSON_MERGE_TOP_LEVEL(d.data, :data),
+                version = COALESCE(d.version, 0) + 1, latest_request_id = :latestRequestId,
+                last_modified_by = :lastModifiedBy, last_modified_at = :lastModifiedAt,
+                content_hash = :contentHash
+            WHEN NOT MATCHED THEN INSERT (table_name, data, version, is_deleted, latest_request_id,
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
+            VALUES (:tableName, :data, 0, FALSE, :latestRequestId,
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash)""",
+            upsertKeyMatch("e", tableName, keyFields));
+    }
+
+    @Override
+    public String upsertKeyMatch(String alias, String tableName, List<String> keyFields) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add(alias + ".table_name = :tableName AND " + alias + ".is_deleted = FALSE");
+        for (int i = 0; i < keyFields.size(); i++) {
+            conditions.add(jsonExtractText(alias + ".data", keyFields.get(i)) + " = :upsertKey" + i);
+        }
+        return String.join(" AND ", conditions);
+    }
+
     @Override
     public String limitClause(int limit) {
         return "LIMIT " + limit;
@@ -0,0 +1,210 @@
+package sigma.persistence.dialect;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import sigma.model.update.SubEntityChange;
+import sigma.model.update.UpdateOperator;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Java functions registered as H2 aliases.
+ * This is required because H2 has no JSON manipulation functions.
+ */
+public final class H2JsonFunctions {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    /**
+     * Applies one update operator to the field named key of its parent object
+     */
+    private static final Map<UpdateOperator, FieldOperation> OPERATIONS = Map.of(
+        UpdateOperator.SET, (parent, key, operand) -> parent.put(key, operand),
+        UpdateOperator.UNSET, (parent, key, operand) -> parent.remove(key),
+        UpdateOperator.INC, (parent, key, operand) -> parent.put(key, add(parent.get(key), operand)),
+        UpdateOperator.PUSH, (parent, key, operand) -> {
+            List<Object> array = arrayAt(parent, key);
+            array.add(operand);
+            parent.put(key, array);
+        },
+        UpdateOperator.PULL, (parent, key, operand) -> {
+            List<Object> array = arrayAt(parent, key);
+            array.removeIf(element -> Objects.equals(element, operand));
+            parent.put(key, array);
+        }
+    );
+
+    private H2JsonFunctions() {
+    }
+
+    /**
+     * Merges the top-level keys of patch into data, matching PostgreSQL's jsonb || operator
+     */
+    public static String mergeTopLevel(String data, String patch) throws SQLException {
+        try {
+            Map<String, Object> merged = data != null ? MAPPER.readValue(data, MAP_TYPE) : new LinkedHashMap<>();
+            if (patch != null) {
+                merged.putAll(MAPPER.readValue(patch, MAP_TYPE));
+            }
+            return MAPPER.writeValueAsString(merged);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Invalid JSON document for merge", e);
+        }
+    }
+
+    /**
+     * Returns true if the two JSON texts hold different values; object keys are compared regardless of order
+     */
+    public static boolean differs(String left, String right) throws SQLException {
+        try {
+            Object leftValue = left != null ? MAPPER.readValue(left, Object.class) : null;
+            Object rightValue = right != null ? MAPPER.readValue(right, Object.class) : null;
+            return !Objects.equals(leftValue, rightValue);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Invalid JSON document for comparison", e);
+        }
+    }
+
+    /**
+     * Reads an ISO-8601 instant with an offset, or returns null when the text is not one,
+     * so a malformed value fails no query
+     */
+    public static OffsetDateTime timestampValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Applies an update operator ($set, $inc, ...) at a dotted path of data, creating missing parent objects
+     */
+    public static String applyOperation(String data, String operator, String path, String operand) throws SQLException {
+        try {
+            Map<String, Object> document = data != null ? MAPPER.readValue(data, MAP_TYPE) : new LinkedHashMap<>();
+            String[] segments = path.split("\\.");
+            Map<String, Object> parent = document;
+            for (int i = 0; i < segments.length - 1; i++) {
+                parent = objectAt(parent, segments[i]);
+            }
+            Object value = operand != null ? MAPPER.readValue(operand, Object.class) : null;
+            OPERATIONS.get(UpdateOperator.fromKey(operator)).apply(parent, segments[segments.length - 1], value);
+            return MAPPER.writeValueAsString(document);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Invalid JSON for " + operator + " on " + path, e);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> objectAt(Map<String, Object> parent, String key) {
+        Object child = parent.get(key);
+        if (child == null) {
+            Map<String, Object> created = new LinkedHashMap<>();
+            parent.put(key, created);
+            return created;
+        }
+        if (!(child instanceof Map)) {
+            throw new IllegalArgumentException("Field '" + key + "' is not an object");
+        }
+        return (Map<String, Object>) child;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> arrayAt(Map<String, Object> parent, String key) {
+        Object current = parent.get(key);
+        if (current == null) {
+            return new ArrayList<>();
+        }
+        if (!(current instanceof List)) {
+            throw new IllegalArgumentException("Field '" + key + "' is not an array");
+        }
+        return new ArrayList<>((List<Object>) current);
+    }
+
+    private static BigDecimal add(Object current, Object increment) {
+        if (current != null && !(current instanceof Number)) {
+            throw new IllegalArgumentException("Cannot increment non-numeric value " + current);
+        }
+        BigDecimal base = current != null ? new BigDecimal(current.toString()) : BigDecimal.ZERO;
+        return base.add(new BigDecimal(increment.toString()));
+    }
+
+    /**
+     * Applies a sub-entity change (APPEND, MERGE, DELETE) to the array field of data
+     */
+    public static String applySubEntityChange(String data, String field, String kind, String id, String value)
+            throws SQLException {
+        try {
+            Map<String, Object> document = data != null ? MAPPER.readValue(data, MAP_TYPE) : new LinkedHashMap<>();
+            List<Object> array = arrayAt(document, field);
+            SubEntityChange.Kind changeKind = SubEntityChange.Kind.valueOf(kind);
+            if (changeKind == SubEntityChange.Kind.APPEND) {
+                array.add(MAPPER.readValue(value, MAP_TYPE));
+            } else {
+                Map<String, Object> element = liveElement(array, id);
+                if (element == null) {
+                    throw new SQLException("Sub-entity with id '" + id + "' does not exist or is deleted");
+                }
+                if (changeKind == SubEntityChange.Kind.MERGE) {
+                    element.putAll(MAPPER.readValue(value, MAP_TYPE));
+                } else {
+                    element.put("isDeleted", true);
+                }
+            }
+            document.put(field, array);
+            return MAPPER.writeValueAsString(document);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new SQLException("Cannot apply " + kind + " to sub-entity field " + field, e);
+        }
+    }
+
+    /**
+     * Returns true if the array field of data has an element with the id (optionally only a live one)
+     */
+    public static boolean arrayHasElement(String data, String field, String id, boolean liveOnly) throws SQLException {
+        try {
+            Map<String, Object> document = data != null ? MAPPER.readValue(data, MAP_TYPE) : new LinkedHashMap<>();
+            List<Object> array = arrayAt(document, field);
+            return liveOnly
+                ? liveElement(array, id) != null
+                : array.stream().anyMatch(element -> hasId(element, id));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new SQLException("Invalid sub-entity field " + field, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> liveElement(List<Object> array, String id) {
+        for (Object element : array) {
+            if (hasId(element, id) && !Boolean.TRUE.equals(((Map<String, Object>) element).get("isDeleted"))) {
+                return (Map<String, Object>) element;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasId(Object element, String id) {
+        return element instanceof Map<?, ?> map && map.get("id") != null && map.get("id").toString().equals(id);
+    }
+
+    @FunctionalInterface
+    private interface FieldOperation {
+        void apply(Map<String, Object> parent, String key, Object operand);
+    }
+}
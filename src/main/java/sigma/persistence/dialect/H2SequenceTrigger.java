@@ -28,7 +28,7 @@ public class H2SequenceTrigger implements Trigger {
                     // sequence_number is at index 12 (0-based, after all other columns)
                     // The column order is: id, table_name, data, version, is_deleted,
                     // latest_request_id, created_by, last_modified_by, created_at,
-                    // last_modified_at, sequence_number
+                    // last_modified_at, sequence_number, content_hash
                     newRow[10] = rs.getLong(1);
                 }
             }
@@ -1,6 +1,14 @@
 package sigma.persistence.dialect;
 
+import sigma.model.filter.IndexedFieldType;
+import sigma.model.update.SubEntityChange;
+import sigma.model.update.UpdateOperation;
+import sigma.model.update.UpdateOperator;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Oracle dialect implementation using JSON type for document storage.
@@ -9,6 +17,42 @@ import java.util.List;
  */
 public class OracleDialect implements DatabaseDialect {
 
+    /**
+     * JSON_TRANSFORM operation of each update operator
+     */
+    private static final Map<UpdateOperator, OracleTransform> TRANSFORMS = Map.of(
+        UpdateOperator.SET, (column, path, param) -> String.format("SET '%s' = :%s FORMAT JSON", path, param),
+        UpdateOperator.UNSET, (column, path, param) -> String.format("REMOVE '%s'", path),
+        UpdateOperator.INC, (column, path, param) -> String.format(
+            "SET '%s' = NVL(JSON_VALUE(%s, '%s' RETURNING NUMBER), 0) + JSON_VALUE(:%s, '$' RETURNING NUMBER)",
+            path, column, path, param),
+        UpdateOperator.PUSH, (column, path, param) -> String.format(
+            "APPEND '%s' = :%s FORMAT JSON CREATE ON MISSING", path, param),
+        UpdateOperator.PULL, (column, path, param) -> String.format("REMOVE '%s[*]?(@ == $%s)'", path, param)
+    );
+
+    /**
+     * Path filter selecting the live element whose id equals the path variable
+     */
+    private static final String LIVE_ELEMENT_FILTER = "?(@.id == $%s && (!exists(@.isDeleted) || @.isDeleted == false))";
+
+    /**
+     * JSON_TRANSFORM operation of each sub-entity change, from (field path, parameter)
+     */
+    private static final Map<SubEntityChange.Kind, OracleTransform> SUB_ENTITY_TRANSFORMS = Map.of(
+        SubEntityChange.Kind.APPEND, (column, path, param) -> String.format(
+            "APPEND '%s' = :%s FORMAT JSON CREATE ON MISSING", path, param),
+        SubEntityChange.Kind.MERGE, (column, path, param) -> String.format(
+            "MERGE '%s[*]%s' = :%s FORMAT JSON", path, String.format(LIVE_ELEMENT_FILTER, param + "Id"), param),
+        SubEntityChange.Kind.DELETE, (column, path, param) -> String.format(
+            "SET '%s[*]%s.isDeleted' = 'true' FORMAT JSON", path, String.format(LIVE_ELEMENT_FILTER, param + "Id"))
+    );
+
+    @FunctionalInterface
+    private interface OracleTransform {
+        String apply(String column, String path, String param);
+    }
+
     @Override
     public DatabaseType getType() {
         return DatabaseType.ORACLE;
@@ -18,7 +62,7 @@ public class OracleDialect implements DatabaseDialect {
     public String getCreateTableSql() {
         return """
             CREATE TABLE dynamic_documents (
-                id NUMBER(19) GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                id NUMBER(19) DEFAULT dynamic_documents_id_seq.NEXTVAL PRIMARY KEY,
                 table_name VARCHAR2(255) NOT NULL,
                 data CLOB DEFAULT '{}' CHECK (data IS JSON),
                 version NUMBER(19) DEFAULT 0,
@@ -28,11 +72,121 @@ public class OracleDialect implements DatabaseDialect {
                 last_modified_by VARCHAR2(255),
                 created_at TIMESTAMP WITH TIME ZONE,
                 last_modified_at TIMESTAMP WITH TIME ZONE,
-                sequence_number NUMBER(19) DEFAULT 0 NOT NULL
+                sequence_number NUMBER(19) DEFAULT 0 NOT NULL,
+                content_hash VARCHAR2(64)
             )
             """;
     }
 
+    @Override
+    public List<String> getIdSequenceSql() {
+        // Named sequence (instead of IDENTITY) so batch inserts can reserve ids upfront
+        return List.of("CREATE SEQUENCE dynamic_documents_id_seq START WITH 1 INCREMENT BY 1 CACHE 1000");
+    }
+
+    /**
+     * Tables created before the sequence generate ids with IDENTITY, which would hand out the ids the
+     * sequence reserves for batch inserts. The identity is dropped, the column defaults to the sequence,
+     * and the sequence restarts past the highest id issued so far. A node that finds the identity
+     * already dropped by another node does nothing.
+     */
+    @Override
+    public List<String> getIdSequenceUpgradeSql() {
+        return List.of("""
+            DECLARE
+                identity_count NUMBER;
+                next_id NUMBER;
+            BEGIN
+                SELECT COUNT(*) INTO identity_count FROM user_tab_identities
+                    WHERE table_name = 'DYNAMIC_DOCUMENTS' AND column_name = 'ID';
+                IF identity_count > 0 THEN
+                    EXECUTE IMMEDIATE 'ALTER TABLE dynamic_documents MODIFY id DROP IDENTITY';
+                    EXECUTE IMMEDIATE 'ALTER TABLE dynamic_documents MODIFY id DEFAULT dynamic_documents_id_seq.NEXTVAL';
+                    SELECT NVL(MAX(id), 0) + 1 INTO next_id FROM dynamic_documents;
+                    EXECUTE IMMEDIATE 'ALTER SEQUENCE dynamic_documents_id_seq RESTART START WITH ' || next_id;
+                END IF;
+            EXCEPTION
+                WHEN OTHERS THEN
+                    IF SQLCODE != -30673 THEN
+                        RAISE;
+                    END IF;
+            END;""");
+    }
+
+    @Override
+    public List<String> getIdempotencyTableSql() {
+        return List.of(
+            """
+            CREATE TABLE write_idempotency (
+                request_id VARCHAR2(255) NOT NULL,
+                endpoint VARCHAR2(255) NOT NULL,
+                response_type VARCHAR2(32) NOT NULL,
+                response CLOB NOT NULL,
+                created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                PRIMARY KEY (request_id, endpoint)
+            )
+            """,
+            "CREATE INDEX idx_write_idem_created_at ON write_idempotency(created_at)"
+        );
+    }
+
+    @Override
+    public List<String> getSubEntityTableSql() {
+        return List.of(
+            """
+            CREATE TABLE dynamic_sub_entities (
+                parent_id NUMBER(19) NOT NULL REFERENCES dynamic_documents(id) ON DELETE CASCADE,
+                field VARCHAR2(255) NOT NULL,
+                sub_id NUMBER(19) NOT NULL,
+                item_index NUMBER(10) NOT NULL,
+                is_deleted NUMBER(1) DEFAULT 0,
+                data CLOB NOT NULL CHECK (data IS JSON),
+                PRIMARY KEY (parent_id, field, sub_id)
+            )
+            """,
+            "CREATE INDEX idx_dyn_sub_entities_order ON dynamic_sub_entities(parent_id, field, item_index)"
+        );
+    }
+
+    @Override
+    public List<String> getArchiveTableSql() {
+        return List.of(
+            """
+            CREATE TABLE dynamic_documents_archive (
+                id NUMBER(19) PRIMARY KEY,
+                table_name VARCHAR2(255) NOT NULL,
+                data CLOB CHECK (data IS JSON),
+                version NUMBER(19),
+                is_deleted NUMBER(1),
+                latest_request_id VARCHAR2(255),
+                created_by VARCHAR2(255),
+                last_modified_by VARCHAR2(255),
+                created_at TIMESTAMP WITH TIME ZONE,
+                last_modified_at TIMESTAMP WITH TIME ZONE,
+                sequence_number NUMBER(19) NOT NULL,
+                content_hash VARCHAR2(64),
+                archived_at TIMESTAMP WITH TIME ZONE NOT NULL
+            )
+            """,
+            "CREATE INDEX idx_dyn_docs_archive_sequence ON dynamic_documents_archive(table_name, sequence_number)"
+        );
+    }
+
+    @Override
+    public List<String> getSubEntityIdSequenceSql() {
+        return List.of("CREATE SEQUENCE sub_entity_id_seq START WITH 1 INCREMENT BY 1");
+    }
+
+    @Override
+    public String getNextSubEntityIdBlockSql() {
+        return "SELECT sub_entity_id_seq.NEXTVAL FROM DUAL";
+    }
+
+    @Override
+    public List<String> getContentHashColumnSql() {
+        return List.of("ALTER TABLE dynamic_documents ADD (content_hash VARCHAR2(64))");
+    }
+
     @Override
     public List<String> getCreateIndexesSql() {
         return List.of(
@@ -74,6 +228,15 @@ public class OracleDialect implements DatabaseDialect {
         return String.format("TO_NUMBER(JSON_VALUE(%s, '$.%s'))", column, escapeFieldPath(fieldPath));
     }
 
+    /**
+     * Values that are not ISO-8601 instants read as NULL instead of failing the conversion
+     */
+    @Override
+    public String jsonTimestampValue(String column, String fieldPath) {
+        return String.format("JSON_VALUE(%s, '$.%s' RETURNING TIMESTAMP WITH TIME ZONE NULL ON ERROR)",
+            column, escapeFieldPath(fieldPath));
+    }
+
     @Override
     public String jsonEquals(String column, String fieldPath, String paramName) {
         return String.format("JSON_VALUE(%s, '$.%s') = :%s", column, escapeFieldPath(fieldPath), paramName);
@@ -110,6 +273,12 @@ public class OracleDialect implements DatabaseDialect {
             column, escapeFieldPath(fieldPath), paramName);
     }
 
+    @Override
+    public String jsonBetween(String column, String fieldPath, String lowParamName, String highParamName) {
+        return String.format("TO_NUMBER(JSON_VALUE(%s, '$.%s')) BETWEEN :%s AND :%s",
+            column, escapeFieldPath(fieldPath), lowParamName, highParamName);
+    }
+
     @Override
     public String jsonIn(String column, String fieldPath, String paramName) {
         return String.format("JSON_VALUE(%s, '$.%s') IN (:%s)", column, escapeFieldPath(fieldPath), paramName);
@@ -180,9 +349,9 @@ public class OracleDialect implements DatabaseDialect {
     public String getInsertSql() {
         return """
             INSERT INTO dynamic_documents (table_name, data, version, is_deleted, latest_request_id,
-                created_by, last_modified_by, created_at, last_modified_at)
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
             VALUES (:tableName, :data, :version, :isDeleted, :latestRequestId,
-                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt)
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash)
             """;
     }
 
@@ -192,16 +361,15 @@ public class OracleDialect implements DatabaseDialect {
             UPDATE dynamic_documents
             SET data = :data, version = :version, is_deleted = :isDeleted,
                 latest_request_id = :latestRequestId, last_modified_by = :lastModifiedBy,
-                last_modified_at = :lastModifiedAt
-            WHERE id = :id
+                last_modified_at = :lastModifiedAt, content_hash = :contentHash
+            WHERE id = :id AND COALESCE(version, 0) = :expectedVersion
             """;
     }
 
     @Override
     public boolean supportsReturningClause() {
-        // Oracle supports RETURNING INTO but it requires OUT parameter binding
-        // For simplicity, we use separate query approach
-        return false;
+        // The driver turns generated key requests into RETURNING ... INTO out-binds
+        return true;
     }
 
     @Override
@@ -209,6 +377,204 @@ public class OracleDialect implements DatabaseDialect {
         return "SELECT dynamic_documents_id_seq.CURRVAL FROM DUAL";
     }
 
+    @Override
+    public String getBatchInsertSql() {
+        return """
+            INSERT INTO dynamic_documents (id, table_name, data, version, is_deleted, latest_request_id,
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
+            VALUES (:id, :tableName, :data, :version, :isDeleted, :latestRequestId,
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash)
+            """;
+    }
+
+    @Override
+    public boolean supportsBatchGeneratedKeys() {
+        // Oracle JDBC does not return auto-generated keys for batch updates
+        return false;
+    }
+
+    @Override
+    public String getInsertIfAbsentSql(String condition) {
+        // RETURNING INTO is not allowed on INSERT ... SELECT, so the id is reserved upfront
+        return """
+            INSERT INTO dynamic_documents (id, table_name, data, version, is_deleted, latest_request_id,
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
+            SELECT :id, :tableName, :data, :version, :isDeleted, :latestRequestId,
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash
+            FROM DUAL
+            WHERE NOT EXISTS (SELECT 1 FROM dynamic_documents d WHERE %s)
+            """.formatted(condition);
+    }
+
+    @Override
+    public String getReserveIdsSql() {
+        return "SELECT dynamic_documents_id_seq.NEXTVAL FROM DUAL CONNECT BY LEVEL <= :count";
+    }
+
+    /**
+     * One SET per top-level key: JSON_MERGEPATCH would merge nested objects recursively and
+     * remove keys whose value is null, unlike the other dialects
+     */
+    @Override
+    public String jsonMerge(String column, String paramName, List<String> keys) {
+        if (keys.isEmpty()) {
+            return column;
+        }
+        List<String> transforms = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            transforms.add(String.format("SET '$.\"%s\"' = :%s%d FORMAT JSON", escapeFieldPath(keys.get(i)), paramName, i));
+        }
+        return String.format("JSON_TRANSFORM(%s, %s RETURNING CLOB)", column, String.join(", ", transforms));
+    }
+
+    @Override
+    public String jsonDiffers(String left, String right) {
+        return String.format("NOT JSON_EQUAL(%s, %s)", left, right);
+    }
+
+    /**
+     * One JSON_TRANSFORM with an operation per operator; every path reads the stored document.
+     * $pull filters need the operand as a path variable (PASSING, Oracle 23ai).
+     */
+    @Override
+    public String jsonApplyOperations(String column, List<UpdateOperation> operations, String paramPrefix) {
+        List<String> transforms = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            UpdateOperation operation = operations.get(i);
+            String param = paramPrefix + i;
+            transforms.add(TRANSFORMS.get(operation.operator())
+                .apply(column, "$." + escapeFieldPath(operation.path()), param));
+            if (operation.operator() == UpdateOperator.PULL) {
+                variables.add(String.format("JSON_VALUE(:%s, '$') AS \"%s\"", param, param));
+            }
+        }
+        String passing = variables.isEmpty() ? "" : " PASSING " + String.join(", ", variables);
+        return String.format("JSON_TRANSFORM(%s, %s RETURNING CLOB%s)", column, String.join(", ", transforms), passing);
+    }
+
+    @Override
+    public String jsonApplySubEntityChanges(String expression, String column, String field,
+                                            List<SubEntityChange> changes, String paramPrefix) {
+        String path = "$." + escapeFieldPath(field);
+        List<String> transforms = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            SubEntityChange change = changes.get(i);
+            String param = paramPrefix + i;
+            transforms.add(SUB_ENTITY_TRANSFORMS.get(change.kind()).apply(column, path, param));
+            if (change.requiresLiveElement()) {
+                variables.add(String.format("TO_NUMBER(:%sId) AS \"%sId\"", param, param));
+            }
+        }
+        String passing = variables.isEmpty() ? "" : " PASSING " + String.join(", ", variables);
+        return String.format("JSON_TRANSFORM(%s, %s RETURNING CLOB%s)", expression, String.join(", ", transforms), passing);
+    }
+
+    @Override
+    public String jsonArrayHasElement(String column, String field, String idParam, boolean liveOnly) {
+        String filter = liveOnly
+            ? String.format(LIVE_ELEMENT_FILTER, idParam)
+            : String.format("?(@.id == $%s)", idParam);
+        return String.format("JSON_EXISTS(%s, '$.%s[*]%s' PASSING TO_NUMBER(:%s) AS \"%s\")",
+            column, escapeFieldPath(field), filter, idParam, idParam);
+    }
+
+    @Override
+    public String updateReturning(String updateSql, String columns) {
+        // RETURNING INTO needs PL/SQL out binds; affected ids are selected first instead
+        return null;
+    }
+
+    /**
+     * Oracle rejects FETCH FIRST together with FOR UPDATE; SKIP LOCKED locks rows as they are fetched,
+     * so the caller stops reading after limit rows (fetched limit at a time) instead. There is no
+     * ORDER BY: sorting would fetch, and lock, every matching row before the first one is returned.
+     */
+    @Override
+    public String selectForClaim(String selectSql, int limit) {
+        return selectSql + " FOR UPDATE SKIP LOCKED";
+    }
+
+    @Override
+    public String getCreateUpsertKeyIndexSql(String tableName, List<String> keyFields) {
+        // No partial indexes: rows outside the collection or deleted map to all-NULL keys, which are not indexed
+        String expressions = keyFields.stream()
+            .map(field -> upsertKeyExpression("", tableName, field))
+            .collect(Collectors.joining(", "));
+        // No IF NOT EXISTS: only ORA-00955 (already exists) is ignored, duplicate keys still fail
+        return String.format("""
+            BEGIN
+                EXECUTE IMMEDIATE 'CREATE UNIQUE INDEX %s ON dynamic_documents (%s) ONLINE';
+            EXCEPTION WHEN OTHERS THEN
+                IF SQLCODE != -955 THEN RAISE; END IF;
+            END;""", upsertKeyIndexName(tableName, keyFields), expressions.replace("'", "''"));
+    }
+
+    /**
+     * No partial indexes: the index leads with table_name instead, which the table_name = :tableName
+     * of every query matches. ONLINE keeps DML going while it is built.
+     */
+    @Override
+    public String getCreateFieldIndexSql(String tableName, String field, IndexedFieldType type) {
+        return String.format("CREATE INDEX %s ON dynamic_documents (table_name, %s) ONLINE",
+            fieldIndexName(tableName, field, type), type.expression(this, "data", field));
+    }
+
+    @Override
+    public String getDropFieldIndexSql(String indexName) {
+        return "DROP INDEX " + indexName + " ONLINE";
+    }
+
+    @Override
+    public String getFieldIndexesQuery() {
+        return """
+            SELECT LOWER(index_name) AS index_name, CASE WHEN status = 'VALID' THEN 1 ELSE 0 END AS valid,
+                0 AS building
+            FROM user_indexes
+            WHERE table_name = 'DYNAMIC_DOCUMENTS' AND index_name LIKE 'IX\\_DYN\\_DOCS\\_%' ESCAPE '\\'
+            """;
+    }
+
+    @Override
+    public String getUpsertSql(String tableName, List<String> keyFields, List<String> dataKeys) {
+        // Columns referenced in ON cannot be updated (ORA-38104), so the match is resolved to an id first
+        String merged = jsonMerge("d.data", "data", dataKeys);
+        return String.format("""
+            MERGE INTO dynamic_documents d
+            USING (SELECT (SELECT e.id FROM dynamic_documents e WHERE %s
+                FETCH FIRST 1 ROWS ONLY) AS id FROM DUAL) s
+            ON (d.id = s.id)
+            WHEN MATCHED THEN UPDATE SET d.data = %s,
+                d.version = COALESCE(d.version, 0) + 1, d.latest_request_id = :latestRequestId,
+                d.last_modified_by = :lastModifiedBy, d.last_modified_at = :lastModifiedAt,
+                d.content_hash = :contentHash
+                WHERE (d.content_hash IS NULL OR d.content_hash <> :contentHash) AND %s
+            WHEN NOT MATCHED THEN INSERT (table_name, data, version, is_deleted, latest_request_id,
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
+            VALUES (:tableName, :data, 0, 0, :latestRequestId,
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash)""",
+            upsertKeyMatch("e", tableName, keyFields), merged, jsonDiffers("d.data", merged));
+    }
+
+    /**
+     * Compares the index's own CASE expressions: only a predicate on the indexed expression can use
+     * the function-based index, and each one is NULL outside the collection's live documents
+     */
+    @Override
+    public String upsertKeyMatch(String alias, String tableName, List<String> keyFields) {
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < keyFields.size(); i++) {
+            conditions.add(upsertKeyExpression(alias + ".", tableName, keyFields.get(i)) + " = :upsertKey" + i);
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    private String upsertKeyExpression(String qualifier, String tableName, String field) {
+        return "CASE WHEN " + qualifier + "table_name = " + tableNameLiteral(tableName) + " AND "
+            + qualifier + "is_deleted = 0 THEN " + jsonExtractText(qualifier + "data", field) + " END";
+    }
+
     @Override
     public String limitClause(int limit) {
         return "FETCH FIRST " + limit + " ROWS ONLY";
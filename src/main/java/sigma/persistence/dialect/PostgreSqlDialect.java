@@ -1,6 +1,17 @@
 package sigma.persistence.dialect;
 
+import sigma.model.filter.IndexedFieldType;
+import sigma.model.update.SubEntityChange;
+import sigma.model.update.UpdateOperation;
+import sigma.model.update.UpdateOperator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 /**
  * PostgreSQL dialect implementation using JSONB for JSON document storage.
@@ -8,6 +19,79 @@ import java.util.List;
  */
 public class PostgreSqlDialect implements DatabaseDialect {
 
+    /**
+     * New value of an operator's path, from (current value expression, operand parameter)
+     */
+    private static final Map<UpdateOperator, BiFunction<String, String, String>> OPERATION_VALUES = Map.of(
+        UpdateOperator.SET, (current, param) -> String.format("CAST(:%s AS jsonb)", param),
+        UpdateOperator.INC, (current, param) -> String.format(
+            "to_jsonb(COALESCE(CAST(%s #>> '{}' AS numeric), 0) + CAST(:%s AS numeric))", current, param),
+        UpdateOperator.PUSH, (current, param) -> String.format(
+            "jsonb_insert(COALESCE(%s, '[]'::jsonb), '{-1}', CAST(:%s AS jsonb), true)", current, param),
+        UpdateOperator.PULL, (current, param) -> String.format(
+            "COALESCE((SELECT jsonb_agg(e.value ORDER BY e.idx) FROM jsonb_array_elements(COALESCE(%s, '[]'::jsonb))"
+                + " WITH ORDINALITY AS e(value, idx) WHERE e.value <> CAST(:%s AS jsonb)), '[]'::jsonb)",
+            current, param)
+    );
+
+    private static final String LIVE_ELEMENT = "COALESCE(e.value->>'isDeleted', 'false') <> 'true'";
+
+    /**
+     * An ISO-8601 instant with an offset whose fields are in range; the year 0000 does not exist
+     */
+    private static final String ISO_INSTANT_PATTERN = "^(?!0000)[0-9]{4}-(0[1-9]|1[0-2])-(0[1-9]|[12][0-9]|3[01])"
+        + "T([01][0-9]|2[0-3]):[0-5][0-9]:[0-5][0-9](\\.[0-9]+)?(Z|[+-]([01][0-9]|2[0-3]):[0-5][0-9])$";
+
+    /**
+     * Sub-entity change applied to (expression, stored column, field key, parameter)
+     */
+    private static final Map<SubEntityChange.Kind, SubEntityChangeSql> SUB_ENTITY_CHANGES = Map.of(
+        SubEntityChange.Kind.APPEND, (expression, column, key, param) -> String.format(
+            "jsonb_insert(%s, '{%s,-1}', CAST(:%s AS jsonb), true)", expression, key, param),
+        SubEntityChange.Kind.MERGE, (expression, column, key, param) -> {
+            String index = liveElementIndex(column, key, param + "Id");
+            return String.format("jsonb_set(%s, ARRAY['%s', CAST(%s AS text)], (%s->'%s'->%s) || CAST(:%s AS jsonb), false)",
+                expression, key, index, column, key, index, param);
+        },
+        SubEntityChange.Kind.DELETE, (expression, column, key, param) -> String.format(
+            "jsonb_set(%s, ARRAY['%s', CAST(%s AS text), 'isDeleted'], 'true'::jsonb, true)",
+            expression, key, liveElementIndex(column, key, param + "Id"))
+    );
+
+    @FunctionalInterface
+    private interface SubEntityChangeSql {
+        String apply(String expression, String column, String key, String param);
+    }
+
+    /**
+     * GIN index on dynamic_documents.data per operator class. jsonb_path_ops is smaller and faster
+     * for @> but cannot serve the key-existence operator ?.
+     */
+    private static final Map<String, String> DATA_INDEX_NAMES = Map.of(
+        "jsonb_ops", "idx_dynamic_documents_data",
+        "jsonb_path_ops", "idx_dynamic_documents_data_path_ops"
+    );
+
+    private final boolean containmentFilters;
+    private final String dataIndexOperatorClass;
+
+    public PostgreSqlDialect() {
+        this(true, "jsonb_ops");
+    }
+
+    /**
+     * @param containmentFilters whether eq and in filters add a @> test the GIN index can serve
+     * @param dataIndexOperatorClass operator class of the GIN index on data: jsonb_ops or jsonb_path_ops
+     */
+    public PostgreSqlDialect(boolean containmentFilters, String dataIndexOperatorClass) {
+        if (!DATA_INDEX_NAMES.containsKey(dataIndexOperatorClass)) {
+            throw new IllegalArgumentException("GIN operator class must be one of " + DATA_INDEX_NAMES.keySet()
+                + ": " + dataIndexOperatorClass);
+        }
+        this.containmentFilters = containmentFilters;
+        this.dataIndexOperatorClass = dataIndexOperatorClass;
+    }
+
     @Override
     public DatabaseType getType() {
         return DatabaseType.POSTGRESQL;
@@ -27,11 +111,87 @@ public class PostgreSqlDialect implements DatabaseDialect {
                 last_modified_by VARCHAR(255),
                 created_at TIMESTAMP WITH TIME ZONE,
                 last_modified_at TIMESTAMP WITH TIME ZONE,
-                sequence_number BIGINT NOT NULL DEFAULT 0
+                sequence_number BIGINT NOT NULL DEFAULT 0,
+                content_hash VARCHAR(64)
             )
             """;
     }
 
+    @Override
+    public List<String> getIdempotencyTableSql() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS write_idempotency (
+                request_id VARCHAR(255) NOT NULL,
+                endpoint VARCHAR(255) NOT NULL,
+                response_type VARCHAR(32) NOT NULL,
+                response TEXT NOT NULL,
+                created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                PRIMARY KEY (request_id, endpoint)
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_write_idempotency_created_at ON write_idempotency(created_at)"
+        );
+    }
+
+    @Override
+    public List<String> getSubEntityTableSql() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS dynamic_sub_entities (
+                parent_id BIGINT NOT NULL REFERENCES dynamic_documents(id) ON DELETE CASCADE,
+                field VARCHAR(255) NOT NULL,
+                sub_id BIGINT NOT NULL,
+                item_index INTEGER NOT NULL,
+                is_deleted BOOLEAN DEFAULT FALSE,
+                data JSONB NOT NULL,
+                PRIMARY KEY (parent_id, field, sub_id)
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_dynamic_sub_entities_order ON dynamic_sub_entities(parent_id, field, item_index)",
+            "CREATE INDEX IF NOT EXISTS idx_dynamic_sub_entities_data ON dynamic_sub_entities USING GIN (data)"
+        );
+    }
+
+    @Override
+    public List<String> getArchiveTableSql() {
+        return List.of(
+            """
+            CREATE TABLE IF NOT EXISTS dynamic_documents_archive (
+                id BIGINT PRIMARY KEY,
+                table_name VARCHAR(255) NOT NULL,
+                data JSONB,
+                version BIGINT,
+                is_deleted BOOLEAN,
+                latest_request_id VARCHAR(255),
+                created_by VARCHAR(255),
+                last_modified_by VARCHAR(255),
+                created_at TIMESTAMP WITH TIME ZONE,
+                last_modified_at TIMESTAMP WITH TIME ZONE,
+                sequence_number BIGINT NOT NULL,
+                content_hash VARCHAR(64),
+                archived_at TIMESTAMP WITH TIME ZONE NOT NULL
+            )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_dynamic_documents_archive_sequence ON dynamic_documents_archive(table_name, sequence_number)"
+        );
+    }
+
+    @Override
+    public List<String> getSubEntityIdSequenceSql() {
+        return List.of("CREATE SEQUENCE IF NOT EXISTS sub_entity_id_seq START WITH 1 INCREMENT BY 1");
+    }
+
+    @Override
+    public String getNextSubEntityIdBlockSql() {
+        return "SELECT nextval('sub_entity_id_seq')";
+    }
+
+    @Override
+    public List<String> getContentHashColumnSql() {
+        return List.of("ALTER TABLE dynamic_documents ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64)");
+    }
+
     @Override
     public List<String> getCreateIndexesSql() {
         return List.of(
@@ -39,10 +199,21 @@ public class PostgreSqlDialect implements DatabaseDialect {
             "CREATE INDEX IF NOT EXISTS idx_dynamic_documents_table_name_not_deleted ON dynamic_documents(table_name, is_deleted)",
             "CREATE INDEX IF NOT EXISTS idx_dynamic_documents_last_modified ON dynamic_documents(table_name, last_modified_at)",
             "CREATE INDEX IF NOT EXISTS idx_dynamic_documents_sequence ON dynamic_documents(table_name, sequence_number)",
-            "CREATE INDEX IF NOT EXISTS idx_dynamic_documents_data ON dynamic_documents USING GIN (data)"
+            String.format("CREATE INDEX IF NOT EXISTS %s ON dynamic_documents USING GIN (data %s)",
+                DATA_INDEX_NAMES.get(dataIndexOperatorClass), dataIndexOperatorClass),
+            // Created before the other operator class's index is dropped, so data stays indexed
+            "DROP INDEX IF EXISTS " + otherDataIndexName()
         );
     }
 
+    private String otherDataIndexName() {
+        return DATA_INDEX_NAMES.entrySet().stream()
+            .filter(entry -> !entry.getKey().equals(dataIndexOperatorClass))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElseThrow();
+    }
+
     @Override
     public List<String> getSequenceSupportSql() {
         return List.of(
@@ -81,6 +252,18 @@ public class PostgreSqlDialect implements DatabaseDialect {
         return String.format("CAST(%s->>'%s' AS DOUBLE PRECISION)", column, escapeFieldPath(fieldPath));
     }
 
+    /**
+     * Values that are not ISO-8601 instants, or name a day their month does not have, read as NULL
+     * instead of failing the cast. The checks are nested CASEs as only CASE fixes the evaluation order.
+     */
+    @Override
+    public String jsonTimestampValue(String column, String fieldPath) {
+        String value = "(" + jsonExtractText(column, fieldPath) + ")";
+        return String.format("CASE WHEN %1$s ~ '%2$s' THEN CASE WHEN CAST(SUBSTR(%1$s, 9, 2) AS INTEGER) <= "
+            + "EXTRACT(DAY FROM CAST(SUBSTR(%1$s, 1, 7) || '-01' AS DATE) + INTERVAL '1 month' - INTERVAL '1 day') "
+            + "THEN CAST(%1$s AS TIMESTAMPTZ) END END", value, ISO_INSTANT_PATTERN);
+    }
+
     @Override
     public String jsonEquals(String column, String fieldPath, String paramName) {
         return String.format("%s->>'%s' = :%s", column, escapeFieldPath(fieldPath), paramName);
@@ -117,6 +300,12 @@ public class PostgreSqlDialect implements DatabaseDialect {
             column, escapeFieldPath(fieldPath), paramName);
     }
 
+    @Override
+    public String jsonBetween(String column, String fieldPath, String lowParamName, String highParamName) {
+        return String.format("CAST(%s->>'%s' AS DOUBLE PRECISION) BETWEEN :%s AND :%s",
+            column, escapeFieldPath(fieldPath), lowParamName, highParamName);
+    }
+
     @Override
     public String jsonIn(String column, String fieldPath, String paramName) {
         return String.format("%s->>'%s' IN (:%s)", column, escapeFieldPath(fieldPath), paramName);
@@ -129,6 +318,17 @@ public class PostgreSqlDialect implements DatabaseDialect {
             column, escaped, column, escaped, paramName);
     }
 
+    /**
+     * A bitmap scan of the GIN index answers the ANY by ORing one index probe per document
+     */
+    @Override
+    public String jsonContainsAny(String column, String documentsParamName) {
+        if (!containmentFilters) {
+            return null;
+        }
+        return String.format("%s @> ANY (CAST(ARRAY[:%s] AS jsonb[]))", column, documentsParamName);
+    }
+
     @Override
     public String jsonLike(String column, String fieldPath, String paramName) {
         return String.format("%s->>'%s' LIKE :%s", column, escapeFieldPath(fieldPath), paramName);
@@ -164,9 +364,9 @@ public class PostgreSqlDialect implements DatabaseDialect {
     public String getInsertSql() {
         return """
             INSERT INTO dynamic_documents (table_name, data, version, is_deleted, latest_request_id,
-                created_by, last_modified_by, created_at, last_modified_at)
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
             VALUES (:tableName, :data::jsonb, :version, :isDeleted, :latestRequestId,
-                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt)
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash)
             RETURNING id
             """;
     }
@@ -177,8 +377,8 @@ public class PostgreSqlDialect implements DatabaseDialect {
             UPDATE dynamic_documents
             SET data = :data::jsonb, version = :version, is_deleted = :isDeleted,
                 latest_request_id = :latestRequestId, last_modified_by = :lastModifiedBy,
-                last_modified_at = :lastModifiedAt
-            WHERE id = :id
+                last_modified_at = :lastModifiedAt, content_hash = :contentHash
+            WHERE id = :id AND COALESCE(version, 0) = :expectedVersion
             """;
     }
 
@@ -192,6 +392,224 @@ public class PostgreSqlDialect implements DatabaseDialect {
         return "SELECT currval('dynamic_documents_id_seq')";
     }
 
+    @Override
+    public String getBatchInsertSql() {
+        return getInsertSql();
+    }
+
+    @Override
+    public boolean supportsBatchGeneratedKeys() {
+        return true;
+    }
+
+    @Override
+    public String getInsertIfAbsentSql(String condition) {
+        return """
+            INSERT INTO dynamic_documents (table_name, data, version, is_deleted, latest_request_id,
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
+            SELECT :tableName, :data::jsonb, :version, :isDeleted, :latestRequestId,
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash
+            WHERE NOT EXISTS (SELECT 1 FROM dynamic_documents d WHERE %s)
+            RETURNING id
+            """.formatted(condition);
+    }
+
+    @Override
+    public String getReserveIdsSql() {
+        return "SELECT nextval('dynamic_documents_id_seq') FROM generate_series(1, :count)";
+    }
+
+    @Override
+    public String jsonMerge(String column, String paramName, List<String> keys) {
+        return String.format("%s || :%s::jsonb", column, paramName);
+    }
+
+    @Override
+    public String jsonDiffers(String left, String right) {
+        // jsonb equality ignores key order and formatting
+        return String.format("(%s) IS DISTINCT FROM (%s)", left, right);
+    }
+
+    /**
+     * Builds nested jsonb_set calls along the path tree of the operations. Each object on a path is
+     * rebuilt once from its stored value, so no expression is repeated however many operators touch it.
+     */
+    @Override
+    public String jsonApplyOperations(String column, List<UpdateOperation> operations, String paramPrefix) {
+        Map<UpdateOperation, String> params = new HashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            params.put(operations.get(i), paramPrefix + i);
+        }
+        return applyToObject(column, List.of(), operations, params);
+    }
+
+    private String applyToObject(String column, List<String> path, List<UpdateOperation> operations,
+                                 Map<UpdateOperation, String> params) {
+        Map<String, List<UpdateOperation>> byField = new LinkedHashMap<>();
+        for (UpdateOperation operation : operations) {
+            byField.computeIfAbsent(operation.segments().get(path.size()), field -> new ArrayList<>()).add(operation);
+        }
+
+        String object = path.isEmpty()
+            ? column
+            : String.format("COALESCE(%s #> %s, '{}'::jsonb)", column, textArrayLiteral(path));
+        for (Map.Entry<String, List<UpdateOperation>> field : byField.entrySet()) {
+            List<String> fieldPath = new ArrayList<>(path);
+            fieldPath.add(field.getKey());
+            String key = textArrayLiteral(List.of(field.getKey()));
+            UpdateOperation leaf = field.getValue().get(0);
+
+            if (leaf.segments().size() > fieldPath.size()) {
+                object = String.format("jsonb_set(%s, %s, %s, true)", object, key,
+                    applyToObject(column, fieldPath, field.getValue(), params));
+            } else if (leaf.operator() == UpdateOperator.UNSET) {
+                object = String.format("(%s #- %s)", object, key);
+            } else {
+                String current = String.format("%s #> %s", column, textArrayLiteral(fieldPath));
+                object = String.format("jsonb_set(%s, %s, %s, true)", object, key,
+                    OPERATION_VALUES.get(leaf.operator()).apply(current, params.get(leaf)));
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Array elements are located in the stored column: merges and deletes never move elements
+     * and appends only add after them, so the positions stay valid while the changes are applied.
+     * The UPDATE is guarded by jsonArrayHasElement, so every located element exists.
+     */
+    @Override
+    public String jsonApplySubEntityChanges(String expression, String column, String field,
+                                            List<SubEntityChange> changes, String paramPrefix) {
+        String key = escapeFieldPath(field);
+        String result = expression;
+        if (changes.stream().anyMatch(change -> change.kind() == SubEntityChange.Kind.APPEND)) {
+            result = String.format("jsonb_set(%s, '{%s}', COALESCE(%s->'%s', '[]'::jsonb), true)",
+                result, key, column, key);
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            result = SUB_ENTITY_CHANGES.get(changes.get(i).kind()).apply(result, column, key, paramPrefix + i);
+        }
+        return result;
+    }
+
+    @Override
+    public String jsonArrayHasElement(String column, String field, String idParam, boolean liveOnly) {
+        String key = escapeFieldPath(field);
+        return String.format(
+            "EXISTS (SELECT 1 FROM jsonb_array_elements(COALESCE(%s->'%s', '[]'::jsonb)) AS e(value) WHERE e.value->>'id' = :%s%s)",
+            column, key, idParam, liveOnly ? " AND " + LIVE_ELEMENT : "");
+    }
+
+    private static String liveElementIndex(String column, String key, String idParam) {
+        return String.format(
+            "(SELECT CAST(e.idx - 1 AS int) FROM jsonb_array_elements(%s->'%s') WITH ORDINALITY AS e(value, idx)"
+                + " WHERE e.value->>'id' = :%s AND %s LIMIT 1)",
+            column, key, idParam, LIVE_ELEMENT);
+    }
+
+    private String textArrayLiteral(List<String> path) {
+        return "'{" + path.stream().map(this::escapeFieldPath).collect(Collectors.joining(",")) + "}'";
+    }
+
+    @Override
+    public String updateReturning(String updateSql, String columns) {
+        return updateSql + " RETURNING " + columns;
+    }
+
+    @Override
+    public String selectForClaim(String selectSql, int limit) {
+        return selectSql + " ORDER BY d.id " + limitClause(limit) + " FOR UPDATE SKIP LOCKED";
+    }
+
+    /**
+     * CONCURRENTLY keeps writes going while it is built; a build that fails, for example on live
+     * documents sharing a key, leaves an invalid index that getUpsertKeyIndexesQuery reports
+     */
+    @Override
+    public String getCreateUpsertKeyIndexSql(String tableName, List<String> keyFields) {
+        return String.format(
+            "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS %s ON dynamic_documents (table_name, %s) WHERE %s",
+            upsertKeyIndexName(tableName, keyFields), upsertKeyExpressions(keyFields), liveCollectionPredicate(tableName));
+    }
+
+    @Override
+    public String getUpsertSql(String tableName, List<String> keyFields, List<String> dataKeys) {
+        // Conflict target must repeat the partial index definition for ON CONFLICT to infer it
+        return String.format("""
+            INSERT INTO dynamic_documents AS d (table_name, data, version, is_deleted, latest_request_id,
+                created_by, last_modified_by, created_at, last_modified_at, content_hash)
+            VALUES (:tableName, :data::jsonb, 0, false, :latestRequestId,
+                :createdBy, :lastModifiedBy, :createdAt, :lastModifiedAt, :contentHash)
+            ON CONFLICT (table_name, %s) WHERE %s
+            DO UPDATE SET data = d.data || EXCLUDED.data, version = COALESCE(d.version, 0) + 1,
+                latest_request_id = EXCLUDED.latest_request_id, last_modified_by = EXCLUDED.last_modified_by,
+                last_modified_at = EXCLUDED.last_modified_at, content_hash = EXCLUDED.content_hash
+            WHERE d.content_hash IS DISTINCT FROM EXCLUDED.content_hash AND %s""",
+            upsertKeyExpressions(keyFields), liveCollectionPredicate(tableName),
+            jsonDiffers("d.data", "d.data || EXCLUDED.data"));
+    }
+
+    /**
+     * Partial expression index on the live documents of the collection. CONCURRENTLY keeps writes
+     * going while it is built; a failed build leaves an invalid index, which getFieldIndexesQuery reports.
+     */
+    @Override
+    public String getCreateFieldIndexSql(String tableName, String field, IndexedFieldType type) {
+        return String.format("CREATE INDEX CONCURRENTLY IF NOT EXISTS %s ON dynamic_documents ((%s)) WHERE %s",
+            fieldIndexName(tableName, field, type), type.expression(this, "data", field), liveCollectionPredicate(tableName));
+    }
+
+    @Override
+    public String getDropFieldIndexSql(String indexName) {
+        return "DROP INDEX CONCURRENTLY IF EXISTS " + indexName;
+    }
+
+    @Override
+    public String getFieldIndexesQuery() {
+        return indexesQuery("ix\\_dyn\\_docs\\_%");
+    }
+
+    @Override
+    public String getUpsertKeyIndexesQuery() {
+        return indexesQuery("uq\\_dyn\\_docs\\_%");
+    }
+
+    private String indexesQuery(String namePattern) {
+        return """
+            SELECT c.relname AS index_name, i.indisvalid AS valid,
+                EXISTS (SELECT 1 FROM pg_stat_progress_create_index p WHERE p.index_relid = i.indexrelid) AS building
+            FROM pg_index i
+            JOIN pg_class c ON c.oid = i.indexrelid
+            JOIN pg_class t ON t.oid = i.indrelid
+            WHERE t.relname = 'dynamic_documents' AND c.relname LIKE '%s'
+            """.formatted(namePattern);
+    }
+
+    /**
+     * Repeats the partial index predicate with the collection as a literal, which a bound :tableName
+     * would not prove to the planner
+     */
+    @Override
+    public String upsertKeyMatch(String alias, String tableName, List<String> keyFields) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add(alias + ".table_name = " + tableNameLiteral(tableName) + " AND " + alias + ".is_deleted = false");
+        for (int i = 0; i < keyFields.size(); i++) {
+            conditions.add("(" + jsonExtractText(alias + ".data", keyFields.get(i)) + ") = :upsertKey" + i);
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    private String upsertKeyExpressions(List<String> keyFields) {
+        return keyFields.stream()
+            .map(field -> "(" + jsonExtractText("data", field) + ")")
+            .collect(Collectors.joining(", "));
+    }
+
+    private String liveCollectionPredicate(String tableName) {
+        return "table_name = " + tableNameLiteral(tableName) + " AND is_deleted = false";
+    }
+
     @Override
     public String limitClause(int limit) {
         return "LIMIT " + limit;
@@ -0,0 +1,87 @@
+package sigma.persistence.repository;
+
+import sigma.model.TtlConfig;
+import sigma.persistence.dialect.DatabaseDialect;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * TTL of each collection, as configured on its endpoints, and the SQL conditions it implies.
+ * Reads use the live condition so documents whose TTL has passed are hidden before the
+ * expiry worker removes them.
+ */
+@Component
+public class DocumentTtlPolicies {
+
+    private static final Map<String, String> AUDIT_COLUMNS = Map.of(
+            TtlConfig.CREATED_AT, "d.created_at",
+            TtlConfig.LAST_MODIFIED_AT, "d.last_modified_at"
+    );
+
+    private final DatabaseDialect dialect;
+    private volatile Map<String, TtlConfig> policies = Map.of();
+
+    public DocumentTtlPolicies(DatabaseDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * Replaces the TTL of every collection; collections not in the map have none
+     */
+    public void replaceAll(Map<String, TtlConfig> policiesByCollection) {
+        this.policies = Map.copyOf(policiesByCollection);
+    }
+
+    /**
+     * Gets the TTL of every collection that has one
+     */
+    public Map<String, TtlConfig> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * Gets the TTL of a collection (disabled if none is configured)
+     */
+    public TtlConfig get(String tableName) {
+        return policies.getOrDefault(tableName, TtlConfig.disabled());
+    }
+
+    /**
+     * Returns " AND ..." hiding the collection's expired documents, or an empty string if it has no TTL.
+     * Binds :ttlCutoff.
+     */
+    public String liveCondition(String tableName, MapSqlParameterSource paramSource) {
+        TtlConfig ttl = get(tableName);
+        if (!ttl.isEnabled()) {
+            return "";
+        }
+        String expiresFrom = expiresFromExpression(ttl);
+        paramSource.addValue("ttlCutoff", cutoff(ttl));
+        return " AND (" + expiresFrom + " IS NULL OR " + expiresFrom + " >= :ttlCutoff)";
+    }
+
+    /**
+     * Returns the condition matching documents whose TTL has passed. Binds :ttlCutoff.
+     */
+    public String expiredCondition(TtlConfig ttl, MapSqlParameterSource paramSource) {
+        paramSource.addValue("ttlCutoff", cutoff(ttl));
+        return expiresFromExpression(ttl) + " < :ttlCutoff";
+    }
+
+    private String expiresFromExpression(TtlConfig ttl) {
+        String column = AUDIT_COLUMNS.get(ttl.getField());
+        // Compared as timestamps: ISO-8601 text with offsets or fractions does not sort chronologically
+        return column != null ? column : dialect.jsonTimestampValue("d.data", ttl.getField());
+    }
+
+    /**
+     * Instant before which documents are expired
+     */
+    private Timestamp cutoff(TtlConfig ttl) {
+        return Timestamp.from(Instant.now().minus(ttl.getTtl()));
+    }
+}
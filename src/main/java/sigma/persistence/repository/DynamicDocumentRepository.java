@@ -2,22 +2,44 @@ package sigma.persistence.repository;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import sigma.model.DynamicDocument;
+import sigma.model.TtlConfig;
+import sigma.model.update.SubEntityChange;
+import sigma.model.update.UpdateOperation;
 import sigma.persistence.dialect.DatabaseDialect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -35,25 +57,43 @@ import java.util.stream.Collectors;
 public class DynamicDocumentRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(DynamicDocumentRepository.class);
+    private static final int MAX_IN_LIST_SIZE = 1000;
+    private static final String TTL_EXPIRY_REQUEST_ID = "ttl-expiry";
+    private static final String DOCUMENT_COLUMNS = "id, table_name, data, version, is_deleted, latest_request_id, "
+            + "created_by, last_modified_by, created_at, last_modified_at, sequence_number, content_hash";
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final DynamicDocumentJpaRepository crudRepository;
     private final ObjectMapper objectMapper;
+    private final ObjectMapper canonicalMapper;
     private final DatabaseDialect dialect;
+    private final DocumentTtlPolicies ttlPolicies;
+    private final int insertBatchSize;
 
     public DynamicDocumentRepository(
             NamedParameterJdbcTemplate jdbcTemplate,
             DynamicDocumentJpaRepository crudRepository,
             ObjectMapper objectMapper,
-            DatabaseDialect dialect) {
+            DatabaseDialect dialect,
+            DocumentTtlPolicies ttlPolicies,
+            @Value("${sigma.write.insert-batch-size:500}") int insertBatchSize) {
+        if (insertBatchSize <= 0) {
+            throw new IllegalArgumentException("sigma.write.insert-batch-size must be positive: " + insertBatchSize);
+        }
         this.jdbcTemplate = jdbcTemplate;
         this.crudRepository = crudRepository;
         this.objectMapper = objectMapper;
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
         this.dialect = dialect;
-        logger.info("Initialized DynamicDocumentRepository with dialect: {}", dialect.getType());
+        this.ttlPolicies = ttlPolicies;
+        this.insertBatchSize = insertBatchSize;
+        logger.info("Initialized DynamicDocumentRepository with dialect: {} (insert batch size: {})",
+                dialect.getType(), insertBatchSize);
     }
 
-    private final RowMapper<DynamicDocument> documentRowMapper = (rs, rowNum) -> {
+    private final RowMapper<DynamicDocument> documentRowMapper = this::mapDocument;
+
+    private DynamicDocument mapDocument(ResultSet rs, int rowNum) throws SQLException {
         DynamicDocument doc = new DynamicDocument();
         doc.setId(rs.getLong("id"));
         doc.setTableName(rs.getString("table_name"));
@@ -70,6 +110,7 @@ public class DynamicDocumentRepository {
         doc.setCreatedBy(rs.getString("created_by"));
         doc.setLastModifiedBy(rs.getString("last_modified_by"));
         doc.setSequenceNumber(rs.getLong("sequence_number"));
+        doc.setContentHash(rs.getString("content_hash"));
 
         Timestamp createdAt = rs.getTimestamp("created_at");
         if (createdAt != null) {
@@ -94,7 +135,7 @@ public class DynamicDocumentRepository {
         }
 
         return doc;
-    };
+    }
 
     /**
      * Performs a select * query on the specified table (collection)
@@ -102,6 +143,9 @@ public class DynamicDocumentRepository {
      */
     public List<Map<String, Object>> findAll(String tableName) {
         logger.debug("Querying all documents from table: {}", tableName);
+        if (ttlPolicies.get(tableName).isEnabled()) {
+            return findWithQuery(tableName, null, null, null, null, null);
+        }
         List<DynamicDocument> documents = crudRepository.findByTableNameAndNotDeleted(tableName);
         return documents.stream()
                 .map(DynamicDocument::toMap)
@@ -122,8 +166,15 @@ public class DynamicDocumentRepository {
 
         logger.debug("Executing query on table {}: WHERE {} ORDER BY {}", tableName, whereClause, orderByClause);
 
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("tableName", tableName);
+        if (params != null) {
+            params.forEach(paramSource::addValue);
+        }
+
         StringBuilder sql = new StringBuilder("SELECT * FROM dynamic_documents d WHERE d.table_name = :tableName AND ");
         sql.append(buildDeletedCheck(false));
+        sql.append(ttlPolicies.liveCondition(tableName, paramSource));
 
         if (whereClause != null && !whereClause.isEmpty()) {
             sql.append(" AND ").append(whereClause);
@@ -135,12 +186,6 @@ public class DynamicDocumentRepository {
 
         sql.append(dialect.paginationClause(limit, offset));
 
-        MapSqlParameterSource paramSource = new MapSqlParameterSource();
-        paramSource.addValue("tableName", tableName);
-        if (params != null) {
-            params.forEach(paramSource::addValue);
-        }
-
         List<DynamicDocument> documents = jdbcTemplate.query(sql.toString(), paramSource, documentRowMapper);
         return documents.stream()
                 .map(DynamicDocument::toMap)
@@ -180,7 +225,9 @@ public class DynamicDocumentRepository {
         }
 
         logger.debug("Fetching {} documents by id from table {}", ids.size(), tableName);
-        List<DynamicDocument> documents = crudRepository.findByIdInAndTableName(ids, tableName);
+        List<DynamicDocument> documents = ttlPolicies.get(tableName).isEnabled()
+                ? findUnexpired(tableName, "d.id IN (:ids)", new MapSqlParameterSource("ids", ids))
+                : crudRepository.findByIdInAndTableName(ids, tableName);
         return documents.stream()
                 .map(DynamicDocument::toMap)
                 .collect(Collectors.toList());
@@ -203,11 +250,18 @@ public class DynamicDocumentRepository {
         logger.debug("Executing nested query on table {} -> field {} with whereClause {}",
                 tableName, fatherDocumentPath, whereClause);
 
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("tableName", tableName);
+        if (params != null) {
+            params.forEach(paramSource::addValue);
+        }
+
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT nested.value as nested_doc FROM dynamic_documents d, ");
         sql.append(dialect.jsonArrayExpand("d.data", fatherDocumentPath, "nested"));
         sql.append(" WHERE d.table_name = :tableName AND ");
         sql.append(buildDeletedCheck(false));
+        sql.append(ttlPolicies.liveCondition(tableName, paramSource));
 
         if (whereClause != null && !whereClause.isEmpty()) {
             sql.append(" AND ").append(whereClause);
@@ -219,12 +273,6 @@ public class DynamicDocumentRepository {
 
         sql.append(dialect.paginationClause(limit, offset));
 
-        MapSqlParameterSource paramSource = new MapSqlParameterSource();
-        paramSource.addValue("tableName", tableName);
-        if (params != null) {
-            params.forEach(paramSource::addValue);
-        }
-
         List<Map<String, Object>> nestedDocs = new ArrayList<>();
 
         jdbcTemplate.query(sql.toString(), paramSource, (rs) -> {
@@ -244,14 +292,18 @@ public class DynamicDocumentRepository {
 
     /**
      * Gets the next page of changes using sequence-based pagination.
+     * Archived documents are read from dynamic_documents_archive, so their deletes stay in the feed.
      */
     public Map<String, Object> getNextPageBySequence(String tableName, long startSequence, int batchSize) {
         logger.info("Getting next page for table: {}, startSequence: {}, batchSize: {}",
                 tableName, startSequence, batchSize);
 
+        // Each side reads at most one page along its (table_name, sequence_number) index before the merge
         StringBuilder sql = new StringBuilder();
-        sql.append("SELECT * FROM dynamic_documents d WHERE d.table_name = :tableName ");
-        sql.append("AND d.sequence_number > :startSequence ORDER BY d.sequence_number ASC ");
+        sql.append("SELECT * FROM (").append(changesAfterSql("dynamic_documents", batchSize)).append(") live");
+        sql.append(" UNION ALL ");
+        sql.append("SELECT * FROM (").append(changesAfterSql("dynamic_documents_archive", batchSize)).append(") archived");
+        sql.append(" ORDER BY sequence_number ASC ");
         sql.append(dialect.limitClause(batchSize));
 
         MapSqlParameterSource paramSource = new MapSqlParameterSource();
@@ -284,24 +336,24 @@ public class DynamicDocumentRepository {
         return response;
     }
 
+    private String changesAfterSql(String table, int batchSize) {
+        return "SELECT " + DOCUMENT_COLUMNS + " FROM " + table + " d WHERE d.table_name = :tableName"
+                + " AND d.sequence_number > :startSequence ORDER BY d.sequence_number ASC "
+                + dialect.limitClause(batchSize);
+    }
+
     // ========== WRITE OPERATIONS ==========
 
     /**
-     * Inserts a single document into the table
+     * Inserts a single document into the table.
+     * The document is updated in place with its generated id and audit fields,
+     * so it mirrors the stored row without a re-read.
      */
     @Transactional
     public Long insertOne(String tableName, DynamicDocument document) {
         logger.info("Inserting document into table: {}", tableName);
 
-        document.setTableName(tableName);
-        Instant now = Instant.now();
-        if (document.getCreatedAt() == null) {
-            document.setCreatedAt(now);
-        }
-        document.setLastModifiedAt(now);
-        if (document.getVersion() == null) {
-            document.setVersion(0L);
-        }
+        prepareForInsert(tableName, document, currentTimestamp());
 
         String sql = dialect.getInsertSql();
         MapSqlParameterSource params = buildInsertParams(document);
@@ -326,168 +378,755 @@ public class DynamicDocumentRepository {
 
     /**
      * Inserts multiple documents into the table (bulk insert)
+     * Documents are sent as JDBC batches of insertBatchSize rows.
+     * Returned ids are in the same order as the input documents,
+     * and each document is updated in place like {@link #insertOne}.
      */
     @Transactional
     public List<Long> insertMany(String tableName, List<DynamicDocument> documents) {
         logger.info("Inserting {} documents into table: {}", documents.size(), tableName);
 
-        List<Long> insertedIds = new ArrayList<>();
-        for (DynamicDocument document : documents) {
-            Long id = insertOne(tableName, document);
-            insertedIds.add(id);
+        Instant now = currentTimestamp();
+        List<Long> insertedIds = new ArrayList<>(documents.size());
+        for (int from = 0; from < documents.size(); from += insertBatchSize) {
+            List<DynamicDocument> chunk = documents.subList(from, Math.min(from + insertBatchSize, documents.size()));
+            insertedIds.addAll(insertBatch(tableName, chunk, now));
         }
 
         logger.info("Successfully inserted {} documents with audit fields", insertedIds.size());
         return insertedIds;
     }
 
+    private List<Long> insertBatch(String tableName, List<DynamicDocument> chunk, Instant now) {
+        MapSqlParameterSource[] batchParams = new MapSqlParameterSource[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            DynamicDocument document = chunk.get(i);
+            prepareForInsert(tableName, document, now);
+            batchParams[i] = buildInsertParams(document);
+        }
+
+        List<Long> ids = dialect.supportsBatchGeneratedKeys()
+                ? batchInsertWithGeneratedKeys(batchParams)
+                : batchInsertWithReservedIds(batchParams);
+
+        if (ids.size() != chunk.size()) {
+            throw new IllegalStateException("Batch insert returned " + ids.size()
+                    + " ids for " + chunk.size() + " documents");
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.get(i).setId(ids.get(i));
+        }
+
+        logger.debug("Inserted batch of {} documents into table: {}", chunk.size(), tableName);
+        return ids;
+    }
+
+    private List<Long> batchInsertWithGeneratedKeys(SqlParameterSource[] batchParams) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(dialect.getBatchInsertSql(), batchParams, keyHolder, new String[]{"id"});
+
+        // Keys are returned in batch order, one row per statement
+        List<Long> ids = new ArrayList<>(batchParams.length);
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            Object key = keys.values().stream().findFirst().orElse(null);
+            ids.add(key instanceof Number number ? number.longValue() : null);
+        }
+        return ids;
+    }
+
+    private List<Long> batchInsertWithReservedIds(MapSqlParameterSource[] batchParams) {
+        MapSqlParameterSource countParams = new MapSqlParameterSource("count", batchParams.length);
+        List<Long> ids = jdbcTemplate.queryForList(dialect.getReserveIdsSql(), countParams, Long.class);
+
+        for (int i = 0; i < batchParams.length && i < ids.size(); i++) {
+            batchParams[i].addValue("id", ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(dialect.getBatchInsertSql(), batchParams);
+        return ids;
+    }
+
     /**
-     * Updates document(s) matching the query
+     * Inserts the document only if no live document of the table matches the filter,
+     * in a single guarded statement.
+     *
+     * @return the generated id, or null when a matching document already exists
      */
     @Transactional
-    public int update(String tableName, String whereClause, Map<String, Object> updates,
-                      Map<String, Object> params, boolean updateMultiple) {
+    public Long insertIfAbsent(String tableName, String whereClause, Map<String, Object> params,
+                               DynamicDocument document) {
+        logger.info("Inserting document into table: {} if absent", tableName);
+
+        prepareForInsert(tableName, document, currentTimestamp());
+        MapSqlParameterSource paramSource = buildInsertParams(document);
+        if (params != null) {
+            params.forEach(paramSource::addValue);
+        }
+        String sql = dialect.getInsertIfAbsentSql(buildMatchCondition(whereClause, true, paramSource));
+
+        Long insertedId;
+        if (dialect.supportsBatchGeneratedKeys()) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            int inserted = jdbcTemplate.update(sql, paramSource, keyHolder, new String[]{"id"});
+            insertedId = inserted > 0 && keyHolder.getKey() != null ? keyHolder.getKey().longValue() : null;
+        } else {
+            Long reservedId = jdbcTemplate.queryForObject(dialect.getReserveIdsSql(),
+                    new MapSqlParameterSource("count", 1), Long.class);
+            paramSource.addValue("id", reservedId);
+            insertedId = jdbcTemplate.update(sql, paramSource) > 0 ? reservedId : null;
+        }
+
+        if (insertedId == null) {
+            logger.info("Skipped insert into table: {}; a matching document exists", tableName);
+            return null;
+        }
+        document.setId(insertedId);
+        logger.info("Successfully inserted document with id: {}", insertedId);
+        return insertedId;
+    }
+
+    /**
+     * Updates document(s) matching the query with a single set-based statement.
+     * Top-level keys of updates replace the stored ones; the JSON is merged in the database.
+     *
+     * @return the updated documents as written by the statement
+     */
+    @Transactional
+    public List<Map<String, Object>> update(String tableName, String whereClause, Map<String, Object> updates,
+                                            Map<String, Object> params, boolean updateMultiple) {
+        return update(tableName, whereClause, updates, params, updateMultiple, false);
+    }
+
+    /**
+     * Updates document(s) matching the query; with idsOnly the statement returns only the ids
+     * of the updated documents (as {"id": ...} maps), so their rows are neither returned nor reloaded.
+     */
+    @Transactional
+    public List<Map<String, Object>> update(String tableName, String whereClause, Map<String, Object> updates,
+                                            Map<String, Object> params, boolean updateMultiple, boolean idsOnly) {
         logger.info("Updating documents in table: {} (multiple: {})", tableName, updateMultiple);
+        return executeUpdate(tableName, whereClause, updates, params, updateMultiple, idsOnly, false);
+    }
 
-        StringBuilder selectSql = new StringBuilder("SELECT * FROM dynamic_documents d WHERE d.table_name = :tableName AND ");
-        selectSql.append(buildDeletedCheck(false));
-        if (whereClause != null && !whereClause.isEmpty()) {
-            selectSql.append(" AND ").append(whereClause);
+    /**
+     * Updates the document(s) matching the query that the merge would change. The no-op check is
+     * part of the UPDATE predicate, so documents already holding the updates are neither loaded
+     * nor written.
+     *
+     * @return the updated documents as written by the statement, or only their ids with idsOnly
+     */
+    @Transactional
+    public List<Map<String, Object>> updateChanged(String tableName, String whereClause, Map<String, Object> updates,
+                                                   Map<String, Object> params, boolean updateMultiple,
+                                                   boolean idsOnly) {
+        logger.info("Updating changed documents in table: {} (multiple: {})", tableName, updateMultiple);
+        return executeUpdate(tableName, whereClause, updates, params, updateMultiple, idsOnly, true);
+    }
+
+    /**
+     * Updates a single document only if it still has the version the caller read (compare-and-set).
+     *
+     * @return the updated document as written by the statement
+     * @throws OptimisticLockingFailureException if the document was changed or deleted concurrently
+     */
+    @Transactional(noRollbackFor = OptimisticLockingFailureException.class)
+    public List<Map<String, Object>> updateIfVersion(String tableName, Long id, Long expectedVersion,
+                                                     Map<String, Object> updates) {
+        logger.info("Updating document {} in table: {} (expected version: {})", id, tableName, expectedVersion);
+
+        Map<String, Object> params = Map.of(
+                "documentId", id,
+                "expectedVersion", expectedVersion != null ? expectedVersion : 0L);
+        List<Map<String, Object>> updated = executeUpdate(tableName,
+                "d.id = :documentId AND COALESCE(d.version, 0) = :expectedVersion", updates, params, true, false, false);
+
+        if (updated.isEmpty()) {
+            throw new OptimisticLockingFailureException("Document " + id + " in table " + tableName
+                    + " no longer has version " + expectedVersion);
+        }
+        return updated;
+    }
+
+    /**
+     * Applies update operators ($set, $inc, $push, ...) to document(s) matching the query in one statement.
+     * The database computes the new values from the stored document, so concurrent increments
+     * and appends are neither lost nor need a read-modify-write round trip.
+     *
+     * @return the updated documents as written by the statement
+     */
+    @Transactional
+    public List<Map<String, Object>> updateWithOperations(String tableName, String whereClause,
+                                                          List<UpdateOperation> operations, String latestRequestId,
+                                                          Map<String, Object> params, boolean updateMultiple) {
+        return updateWithOperations(tableName, whereClause, operations, latestRequestId, params, updateMultiple, false);
+    }
+
+    /**
+     * Applies update operators; with idsOnly only the ids of the updated documents are returned
+     */
+    @Transactional
+    public List<Map<String, Object>> updateWithOperations(String tableName, String whereClause,
+                                                          List<UpdateOperation> operations, String latestRequestId,
+                                                          Map<String, Object> params, boolean updateMultiple,
+                                                          boolean idsOnly) {
+        logger.info("Applying {} update operators in table: {} (multiple: {})",
+                operations.size(), tableName, updateMultiple);
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        for (int i = 0; i < operations.size(); i++) {
+            paramSource.addValue("updateOp" + i, toJsonValue(operations.get(i).value()));
+        }
+        String dataExpression = dialect.jsonApplyOperations("d.data", operations, "updateOp");
+        return executeDataUpdate(tableName, whereClause, dataExpression, null, paramSource, latestRequestId,
+                params, updateMultiple, idsOnly);
+    }
+
+    /**
+     * Updates one document, applying sub-entity changes in place next to the merge of the other top-level updates.
+     * Changed elements are located by id in the database, so the parent document is never loaded,
+     * and the UPDATE only matches while every referenced element exists (or, for appends, does not).
+     *
+     * @return the updated document, or an empty list when the document or a referenced element is missing
+     */
+    @Transactional
+    public List<Map<String, Object>> updateSubEntitiesInPlace(String tableName, String whereClause,
+                                                              Map<String, Object> updates,
+                                                              Map<String, List<SubEntityChange>> changesByField,
+                                                              Map<String, Object> params) {
+        logger.info("Updating sub-entities {} in place in table: {}", changesByField.keySet(), tableName);
+
+        Map<String, Object> patch = new LinkedHashMap<>(updates);
+        Object latestRequestId = patch.remove("latestRequestId");
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        String dataExpression = "d.data";
+        if (!patch.isEmpty()) {
+            dataExpression = dialect.jsonMerge("d.data", "patch", bindPatch(paramSource, "patch", patch));
+        }
+
+        StringBuilder guardedWhere = new StringBuilder(whereClause != null && !whereClause.isEmpty()
+                ? "(" + whereClause + ")" : "1=1");
+        int fieldIndex = 0;
+        for (Map.Entry<String, List<SubEntityChange>> field : changesByField.entrySet()) {
+            String paramPrefix = "subEntity" + fieldIndex++ + "_";
+            List<SubEntityChange> changes = field.getValue();
+            for (int i = 0; i < changes.size(); i++) {
+                SubEntityChange change = changes.get(i);
+                String idParam = paramPrefix + i + "Id";
+                paramSource.addValue(idParam, String.valueOf(change.id()));
+                paramSource.addValue(paramPrefix + i, change.value() != null ? toJsonString(change.value()) : null);
+                String elementCheck = dialect.jsonArrayHasElement("d.data", field.getKey(), idParam,
+                        change.requiresLiveElement());
+                guardedWhere.append(" AND ").append(change.requiresLiveElement() ? elementCheck : "NOT " + elementCheck);
+            }
+            dataExpression = dialect.jsonApplySubEntityChanges(dataExpression, "d.data", field.getKey(), changes,
+                    paramPrefix);
+        }
+        return executeDataUpdate(tableName, guardedWhere.toString(), dataExpression, null, paramSource,
+                latestRequestId, params, false, false);
+    }
+
+    /**
+     * Marks the document(s) matching the query as changed without touching their data, for changes
+     * stored outside the row (sub-entity rows): the version, last_modified_at, latest_request_id
+     * and, through its trigger, sequence_number are bumped.
+     *
+     * @return the touched documents as written by the statement
+     */
+    @Transactional
+    public List<Map<String, Object>> touch(String tableName, String whereClause, Object latestRequestId,
+                                           Map<String, Object> params, boolean updateMultiple) {
+        logger.info("Touching documents in table: {} (multiple: {})", tableName, updateMultiple);
+        return executeDataUpdate(tableName, whereClause, null, null, new MapSqlParameterSource(), latestRequestId,
+                params, updateMultiple, false);
+    }
+
+    /**
+     * Claims up to limit documents matching the query for work-queue consumers and merges set into them.
+     * The documents are locked with FOR UPDATE SKIP LOCKED (in id order where the dialect can limit the
+     * locked rows in SQL), so concurrent claims receive
+     * disjoint documents without waiting on each other. The locks are held until the transaction commits.
+     *
+     * @return the claimed documents as written, or only their ids with idsOnly
+     */
+    @Transactional
+    public List<Map<String, Object>> claim(String tableName, String whereClause, Map<String, Object> params,
+                                           Map<String, Object> set, int limit, String requestId, boolean idsOnly) {
+        logger.info("Claiming up to {} documents in table: {}", limit, tableName);
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource("tableName", tableName);
+        if (params != null) {
+            params.forEach(paramSource::addValue);
         }
-        if (!updateMultiple) {
-            selectSql.append(" ").append(dialect.limitClause(1));
+        String selectSql = dialect.selectForClaim("SELECT d.id FROM dynamic_documents d WHERE "
+                + buildMatchCondition(whereClause, true, paramSource), limit);
+        List<Long> ids = jdbcTemplate.getJdbcOperations().query(withFetchSize(selectSql, paramSource, limit),
+                (ResultSetExtractor<List<Long>>) rs -> readIds(rs, limit));
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
         }
 
-        MapSqlParameterSource selectParams = new MapSqlParameterSource();
-        selectParams.addValue("tableName", tableName);
+        Map<String, Object> updates = new LinkedHashMap<>(set);
+        updates.put("latestRequestId", requestId);
+        return executeUpdate(tableName, "d.id IN (:claimedIds)", updates, Map.of("claimedIds", ids), true, idsOnly,
+                false);
+    }
+
+    /**
+     * Prepares a named-parameter query that fetches fetchSize rows per round trip, so a driver
+     * that locks rows as they are fetched locks no more rows than the caller reads
+     */
+    private PreparedStatementCreator withFetchSize(String sql, SqlParameterSource paramSource, int fetchSize) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        PreparedStatementCreatorFactory factory = new PreparedStatementCreatorFactory(
+                NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource),
+                NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource));
+        PreparedStatementCreator creator = factory.newPreparedStatementCreator(
+                NamedParameterUtils.buildValueArray(parsedSql, paramSource, null));
+        return connection -> {
+            PreparedStatement statement = creator.createPreparedStatement(connection);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        };
+    }
+
+    private List<Long> readIds(ResultSet rs, int limit) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        while (ids.size() < limit && rs.next()) {
+            ids.add(rs.getLong(1));
+        }
+        return ids;
+    }
+
+    private List<Map<String, Object>> executeUpdate(String tableName, String whereClause, Map<String, Object> updates,
+                                                    Map<String, Object> params, boolean updateMultiple,
+                                                    boolean idsOnly, boolean changedOnly) {
+
+        Map<String, Object> patch = new LinkedHashMap<>(updates);
+        Object latestRequestId = patch.remove("latestRequestId");
+
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        String dataExpression = dialect.jsonMerge("d.data", "patch", bindPatch(paramSource, "patch", patch));
+        String condition = changedOnly ? onlyIfDiffers(whereClause, dataExpression) : whereClause;
+        return executeDataUpdate(tableName, condition, dataExpression, null, paramSource,
+                latestRequestId, params, updateMultiple, idsOnly);
+    }
+
+    /**
+     * Narrows the query to documents whose data would differ from the stored data
+     */
+    private String onlyIfDiffers(String whereClause, String dataExpression) {
+        String differs = dialect.jsonDiffers("d.data", dataExpression);
+        return whereClause == null || whereClause.isEmpty() ? differs : "(" + whereClause + ") AND " + differs;
+    }
+
+    /**
+     * Binds a patch the way jsonMerge reads it: the object under name, each value under name{i}
+     *
+     * @return the keys of the patch, in binding order
+     */
+    private List<String> bindPatch(MapSqlParameterSource paramSource, String name, Map<String, Object> patch) {
+        List<String> keys = new ArrayList<>(patch.keySet());
+        paramSource.addValue(name, toJsonString(patch));
+        for (int i = 0; i < keys.size(); i++) {
+            paramSource.addValue(name + i, toJsonValue(patch.get(keys.get(i))));
+        }
+        return keys;
+    }
+
+    /**
+     * Sets data to the given expression on the matched documents and bumps their audit columns;
+     * a null expression keeps the data and its content hash. The content hash is cleared unless
+     * the caller gives an expression for it.
+     */
+    private List<Map<String, Object>> executeDataUpdate(String tableName, String whereClause, String dataExpression,
+                                                        String contentHashExpression,
+                                                        MapSqlParameterSource paramSource, Object latestRequestId,
+                                                        Map<String, Object> params, boolean updateMultiple,
+                                                        boolean idsOnly) {
+        paramSource.addValue("tableName", tableName);
         if (params != null) {
-            params.forEach(selectParams::addValue);
+            params.forEach(paramSource::addValue);
         }
+        paramSource.addValue("lastModifiedAt", Timestamp.from(currentTimestamp()));
+
+        StringBuilder updateSql = new StringBuilder("UPDATE dynamic_documents d SET ");
+        if (dataExpression != null) {
+            updateSql.append("data = ").append(dataExpression);
+            // The new data is only known to the database, so its content hash is usually unknown
+            updateSql.append(", content_hash = ")
+                    .append(contentHashExpression != null ? contentHashExpression : "NULL")
+                    .append(", ");
+        }
+        updateSql.append("version = COALESCE(d.version, 0) + 1, last_modified_at = :lastModifiedAt");
+        if (latestRequestId != null) {
+            updateSql.append(", latest_request_id = :latestRequestId");
+            paramSource.addValue("latestRequestId", latestRequestId.toString());
+        }
+        updateSql.append(" WHERE ");
 
-        List<DynamicDocument> documents = jdbcTemplate.query(selectSql.toString(), selectParams, documentRowMapper);
+        if (idsOnly) {
+            List<Long> ids = updateReturningIds(updateSql.toString(), whereClause, updateMultiple, paramSource);
+            logger.info("Update result: modified={}", ids.size());
+            return idMaps(ids);
+        }
+        List<DynamicDocument> updated = updateReturningRows(updateSql.toString(), whereClause, updateMultiple, paramSource);
 
-        Instant now = Instant.now();
-        for (DynamicDocument doc : documents) {
-            Map<String, Object> dynamicFields = doc.getDynamicFields();
-            if (dynamicFields == null) {
-                dynamicFields = new HashMap<>();
-            }
-            dynamicFields.putAll(updates);
-            doc.setDynamicFields(dynamicFields);
-            doc.setLastModifiedAt(now);
-            doc.setVersion(doc.getVersion() != null ? doc.getVersion() + 1 : 1L);
+        logger.info("Update result: modified={}", updated.size());
+        return updated.stream()
+                .map(DynamicDocument::toMap)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Runs an UPDATE over the matched documents and returns the rows as written.
+     * Uses the dialect's RETURNING form when available, otherwise updates by id and reloads the rows.
+     */
+    private List<DynamicDocument> updateReturningRows(String updateSqlPrefix, String whereClause, boolean multiple,
+                                                      MapSqlParameterSource paramSource) {
+        String returningSql = dialect.updateReturning(
+                updateSqlPrefix + buildMatchCondition(whereClause, multiple, paramSource), "*");
+        if (returningSql != null) {
+            return jdbcTemplate.query(returningSql, paramSource, documentRowMapper);
+        }
+        List<Long> ids = updateSelectedIds(updateSqlPrefix, whereClause, multiple, paramSource);
+        return findDocumentsByIds(ids);
+    }
 
-            updateDocument(doc);
+    /**
+     * Runs an UPDATE over the matched documents and returns only their ids, without reading the rows
+     */
+    private List<Long> updateReturningIds(String updateSqlPrefix, String whereClause, boolean multiple,
+                                          MapSqlParameterSource paramSource) {
+        String returningSql = dialect.updateReturning(
+                updateSqlPrefix + buildMatchCondition(whereClause, multiple, paramSource), "id");
+        if (returningSql != null) {
+            return jdbcTemplate.queryForList(returningSql, paramSource, Long.class);
         }
+        return updateSelectedIds(updateSqlPrefix, whereClause, multiple, paramSource);
+    }
 
-        logger.info("Update result: modified={}", documents.size());
-        return documents.size();
+    private List<Map<String, Object>> idMaps(List<Long> ids) {
+        return ids.stream()
+                .map(id -> Map.<String, Object>of("id", id))
+                .collect(Collectors.toList());
     }
 
-    private void updateDocument(DynamicDocument document) {
+    /**
+     * Fallback for dialects that cannot return rows from an UPDATE:
+     * selects the matching ids, then updates them in IN-list sized chunks.
+     */
+    private List<Long> updateSelectedIds(String updateSqlPrefix, String whereClause, boolean multiple,
+                                         MapSqlParameterSource paramSource) {
+        String selectSql = "SELECT d.id FROM dynamic_documents d WHERE "
+                + buildMatchCondition(whereClause, multiple, paramSource);
+        List<Long> ids = jdbcTemplate.queryForList(selectSql, paramSource, Long.class);
+
+        String updateSql = updateSqlPrefix + "d.id IN (:ids)";
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            paramSource.addValue("ids", ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size())));
+            jdbcTemplate.update(updateSql, paramSource);
+        }
+        return ids;
+    }
+
+    /**
+     * Writes the full document if its stored version is still expectedVersion.
+     *
+     * @throws OptimisticLockingFailureException if a concurrent write changed the version
+     */
+    private void updateDocument(DynamicDocument document, Long expectedVersion, String dataJson) {
         String sql = dialect.getUpdateSql();
+        document.setContentHash(contentHash(dataJson));
 
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("id", document.getId());
-        params.addValue("data", toJsonString(document.getDynamicFields()));
+        params.addValue("expectedVersion", expectedVersion != null ? expectedVersion : 0L);
+        params.addValue("data", dataJson);
+        params.addValue("contentHash", document.getContentHash());
         params.addValue("version", document.getVersion());
         params.addValue("isDeleted", dialect.convertBoolean(document.isDeleted()));
         params.addValue("latestRequestId", document.getLatestRequestId());
         params.addValue("lastModifiedBy", document.getLastModifiedBy());
         params.addValue("lastModifiedAt", Timestamp.from(document.getLastModifiedAt()));
 
-        jdbcTemplate.update(sql, params);
+        if (jdbcTemplate.update(sql, params) == 0) {
+            throw new OptimisticLockingFailureException("Document " + document.getId() + " in table "
+                    + document.getTableName() + " no longer has version " + expectedVersion);
+        }
     }
 
     /**
-     * Upserts a document (update if exists, insert if not)
+     * Upserts a document (update if exists, insert if not): the document is merged into the first
+     * live document matching the query by the database. The merge is skipped when that document
+     * already has the content, and then modifiedCount is 0. A latestRequestId entry of the document
+     * goes to its column, not the data.
+     *
+     * @return upsertedId (insert) or matchedCount/modifiedCount (update), plus the written document
      */
     @Transactional
     public Map<String, Object> upsert(String tableName, String whereClause,
                                        Map<String, Object> document, Map<String, Object> params) {
         logger.info("Upserting document in table: {}", tableName);
 
-        StringBuilder selectSql = new StringBuilder("SELECT * FROM dynamic_documents d WHERE d.table_name = :tableName AND ");
-        selectSql.append(buildDeletedCheck(false));
-        if (whereClause != null && !whereClause.isEmpty()) {
-            selectSql.append(" AND ").append(whereClause);
-        }
-        selectSql.append(" ").append(dialect.limitClause(1));
+        Map<String, Object> fields = new HashMap<>(document);
+        Object latestRequestId = fields.remove("latestRequestId");
+        Map<String, Object> result = new HashMap<>();
 
-        MapSqlParameterSource selectParams = new MapSqlParameterSource();
-        selectParams.addValue("tableName", tableName);
-        if (params != null) {
-            params.forEach(selectParams::addValue);
+        List<Map<String, Object>> merged = mergeIntoFirstMatch(tableName, whereClause, fields, latestRequestId, params);
+        if (!merged.isEmpty()) {
+            result.put("matchedCount", 1L);
+            result.put("modifiedCount", 1L);
+            result.put("document", merged.get(0));
+            logger.info("Updated existing document: matched=1, modified=1");
+            return result;
         }
 
-        List<DynamicDocument> existing = jdbcTemplate.query(selectSql.toString(), selectParams, documentRowMapper);
-
-        Map<String, Object> result = new HashMap<>();
-
+        // Nothing merged: either no document matches or the first match already has the content
+        List<DynamicDocument> existing = findDocuments(tableName, whereClause, params, 1);
         if (existing.isEmpty()) {
-            DynamicDocument newDoc = new DynamicDocument(tableName, document);
+            DynamicDocument newDoc = new DynamicDocument(tableName, fields);
+            newDoc.setLatestRequestId(latestRequestId != null ? latestRequestId.toString() : null);
             Long insertedId = insertOne(tableName, newDoc);
             result.put("upsertedId", insertedId);
+            result.put("document", newDoc.toMap());
             logger.info("Upserted new document with id: {}", insertedId);
         } else {
             DynamicDocument doc = existing.get(0);
-            Map<String, Object> dynamicFields = doc.getDynamicFields();
-            if (dynamicFields == null) {
-                dynamicFields = new HashMap<>();
-            }
-            dynamicFields.putAll(document);
-            doc.setDynamicFields(dynamicFields);
-            doc.setLastModifiedAt(Instant.now());
-            doc.setVersion(doc.getVersion() != null ? doc.getVersion() + 1 : 1L);
+            result.put("matchedCount", 1L);
+            result.put("modifiedCount", 0L);
+            result.put("document", doc.toMap());
+            logger.info("Document {} already has the upserted content; nothing written", doc.getId());
+        }
+        return result;
+    }
+
+    /**
+     * Merges the fields into the first live document matching the query, unless its content hash
+     * is the one of the fields or the merge would leave its data as it is. The row keeps the hash
+     * of the merged fields, so re-sending them short-circuits on the hash alone.
+     *
+     * @return the merged document, or an empty list when nothing was written
+     */
+    private List<Map<String, Object>> mergeIntoFirstMatch(String tableName, String whereClause,
+                                                          Map<String, Object> fields, Object latestRequestId,
+                                                          Map<String, Object> params) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("tableName", tableName);
+        if (params != null) {
+            params.forEach(paramSource::addValue);
+        }
+        String dataExpression = dialect.jsonMerge("d.data", "patch", bindPatch(paramSource, "patch", fields));
+        paramSource.addValue("contentHash", contentHash(toCanonicalJson(fields)));
+
+        // The first match is picked before the guards, so an unchanged match is never passed over
+        String condition = buildMatchCondition(whereClause, false, paramSource)
+                + " AND (d.content_hash IS NULL OR d.content_hash <> :contentHash) AND "
+                + dialect.jsonDiffers("d.data", dataExpression);
+        return executeDataUpdate(tableName, condition, dataExpression, ":contentHash", paramSource,
+                latestRequestId, params, true, false);
+    }
+
+    /**
+     * Atomically inserts the document or merges it into the live document with the same
+     * key field values, in a single statement backed by the collection's upsert key index.
+     * The merge is skipped in the statement when the live document has the content hash of the
+     * sent one (a re-sent unchanged document) or the merge would leave its data as it is; then
+     * modifiedCount is 0 and the document is only read. The row keeps the hash of the sent document.
+     *
+     * @return upsertedId (insert) or matchedCount/modifiedCount (update), plus the written document
+     */
+    @Transactional
+    public Map<String, Object> upsertByKey(String tableName, List<String> keyFields, DynamicDocument document) {
+        logger.info("Upserting document in table: {} by key {}", tableName, keyFields);
+
+        prepareForInsert(tableName, document, currentTimestamp());
+        MapSqlParameterSource paramSource = buildInsertParams(document);
+        for (int i = 0; i < keyFields.size(); i++) {
+            Object keyValue = document.getField(keyFields.get(i));
+            paramSource.addValue("upsertKey" + i, toJsonText(keyValue));
+        }
+        List<String> dataKeys = new ArrayList<>(document.getDynamicFields().keySet());
+        for (int i = 0; i < dataKeys.size(); i++) {
+            paramSource.addValue("data" + i, toJsonValue(document.getDynamicFields().get(dataKeys.get(i))));
+        }
 
-            updateDocument(doc);
+        String upsertSql = dialect.getUpsertSql(tableName, keyFields, dataKeys);
+        List<DynamicDocument> written;
+        try {
+            written = executeUpsert(tableName, keyFields, upsertSql, paramSource);
+        } catch (DuplicateKeyException e) {
+            // A MERGE resolves the key before inserting, so a concurrent upsert can insert it in between;
+            // the unique index held this insert until that one committed, so the retry merges into it
+            logger.info("Key {} was inserted concurrently in table {}; retrying the upsert", keyFields, tableName);
+            written = executeUpsert(tableName, keyFields, upsertSql, paramSource);
+        }
 
+        // Nothing written: the live document already has the sent content
+        boolean unchanged = written.isEmpty();
+        if (unchanged) {
+            written = findByUpsertKey(tableName, keyFields, paramSource);
+        }
+        if (written.isEmpty()) {
+            throw new IllegalStateException("Upsert did not return the written document for key " + keyFields);
+        }
+
+        DynamicDocument row = written.get(0);
+        Map<String, Object> result = new HashMap<>();
+        if (unchanged) {
+            result.put("matchedCount", 1L);
+            result.put("modifiedCount", 0L);
+            logger.info("Document {} already has the upserted content; nothing written", row.getId());
+        } else if (row.getVersion() == null || row.getVersion() == 0L) {
+            // Inserts keep version 0, merges always bump it
+            result.put("upsertedId", row.getId());
+            logger.info("Upserted new document with id: {}", row.getId());
+        } else {
             result.put("matchedCount", 1L);
             result.put("modifiedCount", 1L);
-            logger.info("Updated existing document: matched=1, modified=1");
+            logger.info("Updated existing document {}: matched=1, modified=1", row.getId());
         }
-
+        result.put("document", row.toMap());
         return result;
     }
 
     /**
-     * Soft deletes document(s) matching the query
+     * Runs the upsert statement and returns the written row, or nothing when the merge was skipped
+     */
+    private List<DynamicDocument> executeUpsert(String tableName, List<String> keyFields, String upsertSql,
+                                                MapSqlParameterSource paramSource) {
+        String returningSql = dialect.updateReturning(upsertSql, "*");
+        if (returningSql != null) {
+            return jdbcTemplate.query(returningSql, paramSource, documentRowMapper);
+        }
+        return jdbcTemplate.update(upsertSql, paramSource) > 0
+                ? findByUpsertKey(tableName, keyFields, paramSource)
+                : List.of();
+    }
+
+    private List<DynamicDocument> findByUpsertKey(String tableName, List<String> keyFields,
+                                                  MapSqlParameterSource paramSource) {
+        String sql = "SELECT * FROM dynamic_documents d WHERE " + dialect.upsertKeyMatch("d", tableName, keyFields)
+                + " " + dialect.limitClause(1);
+        return jdbcTemplate.query(sql, paramSource, documentRowMapper);
+    }
+
+    /**
+     * Soft deletes document(s) matching the query with a single statement.
+     * Only the audit columns are written; the JSON payload is left untouched.
+     *
+     * @return the deleted documents as stored after the delete
      */
     @Transactional
-    public int delete(String tableName, String whereClause, Map<String, Object> params,
-                      boolean deleteMultiple, String requestId) {
+    public List<Map<String, Object>> delete(String tableName, String whereClause, Map<String, Object> params,
+                                            boolean deleteMultiple, String requestId) {
+        return delete(tableName, whereClause, params, deleteMultiple, requestId, false);
+    }
+
+    /**
+     * Soft deletes document(s) matching the query; with idsOnly only the ids of the deleted documents are returned
+     */
+    @Transactional
+    public List<Map<String, Object>> delete(String tableName, String whereClause, Map<String, Object> params,
+                                            boolean deleteMultiple, String requestId, boolean idsOnly) {
         logger.info("Deleting documents from table: {} (multiple: {})", tableName, deleteMultiple);
 
-        StringBuilder selectSql = new StringBuilder("SELECT * FROM dynamic_documents d WHERE d.table_name = :tableName AND ");
-        selectSql.append(buildDeletedCheck(false));
-        if (whereClause != null && !whereClause.isEmpty()) {
-            selectSql.append(" AND ").append(whereClause);
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("tableName", tableName);
+        if (params != null) {
+            params.forEach(paramSource::addValue);
         }
-        if (!deleteMultiple) {
-            selectSql.append(" ").append(dialect.limitClause(1));
+        paramSource.addValue("isDeleted", dialect.convertBoolean(true));
+        paramSource.addValue("lastModifiedAt", Timestamp.from(currentTimestamp()));
+
+        StringBuilder deleteSql = new StringBuilder("UPDATE dynamic_documents d SET is_deleted = :isDeleted");
+        deleteSql.append(", version = COALESCE(d.version, 0) + 1, last_modified_at = :lastModifiedAt");
+        if (requestId != null) {
+            deleteSql.append(", latest_request_id = :latestRequestId");
+            paramSource.addValue("latestRequestId", requestId);
         }
+        deleteSql.append(" WHERE ");
 
-        MapSqlParameterSource selectParams = new MapSqlParameterSource();
-        selectParams.addValue("tableName", tableName);
-        if (params != null) {
-            params.forEach(selectParams::addValue);
+        if (idsOnly) {
+            List<Long> ids = updateReturningIds(deleteSql.toString(), whereClause, deleteMultiple, paramSource);
+            logger.info("Soft delete result: modified={}", ids.size());
+            return idMaps(ids);
         }
+        List<DynamicDocument> deleted = updateReturningRows(deleteSql.toString(), whereClause, deleteMultiple, paramSource);
 
-        List<DynamicDocument> documents = jdbcTemplate.query(selectSql.toString(), selectParams, documentRowMapper);
+        logger.info("Soft delete result: modified={}", deleted.size());
+        return deleted.stream()
+                .map(DynamicDocument::toMap)
+                .collect(Collectors.toList());
+    }
 
-        Instant now = Instant.now();
-        for (DynamicDocument doc : documents) {
-            doc.setDeleted(true);
-            doc.setLastModifiedAt(now);
-            doc.setVersion(doc.getVersion() != null ? doc.getVersion() + 1 : 1L);
-            if (requestId != null) {
-                doc.setLatestRequestId(requestId);
-            }
-            updateDocument(doc);
+    /**
+     * Soft deletes up to batchSize live documents of the collection whose TTL has passed, in one statement
+     *
+     * @return the number of expired documents
+     */
+    @Transactional
+    public int expireBatch(String tableName, TtlConfig ttl, int batchSize) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("tableName", tableName);
+        paramSource.addValue("isDeleted", dialect.convertBoolean(true));
+        paramSource.addValue("lastModifiedAt", Timestamp.from(currentTimestamp()));
+        paramSource.addValue("latestRequestId", TTL_EXPIRY_REQUEST_ID);
+
+        String sql = "UPDATE dynamic_documents d SET is_deleted = :isDeleted"
+                + ", version = COALESCE(d.version, 0) + 1, last_modified_at = :lastModifiedAt"
+                + ", latest_request_id = :latestRequestId"
+                + " WHERE d.id IN (SELECT d.id FROM dynamic_documents d WHERE d.table_name = :tableName AND "
+                + buildDeletedCheck(false) + " AND " + ttlPolicies.expiredCondition(ttl, paramSource)
+                + " " + dialect.limitClause(batchSize) + ")";
+
+        int expired = jdbcTemplate.update(sql, paramSource);
+        logger.debug("Expired {} documents from table {}", expired, tableName);
+        return expired;
+    }
+
+    /**
+     * Moves up to batchSize documents of the collection soft deleted before deletedBefore into
+     * dynamic_documents_archive, lowest ids first. The archived rows keep their sequence numbers,
+     * so the sequence feed still reports the deletes.
+     *
+     * @return the number of archived documents
+     */
+    @Transactional
+    public int archiveDeletedBatch(String tableName, Instant deletedBefore, int batchSize) {
+        MapSqlParameterSource selectParams = new MapSqlParameterSource()
+                .addValue("tableName", tableName)
+                .addValue("deletedBefore", Timestamp.from(deletedBefore));
+        String selectSql = "SELECT d.id FROM dynamic_documents d WHERE d.table_name = :tableName AND "
+                + buildDeletedCheck(true) + " AND d.last_modified_at < :deletedBefore ORDER BY d.id "
+                + dialect.limitClause(Math.min(batchSize, MAX_IN_LIST_SIZE));
+        List<Long> ids = jdbcTemplate.queryForList(selectSql, selectParams, Long.class);
+        if (ids.isEmpty()) {
+            return 0;
         }
 
-        logger.info("Soft delete result: modified={}", documents.size());
-        return documents.size();
+        MapSqlParameterSource idParams = new MapSqlParameterSource("ids", ids)
+                .addValue("archivedAt", Timestamp.from(currentTimestamp()));
+        jdbcTemplate.update("INSERT INTO dynamic_documents_archive (" + DOCUMENT_COLUMNS + ", archived_at) SELECT "
+                + DOCUMENT_COLUMNS + ", :archivedAt FROM dynamic_documents WHERE id IN (:ids)", idParams);
+        // Child-table sub-entities of the archived documents go with them (ON DELETE CASCADE)
+        int archived = jdbcTemplate.update("DELETE FROM dynamic_documents WHERE id IN (:ids)", idParams);
+
+        logger.debug("Archived {} deleted documents from table {}", archived, tableName);
+        return archived;
+    }
+
+    /**
+     * Finds the ids of documents matching the given criteria without loading their data
+     */
+    public List<Long> findIds(String tableName, String whereClause, Map<String, Object> params, int limit) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("tableName", tableName);
+        if (params != null) {
+            params.forEach(paramSource::addValue);
+        }
+        String sql = "SELECT d.id FROM dynamic_documents d WHERE " + buildMatchCondition(whereClause, true, paramSource)
+                + " " + dialect.limitClause(limit);
+        return jdbcTemplate.queryForList(sql, paramSource, Long.class);
     }
 
     /**
@@ -495,8 +1134,15 @@ public class DynamicDocumentRepository {
      */
     public List<DynamicDocument> findDocuments(String tableName, String whereClause,
                                                 Map<String, Object> params, Integer limit) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("tableName", tableName);
+        if (params != null) {
+            params.forEach(paramSource::addValue);
+        }
+
         StringBuilder sql = new StringBuilder("SELECT * FROM dynamic_documents d WHERE d.table_name = :tableName AND ");
         sql.append(buildDeletedCheck(false));
+        sql.append(ttlPolicies.liveCondition(tableName, paramSource));
         if (whereClause != null && !whereClause.isEmpty()) {
             sql.append(" AND ").append(whereClause);
         }
@@ -504,12 +1150,6 @@ public class DynamicDocumentRepository {
             sql.append(" ").append(dialect.limitClause(limit));
         }
 
-        MapSqlParameterSource paramSource = new MapSqlParameterSource();
-        paramSource.addValue("tableName", tableName);
-        if (params != null) {
-            params.forEach(paramSource::addValue);
-        }
-
         return jdbcTemplate.query(sql.toString(), paramSource, documentRowMapper);
     }
 
@@ -517,21 +1157,37 @@ public class DynamicDocumentRepository {
      * Get a single document by ID
      */
     public DynamicDocument findById(String tableName, Long id) {
+        if (ttlPolicies.get(tableName).isEnabled()) {
+            return findUnexpired(tableName, "d.id = :id", new MapSqlParameterSource("id", id)).stream()
+                    .findFirst()
+                    .orElse(null);
+        }
         return crudRepository.findByIdAndTableName(id, tableName).orElse(null);
     }
 
     /**
-     * Save a document (insert or update)
+     * Looks documents up by id as the CRUD repository does, hiding those whose TTL has passed
      */
-    @Transactional
+    private List<DynamicDocument> findUnexpired(String tableName, String idCondition, MapSqlParameterSource paramSource) {
+        paramSource.addValue("tableName", tableName);
+        String sql = "SELECT * FROM dynamic_documents d WHERE " + idCondition + " AND d.table_name = :tableName"
+                + ttlPolicies.liveCondition(tableName, paramSource);
+        return jdbcTemplate.query(sql, paramSource, documentRowMapper);
+    }
+
+    /**
+     * Save a document (insert or update); updates are guarded by the document's current version
+     */
+    @Transactional(noRollbackFor = OptimisticLockingFailureException.class)
     public DynamicDocument save(DynamicDocument document) {
         if (document.getId() == null) {
             Long id = insertOne(document.getTableName(), document);
             document.setId(id);
         } else {
-            document.setLastModifiedAt(Instant.now());
-            document.setVersion(document.getVersion() != null ? document.getVersion() + 1 : 1L);
-            updateDocument(document);
+            Long readVersion = document.getVersion();
+            document.setLastModifiedAt(currentTimestamp());
+            document.setVersion(readVersion != null ? readVersion + 1 : 1L);
+            updateDocument(document, readVersion, toCanonicalJson(document.getDynamicFields()));
         }
         return document;
     }
@@ -554,6 +1210,43 @@ public class DynamicDocumentRepository {
         return dialect;
     }
 
+    /**
+     * Write timestamp truncated to the column precision, so documents built in memory
+     * match what a later read returns.
+     */
+    private static Instant currentTimestamp() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private List<DynamicDocument> findDocumentsByIds(List<Long> ids) {
+        List<DynamicDocument> documents = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            MapSqlParameterSource paramSource = new MapSqlParameterSource(
+                    "ids", ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size())));
+            documents.addAll(jdbcTemplate.query("SELECT * FROM dynamic_documents d WHERE d.id IN (:ids)",
+                    paramSource, documentRowMapper));
+        }
+        return documents;
+    }
+
+    /**
+     * Builds the WHERE condition selecting live, unexpired documents of the table bound as :tableName
+     * that match the filter. When multiple is false only the first match is selected.
+     */
+    private String buildMatchCondition(String whereClause, boolean multiple, MapSqlParameterSource paramSource) {
+        StringBuilder condition = new StringBuilder("d.table_name = :tableName AND ");
+        condition.append(buildDeletedCheck(false));
+        condition.append(ttlPolicies.liveCondition((String) paramSource.getValue("tableName"), paramSource));
+        if (whereClause != null && !whereClause.isEmpty()) {
+            condition.append(" AND ").append(whereClause);
+        }
+        if (multiple) {
+            return condition.toString();
+        }
+        return "d.id IN (SELECT d.id FROM dynamic_documents d WHERE " + condition
+                + " " + dialect.limitClause(1) + ")";
+    }
+
     private String buildDeletedCheck(boolean isDeleted) {
         if (dialect.requiresBooleanConversion()) {
             return "d.is_deleted = " + (isDeleted ? "1" : "0");
@@ -561,10 +1254,24 @@ public class DynamicDocumentRepository {
         return "d.is_deleted = " + isDeleted;
     }
 
+    private void prepareForInsert(String tableName, DynamicDocument document, Instant now) {
+        document.setTableName(tableName);
+        if (document.getCreatedAt() == null) {
+            document.setCreatedAt(now);
+        }
+        document.setLastModifiedAt(now);
+        if (document.getVersion() == null) {
+            document.setVersion(0L);
+        }
+    }
+
     private MapSqlParameterSource buildInsertParams(DynamicDocument document) {
         MapSqlParameterSource params = new MapSqlParameterSource();
         params.addValue("tableName", document.getTableName());
-        params.addValue("data", toJsonString(document.getDynamicFields()));
+        String dataJson = toCanonicalJson(document.getDynamicFields());
+        document.setContentHash(contentHash(dataJson));
+        params.addValue("data", dataJson);
+        params.addValue("contentHash", document.getContentHash());
         params.addValue("version", document.getVersion());
         params.addValue("isDeleted", dialect.convertBoolean(document.isDeleted()));
         params.addValue("latestRequestId", document.getLatestRequestId());
@@ -575,6 +1282,45 @@ public class DynamicDocumentRepository {
         return params;
     }
 
+    private String toJsonValue(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Update operand is not serializable as JSON", e);
+        }
+    }
+
+    /**
+     * The text a JSON text extraction (->>, JSON_VALUE) yields for a value written into a document:
+     * strings unquoted, anything else as the JSON the document was serialized with
+     */
+    private String toJsonText(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        return toJsonValue(value);
+    }
+
+    /**
+     * Serializes document data with map keys sorted, so equal content always gives the same JSON and hash
+     */
+    private String toCanonicalJson(Map<String, Object> map) {
+        try {
+            return canonicalMapper.writeValueAsString(map != null ? map : new HashMap<>());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to convert Map to JSON string", e);
+        }
+    }
+
+    private static String contentHash(String canonicalJson) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonicalJson.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     private String toJsonString(Map<String, Object> map) {
         try {
             return objectMapper.writeValueAsString(map != null ? map : new HashMap<>());
@@ -0,0 +1,75 @@
+package sigma.persistence.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Stores serialized write responses keyed by (request id, endpoint) in write_idempotency.
+ * Plain JDBC on the shared template, so inserts join the surrounding write transaction.
+ */
+@Repository
+public class IdempotencyRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyRepository.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public IdempotencyRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Stored response row
+     */
+    public record StoredResponse(String responseType, String response) {
+    }
+
+    /**
+     * Finds the response stored for a request id on an endpoint, ignoring rows created before {@code notBefore}
+     */
+    public StoredResponse find(String requestId, String endpoint, Instant notBefore) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("requestId", requestId)
+                .addValue("endpoint", endpoint)
+                .addValue("notBefore", Timestamp.from(notBefore));
+        List<StoredResponse> rows = jdbcTemplate.query(
+                "SELECT response_type, response FROM write_idempotency " +
+                "WHERE request_id = :requestId AND endpoint = :endpoint AND created_at >= :notBefore",
+                params,
+                (rs, rowNum) -> new StoredResponse(rs.getString("response_type"), rs.getString("response")));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Inserts a response; a concurrent insert of the same key fails with DuplicateKeyException
+     */
+    public void save(String requestId, String endpoint, String responseType, String response, Instant createdAt) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("requestId", requestId)
+                .addValue("endpoint", endpoint)
+                .addValue("responseType", responseType)
+                .addValue("response", response)
+                .addValue("createdAt", Timestamp.from(createdAt));
+        jdbcTemplate.update(
+                "INSERT INTO write_idempotency (request_id, endpoint, response_type, response, created_at) " +
+                "VALUES (:requestId, :endpoint, :responseType, :response, :createdAt)",
+                params);
+    }
+
+    /**
+     * Deletes responses created before the cutoff
+     */
+    public int deleteCreatedBefore(Instant cutoff) {
+        int deleted = jdbcTemplate.update("DELETE FROM write_idempotency WHERE created_at < :cutoff",
+                new MapSqlParameterSource("cutoff", Timestamp.from(cutoff)));
+        logger.debug("Deleted {} expired idempotency records", deleted);
+        return deleted;
+    }
+}
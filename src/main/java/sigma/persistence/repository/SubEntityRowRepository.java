@@ -0,0 +1,228 @@
+package sigma.persistence.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import sigma.persistence.dialect.DatabaseDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores sub-entity elements as rows of dynamic_sub_entities, keyed by (parent_id, field, sub_id).
+ * Used by endpoints with subEntityStorage TABLE: nested reads and sub-entity writes touch only
+ * these rows, and parent documents get their arrays attached on the way out.
+ * Also reserves sub-entity id blocks from sub_entity_id_seq.
+ * Plain JDBC on the shared template, so writes join the surrounding write transaction.
+ */
+@Repository
+public class SubEntityRowRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubEntityRowRepository.class);
+    private static final int MAX_IN_LIST_SIZE = 1000;
+    private static final TypeReference<Map<String, Object>> ELEMENT = new TypeReference<>() {};
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final DatabaseDialect dialect;
+    private final DocumentTtlPolicies ttlPolicies;
+
+    public SubEntityRowRepository(NamedParameterJdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                  DatabaseDialect dialect, DocumentTtlPolicies ttlPolicies) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.dialect = dialect;
+        this.ttlPolicies = ttlPolicies;
+    }
+
+    /**
+     * One sub-entity element of a parent document
+     *
+     * @param data the element as returned to clients (including id and isDeleted)
+     */
+    public record SubEntityRow(Long parentId, String field, Long subId, boolean deleted, Map<String, Object> data) {
+    }
+
+    /**
+     * Appends the rows after the existing elements of their (parent, field), in list order.
+     * A row whose id already exists fails with DuplicateKeyException.
+     */
+    public void insertAll(List<SubEntityRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO dynamic_sub_entities (parent_id, field, sub_id, item_index, is_deleted, data) "
+                + "SELECT :parentId, :field, :subId, COALESCE(MAX(s.item_index), -1) + 1, :isDeleted, "
+                + dialect.jsonCast("data")
+                + " FROM dynamic_sub_entities s WHERE s.parent_id = :parentId AND s.field = :field";
+        MapSqlParameterSource[] batch = rows.stream()
+                .map(row -> rowParams(row.parentId(), row.field(), row.subId())
+                        .addValue("isDeleted", dialect.convertBoolean(row.deleted()))
+                        .addValue("data", toJson(row.data())))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(sql, batch);
+        logger.debug("Inserted {} sub-entity rows", rows.size());
+    }
+
+    /**
+     * Merges attributes into a live element; returns false when no live element has the id
+     */
+    public boolean merge(Long parentId, String field, Long subId, Map<String, Object> attributes) {
+        MapSqlParameterSource params = rowParams(parentId, field, subId)
+                .addValue("live", dialect.convertBoolean(false));
+        String sql = "UPDATE dynamic_sub_entities SET data = "
+                + dialect.jsonMerge("data", "attributes", bindPatch(params, "attributes", attributes))
+                + " WHERE " + liveRowCondition();
+        return jdbcTemplate.update(sql, params) > 0;
+    }
+
+    /**
+     * Marks a live element as deleted (isDeleted = true); returns false when no live element has the id
+     */
+    public boolean markDeleted(Long parentId, String field, Long subId) {
+        MapSqlParameterSource params = rowParams(parentId, field, subId)
+                .addValue("deleted", dialect.convertBoolean(true))
+                .addValue("live", dialect.convertBoolean(false));
+        String sql = "UPDATE dynamic_sub_entities SET is_deleted = :deleted, data = "
+                + dialect.jsonMerge("data", "deletedFlag", bindPatch(params, "deletedFlag", Map.of("isDeleted", true)))
+                + " WHERE " + liveRowCondition();
+        return jdbcTemplate.update(sql, params) > 0;
+    }
+
+    /**
+     * Returns the elements of the parents, per parent id and field, in array order
+     */
+    public Map<Long, Map<String, List<Map<String, Object>>>> findByParents(Collection<Long> parentIds,
+                                                                           Collection<String> fields) {
+        Map<Long, Map<String, List<Map<String, Object>>>> elements = new LinkedHashMap<>();
+        if (parentIds.isEmpty() || fields.isEmpty()) {
+            return elements;
+        }
+        List<Long> ids = List.copyOf(parentIds);
+        String sql = "SELECT parent_id, field, data FROM dynamic_sub_entities "
+                + "WHERE parent_id IN (:parentIds) AND field IN (:fields) ORDER BY parent_id, field, item_index";
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("parentIds", ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size())))
+                    .addValue("fields", List.copyOf(fields));
+            jdbcTemplate.query(sql, params, rs -> {
+                elements.computeIfAbsent(rs.getLong("parent_id"), id -> new LinkedHashMap<>())
+                        .computeIfAbsent(rs.getString("field"), field -> new ArrayList<>())
+                        .add(fromJson(rs.getString("data")));
+            });
+        }
+        return elements;
+    }
+
+    /**
+     * Puts the stored arrays into documents (maps with an "id") that lack any of the fields.
+     * Fields without rows are left absent, as for documents that never had the array.
+     */
+    public void attachTo(List<Map<String, Object>> documents, Set<String> fields) {
+        if (documents == null || documents.isEmpty() || fields.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<String, Object>> byId = new LinkedHashMap<>();
+        for (Map<String, Object> document : documents) {
+            if (document.get("id") instanceof Number id && !document.keySet().containsAll(fields)) {
+                byId.put(id.longValue(), document);
+            }
+        }
+        findByParents(byId.keySet(), fields).forEach((parentId, arrays) -> byId.get(parentId).putAll(arrays));
+    }
+
+    /**
+     * Reads the elements of one field as a collection of its own. The filter, order and pagination
+     * apply to the parent documents (alias d) joined to their rows; rows keep array order within a parent.
+     */
+    public List<Map<String, Object>> findNested(String tableName, String field, String whereClause,
+                                                Map<String, Object> params, String orderByClause,
+                                                Integer limit, Integer offset) {
+        MapSqlParameterSource paramSource = new MapSqlParameterSource()
+                .addValue("tableName", tableName)
+                .addValue("subEntityField", field)
+                .addValue("parentDeleted", dialect.convertBoolean(false));
+        if (params != null) {
+            params.forEach(paramSource::addValue);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT s.data AS nested_doc FROM dynamic_documents d ");
+        sql.append("JOIN dynamic_sub_entities s ON s.parent_id = d.id AND s.field = :subEntityField ");
+        sql.append("WHERE d.table_name = :tableName AND d.is_deleted = :parentDeleted");
+        sql.append(ttlPolicies.liveCondition(tableName, paramSource));
+        if (whereClause != null && !whereClause.isEmpty()) {
+            sql.append(" AND ").append(whereClause);
+        }
+        sql.append(" ORDER BY ");
+        if (orderByClause != null && !orderByClause.isEmpty()) {
+            sql.append(orderByClause).append(", ");
+        }
+        sql.append("d.id, s.item_index");
+        sql.append(dialect.paginationClause(limit, offset));
+
+        logger.debug("Executing nested row query on table {} -> field {}: {}", tableName, field, sql);
+        return jdbcTemplate.query(sql.toString(), paramSource, (rs, rowNum) -> fromJson(rs.getString("nested_doc")));
+    }
+
+    /**
+     * Reserves the next block of sub-entity ids; the returned value numbers the block
+     */
+    public long nextIdBlock() {
+        Long block = jdbcTemplate.queryForObject(dialect.getNextSubEntityIdBlockSql(),
+                new MapSqlParameterSource(), Long.class);
+        if (block == null) {
+            throw new IllegalStateException("sub_entity_id_seq returned no value");
+        }
+        return block;
+    }
+
+    private MapSqlParameterSource rowParams(Long parentId, String field, Long subId) {
+        return new MapSqlParameterSource()
+                .addValue("parentId", parentId)
+                .addValue("field", field)
+                .addValue("subId", subId);
+    }
+
+    private String liveRowCondition() {
+        return "parent_id = :parentId AND field = :field AND sub_id = :subId AND is_deleted = :live";
+    }
+
+    /**
+     * Binds a patch the way jsonMerge reads it: the object under name, each value under name{i}
+     *
+     * @return the keys of the patch, in binding order
+     */
+    private List<String> bindPatch(MapSqlParameterSource params, String name, Map<String, Object> patch) {
+        List<String> keys = new ArrayList<>(patch.keySet());
+        params.addValue(name, toJson(patch));
+        for (int i = 0; i < keys.size(); i++) {
+            params.addValue(name + i, toJson(patch.get(keys.get(i))));
+        }
+        return keys;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Sub-entity is not serializable as JSON", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, ELEMENT);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored sub-entity is not valid JSON", e);
+        }
+    }
+}
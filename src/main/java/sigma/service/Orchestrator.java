@@ -3,6 +3,8 @@ package sigma.service;
 import sigma.dto.request.QueryRequest;
 import sigma.dto.request.WriteRequest;
 import sigma.dto.response.ErrorResponse;
+import sigma.dto.response.ErrorType;
+import sigma.dto.response.OperationStatusResponse;
 import sigma.dto.response.QueryResponse;
 import sigma.dto.response.Response;
 import sigma.dto.response.WriteResponse;
@@ -11,12 +13,20 @@ import sigma.service.enums.EnumResponseTransformer;
 import sigma.service.query.QueryService;
 import sigma.service.validation.RequestValidator;
 import sigma.service.validation.ValidationResult;
-import sigma.service.write.WriteService;
+import sigma.service.write.AsyncWriteExecutor;
+import sigma.service.write.DuplicateRequestException;
+import sigma.service.write.GroupCommitCoordinator;
+import sigma.service.write.IdempotencyStore;
+import sigma.service.write.PreconditionFailedException;
 import sigma.service.write.WriteValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Main orchestrator for all operations (read and write).
  * Coordinates validation, execution, and error handling.
@@ -30,18 +40,24 @@ public class Orchestrator {
     private final RequestValidator requestValidator;
     private final QueryService queryService;
     private final WriteValidator writeValidator;
-    private final WriteService writeService;
+    private final GroupCommitCoordinator groupCommitCoordinator;
+    private final AsyncWriteExecutor asyncWriteExecutor;
+    private final IdempotencyStore idempotencyStore;
     private final EnumResponseTransformer enumResponseTransformer;
 
     public Orchestrator(RequestValidator requestValidator,
                        QueryService queryService,
                        WriteValidator writeValidator,
-                       WriteService writeService,
+                       GroupCommitCoordinator groupCommitCoordinator,
+                       AsyncWriteExecutor asyncWriteExecutor,
+                       IdempotencyStore idempotencyStore,
                        EnumResponseTransformer enumResponseTransformer) {
         this.requestValidator = requestValidator;
         this.queryService = queryService;
         this.writeValidator = writeValidator;
-        this.writeService = writeService;
+        this.groupCommitCoordinator = groupCommitCoordinator;
+        this.asyncWriteExecutor = asyncWriteExecutor;
+        this.idempotencyStore = idempotencyStore;
         this.enumResponseTransformer = enumResponseTransformer;
     }
 
@@ -75,20 +91,104 @@ public class Orchestrator {
         logger.info("Orchestrating {} write for endpoint: {} -> collection: {}",
                 request.getType(), endpoint.getName(), endpoint.getDatabaseCollection());
 
+        Response replay = findReplay(request, endpoint);
+        if (replay != null) {
+            return replay;
+        }
+        ErrorResponse validationError = validateWrite(request, endpoint);
+        if (validationError != null) {
+            return validationError;
+        }
+        return executeValidatedWrite(request, endpoint);
+    }
+
+    /**
+     * Validates a write synchronously and queues its execution (Prefer: respond-async).
+     * Returns the PENDING operation status, or an error when validation fails or the queue is full.
+     * A retried X-Request-ID is answered with the stored response instead of being queued again.
+     */
+    public Response submitWrite(WriteRequest request, Endpoint endpoint) {
+        logger.info("Submitting async {} write for endpoint: {} -> collection: {}",
+                request.getType(), endpoint.getName(), endpoint.getDatabaseCollection());
+
+        Response replay = findReplay(request, endpoint);
+        if (replay != null) {
+            return replay;
+        }
+        ErrorResponse validationError = validateWrite(request, endpoint);
+        if (validationError != null) {
+            return validationError;
+        }
+        try {
+            return asyncWriteExecutor.submit(request.getType(), () -> executeValidatedWrite(request, endpoint));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Async write queue is full; rejecting {} for endpoint {}", request.getType(), endpoint.getName());
+            return new ErrorResponse("Async write queue is full; retry later", ErrorType.UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Returns the status of an async write operation
+     */
+    public Response getOperation(String operationId) {
+        Optional<OperationStatusResponse> status = asyncWriteExecutor.find(operationId);
+        if (status.isEmpty()) {
+            return new ErrorResponse("Unknown or expired operation: " + operationId, ErrorType.NOT_FOUND);
+        }
+        return status.get();
+    }
+
+    /**
+     * Returns the stored response when this X-Request-ID was already executed on the endpoint
+     */
+    private Response findReplay(WriteRequest request, Endpoint endpoint) {
+        try {
+            return idempotencyStore.find(request, endpoint);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected reused request id on endpoint {}: {}", endpoint.getName(), e.getMessage());
+            return new ErrorResponse("Invalid write request: " + e.getMessage(), ErrorType.CONFLICT);
+        }
+    }
+
+    private ErrorResponse validateWrite(WriteRequest request, Endpoint endpoint) {
         try {
             ValidationResult validation = writeValidator.validate(request, endpoint);
             if (!validation.isValid()) {
                 logger.warn("Validation failed for {}: {}", request.getType(), validation.getErrors());
                 return new ErrorResponse("Write validation failed", validation.getErrors());
             }
+            return null;
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid write request parameters: {}", e.getMessage());
+            return new ErrorResponse("Invalid write request: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error validating write", e);
+            return new ErrorResponse("Internal server error: " + e.getMessage());
+        }
+    }
 
-            WriteResponse response = writeService.execute(request, endpoint);
+    private Response executeValidatedWrite(WriteRequest request, Endpoint endpoint) {
+        try {
+            WriteResponse response = groupCommitCoordinator.execute(request, endpoint);
             logger.info("Write executed successfully: {} affected", response.getAffectedCount());
             return response;
 
         } catch (IllegalArgumentException e) {
             logger.error("Invalid write request parameters: {}", e.getMessage());
             return new ErrorResponse("Invalid write request: " + e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Write conflict on endpoint {}: {}", endpoint.getName(), e.getMessage());
+            return new ErrorResponse("Write conflict: " + e.getMessage(), ErrorType.CONFLICT);
+        } catch (DuplicateRequestException e) {
+            logger.info("Concurrent retry of request {} on endpoint {}", request.getRequestId(), endpoint.getName());
+            Response replay = findReplay(request, endpoint);
+            return replay != null
+                    ? replay
+                    : new ErrorResponse("Request " + request.getRequestId() + " is already being processed",
+                            ErrorType.CONFLICT);
+        } catch (PreconditionFailedException e) {
+            logger.info("Precondition failed on endpoint {}: {}", endpoint.getName(), e.getMessage());
+            return new ErrorResponse("Precondition failed: " + e.getMessage(), ErrorType.PRECONDITION_FAILED);
         } catch (Exception e) {
             logger.error("Error executing write", e);
             return new ErrorResponse("Internal server error: " + e.getMessage());
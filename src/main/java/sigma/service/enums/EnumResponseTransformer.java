@@ -108,6 +108,21 @@ public class EnumResponseTransformer {
             return response;
         }
 
+        @Override
+        public Response visitBulk(BulkWriteResponse response) {
+            return response;
+        }
+
+        @Override
+        public Response visitClaim(ClaimResponse response) {
+            return response;
+        }
+
+        @Override
+        public Response visitOperation(OperationStatusResponse response) {
+            return response;
+        }
+
         private void transformDocuments(List<? extends Map<String, Object>> documents) {
             if (documents == null || documents.isEmpty()) {
                 return;
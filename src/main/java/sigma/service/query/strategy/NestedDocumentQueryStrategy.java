@@ -5,6 +5,7 @@ import sigma.dto.response.DocumentListResponse;
 import sigma.dto.response.QueryResponse;
 import sigma.model.Endpoint;
 import sigma.model.filter.FilterResult;
+import sigma.persistence.repository.SubEntityRowRepository;
 import sigma.service.query.QueryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +23,12 @@ public class NestedDocumentQueryStrategy implements QueryExecutionStrategy {
 
     private static final Logger logger = LoggerFactory.getLogger(NestedDocumentQueryStrategy.class);
 
+    private final SubEntityRowRepository subEntityRowRepository;
+
+    public NestedDocumentQueryStrategy(SubEntityRowRepository subEntityRowRepository) {
+        this.subEntityRowRepository = subEntityRowRepository;
+    }
+
     @Override
     public boolean supports(Endpoint endpoint) {
         return endpoint != null && endpoint.isNestedDocument();
@@ -40,6 +47,19 @@ public class NestedDocumentQueryStrategy implements QueryExecutionStrategy {
             throw new UnsupportedOperationException("Sequence queries are not supported for nested endpoints");
         }
 
+        if (endpoint.storesSubEntitiesInTable()) {
+            // Elements are rows of their own: no per-parent array expansion
+            return new DocumentListResponse(subEntityRowRepository.findNested(
+                    endpoint.getDatabaseCollection(),
+                    fatherDocument,
+                    query.getWhereClause(),
+                    query.getParameters(),
+                    query.getOrderByClause(),
+                    query.getLimit(),
+                    query.getOffset()
+            ));
+        }
+
         List<Map<String, Object>> nestedDocuments = service.getRepository().findNestedDocuments(
                 endpoint.getDatabaseCollection(),
                 query.getWhereClause(),
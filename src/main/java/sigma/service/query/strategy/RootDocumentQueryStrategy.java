@@ -3,6 +3,7 @@ package sigma.service.query.strategy;
 import sigma.dto.request.QueryRequest;
 import sigma.dto.response.QueryResponse;
 import sigma.model.Endpoint;
+import sigma.persistence.repository.SubEntityRowRepository;
 import sigma.service.query.QueryService;
 import org.springframework.stereotype.Component;
 
@@ -12,6 +13,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class RootDocumentQueryStrategy implements QueryExecutionStrategy {
 
+    private final SubEntityRowRepository subEntityRowRepository;
+
+    public RootDocumentQueryStrategy(SubEntityRowRepository subEntityRowRepository) {
+        this.subEntityRowRepository = subEntityRowRepository;
+    }
+
     @Override
     public boolean supports(Endpoint endpoint) {
         return endpoint == null || !endpoint.isNestedDocument();
@@ -20,7 +27,12 @@ public class RootDocumentQueryStrategy implements QueryExecutionStrategy {
     @Override
     public QueryResponse execute(QueryRequest request, Endpoint endpoint, QueryService service) {
         String collectionName = endpoint != null ? endpoint.getDatabaseCollection() : null;
-        return request.execute(service, collectionName);
+        QueryResponse response = request.execute(service, collectionName);
+        if (endpoint != null && endpoint.storesSubEntitiesInTable()) {
+            // Sub-entity arrays live in dynamic_sub_entities; one lookup per page by parent id
+            subEntityRowRepository.attachTo(response.resultDocuments(), endpoint.getSubEntities());
+        }
+        return response;
     }
 }
 
@@ -9,8 +9,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Parses HTTP requests into strongly-typed QueryRequest and WriteRequest objects
@@ -192,11 +194,108 @@ public class RequestParser {
     public WriteRequest parseWrite(String method, String body, HttpServletRequest request, Endpoint endpoint) {
         logger.debug("Parsing write request: method={}, hasBody={}", method, body != null && !body.isEmpty());
 
+        return writeRequestFactory.create(method, body, request, resolveRequestId(request), parsePrecondition(request),
+                isReturnMinimal(request, endpoint));
+    }
+
+    /**
+     * Parses a POST {endpoint}/_bulk request into a BulkWriteRequest.
+     * All operations share the request ID; conditional headers cannot address several documents.
+     */
+    public BulkWriteRequest parseBulkWrite(String body, HttpServletRequest request) {
+        logger.debug("Parsing bulk write request: hasBody={}", body != null && !body.isEmpty());
+
+        if (parsePrecondition(request).isPresent()) {
+            throw new IllegalArgumentException("Conditional headers are not supported for _bulk");
+        }
+        return writeRequestFactory.createBulk(body, request, resolveRequestId(request));
+    }
+
+    /**
+     * Parses a POST {endpoint}/_claim request into a ClaimRequest.
+     * A claim takes whichever matching documents are free, so conditional headers do not apply.
+     */
+    public ClaimRequest parseClaim(String body, HttpServletRequest request, Endpoint endpoint) {
+        logger.debug("Parsing claim request: hasBody={}", body != null && !body.isEmpty());
+
+        if (parsePrecondition(request).isPresent()) {
+            throw new IllegalArgumentException("Conditional headers are not supported for _claim");
+        }
+        return writeRequestFactory.createClaim(body, resolveRequestId(request), isReturnMinimal(request, endpoint));
+    }
+
+    /**
+     * Checks for the Prefer: respond-async preference (RFC 7240)
+     */
+    public boolean isRespondAsync(HttpServletRequest request) {
+        Enumeration<String> preferHeaders = request.getHeaders("Prefer");
+        while (preferHeaders != null && preferHeaders.hasMoreElements()) {
+            for (String preference : preferHeaders.nextElement().split(",")) {
+                if ("respond-async".equalsIgnoreCase(preference.split(";")[0].trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves the Prefer: return preference (RFC 7240); without one the endpoint's writeReturn applies
+     */
+    private boolean isReturnMinimal(HttpServletRequest request, Endpoint endpoint) {
+        Enumeration<String> preferHeaders = request.getHeaders("Prefer");
+        while (preferHeaders != null && preferHeaders.hasMoreElements()) {
+            for (String preference : preferHeaders.nextElement().split(",")) {
+                String[] token = preference.split(";")[0].split("=", 2);
+                if (token.length == 2 && "return".equalsIgnoreCase(token[0].trim())) {
+                    return "minimal".equalsIgnoreCase(token[1].trim().replace("\"", ""));
+                }
+            }
+        }
+        return endpoint != null && endpoint.getWriteReturn() == Endpoint.WriteReturn.MINIMAL;
+    }
+
+    private String resolveRequestId(HttpServletRequest request) {
         String requestId = request.getHeader("X-Request-ID");
         if (requestId == null || requestId.isEmpty()) {
-            requestId = "req-" + System.currentTimeMillis();
+            requestId = WriteRequest.GENERATED_REQUEST_ID_PREFIX + UUID.randomUUID();
+        }
+        return requestId;
+    }
+
+    /**
+     * Parses If-Match / If-None-Match into a write precondition.
+     * Entity tags are document versions; quoted and weak (W/) forms are accepted.
+     */
+    private WritePrecondition parsePrecondition(HttpServletRequest request) {
+        String ifMatch = request.getHeader("If-Match");
+        String ifNoneMatch = request.getHeader("If-None-Match");
+
+        if (ifMatch != null && ifNoneMatch != null) {
+            throw new IllegalArgumentException("If-Match and If-None-Match cannot be combined");
+        }
+        if (ifNoneMatch != null) {
+            if (!"*".equals(ifNoneMatch.trim())) {
+                throw new IllegalArgumentException("Only If-None-Match: * is supported for writes");
+            }
+            return WritePrecondition.ifAbsent();
+        }
+        if (ifMatch != null) {
+            String tag = ifMatch.trim();
+            return "*".equals(tag) ? WritePrecondition.ifExists() : WritePrecondition.ifVersion(parseVersionTag(tag));
         }
+        return WritePrecondition.none();
+    }
 
-        return writeRequestFactory.create(method, body, request, requestId);
+    private long parseVersionTag(String tag) {
+        String version = tag.startsWith("W/") ? tag.substring(2) : tag;
+        if (version.length() >= 2 && version.startsWith("\"") && version.endsWith("\"")) {
+            version = version.substring(1, version.length() - 1);
+        }
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must carry a single document version: " + tag, e);
+        }
     }
 }
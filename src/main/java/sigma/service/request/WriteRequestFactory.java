@@ -1,12 +1,20 @@
 package sigma.service.request;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import sigma.dto.request.*;
+import sigma.model.update.UpdateOperation;
+import sigma.model.update.UpdateOperator;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Factory for creating WriteRequest objects from HTTP requests
@@ -16,9 +24,21 @@ import java.util.Map;
  */
 public class WriteRequestFactory {
 
+    /**
+     * Bulk operation names mapped to the HTTP method whose parser reads their body
+     */
+    private static final Map<String, String> BULK_OPERATION_METHODS = Map.of(
+        "create", "POST",
+        "update", "PATCH",
+        "delete", "DELETE",
+        "upsert", "PUT"
+    );
+
+    private final ObjectMapper objectMapper;
     private final Map<String, WriteRequestParser> parsers;
 
     public WriteRequestFactory(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
         // Strategy pattern: Map of parsers instead of switch statement!
         this.parsers = Map.of(
             "POST", new PostRequestParser(objectMapper),
@@ -32,19 +52,109 @@ public class WriteRequestFactory {
      * Creates WriteRequest based on HTTP method
      * Uses Strategy pattern with map - ZERO switch statements!
      */
-    public WriteRequest create(String method, String body, HttpServletRequest request, String requestId) {
+    public WriteRequest create(String method, String body, HttpServletRequest request, String requestId,
+                               WritePrecondition precondition) {
+        return create(method, body, request, requestId, precondition, false);
+    }
+
+    /**
+     * Creates WriteRequest based on HTTP method; returnMinimal asks for ids and counts instead of documents
+     */
+    public WriteRequest create(String method, String body, HttpServletRequest request, String requestId,
+                               WritePrecondition precondition, boolean returnMinimal) {
         WriteRequestParser parser = parsers.get(method.toUpperCase());
         if (parser == null) {
             throw new IllegalArgumentException("Unsupported write method: " + method);
         }
-        return parser.parse(body, request, requestId);
+        return parser.parse(body, request, requestId, precondition, returnMinimal);
+    }
+
+    /**
+     * Creates a BulkWriteRequest from a _bulk body:
+     * {"ordered": true, "operations": [{"create": {...}}, {"update": {"filter": ..., "updates": ...}}, ...]}
+     *
+     * Each operation body has the same shape as the corresponding single-operation request
+     * and is parsed by the same strategy. Bulk results only list ids, so every operation returns minimal.
+     */
+    public BulkWriteRequest createBulk(String body, HttpServletRequest request, String requestId) {
+        if (body == null || body.isEmpty()) {
+            throw new IllegalArgumentException("_bulk request requires a body");
+        }
+
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid JSON body for _bulk: " + e.getMessage(), e);
+        }
+        JsonNode operationsNode = root.path("operations");
+        if (!operationsNode.isArray() || operationsNode.isEmpty()) {
+            throw new IllegalArgumentException("_bulk body requires a non-empty \"operations\" array");
+        }
+        boolean ordered = !root.has("ordered") || root.get("ordered").asBoolean(true);
+
+        List<WriteRequest> operations = new ArrayList<>(operationsNode.size());
+        for (int index = 0; index < operationsNode.size(); index++) {
+            operations.add(parseBulkOperation(operationsNode.get(index), index, request, requestId));
+        }
+        return new BulkWriteRequest(operations, requestId, ordered);
+    }
+
+    /**
+     * Creates a ClaimRequest from a _claim body:
+     * {"filter": {"status": "PENDING"}, "limit": 10, "set": {"status": "RUNNING", "worker": "w-1"}}
+     *
+     * limit defaults to 1
+     */
+    public ClaimRequest createClaim(String body, String requestId, boolean returnMinimal) {
+        if (body == null || body.isEmpty()) {
+            throw new IllegalArgumentException("_claim request requires a body");
+        }
+
+        ClaimRequestBody claimBody;
+        try {
+            claimBody = objectMapper.readValue(body, ClaimRequestBody.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid JSON body for _claim: " + e.getMessage(), e);
+        }
+        int limit = claimBody.limit != null ? claimBody.limit : 1;
+        return new ClaimRequest(claimBody.filter, claimBody.set, limit, requestId, returnMinimal);
+    }
+
+    private static class ClaimRequestBody {
+        public Map<String, Object> filter;
+        public Integer limit;
+        public Map<String, Object> set;
+    }
+
+    private WriteRequest parseBulkOperation(JsonNode operationNode, int index, HttpServletRequest request,
+                                            String requestId) {
+        if (!operationNode.isObject() || operationNode.size() != 1) {
+            throw new IllegalArgumentException("operations[" + index + "] must have exactly one of "
+                    + BULK_OPERATION_METHODS.keySet());
+        }
+        Map.Entry<String, JsonNode> operation = operationNode.fields().next();
+        String method = BULK_OPERATION_METHODS.get(operation.getKey());
+        if (method == null) {
+            throw new IllegalArgumentException("operations[" + index + "]: unsupported operation '"
+                    + operation.getKey() + "'");
+        }
+        try {
+            return parsers.get(method).parse(objectMapper.writeValueAsString(operation.getValue()),
+                    request, requestId, WritePrecondition.none(), true);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("operations[" + index + "]: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("operations[" + index + "]: invalid operation body", e);
+        }
     }
 
     /**
      * Strategy interface for parsing write requests
      */
     private interface WriteRequestParser {
-        WriteRequest parse(String body, HttpServletRequest request, String requestId);
+        WriteRequest parse(String body, HttpServletRequest request, String requestId, WritePrecondition precondition,
+                           boolean returnMinimal);
     }
 
     /**
@@ -58,10 +168,14 @@ public class WriteRequestFactory {
         }
 
         @Override
-        public WriteRequest parse(String body, HttpServletRequest request, String requestId) {
+        public WriteRequest parse(String body, HttpServletRequest request, String requestId,
+                                  WritePrecondition precondition, boolean returnMinimal) {
             if (body == null || body.isEmpty()) {
                 throw new IllegalArgumentException("POST request requires a body");
             }
+            if (precondition.isPresent()) {
+                throw new IllegalArgumentException("Conditional headers are not supported for CREATE; use PUT");
+            }
 
             try {
                 if (body.trim().startsWith("[")) {
@@ -69,13 +183,13 @@ public class WriteRequestFactory {
                             body,
                             new TypeReference<List<Map<String, Object>>>() {}
                     );
-                    return new CreateRequest(documents, requestId);
+                    return new CreateRequest(documents, requestId, returnMinimal);
                 } else {
                     Map<String, Object> document = objectMapper.readValue(
                             body,
                             new TypeReference<Map<String, Object>>() {}
                     );
-                    return new CreateRequest(document, requestId);
+                    return new CreateRequest(document, requestId, returnMinimal);
                 }
             } catch (Exception e) {
                 throw new IllegalArgumentException("Invalid JSON body for CREATE: " + e.getMessage(), e);
@@ -94,14 +208,16 @@ public class WriteRequestFactory {
         }
 
         @Override
-        public WriteRequest parse(String body, HttpServletRequest request, String requestId) {
+        public WriteRequest parse(String body, HttpServletRequest request, String requestId,
+                                  WritePrecondition precondition, boolean returnMinimal) {
             if (body == null || body.isEmpty()) {
                 throw new IllegalArgumentException("PUT request requires a body");
             }
 
             try {
                 UpsertRequestBody upsertBody = objectMapper.readValue(body, UpsertRequestBody.class);
-                return new UpsertRequest(upsertBody.filter, upsertBody.document, requestId);
+                return new UpsertRequest(upsertBody.filter, upsertBody.document, requestId, precondition,
+                        returnMinimal);
             } catch (Exception e) {
                 throw new IllegalArgumentException("Invalid JSON body for UPSERT: " + e.getMessage(), e);
             }
@@ -115,8 +231,14 @@ public class WriteRequestFactory {
 
     /**
      * PATCH → UpdateRequest
+     *
+     * "updates" holds either replacement values for top-level fields or update operators:
+     * {"$set": {"address.city": "Oslo"}, "$inc": {"stats.views": 1}, "$push": {"tags": "new"},
+     *  "$pull": {"tags": "old"}, "$unset": {"legacy": ""}}
      */
     private static class PatchRequestParser implements WriteRequestParser {
+        private static final Pattern PATH = Pattern.compile("[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*");
+
         private final ObjectMapper objectMapper;
 
         PatchRequestParser(ObjectMapper objectMapper) {
@@ -124,18 +246,77 @@ public class WriteRequestFactory {
         }
 
         @Override
-        public WriteRequest parse(String body, HttpServletRequest request, String requestId) {
+        public WriteRequest parse(String body, HttpServletRequest request, String requestId,
+                                  WritePrecondition precondition, boolean returnMinimal) {
             if (body == null || body.isEmpty()) {
                 throw new IllegalArgumentException("PATCH request requires a body");
             }
 
+            UpdateRequestBody updateBody;
             try {
-                UpdateRequestBody updateBody = objectMapper.readValue(body, UpdateRequestBody.class);
-                boolean updateMultiple = updateBody.updateMultiple != null && updateBody.updateMultiple;
-                return new UpdateRequest(updateBody.filter, updateBody.updates, requestId, updateMultiple);
+                updateBody = objectMapper.readValue(body, UpdateRequestBody.class);
             } catch (Exception e) {
                 throw new IllegalArgumentException("Invalid JSON body for UPDATE: " + e.getMessage(), e);
             }
+            boolean updateMultiple = updateBody.updateMultiple != null && updateBody.updateMultiple;
+            Map<String, Object> updates = updateBody.updates;
+            if (updates == null || updates.keySet().stream().noneMatch(UpdateOperator::isOperatorKey)) {
+                return new UpdateRequest(updateBody.filter, updates, requestId, updateMultiple, precondition,
+                        List.of(), returnMinimal);
+            }
+            return new UpdateRequest(updateBody.filter, Map.of(), requestId, updateMultiple, precondition,
+                    parseOperations(updates), returnMinimal);
+        }
+
+        private List<UpdateOperation> parseOperations(Map<String, Object> updates) {
+            List<UpdateOperation> operations = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : updates.entrySet()) {
+                if (!UpdateOperator.isOperatorKey(entry.getKey())) {
+                    throw new IllegalArgumentException("Cannot mix update operators with plain field '"
+                            + entry.getKey() + "'; use $set");
+                }
+                UpdateOperator operator = UpdateOperator.fromKey(entry.getKey());
+                if (!(entry.getValue() instanceof Map<?, ?> fields) || fields.isEmpty()) {
+                    throw new IllegalArgumentException(operator.getKey() + " requires a non-empty object of paths");
+                }
+                fields.forEach((path, value) -> operations.add(parseOperation(operator, String.valueOf(path), value)));
+            }
+            requireDisjointPaths(operations);
+            return operations;
+        }
+
+        private UpdateOperation parseOperation(UpdateOperator operator, String path, Object value) {
+            if (!PATH.matcher(path).matches()) {
+                throw new IllegalArgumentException("Invalid update path '" + path
+                        + "': use dot-separated field names made of letters, digits, '_' and '-'");
+            }
+            if (operator == UpdateOperator.INC && !(value instanceof Number)) {
+                throw new IllegalArgumentException("$inc requires a number for '" + path + "'");
+            }
+            if (operator == UpdateOperator.PULL && (value == null || value instanceof Map || value instanceof Collection)) {
+                throw new IllegalArgumentException("$pull requires a scalar value for '" + path + "'");
+            }
+            return new UpdateOperation(operator, path, operator == UpdateOperator.UNSET ? null : value);
+        }
+
+        /**
+         * Two operators may not write the same path or a path inside the other's
+         */
+        private void requireDisjointPaths(List<UpdateOperation> operations) {
+            Set<String> paths = new HashSet<>();
+            for (UpdateOperation operation : operations) {
+                if (!paths.add(operation.path())) {
+                    throw new IllegalArgumentException("Path '" + operation.path() + "' is updated more than once");
+                }
+            }
+            for (String path : paths) {
+                for (int dot = path.indexOf('.'); dot > 0; dot = path.indexOf('.', dot + 1)) {
+                    if (paths.contains(path.substring(0, dot))) {
+                        throw new IllegalArgumentException("Paths '" + path.substring(0, dot) + "' and '"
+                                + path + "' conflict");
+                    }
+                }
+            }
         }
 
         private static class UpdateRequestBody {
@@ -156,7 +337,8 @@ public class WriteRequestFactory {
         }
 
         @Override
-        public WriteRequest parse(String body, HttpServletRequest request, String requestId) {
+        public WriteRequest parse(String body, HttpServletRequest request, String requestId,
+                                  WritePrecondition precondition, boolean returnMinimal) {
             try {
                 Map<String, Object> filter;
                 boolean deleteMultiple = false;
@@ -173,7 +355,7 @@ public class WriteRequestFactory {
                     filter = objectMapper.readValue(filterParam, new TypeReference<Map<String, Object>>() {});
                 }
 
-                return new DeleteRequest(filter, requestId, deleteMultiple);
+                return new DeleteRequest(filter, requestId, deleteMultiple, precondition, returnMinimal);
             } catch (Exception e) {
                 throw new IllegalArgumentException("Invalid DELETE request: " + e.getMessage(), e);
             }
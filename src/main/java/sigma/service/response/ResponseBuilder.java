@@ -1,12 +1,16 @@
 package sigma.service.response;
 
+import sigma.config.properties.ZookeeperConfigProperties;
 import sigma.dto.response.*;
 import sigma.format.ResponseTimeFormatter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,10 +23,21 @@ import java.util.Map;
 @Service
 public class ResponseBuilder implements ResponseVisitor<ResponseEntity<?>> {
 
+    private static final Map<ErrorType, HttpStatus> ERROR_STATUSES = new EnumMap<>(Map.of(
+            ErrorType.BAD_REQUEST, HttpStatus.BAD_REQUEST,
+            ErrorType.CONFLICT, HttpStatus.CONFLICT,
+            ErrorType.PRECONDITION_FAILED, HttpStatus.PRECONDITION_FAILED,
+            ErrorType.INTERNAL_ERROR, HttpStatus.INTERNAL_SERVER_ERROR,
+            ErrorType.NOT_FOUND, HttpStatus.NOT_FOUND,
+            ErrorType.UNAVAILABLE, HttpStatus.SERVICE_UNAVAILABLE
+    ));
+
     private final ResponseTimeFormatter timeFormatter;
+    private final ZookeeperConfigProperties configProperties;
 
-    public ResponseBuilder(ResponseTimeFormatter timeFormatter) {
+    public ResponseBuilder(ResponseTimeFormatter timeFormatter, ZookeeperConfigProperties configProperties) {
         this.timeFormatter = timeFormatter;
+        this.configProperties = configProperties;
     }
 
     /**
@@ -62,7 +77,8 @@ public class ResponseBuilder implements ResponseVisitor<ResponseEntity<?>> {
             body.put("details", response.getDetails());
         }
 
-        return ResponseEntity.badRequest().body(body);
+        HttpStatus status = ERROR_STATUSES.getOrDefault(response.getErrorType(), HttpStatus.BAD_REQUEST);
+        return ResponseEntity.status(status).body(body);
     }
 
     @Override
@@ -86,6 +102,9 @@ public class ResponseBuilder implements ResponseVisitor<ResponseEntity<?>> {
         body.put("affectedCount", response.getAffectedCount());
         body.put("matchedCount", response.getMatchedCount());
         body.put("modifiedCount", response.getModifiedCount());
+        if (response.getDocuments() == null) {
+            body.put("ids", response.getDocumentIds());
+        }
         applyWriteMetadata(body, response);
 
         return ResponseEntity.ok(body);
@@ -98,6 +117,9 @@ public class ResponseBuilder implements ResponseVisitor<ResponseEntity<?>> {
         body.put("success", response.isSuccess());
         body.put("affectedCount", response.getAffectedCount());
         body.put("deletedCount", response.getDeletedCount());
+        if (response.getDocuments() == null) {
+            body.put("ids", response.getDocumentIds());
+        }
         applyWriteMetadata(body, response);
 
         return ResponseEntity.ok(body);
@@ -127,6 +149,93 @@ public class ResponseBuilder implements ResponseVisitor<ResponseEntity<?>> {
         return ResponseEntity.status(status).body(body);
     }
 
+    /**
+     * Bulk writes answer 200 even when some operations failed; "errors" flags partial failure
+     * and each entry of "results" carries its own outcome.
+     */
+    @Override
+    public ResponseEntity<?> visitBulk(BulkWriteResponse response) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("type", "BULK");
+        body.put("success", response.isSuccess());
+        body.put("errors", response.getFailedCount() > 0);
+        body.put("ordered", response.isOrdered());
+        body.put("affectedCount", response.getAffectedCount());
+        body.put("succeededCount", response.getSucceededCount());
+        body.put("failedCount", response.getFailedCount());
+        body.put("skippedCount", response.getSkippedCount());
+        body.put("results", response.getResults().stream().map(this::bulkResultBody).toList());
+        applyWriteMetadata(body, response);
+
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Claims answer 200 even when nothing was claimed, so an empty queue is not an error for polling workers
+     */
+    @Override
+    public ResponseEntity<?> visitClaim(ClaimResponse response) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("type", "CLAIM");
+        body.put("success", response.isSuccess());
+        body.put("affectedCount", response.getAffectedCount());
+        body.put("claimedCount", response.getClaimedCount());
+        if (response.getDocuments() == null) {
+            body.put("ids", response.getDocumentIds());
+        }
+        applyWriteMetadata(body, response);
+
+        return ResponseEntity.ok(body);
+    }
+
+    private Map<String, Object> bulkResultBody(BulkOperationResult result) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("index", result.getIndex());
+        body.put("type", result.getType().name());
+        body.put("status", result.getStatus().name());
+        body.put("affectedCount", result.getAffectedCount());
+        body.put("ids", result.getIds());
+        if (result.getError() != null) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("type", result.getErrorType().name());
+            error.put("status", ERROR_STATUSES.getOrDefault(result.getErrorType(), HttpStatus.BAD_REQUEST).value());
+            error.put("message", result.getError());
+            body.put("error", error);
+        }
+        return body;
+    }
+
+    /**
+     * Async write status: 202 with a Location to poll while the write is queued or running,
+     * 200 with the final write response embedded once it has completed.
+     */
+    @Override
+    public ResponseEntity<?> visitOperation(OperationStatusResponse response) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("operationId", response.getOperationId());
+        body.put("type", response.getWriteType().name());
+        body.put("submittedAt", response.getSubmittedAt().toString());
+        String location = configProperties.getApiPrefix() + "/_operations/" + response.getOperationId();
+
+        if (!response.isCompleted()) {
+            body.put("status", response.getState().name());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, location)
+                    .header("Preference-Applied", "respond-async")
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(body);
+        }
+
+        ResponseEntity<?> result = response.getResult().accept(this);
+        body.put("status", result.getStatusCode().is2xxSuccessful() ? "SUCCEEDED" : "FAILED");
+        body.put("completedAt", response.getCompletedAt().toString());
+        body.put("resultStatus", result.getStatusCode().value());
+        body.put("result", result.getBody());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_LOCATION, location)
+                .body(body);
+    }
+
     // ========== UTILITY METHODS ==========
 
     /**
@@ -0,0 +1,187 @@
+package sigma.service.write;
+
+import sigma.dto.request.WriteRequest;
+import sigma.dto.response.ErrorResponse;
+import sigma.dto.response.ErrorType;
+import sigma.dto.response.OperationStatusResponse;
+import sigma.dto.response.Response;
+import sigma.dto.response.WriteResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs validated writes in the background for Prefer: respond-async.
+ *
+ * Work goes to a bounded queue served by a dedicated executor, so HTTP threads return
+ * immediately and a burst cannot queue unbounded work. Completed operations are kept
+ * for the retention period so clients can fetch the final response; only its minimal form
+ * (ids and counts) is kept, and past max-retained operations the oldest completed ones go first.
+ */
+@Service
+public class AsyncWriteExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncWriteExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final Duration retention;
+    private final int maxRetained;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AsyncWriteOperation> operations = new ConcurrentHashMap<>();
+    /** Completed operations, oldest completion first */
+    private final Queue<AsyncWriteOperation> completed = new ConcurrentLinkedQueue<>();
+
+    public AsyncWriteExecutor(MeterRegistry meterRegistry,
+                              @Value("${sigma.write.async.threads:2}") int threads,
+                              @Value("${sigma.write.async.queue-capacity:100}") int queueCapacity,
+                              @Value("${sigma.write.async.retention-ms:3600000}") long retentionMs,
+                              @Value("${sigma.write.async.max-retained:1000}") int maxRetained) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "async-write-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.retention = Duration.ofMillis(retentionMs);
+        this.maxRetained = maxRetained;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("sigma.write.async.queue.size", executor.getQueue(), queue -> queue.size());
+    }
+
+    /**
+     * Queues a write and returns its PENDING status.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public OperationStatusResponse submit(WriteRequest.WriteType writeType, Supplier<Response> work) {
+        evictExpired();
+        AsyncWriteOperation operation = new AsyncWriteOperation(UUID.randomUUID().toString(), writeType);
+        Map<String, String> logContext = MDC.getCopyOfContextMap();
+        operations.put(operation.id, operation);
+        try {
+            executor.execute(() -> run(operation, work, logContext));
+        } catch (RejectedExecutionException e) {
+            operations.remove(operation.id);
+            meterRegistry.counter("sigma.write.async.rejected").increment();
+            throw e;
+        }
+        logger.info("Queued async {} write as operation {}", writeType, operation.id);
+        return operation.snapshot();
+    }
+
+    /**
+     * Returns the current status of an operation, or empty when it is unknown or expired
+     */
+    public Optional<OperationStatusResponse> find(String operationId) {
+        evictExpired();
+        return Optional.ofNullable(operations.get(operationId)).map(AsyncWriteOperation::snapshot);
+    }
+
+    private void run(AsyncWriteOperation operation, Supplier<Response> work, Map<String, String> logContext) {
+        if (logContext != null) {
+            MDC.setContextMap(logContext);
+        }
+        operation.start();
+        try {
+            operation.complete(retainable(work.get()));
+        } catch (RuntimeException e) {
+            logger.error("Async write operation {} failed", operation.id, e);
+            operation.complete(new ErrorResponse("Internal server error: " + e.getMessage(), ErrorType.INTERNAL_ERROR));
+        } finally {
+            completed.add(operation);
+            MDC.clear();
+        }
+    }
+
+    /**
+     * Drops the documents of a write response; they may be large and are kept for the whole retention
+     */
+    private static Response retainable(Response response) {
+        return response instanceof WriteResponse writeResponse ? writeResponse.toMinimal() : response;
+    }
+
+    /**
+     * Evicts completed operations past their retention, then the oldest ones while over max-retained
+     */
+    private void evictExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        AsyncWriteOperation oldest;
+        while ((oldest = completed.peek()) != null
+                && (oldest.completedBefore(cutoff) || operations.size() > maxRetained)) {
+            if (completed.remove(oldest)) {
+                operations.remove(oldest.id);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Async writes still running at shutdown: {} queued", executor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Mutable state of one operation; readers only see immutable snapshots
+     */
+    private static final class AsyncWriteOperation {
+        private final String id;
+        private final WriteRequest.WriteType writeType;
+        private final Instant submittedAt = Instant.now();
+        private volatile OperationStatusResponse.State state = OperationStatusResponse.State.PENDING;
+        private volatile Instant completedAt;
+        private volatile Response result;
+
+        private AsyncWriteOperation(String id, WriteRequest.WriteType writeType) {
+            this.id = id;
+            this.writeType = writeType;
+        }
+
+        private void start() {
+            state = OperationStatusResponse.State.RUNNING;
+        }
+
+        private void complete(Response response) {
+            result = response;
+            completedAt = Instant.now();
+            state = OperationStatusResponse.State.COMPLETED;
+        }
+
+        private boolean completedBefore(Instant cutoff) {
+            Instant completed = completedAt;
+            return completed != null && completed.isBefore(cutoff);
+        }
+
+        private OperationStatusResponse snapshot() {
+            OperationStatusResponse.State current = state;
+            return new OperationStatusResponse(id, writeType, current, submittedAt,
+                    current == OperationStatusResponse.State.COMPLETED ? completedAt : null,
+                    current == OperationStatusResponse.State.COMPLETED ? result : null);
+        }
+    }
+}
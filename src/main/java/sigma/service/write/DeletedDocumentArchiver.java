@@ -0,0 +1,151 @@
+package sigma.service.write;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import sigma.config.properties.ZookeeperConfigProperties;
+import sigma.controller.EndpointRegistry;
+import sigma.model.Endpoint;
+import sigma.persistence.repository.DynamicDocumentRepository;
+import sigma.zookeeper.ZookeeperLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Background archival of soft-deleted documents.
+ *
+ * Documents deleted longer than their collection's deletedRetention ago are moved into
+ * dynamic_documents_archive in batches of batchSize, one transaction per batch, pausing between
+ * batches and stopping after maxBatchesPerRun. Only the node holding the Zookeeper lock runs it.
+ */
+@Component
+public class DeletedDocumentArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeletedDocumentArchiver.class);
+    private static final String LOCK_NAME = "/document-archive";
+
+    private final DynamicDocumentRepository repository;
+    private final EndpointRegistry endpointRegistry;
+    private final ZookeeperLock lock;
+    private final ZookeeperConfigProperties configProperties;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long batchPauseMs;
+
+    public DeletedDocumentArchiver(DynamicDocumentRepository repository,
+                                   EndpointRegistry endpointRegistry,
+                                   ZookeeperLock lock,
+                                   ZookeeperConfigProperties configProperties,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${sigma.write.archive.enabled:true}") boolean enabled,
+                                   @Value("${sigma.write.archive.batch-size:200}") int batchSize,
+                                   @Value("${sigma.write.archive.max-batches-per-run:50}") int maxBatchesPerRun,
+                                   @Value("${sigma.write.archive.batch-pause-ms:100}") long batchPauseMs) {
+        if (batchSize <= 0 || batchSize > 1000 || maxBatchesPerRun <= 0) {
+            throw new IllegalArgumentException(
+                    "sigma.write.archive.batch-size must be 1..1000 and max-batches-per-run positive");
+        }
+        this.repository = repository;
+        this.endpointRegistry = endpointRegistry;
+        this.lock = lock;
+        this.configProperties = configProperties;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    /**
+     * Archives deleted documents of every collection with a retention, if this node gets the lock
+     */
+    @Scheduled(fixedDelayString = "${sigma.write.archive.interval-ms:300000}")
+    public void archiveDeletedDocuments() {
+        Map<String, Duration> retentions = retentionByCollection();
+        if (!enabled || retentions.isEmpty()) {
+            return;
+        }
+        String lockPath = configProperties.getLocksBasePath() + LOCK_NAME;
+        if (!lock.tryAcquire(lockPath)) {
+            return;
+        }
+        try {
+            int batches = 0;
+            for (Map.Entry<String, Duration> retention : retentions.entrySet()) {
+                if (batches >= maxBatchesPerRun) {
+                    break;
+                }
+                batches += archiveCollection(retention.getKey(), retention.getValue(), maxBatchesPerRun - batches);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not archive deleted documents: {}", e.getMessage());
+        } finally {
+            lock.release(lockPath);
+        }
+    }
+
+    /**
+     * Retention of each collection; endpoints sharing a collection keep deleted documents for the longest one
+     */
+    private Map<String, Duration> retentionByCollection() {
+        Map<String, Duration> retentions = new HashMap<>();
+        for (Endpoint endpoint : endpointRegistry.getAllEndpoints().values()) {
+            if (endpoint.getDeletedRetention() != null) {
+                retentions.merge(endpoint.getDatabaseCollection(), endpoint.getDeletedRetention(),
+                        (a, b) -> a.compareTo(b) >= 0 ? a : b);
+            }
+        }
+        return retentions;
+    }
+
+    /**
+     * Archives deleted documents of one collection until none are due or the batch budget is spent
+     *
+     * @return the number of batches run
+     */
+    private int archiveCollection(String collection, Duration retention, int batchBudget) {
+        Instant deletedBefore = Instant.now().minus(retention);
+        Timer batchTimer = meterRegistry.timer("sigma.write.archive.batches", "collection", collection);
+        int batches = 0;
+        long archived = 0;
+        int lastBatch;
+        do {
+            if (batches > 0 && !pause()) {
+                break;
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            lastBatch = repository.archiveDeletedBatch(collection, deletedBefore, batchSize);
+            sample.stop(batchTimer);
+            batches++;
+            archived += lastBatch;
+            meterRegistry.counter("sigma.write.archive.documents", "collection", collection).increment(lastBatch);
+        } while (lastBatch == batchSize && batches < batchBudget);
+
+        if (archived > 0) {
+            logger.info("Archived {} deleted documents from collection {} in {} batches", archived, collection, batches);
+        }
+        return batches;
+    }
+
+    private boolean pause() {
+        if (batchPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
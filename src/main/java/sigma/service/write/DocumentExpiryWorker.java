@@ -0,0 +1,128 @@
+package sigma.service.write;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import sigma.config.properties.ZookeeperConfigProperties;
+import sigma.model.TtlConfig;
+import sigma.persistence.repository.DocumentTtlPolicies;
+import sigma.persistence.repository.DynamicDocumentRepository;
+import sigma.zookeeper.ZookeeperLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Background expiry of documents whose collection has a TTL.
+ *
+ * Each run soft deletes expired documents in batches of batchSize, one statement per batch,
+ * pausing between batches and stopping after maxBatchesPerRun so a backlog is worked off over
+ * several runs instead of in one long burst. Only the node holding the Zookeeper lock runs it.
+ */
+@Component
+public class DocumentExpiryWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentExpiryWorker.class);
+    private static final String LOCK_NAME = "/document-expiry";
+
+    private final DynamicDocumentRepository repository;
+    private final DocumentTtlPolicies ttlPolicies;
+    private final ZookeeperLock lock;
+    private final ZookeeperConfigProperties configProperties;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long batchPauseMs;
+
+    public DocumentExpiryWorker(DynamicDocumentRepository repository,
+                                DocumentTtlPolicies ttlPolicies,
+                                ZookeeperLock lock,
+                                ZookeeperConfigProperties configProperties,
+                                MeterRegistry meterRegistry,
+                                @Value("${sigma.write.expiry.enabled:true}") boolean enabled,
+                                @Value("${sigma.write.expiry.batch-size:500}") int batchSize,
+                                @Value("${sigma.write.expiry.max-batches-per-run:100}") int maxBatchesPerRun,
+                                @Value("${sigma.write.expiry.batch-pause-ms:50}") long batchPauseMs) {
+        if (batchSize <= 0 || maxBatchesPerRun <= 0) {
+            throw new IllegalArgumentException("sigma.write.expiry.batch-size and max-batches-per-run must be positive");
+        }
+        this.repository = repository;
+        this.ttlPolicies = ttlPolicies;
+        this.lock = lock;
+        this.configProperties = configProperties;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    /**
+     * Expires documents of every collection with a TTL, if this node gets the lock
+     */
+    @Scheduled(fixedDelayString = "${sigma.write.expiry.interval-ms:60000}")
+    public void expireDocuments() {
+        Map<String, TtlConfig> policies = ttlPolicies.getPolicies();
+        if (!enabled || policies.isEmpty()) {
+            return;
+        }
+        String lockPath = configProperties.getLocksBasePath() + LOCK_NAME;
+        if (!lock.tryAcquire(lockPath)) {
+            return;
+        }
+        try {
+            int batches = 0;
+            for (Map.Entry<String, TtlConfig> policy : policies.entrySet()) {
+                if (batches >= maxBatchesPerRun) {
+                    break;
+                }
+                batches += expireCollection(policy.getKey(), policy.getValue(), maxBatchesPerRun - batches);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not expire documents: {}", e.getMessage());
+        } finally {
+            lock.release(lockPath);
+        }
+    }
+
+    /**
+     * Expires documents of one collection until none are left or the batch budget is spent
+     *
+     * @return the number of batches run
+     */
+    private int expireCollection(String collection, TtlConfig ttl, int batchBudget) {
+        int batches = 0;
+        long expired = 0;
+        int lastBatch;
+        do {
+            if (batches > 0 && !pause()) {
+                break;
+            }
+            lastBatch = repository.expireBatch(collection, ttl, batchSize);
+            batches++;
+            expired += lastBatch;
+        } while (lastBatch == batchSize && batches < batchBudget);
+
+        if (expired > 0) {
+            meterRegistry.counter("sigma.write.expiry.documents", "collection", collection).increment(expired);
+            logger.info("Expired {} documents from collection {} in {} batches", expired, collection, batches);
+        }
+        return batches;
+    }
+
+    private boolean pause() {
+        if (batchPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
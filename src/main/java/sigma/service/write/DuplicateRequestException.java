@@ -0,0 +1,13 @@
+package sigma.service.write;
+
+/**
+ * Thrown when a response is already stored for the write's X-Request-ID,
+ * typically because a concurrent retry of the same request committed first.
+ * The write transaction is rolled back and the stored response is replayed instead.
+ */
+public class DuplicateRequestException extends RuntimeException {
+
+    public DuplicateRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
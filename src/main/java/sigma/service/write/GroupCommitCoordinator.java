@@ -0,0 +1,216 @@
+package sigma.service.write;
+
+import sigma.dto.request.CreateRequest;
+import sigma.dto.request.WriteRequest;
+import sigma.dto.response.WriteResponse;
+import sigma.model.Endpoint;
+import sigma.model.GroupCommitConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for single-document creates.
+ *
+ * On endpoints with group commit enabled, concurrent single-document creates are queued
+ * per endpoint and flushed as one batched insert transaction when the batch is full or its
+ * delay has elapsed. Each caller blocks until its own create is committed and receives its
+ * own response, so the API is unchanged. All other writes go straight to WriteService.
+ * A caller waits at most awaitTimeoutMs; creates still waiting at shutdown are failed.
+ */
+@Service
+public class GroupCommitCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitCoordinator.class);
+
+    private final WriteService writeService;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledThreadPoolExecutor flusher;
+    private final long awaitTimeoutMs;
+    private final Map<String, List<PendingCreate>> openBatches = new HashMap<>();
+    private final Set<PendingCreate> pending = ConcurrentHashMap.newKeySet();
+
+    public GroupCommitCoordinator(WriteService writeService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${sigma.write.group-commit.flush-threads:2}") int flushThreads,
+                                  @Value("${sigma.write.group-commit.await-timeout-ms:30000}") long awaitTimeoutMs) {
+        this.writeService = writeService;
+        this.meterRegistry = meterRegistry;
+        this.awaitTimeoutMs = awaitTimeoutMs;
+        this.flusher = new ScheduledThreadPoolExecutor(flushThreads, runnable -> {
+            Thread thread = new Thread(runnable, "group-commit-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Open batches are flushed right away on shutdown rather than after their delay
+        this.flusher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Executes a write, coalescing it with concurrent creates when the endpoint has group commit enabled
+     */
+    public WriteResponse execute(WriteRequest request, Endpoint endpoint) {
+        GroupCommitConfig groupCommit = endpoint.getGroupCommit();
+        if (!groupCommit.isEnabled() || !request.isCoalescable()) {
+            return writeService.execute(request, endpoint);
+        }
+        // isCoalescable() is only true for single-document creates
+        PendingCreate pendingCreate = new PendingCreate((CreateRequest) request, endpoint);
+        pending.add(pendingCreate);
+        pendingCreate.result.whenComplete((response, failure) -> pending.remove(pendingCreate));
+        enqueue(pendingCreate, endpoint, groupCommit);
+        return await(pendingCreate, endpoint.getName());
+    }
+
+    private void enqueue(PendingCreate pendingCreate, Endpoint endpoint, GroupCommitConfig groupCommit) {
+        String key = endpoint.getName();
+        List<PendingCreate> fullBatch = null;
+
+        synchronized (openBatches) {
+            List<PendingCreate> batch = openBatches.get(key);
+            if (batch == null) {
+                List<PendingCreate> opened = new ArrayList<>();
+                // Scheduled first: once shut down this throws before the batch is registered
+                flusher.schedule(() -> flushIfOpen(key, opened, endpoint),
+                        groupCommit.getMaxDelayMs(), TimeUnit.MILLISECONDS);
+                openBatches.put(key, opened);
+                batch = opened;
+            }
+            batch.add(pendingCreate);
+            if (batch.size() >= groupCommit.getMaxBatchSize()) {
+                openBatches.remove(key);
+                fullBatch = batch;
+            }
+        }
+
+        if (fullBatch != null) {
+            List<PendingCreate> toFlush = fullBatch;
+            flusher.execute(() -> flush(toFlush, endpoint));
+        }
+    }
+
+    /**
+     * Delay elapsed: flushes the batch unless it already filled up and was flushed
+     */
+    private void flushIfOpen(String key, List<PendingCreate> batch, Endpoint endpoint) {
+        synchronized (openBatches) {
+            if (openBatches.get(key) != batch) {
+                return;
+            }
+            openBatches.remove(key);
+        }
+        flush(batch, endpoint);
+    }
+
+    private void flush(List<PendingCreate> batch, Endpoint endpoint) {
+        if (batch.isEmpty()) {
+            // Every create timed out and was withdrawn
+            return;
+        }
+        meterRegistry.summary("sigma.write.group-commit.batch-size", "endpoint", endpoint.getName())
+                .record(batch.size());
+        try {
+            List<CreateRequest> requests = batch.stream()
+                    .map(PendingCreate::request)
+                    .collect(Collectors.toList());
+            List<WriteResponse> responses = writeService.executeGroupCommit(requests, endpoint);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(responses.get(i));
+            }
+        } catch (RuntimeException e) {
+            // One bad document must not fail its neighbours: retry each create on its own
+            logger.info("Group commit of {} creates on endpoint {} failed, retrying individually: {}",
+                    batch.size(), endpoint.getName(), e.getMessage());
+            meterRegistry.counter("sigma.write.group-commit.fallbacks", "endpoint", endpoint.getName()).increment();
+            batch.forEach(pendingCreate -> executeIndividually(pendingCreate, endpoint));
+        } finally {
+            batch.forEach(pendingCreate -> pendingCreate.result.completeExceptionally(
+                    new IllegalStateException("Group commit flush did not complete")));
+        }
+    }
+
+    private void executeIndividually(PendingCreate pendingCreate, Endpoint endpoint) {
+        try {
+            pendingCreate.result.complete(writeService.execute(pendingCreate.request, endpoint));
+        } catch (RuntimeException e) {
+            pendingCreate.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Waits for the create's own result. On timeout a create still queued is withdrawn, so it is
+     * never written; one already being flushed may still commit.
+     */
+    private WriteResponse await(PendingCreate pendingCreate, String key) {
+        try {
+            return pendingCreate.result.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            boolean withdrawn;
+            synchronized (openBatches) {
+                List<PendingCreate> batch = openBatches.get(key);
+                withdrawn = batch != null && batch.remove(pendingCreate);
+            }
+            pendingCreate.result.completeExceptionally(e);
+            throw new IllegalStateException("Group commit did not complete within " + awaitTimeoutMs + " ms"
+                    + (withdrawn ? "; the create was not written" : ""), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for group commit", e);
+        }
+    }
+
+    /**
+     * Flushes queued batches before the application context closes, then fails any create still waiting
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (openBatches) {
+            for (List<PendingCreate> batch : openBatches.values()) {
+                if (!batch.isEmpty()) {
+                    Endpoint endpoint = batch.get(0).endpoint();
+                    flusher.execute(() -> flush(batch, endpoint));
+                }
+            }
+            openBatches.clear();
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Group commit flusher did not finish within 5 seconds");
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        IllegalStateException shutDown = new IllegalStateException("Group commit stopped before the create was written");
+        pending.forEach(pendingCreate -> pendingCreate.result.completeExceptionally(shutDown));
+    }
+
+    private record PendingCreate(CreateRequest request, Endpoint endpoint, CompletableFuture<WriteResponse> result) {
+        PendingCreate(CreateRequest request, Endpoint endpoint) {
+            this(request, endpoint, new CompletableFuture<>());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package sigma.service.write;
+
+import sigma.dto.request.WriteRequest;
+import sigma.dto.response.WriteResponse;
+import sigma.model.Endpoint;
+import sigma.persistence.repository.IdempotencyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Idempotency for writes carrying a client-chosen X-Request-ID.
+ *
+ * The response of each such write is stored in write_idempotency inside the write's own
+ * transaction, keyed by (request id, endpoint), and cached in a bounded in-memory LRU once
+ * committed. A retry is answered from the LRU or the table without touching dynamic_documents.
+ * A concurrent duplicate loses on the primary key, so the write itself is never applied twice.
+ */
+@Service
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final IdempotencyRepository repository;
+    private final WriteResponseCodec codec;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Map<Key, StoredEntry> cache;
+
+    public IdempotencyStore(IdempotencyRepository repository,
+                            WriteResponseCodec codec,
+                            MeterRegistry meterRegistry,
+                            @Value("${sigma.write.idempotency.enabled:true}") boolean enabled,
+                            @Value("${sigma.write.idempotency.ttl-ms:86400000}") long ttlMs,
+                            @Value("${sigma.write.idempotency.cache-size:10000}") int cacheSize) {
+        this.repository = repository;
+        this.codec = codec;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, StoredEntry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the stored response of an earlier write with the same X-Request-ID on this endpoint, or null
+     */
+    public WriteResponse find(WriteRequest request, Endpoint endpoint) {
+        if (!applies(request)) {
+            return null;
+        }
+        Key key = new Key(request.getRequestId(), endpoint.getName());
+        Instant notBefore = Instant.now().minus(ttl);
+
+        StoredEntry entry = cached(key, notBefore);
+        String source = "cache";
+        if (entry == null) {
+            IdempotencyRepository.StoredResponse stored = repository.find(key.requestId(), key.endpoint(), notBefore);
+            if (stored == null) {
+                return null;
+            }
+            entry = new StoredEntry(WriteRequest.WriteType.valueOf(stored.responseType()), stored.response(), Instant.now());
+            cache(key, entry);
+            source = "database";
+        }
+
+        if (entry.type() != request.getType()) {
+            throw new IllegalArgumentException("X-Request-ID " + key.requestId() + " was already used for a "
+                    + entry.type() + " write on this endpoint");
+        }
+        meterRegistry.counter("sigma.write.idempotency.replays", "endpoint", key.endpoint(), "source", source)
+                .increment();
+        logger.info("Replaying stored {} response for request {} on endpoint {}",
+                entry.type(), key.requestId(), key.endpoint());
+        return codec.decode(entry.type(), entry.response());
+    }
+
+    /**
+     * Stores the response in the current write transaction; cached only after commit.
+     *
+     * @throws DuplicateRequestException when a response is already stored for the request
+     */
+    public void record(WriteRequest request, Endpoint endpoint, WriteResponse response) {
+        if (!applies(request)) {
+            return;
+        }
+        Key key = new Key(request.getRequestId(), endpoint.getName());
+        StoredEntry entry = new StoredEntry(request.getType(), codec.encode(response), Instant.now());
+        try {
+            repository.save(key.requestId(), key.endpoint(), entry.type().name(), entry.response(), entry.createdAt());
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateRequestException("Request " + key.requestId() + " was already processed", e);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache(key, entry);
+                }
+            });
+        }
+    }
+
+    /**
+     * Deletes stored responses older than the TTL
+     */
+    @Scheduled(fixedDelayString = "${sigma.write.idempotency.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int deleted = repository.deleteCreatedBefore(Instant.now().minus(ttl));
+            if (deleted > 0) {
+                logger.info("Purged {} expired idempotency records", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not purge expired idempotency records: {}", e.getMessage());
+        }
+    }
+
+    private boolean applies(WriteRequest request) {
+        return enabled && request.hasClientRequestId();
+    }
+
+    private StoredEntry cached(Key key, Instant notBefore) {
+        synchronized (cache) {
+            StoredEntry entry = cache.get(key);
+            if (entry != null && entry.createdAt().isBefore(notBefore)) {
+                cache.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void cache(Key key, StoredEntry entry) {
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+    }
+
+    private record Key(String requestId, String endpoint) {
+    }
+
+    /**
+     * Serialized response; decoded per replay so callers never share mutable documents
+     */
+    private record StoredEntry(WriteRequest.WriteType type, String response, Instant createdAt) {
+    }
+}
@@ -0,0 +1,12 @@
+package sigma.service.write;
+
+/**
+ * Thrown when the If-Match / If-None-Match precondition of a conditional write does not hold.
+ * Not retried: the client has to re-read the document and decide again.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,105 @@
+package sigma.service.write;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import sigma.dto.request.WriteRequest;
+import sigma.dto.response.*;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Serializes write responses to JSON and back, for replaying stored responses.
+ * Each response type has its own decoding strategy keyed by write type.
+ */
+@Component
+public class WriteResponseCodec {
+
+    private static final TypeReference<List<Map<String, Object>>> DOCUMENTS = new TypeReference<>() {};
+    private static final TypeReference<List<String>> IDS = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final Map<WriteRequest.WriteType, Function<JsonNode, WriteResponse>> decoders;
+
+    public WriteResponseCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.decoders = Map.of(
+            WriteRequest.WriteType.CREATE, node -> new CreateResponse(
+                    objectMapper.convertValue(node.path("insertedIds"), IDS),
+                    documents(node), text(node, "message")),
+            WriteRequest.WriteType.UPDATE, node -> new UpdateResponse(
+                    node.path("matchedCount").asLong(), node.path("modifiedCount").asLong(),
+                    documents(node), documentIds(node), text(node, "message")),
+            WriteRequest.WriteType.DELETE, node -> new DeleteResponse(
+                    node.path("deletedCount").asLong(), documents(node), documentIds(node), text(node, "message")),
+            WriteRequest.WriteType.UPSERT, node -> new UpsertResponse(
+                    node.path("wasInserted").asBoolean(), text(node, "documentId"),
+                    node.path("matchedCount").asLong(), node.path("modifiedCount").asLong(),
+                    documents(node), text(node, "message")),
+            WriteRequest.WriteType.BULK, this::decodeBulk,
+            WriteRequest.WriteType.CLAIM, node -> new ClaimResponse(
+                    node.path("claimedCount").asLong(), documents(node), documentIds(node), text(node, "message"))
+        );
+    }
+
+    public String encode(WriteResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + response.getType() + " response", e);
+        }
+    }
+
+    public WriteResponse decode(WriteRequest.WriteType type, String json) {
+        try {
+            return decoders.get(type).apply(objectMapper.readTree(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot deserialize stored " + type + " response", e);
+        }
+    }
+
+    private WriteResponse decodeBulk(JsonNode node) {
+        List<BulkOperationResult> results = new ArrayList<>();
+        for (JsonNode result : node.path("results")) {
+            int index = result.path("index").asInt();
+            WriteRequest.WriteType type = WriteRequest.WriteType.valueOf(result.path("type").asText());
+            BulkOperationResult.Status status = BulkOperationResult.Status.valueOf(result.path("status").asText());
+            if (status == BulkOperationResult.Status.SUCCEEDED) {
+                results.add(BulkOperationResult.succeeded(index, type, result.path("affectedCount").asLong(),
+                        objectMapper.convertValue(result.path("ids"), IDS)));
+            } else if (status == BulkOperationResult.Status.FAILED) {
+                results.add(BulkOperationResult.failed(index, type,
+                        ErrorType.valueOf(result.path("errorType").asText()), text(result, "error")));
+            } else {
+                results.add(BulkOperationResult.skipped(index, type));
+            }
+        }
+        return new BulkWriteResponse(node.path("ordered").asBoolean(), results);
+    }
+
+    /**
+     * Minimal responses (Prefer: return=minimal) are stored with null documents and stay minimal on replay
+     */
+    private List<Map<String, Object>> documents(JsonNode node) {
+        JsonNode documents = node.path("documents");
+        if (documents.isNull()) {
+            return null;
+        }
+        return documents.isArray() ? objectMapper.convertValue(documents, DOCUMENTS) : List.of();
+    }
+
+    private List<String> documentIds(JsonNode node) {
+        JsonNode documentIds = node.path("documentIds");
+        return documentIds.isArray() ? objectMapper.convertValue(documentIds, IDS) : null;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+}
@@ -6,19 +6,34 @@ import sigma.filter.FilterTranslator;
 import sigma.model.DynamicDocument;
 import sigma.model.Endpoint;
 import sigma.model.filter.FilterResult;
+import sigma.model.update.SubEntityChange;
+import sigma.model.update.UpdateOperation;
 import sigma.persistence.repository.DynamicDocumentRepository;
 import sigma.service.write.subentity.SubEntityProcessor;
+import sigma.service.write.subentity.SubEntityTableWriter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -34,17 +49,46 @@ public class WriteService {
     private final DynamicDocumentRepository repository;
     private final FilterTranslator filterTranslator;
     private final SubEntityProcessor subEntityProcessor;
+    private final SubEntityTableWriter subEntityTableWriter;
     private final DocumentChangeDetector documentChangeDetector;
+    private final IdempotencyStore idempotencyStore;
+    private final MeterRegistry meterRegistry;
+    private final int conflictMaxAttempts;
+    private final long conflictBackoffMs;
+    private final int bulkMaxOperations;
+    private final int claimMaxLimit;
+    private final TransactionTemplate attemptTransaction;
     private final ThreadLocal<Endpoint> endpointContext = new ThreadLocal<>();
+    private final ThreadLocal<TransactionStatus> transactionContext = new ThreadLocal<>();
 
     public WriteService(DynamicDocumentRepository repository,
                         FilterTranslator filterTranslator,
                         SubEntityProcessor subEntityProcessor,
-                        DocumentChangeDetector documentChangeDetector) {
+                        SubEntityTableWriter subEntityTableWriter,
+                        DocumentChangeDetector documentChangeDetector,
+                        IdempotencyStore idempotencyStore,
+                        MeterRegistry meterRegistry,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${sigma.write.conflict.max-attempts:3}") int conflictMaxAttempts,
+                        @Value("${sigma.write.conflict.backoff-ms:20}") long conflictBackoffMs,
+                        @Value("${sigma.write.bulk.max-operations:1000}") int bulkMaxOperations,
+                        @Value("${sigma.write.claim.max-limit:1000}") int claimMaxLimit) {
+        if (conflictMaxAttempts < 1) {
+            throw new IllegalArgumentException("sigma.write.conflict.max-attempts must be at least 1");
+        }
         this.repository = repository;
         this.filterTranslator = filterTranslator;
         this.subEntityProcessor = subEntityProcessor;
+        this.subEntityTableWriter = subEntityTableWriter;
         this.documentChangeDetector = documentChangeDetector;
+        this.idempotencyStore = idempotencyStore;
+        this.meterRegistry = meterRegistry;
+        this.conflictMaxAttempts = conflictMaxAttempts;
+        this.conflictBackoffMs = conflictBackoffMs;
+        this.bulkMaxOperations = bulkMaxOperations;
+        this.claimMaxLimit = claimMaxLimit;
+        this.attemptTransaction = new TransactionTemplate(transactionManager);
+        this.attemptTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     private Endpoint requireEndpointContext() {
@@ -56,50 +100,316 @@ public class WriteService {
     }
 
     /**
-     * Executes a write request using endpoint metadata for sub-entity handling
+     * Executes a write request using endpoint metadata for sub-entity handling.
+     * Each attempt runs in its own transaction, which also records the response for X-Request-ID
+     * replay; a conflicting attempt is rolled back before the next one is tried.
+     * Minimal requests (Prefer: return=minimal) answer with ids and counts only.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public WriteResponse execute(WriteRequest request, Endpoint endpoint) {
         logger.info("Executing {} operation on endpoint: {} -> table: {}",
                 request.getType(), endpoint.getName(), endpoint.getDatabaseCollection());
+        return retryOnConflict(request, endpoint, true,
+                () -> attemptTransaction.execute(status -> executeAttempt(request, endpoint, status)));
+    }
+
+    private WriteResponse executeAttempt(WriteRequest request, Endpoint endpoint, TransactionStatus transaction) {
         endpointContext.set(endpoint);
+        transactionContext.set(transaction);
         try {
-            return request.execute(this, endpoint.getDatabaseCollection());
+            WriteResponse response = request.execute(this, endpoint.getDatabaseCollection());
+            if (request.isReturnMinimal()) {
+                response = response.toMinimal();
+            } else {
+                subEntityTableWriter.attach(endpoint, response.getDocuments());
+            }
+            idempotencyStore.record(request, endpoint, response);
+            return response;
         } finally {
+            transactionContext.remove();
             endpointContext.remove();
         }
     }
 
+    /**
+     * Returns the transaction of the current attempt, or the one opened by @Transactional
+     */
+    private TransactionStatus currentTransaction() {
+        TransactionStatus transaction = transactionContext.get();
+        return transaction != null ? transaction : TransactionAspectSupport.currentTransactionStatus();
+    }
+
+    /**
+     * Re-runs the whole read-merge-write when a version-guarded write loses a race.
+     * Each attempt must have been rolled back by the time it throws; it then re-reads the documents,
+     * which sees the winning write under READ COMMITTED. Backing off is only done between
+     * transactions, never while one is held open.
+     */
+    private WriteResponse retryOnConflict(WriteRequest request, Endpoint endpoint, boolean backOff,
+                                          Supplier<WriteResponse> execution) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return execution.get();
+            } catch (OptimisticLockingFailureException e) {
+                meterRegistry.counter("sigma.write.version.conflicts", "endpoint", endpoint.getName()).increment();
+                if (attempt >= conflictMaxAttempts) {
+                    logger.warn("Giving up {} on endpoint {} after {} conflicting attempts",
+                            request.getType(), endpoint.getName(), attempt);
+                    throw e;
+                }
+                meterRegistry.counter("sigma.write.version.retries", "endpoint", endpoint.getName()).increment();
+                logger.info("Version conflict on endpoint {} (attempt {}): {}", endpoint.getName(), attempt, e.getMessage());
+                if (backOff) {
+                    backOff(attempt);
+                }
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        long delay = conflictBackoffMs << Math.min(attempt - 1, 10);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a conflicting write", e);
+        }
+    }
+
     /**
      * Executes CREATE operation
      */
     public WriteResponse executeCreate(CreateRequest request, String tableName) {
         Endpoint endpoint = requireEndpointContext();
-        List<DynamicDocument> documents = request.getDocuments().stream()
-                .map(doc -> {
-                    Map<String, Object> sanitized = sanitizeDocumentForWrite(doc);
-                    Map<String, Object> processed = subEntityProcessor.prepareForCreate(sanitized, endpoint.getSubEntities());
-                    DynamicDocument dynamicDoc = new DynamicDocument(tableName, processed);
-                    dynamicDoc.setLatestRequestId(request.getRequestId());
-                    dynamicDoc.setDeleted(false);
-                    return dynamicDoc;
-                })
-                .collect(Collectors.toList());
+        List<DynamicDocument> documents = prepareForCreate(request.getDocuments(), request.getRequestId(),
+                tableName, endpoint);
 
+        List<Map<String, List<Map<String, Object>>>> subEntityArrays = subEntityTableWriter.detach(endpoint, documents);
         List<Long> insertedIds;
         if (request.isBulk()) {
             insertedIds = repository.insertMany(tableName, documents);
         } else {
             insertedIds = List.of(repository.insertOne(tableName, documents.get(0)));
         }
+        subEntityTableWriter.store(endpoint, documents, subEntityArrays);
 
-        List<Map<String, Object>> responseDocs = repository.findByIds(tableName, insertedIds);
+        // Inserted documents carry their generated ids; no re-read needed
+        List<Map<String, Object>> responseDocs = request.isReturnMinimal() ? null : documents.stream()
+                .map(DynamicDocument::toMap)
+                .collect(Collectors.toList());
         String message = request.isBulk()
                 ? "Documents created successfully."
                 : "Document created successfully.";
-        List<String> stringIds = insertedIds.stream()
+        return new CreateResponse(toStringIds(insertedIds), responseDocs, message);
+    }
+
+    private List<DynamicDocument> prepareForCreate(List<Map<String, Object>> source, String requestId,
+                                                   String tableName, Endpoint endpoint) {
+        return source.stream()
+                .map(doc -> {
+                    Map<String, Object> sanitized = sanitizeDocumentForWrite(doc);
+                    Map<String, Object> processed = subEntityProcessor.prepareForCreate(sanitized, endpoint.getSubEntities());
+                    DynamicDocument dynamicDoc = new DynamicDocument(tableName, processed);
+                    dynamicDoc.setLatestRequestId(requestId);
+                    dynamicDoc.setDeleted(false);
+                    return dynamicDoc;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private List<String> toStringIds(List<Long> ids) {
+        return ids.stream()
                 .map(String::valueOf)
                 .collect(Collectors.toList());
-        return new CreateResponse(stringIds, responseDocs, message);
+    }
+
+    /**
+     * Executes a BULK request inside the current transaction.
+     * Every operation runs behind its own savepoint, so a failure rolls back only that operation;
+     * consecutive creates share one savepoint and one JDBC batch. Ordered requests stop at the
+     * first failure and report the remaining operations as skipped.
+     */
+    public WriteResponse executeBulk(BulkWriteRequest request, String tableName) {
+        Endpoint endpoint = requireEndpointContext();
+        List<WriteRequest> operations = request.getOperations();
+        if (operations.size() > bulkMaxOperations) {
+            throw new IllegalArgumentException("_bulk accepts at most " + bulkMaxOperations + " operations, got "
+                    + operations.size());
+        }
+
+        List<BulkOperationResult> results = new ArrayList<>(operations.size());
+        int index = 0;
+        int unbatchedUntil = 0;
+        while (index < operations.size()) {
+            int runEnd = index >= unbatchedUntil ? createRunEnd(operations, index) : index + 1;
+            if (runEnd - index > 1) {
+                if (executeCreateRun(operations.subList(index, runEnd), index, tableName, endpoint, results)) {
+                    index = runEnd;
+                } else {
+                    // The batch was rolled back; replay it one operation at a time to attribute the failure
+                    unbatchedUntil = runEnd;
+                }
+                continue;
+            }
+            boolean succeeded = executeBulkOperation(operations.get(index), index, endpoint, results);
+            index++;
+            if (!succeeded && request.isOrdered()) {
+                break;
+            }
+        }
+        for (int skipped = results.size(); skipped < operations.size(); skipped++) {
+            results.add(BulkOperationResult.skipped(skipped, operations.get(skipped).getType()));
+        }
+
+        BulkWriteResponse response = new BulkWriteResponse(request.isOrdered(), results);
+        recordBulkOutcome(endpoint, "succeeded", response.getSucceededCount());
+        recordBulkOutcome(endpoint, "failed", response.getFailedCount());
+        recordBulkOutcome(endpoint, "skipped", response.getSkippedCount());
+        return response;
+    }
+
+    /**
+     * Returns the end (exclusive) of the run of consecutive CREATE operations starting at {@code from},
+     * or {@code from + 1} when the operation there is not a create.
+     */
+    private int createRunEnd(List<WriteRequest> operations, int from) {
+        int end = from;
+        while (end < operations.size() && operations.get(end).getType() == WriteRequest.WriteType.CREATE) {
+            end++;
+        }
+        return Math.max(end, from + 1);
+    }
+
+    /**
+     * Inserts consecutive creates as one batch. Returns false, with the savepoint rolled back
+     * and no results recorded, when the batch fails.
+     */
+    private boolean executeCreateRun(List<WriteRequest> creates, int firstIndex, String tableName, Endpoint endpoint,
+                                     List<BulkOperationResult> results) {
+        TransactionStatus transaction = currentTransaction();
+        Object savepoint = transaction.createSavepoint();
+        try {
+            // createRunEnd only groups CREATE operations
+            List<CreateRequest> createRequests = creates.stream()
+                    .map(CreateRequest.class::cast)
+                    .collect(Collectors.toList());
+            List<WriteResponse> responses = insertCreates(createRequests, tableName, endpoint);
+            transaction.releaseSavepoint(savepoint);
+
+            for (int i = 0; i < responses.size(); i++) {
+                results.add(BulkOperationResult.succeeded(firstIndex + i, responses.get(i)));
+            }
+            return true;
+        } catch (RuntimeException e) {
+            transaction.rollbackToSavepoint(savepoint);
+            logger.info("Batched creates for operations[{}..{}] failed, replaying individually: {}",
+                    firstIndex, firstIndex + creates.size() - 1, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Inserts single-document creates queued by different clients in this one transaction.
+     * Returns one response per request, in request order.
+     */
+    public List<WriteResponse> executeGroupCommit(List<CreateRequest> requests, Endpoint endpoint) {
+        logger.debug("Group-committing {} creates on endpoint: {}", requests.size(), endpoint.getName());
+        endpointContext.set(endpoint);
+        try {
+            List<WriteResponse> responses = insertCreates(requests, endpoint.getDatabaseCollection(), endpoint);
+            for (int i = 0; i < requests.size(); i++) {
+                idempotencyStore.record(requests.get(i), endpoint, responses.get(i));
+            }
+            return responses;
+        } finally {
+            endpointContext.remove();
+        }
+    }
+
+    /**
+     * Inserts the documents of several create requests as one JDBC batch
+     * and splits the generated ids back per request.
+     */
+    private List<WriteResponse> insertCreates(List<CreateRequest> requests, String tableName, Endpoint endpoint) {
+        List<List<DynamicDocument>> documentsPerRequest = new ArrayList<>(requests.size());
+        for (CreateRequest request : requests) {
+            documentsPerRequest.add(prepareForCreate(request.getDocuments(), request.getRequestId(),
+                    tableName, endpoint));
+        }
+        List<DynamicDocument> batch = documentsPerRequest.stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        List<Map<String, List<Map<String, Object>>>> subEntityArrays = subEntityTableWriter.detach(endpoint, batch);
+        List<String> insertedIds = toStringIds(repository.insertMany(tableName, batch));
+        subEntityTableWriter.store(endpoint, batch, subEntityArrays);
+
+        List<WriteResponse> responses = new ArrayList<>(requests.size());
+        int offset = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            List<DynamicDocument> documents = documentsPerRequest.get(i);
+            List<Map<String, Object>> responseDocs = requests.get(i).isReturnMinimal() ? null : documents.stream()
+                    .map(DynamicDocument::toMap)
+                    .collect(Collectors.toList());
+            String message = requests.get(i).isBulk()
+                    ? "Documents created successfully."
+                    : "Document created successfully.";
+            responses.add(new CreateResponse(insertedIds.subList(offset, offset + documents.size()),
+                    responseDocs, message));
+            offset += documents.size();
+        }
+        return responses;
+    }
+
+    /**
+     * Runs one bulk operation behind a savepoint per attempt. The bulk transaction has to stay open,
+     * so a conflicting attempt is rolled back to its savepoint and retried without backing off.
+     */
+    private boolean executeBulkOperation(WriteRequest operation, int index, Endpoint endpoint,
+                                         List<BulkOperationResult> results) {
+        TransactionStatus transaction = currentTransaction();
+        try {
+            WriteResponse response = retryOnConflict(operation, endpoint, false, () -> {
+                Object savepoint = transaction.createSavepoint();
+                try {
+                    WriteResponse attemptResponse = operation.execute(this, endpoint.getDatabaseCollection());
+                    transaction.releaseSavepoint(savepoint);
+                    return attemptResponse;
+                } catch (RuntimeException e) {
+                    transaction.rollbackToSavepoint(savepoint);
+                    throw e;
+                }
+            });
+            results.add(BulkOperationResult.succeeded(index, response));
+            return true;
+        } catch (RuntimeException e) {
+            logger.info("Bulk operations[{}] ({}) failed on endpoint {}: {}",
+                    index, operation.getType(), endpoint.getName(), e.getMessage());
+            results.add(BulkOperationResult.failed(index, operation.getType(), bulkErrorType(e), e.getMessage()));
+            return false;
+        }
+    }
+
+    private ErrorType bulkErrorType(RuntimeException e) {
+        if (e instanceof PreconditionFailedException) {
+            return ErrorType.PRECONDITION_FAILED;
+        }
+        if (e instanceof OptimisticLockingFailureException || e instanceof DuplicateKeyException) {
+            return ErrorType.CONFLICT;
+        }
+        if (e instanceof IllegalArgumentException) {
+            return ErrorType.BAD_REQUEST;
+        }
+        return ErrorType.INTERNAL_ERROR;
+    }
+
+    private void recordBulkOutcome(Endpoint endpoint, String status, long count) {
+        if (count > 0) {
+            meterRegistry.counter("sigma.write.bulk.operations", "endpoint", endpoint.getName(), "status", status)
+                    .increment(count);
+        }
     }
 
     /**
@@ -108,50 +418,185 @@ public class WriteService {
     public WriteResponse executeUpdate(UpdateRequest request, String tableName) {
         Endpoint endpoint = requireEndpointContext();
         FilterResult filterResult = translateFilter(request.getFilter());
+        if (request.hasUpdateOperators()) {
+            return executeOperatorUpdate(request, tableName, filterResult, endpoint);
+        }
         Map<String, Object> updates = sanitizeDocumentForWrite(request.getUpdates());
-        List<DynamicDocument> matchingDocuments = repository.findDocuments(
-                tableName,
-                filterResult.getWhereClause(),
-                filterResult.getParameters(),
-                null
-        );
+        Map<String, List<SubEntityChange>> subEntityChanges = subEntityProcessor.compileUpdateOperations(
+                updates, endpoint.getSubEntities(), request.isUpdateMultiple());
+        if (!subEntityChanges.isEmpty()) {
+            return executeInPlaceSubEntityUpdate(request, tableName, filterResult, updates, subEntityChanges);
+        }
+        if (request.getPrecondition().isPresent()) {
+            return executeConditionalUpdate(request, tableName, filterResult, updates);
+        }
+        Map<String, Object> effectiveUpdates = new LinkedHashMap<>(updates);
+        effectiveUpdates.put("latestRequestId", request.getRequestId());
 
-        if (matchingDocuments.isEmpty()) {
-            return new UpdateResponse(0, 0, List.of(), "No documents matched the provided filter.");
+        // Matched documents are not loaded: the UPDATE only writes the ones the merge changes
+        FilterResult target = filterResult;
+        if (!request.isUpdateMultiple()) {
+            List<Long> matchingIds = repository.findIds(tableName, filterResult.getWhereClause(),
+                    filterResult.getParameters(), 1);
+            if (matchingIds.isEmpty()) {
+                return new UpdateResponse(0, 0, List.of(), "No documents matched the provided filter.");
+            }
+            target = documentById(matchingIds.get(0));
         }
+        List<Map<String, Object>> updatedDocuments = repository.updateChanged(tableName, target.getWhereClause(),
+                effectiveUpdates, target.getParameters(), request.isUpdateMultiple(), request.isReturnMinimal());
 
-        applySubEntityUpdates(endpoint.getSubEntities(), updates, request.isUpdateMultiple(),
-                () -> loadSingleDocument(tableName, filterResult));
+        if (updatedDocuments.isEmpty()) {
+            if (request.isUpdateMultiple()) {
+                return new UpdateResponse(0, 0, List.of(),
+                        "No documents matched the provided filter or none would change.");
+            }
+            return new UpdateResponse(1, 0, List.of(), "No changes detected; documents remain unchanged.");
+        }
+        return new UpdateResponse(updatedDocuments.size(), updatedDocuments.size(), updatedDocuments,
+                "Documents updated successfully.");
+    }
 
-        List<Map<String, Object>> matchingMaps = matchingDocuments.stream()
-                .map(DynamicDocument::toMap)
-                .collect(Collectors.toList());
+    /**
+     * PATCH with If-Match: the version check is part of the UPDATE predicate,
+     * so there is no pre-read or change detection.
+     */
+    private WriteResponse executeConditionalUpdate(UpdateRequest request, String tableName, FilterResult filterResult,
+                                                   Map<String, Object> updates) {
+        WritePrecondition precondition = request.getPrecondition();
+        requireSingleDocumentPrecondition(precondition, request.isUpdateMultiple(), "PATCH");
 
-        DocumentChangeResult changeResult =
-                documentChangeDetector.evaluate(matchingMaps, updates);
+        Map<String, Object> effectiveUpdates = new LinkedHashMap<>(updates);
+        effectiveUpdates.put("latestRequestId", request.getRequestId());
 
-        if (!changeResult.hasChanges()) {
-            return new UpdateResponse(matchingDocuments.size(), 0, matchingMaps,
-                    "No changes detected; documents remain unchanged.");
+        FilterResult guarded = withVersionGuard(filterResult, precondition);
+        List<Map<String, Object>> updatedDocuments = repository.update(tableName, guarded.getWhereClause(),
+                effectiveUpdates, guarded.getParameters(), false, request.isReturnMinimal());
+
+        if (updatedDocuments.isEmpty()) {
+            throw new PreconditionFailedException("No document matching the filter satisfies " + precondition);
         }
+        return new UpdateResponse(1, updatedDocuments.size(), updatedDocuments, "Documents updated successfully.");
+    }
+
+    /**
+     * PATCH touching sub-entity arrays: the create/update/delete commands are applied in place,
+     * locating elements by id in the database, so only the changed elements are sent and the
+     * parent document is never loaded. Only the id of the target document is read, to keep
+     * rejecting filters that match several documents.
+     */
+    private WriteResponse executeInPlaceSubEntityUpdate(UpdateRequest request, String tableName,
+                                                        FilterResult filterResult, Map<String, Object> updates,
+                                                        Map<String, List<SubEntityChange>> subEntityChanges) {
+        WritePrecondition precondition = request.getPrecondition();
+        requireSingleDocumentPrecondition(precondition, false, "PATCH");
+
+        List<Long> matchingIds = repository.findIds(tableName, filterResult.getWhereClause(),
+                filterResult.getParameters(), 2);
+        if (matchingIds.isEmpty()) {
+            return new UpdateResponse(0, 0, List.of(), "No documents matched the provided filter.");
+        }
+        if (matchingIds.size() > 1) {
+            throw new IllegalArgumentException("Multiple documents match filter; cannot apply sub-entity operations safely");
+        }
+        FilterResult target = withVersionGuard(documentById(matchingIds.get(0)), precondition);
 
         Map<String, Object> effectiveUpdates = new LinkedHashMap<>(updates);
         effectiveUpdates.put("latestRequestId", request.getRequestId());
+        if (requireEndpointContext().storesSubEntitiesInTable()) {
+            List<Map<String, Object>> updatedDocuments = updateWithSubEntityRows(tableName, target, matchingIds.get(0),
+                    precondition, effectiveUpdates, subEntityChanges);
+            return new UpdateResponse(1, updatedDocuments.size(), updatedDocuments, "Documents updated successfully.");
+        }
+        List<Map<String, Object>> updatedDocuments = repository.updateSubEntitiesInPlace(tableName,
+                target.getWhereClause(), effectiveUpdates, subEntityChanges, target.getParameters());
 
-        int modifiedCount = repository.update(
-                tableName,
-                filterResult.getWhereClause(),
-                effectiveUpdates,
-                filterResult.getParameters(),
-                request.isUpdateMultiple()
-        );
+        if (updatedDocuments.isEmpty()) {
+            if (precondition.isPresent()
+                    && repository.findIds(tableName, target.getWhereClause(), target.getParameters(), 1).isEmpty()) {
+                throw new PreconditionFailedException("No document matching the filter satisfies " + precondition);
+            }
+            throw new IllegalArgumentException("Sub-entity operations do not match the stored entries: "
+                    + describeSubEntityChanges(subEntityChanges));
+        }
+        return new UpdateResponse(1, updatedDocuments.size(), updatedDocuments, "Documents updated successfully.");
+    }
 
-        List<Long> ids = matchingDocuments.stream()
-                .map(DynamicDocument::getId)
-                .collect(Collectors.toList());
-        List<Map<String, Object>> updatedDocuments = repository.findByIds(tableName, ids);
+    /**
+     * Sub-entity changes of an endpoint with subEntityStorage TABLE: the parent row is always updated
+     * first, merging the plain fields if there are any, so its version, ETag and sequence number move
+     * and the row lock plus version guard of that UPDATE cover the changes; each change then updates
+     * only its own row of dynamic_sub_entities in the same transaction.
+     * Returns the parent document; its arrays are attached with the response.
+     */
+    private List<Map<String, Object>> updateWithSubEntityRows(String tableName, FilterResult target, Long documentId,
+                                                              WritePrecondition precondition,
+                                                              Map<String, Object> effectiveUpdates,
+                                                              Map<String, List<SubEntityChange>> subEntityChanges) {
+        boolean hasFieldUpdates = effectiveUpdates.keySet().stream().anyMatch(key -> !"latestRequestId".equals(key));
+        List<Map<String, Object>> parent = hasFieldUpdates
+                ? repository.update(tableName, target.getWhereClause(), effectiveUpdates, target.getParameters(), false)
+                : repository.touch(tableName, target.getWhereClause(), effectiveUpdates.get("latestRequestId"),
+                        target.getParameters(), false);
+        if (parent.isEmpty()) {
+            if (precondition.isPresent()) {
+                throw new PreconditionFailedException("No document matching the filter satisfies " + precondition);
+            }
+            throw new OptimisticLockingFailureException("Document " + documentId + " was deleted concurrently");
+        }
+        subEntityTableWriter.apply(documentId, subEntityChanges);
+        return parent;
+    }
+
+    private FilterResult documentById(Long documentId) {
+        Map<String, Object> targetParams = new HashMap<>();
+        targetParams.put("subEntityDocumentId", documentId);
+        return FilterResult.builder()
+                .whereClause("d.id = :subEntityDocumentId")
+                .parameters(targetParams)
+                .build();
+    }
+
+    private String describeSubEntityChanges(Map<String, List<SubEntityChange>> subEntityChanges) {
+        return subEntityChanges.entrySet().stream()
+                .map(field -> field.getKey() + " " + field.getValue().stream()
+                        .map(change -> change.kind() + " " + change.id())
+                        .collect(Collectors.joining(", ", "[", "]")))
+                .collect(Collectors.joining("; "))
+                + " (updated and deleted ids must exist and be live, new ids must be unused)";
+    }
+
+    /**
+     * PATCH with update operators: one UPDATE computes the new values from the stored documents,
+     * so there is no pre-read, change detection or version retry.
+     */
+    private WriteResponse executeOperatorUpdate(UpdateRequest request, String tableName, FilterResult filterResult,
+                                                Endpoint endpoint) {
+        for (UpdateOperation operation : request.getUpdateOperations()) {
+            String field = operation.rootField();
+            if (RESERVED_WRITE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field '" + field + "' cannot be updated");
+            }
+            if (endpoint.getSubEntities().contains(field)) {
+                throw new IllegalArgumentException("Sub-entity field '" + field
+                        + "' cannot be changed with update operators");
+            }
+        }
+        WritePrecondition precondition = request.getPrecondition();
+        requireSingleDocumentPrecondition(precondition, request.isUpdateMultiple(), "PATCH");
+        FilterResult guarded = withVersionGuard(filterResult, precondition);
+
+        List<Map<String, Object>> updatedDocuments = repository.updateWithOperations(tableName,
+                guarded.getWhereClause(), request.getUpdateOperations(), request.getRequestId(),
+                guarded.getParameters(), request.isUpdateMultiple(), request.isReturnMinimal());
 
-        return new UpdateResponse(matchingDocuments.size(), modifiedCount, updatedDocuments,
+        if (updatedDocuments.isEmpty()) {
+            if (precondition.isPresent()) {
+                throw new PreconditionFailedException("No document matching the filter satisfies " + precondition);
+            }
+            return new UpdateResponse(0, 0, List.of(), "No documents matched the provided filter.");
+        }
+        return new UpdateResponse(updatedDocuments.size(), updatedDocuments.size(), updatedDocuments,
                 "Documents updated successfully.");
     }
 
@@ -159,33 +604,59 @@ public class WriteService {
      * Executes DELETE operation (logical delete)
      */
     public WriteResponse executeDelete(DeleteRequest request, String tableName) {
-        FilterResult filterResult = translateFilter(request.getFilter());
+        WritePrecondition precondition = request.getPrecondition();
+        requireSingleDocumentPrecondition(precondition, request.isDeleteMultiple(), "DELETE");
+        FilterResult filterResult = withVersionGuard(translateFilter(request.getFilter()), precondition);
 
-        List<DynamicDocument> documentsBeforeDelete = repository.findDocuments(
+        List<Map<String, Object>> deletedDocuments = repository.delete(
                 tableName,
                 filterResult.getWhereClause(),
                 filterResult.getParameters(),
-                null
+                request.isDeleteMultiple(),
+                request.getRequestId(),
+                request.isReturnMinimal()
         );
 
-        if (documentsBeforeDelete.isEmpty()) {
+        if (deletedDocuments.isEmpty()) {
+            if (precondition.isPresent()) {
+                throw new PreconditionFailedException("No document matching the filter satisfies " + precondition);
+            }
             return new DeleteResponse(0, List.of(), "No documents matched the provided filter.");
         }
 
-        int deletedCount = repository.delete(
-                tableName,
-                filterResult.getWhereClause(),
-                filterResult.getParameters(),
-                request.isDeleteMultiple(),
-                request.getRequestId()
-        );
+        return new DeleteResponse(deletedDocuments.size(), deletedDocuments, "Documents marked as deleted.");
+    }
 
-        List<Long> ids = documentsBeforeDelete.stream()
-                .map(DynamicDocument::getId)
-                .collect(Collectors.toList());
-        List<Map<String, Object>> deletedDocuments = repository.findByIds(tableName, ids);
+    /**
+     * Executes CLAIM operation: locks up to limit documents matching the filter, skipping documents
+     * held by concurrent claims, and merges set into them
+     */
+    public WriteResponse executeClaim(ClaimRequest request, String tableName) {
+        Endpoint endpoint = requireEndpointContext();
+        if (request.getLimit() < 1 || request.getLimit() > claimMaxLimit) {
+            throw new IllegalArgumentException("_claim limit must be between 1 and " + claimMaxLimit);
+        }
+        Map<String, Object> set = sanitizeDocumentForWrite(request.getSet());
+        if (set.isEmpty()) {
+            throw new IllegalArgumentException("_claim requires a non-empty \"set\" marking the documents as claimed");
+        }
+        for (String field : set.keySet()) {
+            if (endpoint.getSubEntities().contains(field)) {
+                throw new IllegalArgumentException("Sub-entity field '" + field + "' cannot be set by a claim");
+            }
+        }
+        FilterResult filterResult = translateFilter(request.getFilter());
+
+        List<Map<String, Object>> claimedDocuments = repository.claim(tableName, filterResult.getWhereClause(),
+                filterResult.getParameters(), set, request.getLimit(), request.getRequestId(),
+                request.isReturnMinimal());
 
-        return new DeleteResponse(deletedCount, deletedDocuments, "Documents marked as deleted.");
+        meterRegistry.counter("sigma.write.claim.documents", "endpoint", endpoint.getName())
+                .increment(claimedDocuments.size());
+        if (claimedDocuments.isEmpty()) {
+            return new ClaimResponse(0, List.of(), "No unclaimed documents matched the provided filter.");
+        }
+        return new ClaimResponse(claimedDocuments.size(), claimedDocuments, "Documents claimed successfully.");
     }
 
     /**
@@ -194,17 +665,208 @@ public class WriteService {
      */
     public WriteResponse executeUpsert(UpsertRequest request, String tableName) {
         Endpoint endpoint = requireEndpointContext();
+        if (request.getPrecondition().isMustNotExist()) {
+            return upsertCreateOnly(request, tableName, endpoint);
+        }
+        if (request.getPrecondition().isMustExist()) {
+            return upsertUpdateOnly(request, tableName, endpoint);
+        }
+        if (endpoint.hasUpsertKeys() && endpoint.getSubEntities().isEmpty()) {
+            return upsertByKey(request, tableName, endpoint.getUpsertKeys());
+        }
+
         FilterResult filterResult = translateFilter(request.getFilter());
         Map<String, Object> document = sanitizeDocumentForWrite(request.getDocument());
         document.put("latestRequestId", request.getRequestId());
 
         Set<String> subEntities = endpoint.getSubEntities();
+        if (endpoint.storesSubEntitiesInTable()) {
+            return upsertWithSubEntityRows(tableName, filterResult, document, endpoint, request.getRequestId());
+        }
         if (!subEntities.isEmpty()) {
             return upsertWithSubEntities(tableName, filterResult, document, subEntities, request.getRequestId());
         }
         return upsertSimple(tableName, filterResult, document);
     }
 
+    /**
+     * Single-statement upsert keyed by the endpoint's upsert key fields.
+     * Key values come from the document, falling back to equality conditions in the filter.
+     */
+    private WriteResponse upsertByKey(UpsertRequest request, String tableName, List<String> keyFields) {
+        Map<String, Object> document = sanitizeDocumentForWrite(request.getDocument());
+        for (String keyField : keyFields) {
+            if (document.get(keyField) == null) {
+                Object filterValue = extractEqualityValue(request.getFilter(), keyField);
+                if (filterValue == null) {
+                    throw new IllegalArgumentException("Upsert key field '" + keyField + "' is required");
+                }
+                document.put(keyField, filterValue);
+            }
+        }
+
+        DynamicDocument dynamicDoc = new DynamicDocument(tableName, document);
+        dynamicDoc.setLatestRequestId(request.getRequestId());
+        dynamicDoc.setDeleted(false);
+
+        Map<String, Object> result = repository.upsertByKey(tableName, keyFields, dynamicDoc);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> written = (Map<String, Object>) result.get("document");
+        return new UpsertResponse(result.containsKey("upsertedId"), extractDocumentId(List.of(written)),
+                extractCount(result, "matchedCount"), extractCount(result, "modifiedCount"),
+                List.of(written), upsertMessage(result));
+    }
+
+    /**
+     * PUT with If-None-Match: * inserts only when no live document matches, in one guarded INSERT.
+     * The guard alone lets concurrent inserts through; the unique index of the endpoint's upsert key
+     * rejects the second one, so the endpoint must declare one.
+     */
+    private WriteResponse upsertCreateOnly(UpsertRequest request, String tableName, Endpoint endpoint) {
+        if (!endpoint.hasUpsertKeys()) {
+            throw new IllegalArgumentException("If-None-Match: * requires an endpoint with an upsertKey");
+        }
+        Map<String, Object> document = sanitizeDocumentForWrite(request.getDocument());
+        FilterResult filterResult = translateFilter(conditionalUpsertFilter(request.getFilter(), document, endpoint));
+
+        Map<String, Object> processed = subEntityProcessor.prepareForCreate(document, endpoint.getSubEntities());
+        DynamicDocument dynamicDoc = new DynamicDocument(tableName, processed);
+        dynamicDoc.setLatestRequestId(request.getRequestId());
+        dynamicDoc.setDeleted(false);
+        List<Map<String, List<Map<String, Object>>>> subEntityArrays =
+                subEntityTableWriter.detach(endpoint, List.of(dynamicDoc));
+
+        Long insertedId;
+        try {
+            insertedId = repository.insertIfAbsent(tableName, filterResult.getWhereClause(),
+                    filterResult.getParameters(), dynamicDoc);
+        } catch (DuplicateKeyException e) {
+            // The upsert key index rejected a concurrent insert of the same key
+            insertedId = null;
+        }
+
+        if (insertedId == null) {
+            throw new PreconditionFailedException("A document matching the filter already exists (If-None-Match: *)");
+        }
+        subEntityTableWriter.store(endpoint, List.of(dynamicDoc), subEntityArrays);
+        return new UpsertResponse(true, String.valueOf(insertedId), 0, 0,
+                List.of(dynamicDoc.toMap()), "Document inserted successfully.");
+    }
+
+    /**
+     * PUT with If-Match merges into the matched document only; nothing is inserted.
+     * Without sub-entities the version check is part of the UPDATE predicate.
+     */
+    private WriteResponse upsertUpdateOnly(UpsertRequest request, String tableName, Endpoint endpoint) {
+        WritePrecondition precondition = request.getPrecondition();
+        Map<String, Object> updates = sanitizeDocumentForWrite(request.getDocument());
+        FilterResult filterResult = translateFilter(conditionalUpsertFilter(request.getFilter(), updates, endpoint));
+
+        List<Map<String, Object>> updatedDocuments;
+        Set<String> subEntities = endpoint.getSubEntities();
+        if (endpoint.storesSubEntitiesInTable()) {
+            DynamicDocument existingDoc = requireSatisfied(precondition, findFirstDocument(tableName, filterResult));
+            updates.put("latestRequestId", request.getRequestId());
+            Map<String, List<SubEntityChange>> subEntityChanges =
+                    subEntityProcessor.compileUpdateOperations(updates, subEntities, false);
+            updatedDocuments = updateWithSubEntityRows(tableName,
+                    withVersionGuard(documentById(existingDoc.getId()), precondition), existingDoc.getId(),
+                    precondition, updates, subEntityChanges);
+        } else if (!subEntities.isEmpty()) {
+            DynamicDocument existingDoc = requireSatisfied(precondition, findFirstDocument(tableName, filterResult));
+            subEntityProcessor.applyUpsertUpdate(updates, subEntities, existingDoc.toMap());
+            updates.put("latestRequestId", request.getRequestId());
+            updatedDocuments = repository.updateIfVersion(tableName, existingDoc.getId(),
+                    existingDoc.getVersion(), updates);
+        } else {
+            updates.put("latestRequestId", request.getRequestId());
+            FilterResult guarded = withVersionGuard(filterResult, precondition);
+            updatedDocuments = repository.update(tableName, guarded.getWhereClause(), updates,
+                    guarded.getParameters(), false);
+        }
+
+        if (updatedDocuments.isEmpty()) {
+            throw new PreconditionFailedException("No document matching the filter satisfies " + precondition);
+        }
+        return new UpsertResponse(false, extractDocumentId(updatedDocuments), 1L, 1L, updatedDocuments,
+                "Document updated successfully.");
+    }
+
+    /**
+     * Conditional PUTs must identify the document: by filter, or by the endpoint's upsert key values.
+     */
+    private Map<String, Object> conditionalUpsertFilter(Map<String, Object> filter, Map<String, Object> document,
+                                                        Endpoint endpoint) {
+        if (filter != null && !filter.isEmpty()) {
+            return filter;
+        }
+        Map<String, Object> keyFilter = new LinkedHashMap<>();
+        for (String keyField : endpoint.getUpsertKeys()) {
+            if (document.get(keyField) == null) {
+                throw new IllegalArgumentException("Upsert key field '" + keyField + "' is required");
+            }
+            keyFilter.put(keyField, document.get(keyField));
+        }
+        if (keyFilter.isEmpty()) {
+            throw new IllegalArgumentException("Conditional PUT requires a filter identifying the document");
+        }
+        return keyFilter;
+    }
+
+    private void requireSingleDocumentPrecondition(WritePrecondition precondition, boolean multiple, String method) {
+        if (!precondition.isPresent()) {
+            return;
+        }
+        if (precondition.isMustNotExist()) {
+            throw new IllegalArgumentException("If-None-Match is only supported for PUT, not " + method);
+        }
+        if (multiple) {
+            throw new IllegalArgumentException("If-Match targets a single document; it cannot be combined with "
+                    + method + " on multiple documents");
+        }
+    }
+
+    private DynamicDocument requireSatisfied(WritePrecondition precondition, DynamicDocument document) {
+        if (document == null || !precondition.isSatisfiedBy(document.getVersion())) {
+            throw new PreconditionFailedException("No document matching the filter satisfies " + precondition);
+        }
+        return document;
+    }
+
+    /**
+     * Adds the If-Match version to the translated filter so the write statement checks it itself.
+     */
+    private FilterResult withVersionGuard(FilterResult filterResult, WritePrecondition precondition) {
+        if (!precondition.hasExpectedVersion()) {
+            return filterResult;
+        }
+        String versionCheck = "COALESCE(d.version, 0) = :ifMatchVersion";
+        String whereClause = filterResult.hasWhereClause()
+                ? "(" + filterResult.getWhereClause() + ") AND " + versionCheck
+                : versionCheck;
+        Map<String, Object> parameters = new HashMap<>();
+        if (filterResult.getParameters() != null) {
+            parameters.putAll(filterResult.getParameters());
+        }
+        parameters.put("ifMatchVersion", precondition.getExpectedVersion());
+        return FilterResult.builder()
+                .whereClause(whereClause)
+                .parameters(parameters)
+                .build();
+    }
+
+    private Object extractEqualityValue(Map<String, Object> filter, String field) {
+        if (filter == null) {
+            return null;
+        }
+        Object condition = filter.get(field);
+        if (condition instanceof Map<?, ?> operators) {
+            return operators.size() == 1 ? operators.get("eq") : null;
+        }
+        return condition;
+    }
+
     private WriteResponse upsertWithSubEntities(String tableName, FilterResult filterResult,
                                                  Map<String, Object> document, Set<String> subEntities,
                                                  String requestId) {
@@ -215,6 +877,49 @@ public class WriteService {
         return upsertInsertNew(tableName, filterResult, document, subEntities);
     }
 
+    /**
+     * Upsert for an endpoint with subEntityStorage TABLE. An existing document gets its sub-entity payload
+     * applied as row changes, like PATCH; a new one is inserted with a guarded INSERT and its arrays stored as rows.
+     * Losing the insert race to a concurrent upsert re-runs the request, which then takes the update path.
+     */
+    private WriteResponse upsertWithSubEntityRows(String tableName, FilterResult filterResult,
+                                                  Map<String, Object> document, Endpoint endpoint, String requestId) {
+        DynamicDocument existingDoc = findFirstDocument(tableName, filterResult);
+        if (existingDoc != null) {
+            Map<String, Object> updates = new LinkedHashMap<>(document);
+            updates.putIfAbsent("latestRequestId", requestId);
+            Map<String, List<SubEntityChange>> subEntityChanges =
+                    subEntityProcessor.compileUpdateOperations(updates, endpoint.getSubEntities(), false);
+            List<Map<String, Object>> updatedDocuments = updateWithSubEntityRows(tableName,
+                    documentById(existingDoc.getId()), existingDoc.getId(), WritePrecondition.none(),
+                    updates, subEntityChanges);
+            return new UpsertResponse(false, String.valueOf(existingDoc.getId()), 1L, 1L, updatedDocuments,
+                    "Document updated successfully.");
+        }
+
+        Map<String, Object> processed = subEntityProcessor.prepareForCreate(document, endpoint.getSubEntities());
+        processed.remove("latestRequestId");
+        DynamicDocument dynamicDoc = new DynamicDocument(tableName, processed);
+        dynamicDoc.setLatestRequestId(requestId);
+        dynamicDoc.setDeleted(false);
+        List<Map<String, List<Map<String, Object>>>> subEntityArrays =
+                subEntityTableWriter.detach(endpoint, List.of(dynamicDoc));
+
+        Long insertedId;
+        try {
+            insertedId = repository.insertIfAbsent(tableName, filterResult.getWhereClause(),
+                    filterResult.getParameters(), dynamicDoc);
+        } catch (DuplicateKeyException e) {
+            insertedId = null;
+        }
+        if (insertedId == null) {
+            throw new OptimisticLockingFailureException("A concurrent upsert inserted a document matching the filter");
+        }
+        subEntityTableWriter.store(endpoint, List.of(dynamicDoc), subEntityArrays);
+        return new UpsertResponse(true, String.valueOf(insertedId), 0, 0,
+                List.of(dynamicDoc.toMap()), "Document inserted successfully.");
+    }
+
     private WriteResponse upsertUpdateExisting(String tableName, FilterResult filterResult,
                                                 Map<String, Object> document, Set<String> subEntities,
                                                 DynamicDocument existingDoc, String requestId) {
@@ -232,9 +937,8 @@ public class WriteService {
 
         Map<String, Object> effectiveUpdates = new LinkedHashMap<>(updates);
         effectiveUpdates.put("latestRequestId", requestId);
-        repository.update(tableName, filterResult.getWhereClause(), effectiveUpdates, filterResult.getParameters(), false);
-
-        List<Map<String, Object>> updatedDocuments = repository.findByIds(tableName, List.of(existingDoc.getId()));
+        List<Map<String, Object>> updatedDocuments = repository.updateIfVersion(tableName, existingDoc.getId(),
+                existingDoc.getVersion(), effectiveUpdates);
         return new UpsertResponse(false, documentId, 1L, 1L, updatedDocuments, "Document updated successfully.");
     }
 
@@ -243,30 +947,20 @@ public class WriteService {
         Map<String, Object> processed = subEntityProcessor.prepareForUpsertCreate(document, subEntities);
         Map<String, Object> result = repository.upsert(tableName, filterResult.getWhereClause(),
                 processed, filterResult.getParameters());
-        return buildUpsertResponse(tableName, filterResult, result);
+        return buildUpsertResponse(result);
     }
 
     private WriteResponse upsertSimple(String tableName, FilterResult filterResult, Map<String, Object> document) {
         document.put("isDeleted", false);
-        DynamicDocument existingDoc = findFirstDocument(tableName, filterResult);
-        String existingDocumentId = existingDoc != null ? String.valueOf(existingDoc.getId()) : null;
-
         Map<String, Object> result = repository.upsert(tableName, filterResult.getWhereClause(),
                 document, filterResult.getParameters());
-
-        boolean wasInserted = result.containsKey("upsertedId");
-        String documentId = wasInserted ? String.valueOf(result.get("upsertedId")) : existingDocumentId;
-        List<Map<String, Object>> documents = loadUpsertedDocuments(tableName, filterResult, documentId);
-
-        return new UpsertResponse(wasInserted, documentId,
-                extractCount(result, "matchedCount"), extractCount(result, "modifiedCount"),
-                documents, wasInserted ? "Document inserted successfully." : "Document updated successfully.");
+        return buildUpsertResponse(result);
     }
 
-    private WriteResponse buildUpsertResponse(String tableName, FilterResult filterResult, Map<String, Object> result) {
+    private WriteResponse buildUpsertResponse(Map<String, Object> result) {
         boolean wasInserted = result.containsKey("upsertedId");
         String documentId = wasInserted ? String.valueOf(result.get("upsertedId")) : null;
-        List<Map<String, Object>> documents = loadUpsertedDocuments(tableName, filterResult, documentId);
+        List<Map<String, Object>> documents = writtenDocuments(result);
 
         if (documentId == null) {
             documentId = extractDocumentId(documents);
@@ -274,7 +968,16 @@ public class WriteService {
 
         return new UpsertResponse(wasInserted, documentId,
                 extractCount(result, "matchedCount"), extractCount(result, "modifiedCount"),
-                documents, wasInserted ? "Document inserted successfully." : "Document updated successfully.");
+                documents, upsertMessage(result));
+    }
+
+    private String upsertMessage(Map<String, Object> result) {
+        if (result.containsKey("upsertedId")) {
+            return "Document inserted successfully.";
+        }
+        return extractCount(result, "modifiedCount") == 0
+                ? "No changes detected; document remains unchanged."
+                : "Document updated successfully.";
     }
 
     private String extractDocumentId(List<Map<String, Object>> documents) {
@@ -292,13 +995,10 @@ public class WriteService {
         return docs.isEmpty() ? null : docs.get(0);
     }
 
-    private List<Map<String, Object>> loadUpsertedDocuments(String tableName, FilterResult filterResult, String documentId) {
-        if (documentId != null) {
-            return repository.findByIds(tableName, List.of(Long.parseLong(documentId)));
-        }
-        List<DynamicDocument> refreshed = repository.findDocuments(tableName, filterResult.getWhereClause(),
-                filterResult.getParameters(), 1);
-        return refreshed.stream().map(DynamicDocument::toMap).collect(Collectors.toList());
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> writtenDocuments(Map<String, Object> result) {
+        Object document = result.get("document");
+        return document != null ? List.of((Map<String, Object>) document) : List.of();
     }
 
     private long extractCount(Map<String, Object> result, String key) {
@@ -326,31 +1026,4 @@ public class WriteService {
 
         return sanitized;
     }
-
-    private void applySubEntityUpdates(Set<String> subEntities,
-                                       Map<String, Object> updates,
-                                       boolean updateMultiple,
-                                       Supplier<Map<String, Object>> existingDocumentSupplier) {
-        subEntityProcessor.applyUpdateOperations(updates, subEntities, updateMultiple, existingDocumentSupplier);
-    }
-
-    private Map<String, Object> loadSingleDocument(String tableName, FilterResult filterResult) {
-        List<DynamicDocument> documents = repository.findDocuments(
-                tableName,
-                filterResult.getWhereClause(),
-                filterResult.getParameters(),
-                2
-        );
-        return ensureSingleDocument(documents);
-    }
-
-    private Map<String, Object> ensureSingleDocument(List<DynamicDocument> documents) {
-        if (documents == null || documents.isEmpty()) {
-            throw new IllegalArgumentException("No document found matching filter for sub-entity update");
-        }
-        if (documents.size() > 1) {
-            throw new IllegalArgumentException("Multiple documents match filter; cannot apply sub-entity operations safely");
-        }
-        return documents.get(0).toMap();
-    }
 }
@@ -20,6 +20,7 @@ import java.util.Map;
  * - Validate that write method is allowed for endpoint
  * - Validate filters (if present)
  * - Validate documents against JSON Schema (if configured)
+ * - Validate each operation of a BULK request the same way
  */
 @Service
 public class WriteValidator {
@@ -38,18 +39,29 @@ public class WriteValidator {
         logger.debug("Validating {} request for endpoint: {}", request.getType(), endpoint.getName());
 
         List<String> errors = new ArrayList<>();
-
-        if (!endpoint.isWriteMethodAllowed(request.getHttpMethod())) {
-            errors.add("Write method " + request.getHttpMethod() + " is not allowed for this endpoint");
-            return ValidationResult.failure(errors);
+        List<WriteRequest> operations = request.getOperations();
+        for (int index = 0; index < operations.size(); index++) {
+            WriteRequest operation = operations.get(index);
+            String prefix = operation == request ? "" : "operations[" + index + "]: ";
+            validateOperation(operation, endpoint).forEach(error -> errors.add(prefix + error));
         }
 
-        validateFilter(request, endpoint, errors);
-        validateSchema(request, endpoint, errors);
-
         return errors.isEmpty() ? ValidationResult.success() : ValidationResult.failure(errors);
     }
 
+    private List<String> validateOperation(WriteRequest operation, Endpoint endpoint) {
+        List<String> errors = new ArrayList<>();
+
+        if (!endpoint.isWriteMethodAllowed(operation.getHttpMethod())) {
+            errors.add("Write method " + operation.getHttpMethod() + " is not allowed for this endpoint");
+            return errors;
+        }
+
+        validateFilter(operation, endpoint, errors);
+        validateSchema(operation, endpoint, errors);
+        return errors;
+    }
+
     private void validateFilter(WriteRequest request, Endpoint endpoint, List<String> errors) {
         if (request.getFilter() != null && !request.getFilter().isEmpty()) {
             errors.addAll(filterValidator.validate(request.getFilter(), endpoint.getWriteFilterConfig()));
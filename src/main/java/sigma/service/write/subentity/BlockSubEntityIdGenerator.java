@@ -0,0 +1,72 @@
+package sigma.service.write.subentity;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sigma.persistence.repository.SubEntityRowRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SubEntityIdGenerator} that reserves blocks of ids from the database (hi/lo).
+ * Each value h of sub_entity_id_seq owns the ids [h * blockSize, (h + 1) * blockSize), so instances
+ * of a cluster never hand out the same id and a restart simply takes a fresh block.
+ * Ids within a block are handed out lock-free; only the thread that exhausts a block reserves the next.
+ * The block size may be raised between deployments but never lowered, as lower blocks would overlap
+ * ranges already handed out.
+ */
+@Component
+public class BlockSubEntityIdGenerator implements SubEntityIdGenerator {
+
+    private final SubEntityRowRepository rowRepository;
+    private final MeterRegistry meterRegistry;
+    private final long blockSize;
+    private volatile IdBlock block = IdBlock.EXHAUSTED;
+
+    public BlockSubEntityIdGenerator(SubEntityRowRepository rowRepository, MeterRegistry meterRegistry,
+                                     @Value("${sigma.write.sub-entity-id.block-size:1000}") long blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("sigma.write.sub-entity-id.block-size must be positive");
+        }
+        this.rowRepository = rowRepository;
+        this.meterRegistry = meterRegistry;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Long generate() {
+        while (true) {
+            IdBlock current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            reserve(current);
+        }
+    }
+
+    /**
+     * Replaces the exhausted block, unless another thread already did
+     */
+    private synchronized void reserve(IdBlock exhausted) {
+        if (block != exhausted) {
+            return;
+        }
+        long start = Math.multiplyExact(rowRepository.nextIdBlock(), blockSize);
+        block = new IdBlock(start, start + blockSize);
+        meterRegistry.counter("sigma.write.sub-entity-id.blocks").increment();
+    }
+
+    private static final class IdBlock {
+
+        private static final IdBlock EXHAUSTED = new IdBlock(0, 0);
+
+        private final AtomicLong next;
+        private final long end;
+
+        private IdBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package sigma.service.write.subentity;
 
+import sigma.model.update.SubEntityChange;
+
 import java.util.Map;
 
 /**
@@ -19,4 +21,10 @@ class CreateSubEntityCommand implements SubEntityCommand {
     public void apply(SubEntityCollection collection) {
         collection.addNew(requestedId, attributes);
     }
+
+    @Override
+    public SubEntityChange compile(SubEntityIdGenerator idGenerator) {
+        Long id = requestedId != null ? requestedId : idGenerator.generate();
+        return SubEntityChange.append(id, new SubEntityRecord(id, false, attributes).toDocument());
+    }
 }
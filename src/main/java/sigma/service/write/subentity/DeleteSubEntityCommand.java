@@ -1,5 +1,7 @@
 package sigma.service.write.subentity;
 
+import sigma.model.update.SubEntityChange;
+
 /**
  * Command that marks an existing sub-entity entry as logically deleted.
  */
@@ -15,4 +17,9 @@ class DeleteSubEntityCommand implements SubEntityCommand {
     public void apply(SubEntityCollection collection) {
         collection.delete(id);
     }
+
+    @Override
+    public SubEntityChange compile(SubEntityIdGenerator idGenerator) {
+        return SubEntityChange.delete(id);
+    }
 }
@@ -1,9 +1,16 @@
 package sigma.service.write.subentity;
 
+import sigma.model.update.SubEntityChange;
+
 /**
  * Command representing a mutation to a sub-entity collection.
  */
 interface SubEntityCommand {
 
     void apply(SubEntityCollection collection);
+
+    /**
+     * Compiles the command into a change the database applies in place, without loading the collection
+     */
+    SubEntityChange compile(SubEntityIdGenerator idGenerator);
 }
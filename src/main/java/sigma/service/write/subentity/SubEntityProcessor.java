@@ -1,7 +1,10 @@
 package sigma.service.write.subentity;
 
+import sigma.model.update.SubEntityChange;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -82,6 +85,47 @@ public class SubEntityProcessor {
         }
     }
 
+    /**
+     * Moves the sub-entity fields out of updates and compiles their operations into in-place changes,
+     * so the parent document does not have to be loaded and rewritten from the application.
+     * Returns the changes per sub-entity field; empty when the update touches no sub-entity.
+     */
+    public Map<String, List<SubEntityChange>> compileUpdateOperations(Map<String, Object> updates,
+                                                                      Set<String> subEntityFields,
+                                                                      boolean updateMultiple) {
+        Map<String, List<SubEntityChange>> changesByField = new LinkedHashMap<>();
+        if (subEntityFields == null || subEntityFields.isEmpty()) {
+            return changesByField;
+        }
+        for (String field : subEntityFields) {
+            if (!updates.containsKey(field)) {
+                continue;
+            }
+            if (updateMultiple) {
+                throw new IllegalArgumentException("Sub-entity updates require updateMultiple=false");
+            }
+            List<?> payload = ensureList(field, updates.remove(field));
+            List<SubEntityChange> changes = new ArrayList<>(payload.size());
+            Set<Long> touchedIds = new HashSet<>();
+            for (Object item : payload) {
+                if (!(item instanceof Map<?, ?> itemMap)) {
+                    throw new IllegalArgumentException(
+                            "Sub-entity field '" + field + "' must contain JSON objects");
+                }
+                SubEntityChange change = commandFactory.createForModify(field, itemMap).compile(idGenerator);
+                if (!touchedIds.add(change.id())) {
+                    throw new IllegalArgumentException("Sub-entity with id '" + change.id()
+                            + "' is changed more than once for field '" + field + "'");
+                }
+                changes.add(change);
+            }
+            if (!changes.isEmpty()) {
+                changesByField.put(field, changes);
+            }
+        }
+        return changesByField;
+    }
+
     public Map<String, Object> prepareForUpsertCreate(Map<String, Object> document, Set<String> subEntityFields) {
         Map<String, Object> processed = prepareForCreate(document, subEntityFields);
         processed.put("isDeleted", false);
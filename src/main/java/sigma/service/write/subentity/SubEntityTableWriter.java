@@ -0,0 +1,143 @@
+package sigma.service.write.subentity;
+
+import sigma.model.DynamicDocument;
+import sigma.model.Endpoint;
+import sigma.model.update.SubEntityChange;
+import sigma.persistence.repository.SubEntityRowRepository;
+import sigma.persistence.repository.SubEntityRowRepository.SubEntityRow;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps sub-entity arrays of endpoints with subEntityStorage TABLE in dynamic_sub_entities.
+ * Arrays are moved out of documents before they are written and stored as rows, in the
+ * caller's write transaction; sub-entity changes then update only the rows they target.
+ * For other endpoints every method is a no-op.
+ */
+@Component
+public class SubEntityTableWriter {
+
+    private final SubEntityRowRepository rowRepository;
+    private final Map<SubEntityChange.Kind, RowChange> rowChanges;
+
+    public SubEntityTableWriter(SubEntityRowRepository rowRepository) {
+        this.rowRepository = rowRepository;
+        this.rowChanges = Map.of(
+            SubEntityChange.Kind.APPEND, (parentId, field, change) -> {
+                rowRepository.insertAll(List.of(toRow(parentId, field, change.value())));
+                return true;
+            },
+            SubEntityChange.Kind.MERGE, (parentId, field, change) ->
+                rowRepository.merge(parentId, field, change.id(), change.value()),
+            SubEntityChange.Kind.DELETE, (parentId, field, change) ->
+                rowRepository.markDeleted(parentId, field, change.id())
+        );
+    }
+
+    /**
+     * Removes the sub-entity arrays from the documents before they are inserted.
+     * Returns the arrays per document, in document order; pass them to {@link #store} once ids are known.
+     */
+    public List<Map<String, List<Map<String, Object>>>> detach(Endpoint endpoint, List<DynamicDocument> documents) {
+        if (!endpoint.storesSubEntitiesInTable()) {
+            return List.of();
+        }
+        List<Map<String, List<Map<String, Object>>>> detached = new ArrayList<>(documents.size());
+        for (DynamicDocument document : documents) {
+            detached.add(detach(endpoint, document.getDynamicFields()));
+        }
+        return detached;
+    }
+
+    /**
+     * Removes the sub-entity arrays from a document map before it is written
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, List<Map<String, Object>>> detach(Endpoint endpoint, Map<String, Object> document) {
+        Map<String, List<Map<String, Object>>> arrays = new LinkedHashMap<>();
+        if (!endpoint.storesSubEntitiesInTable()) {
+            return arrays;
+        }
+        for (String field : endpoint.getSubEntities()) {
+            Object value = document.remove(field);
+            if (value != null) {
+                arrays.put(field, (List<Map<String, Object>>) value);
+            }
+        }
+        return arrays;
+    }
+
+    /**
+     * Inserts the detached arrays as rows of the now inserted documents, in one batch,
+     * and puts the arrays back so the documents mirror what clients will read.
+     */
+    public void store(Endpoint endpoint, List<DynamicDocument> documents,
+                      List<Map<String, List<Map<String, Object>>>> detached) {
+        if (!endpoint.storesSubEntitiesInTable()) {
+            return;
+        }
+        List<SubEntityRow> rows = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            DynamicDocument document = documents.get(i);
+            detached.get(i).forEach((field, elements) -> {
+                elements.forEach(element -> rows.add(toRow(document.getId(), field, element)));
+                document.getDynamicFields().put(field, elements);
+            });
+        }
+        rowRepository.insertAll(rows);
+    }
+
+    /**
+     * Applies the changes to the rows of one parent document, stopping at the first one that does not match.
+     *
+     * @throws IllegalArgumentException when an element is missing, already deleted or (for appends)
+     *                                  already present; the caller's transaction rolls back
+     */
+    public void apply(Long parentId, Map<String, List<SubEntityChange>> changesByField) {
+        changesByField.forEach((field, changes) -> {
+            for (SubEntityChange change : changes) {
+                if (!applyChange(parentId, field, change)) {
+                    throw new IllegalArgumentException("Sub-entity operation " + change.kind() + " " + change.id()
+                            + " on field '" + field + "' does not match the stored entries"
+                            + " (updated and deleted ids must exist and be live, new ids must be unused)");
+                }
+            }
+        });
+    }
+
+    /**
+     * Attaches the stored arrays to documents returned by a write
+     */
+    public void attach(Endpoint endpoint, List<Map<String, Object>> documents) {
+        if (endpoint.storesSubEntitiesInTable()) {
+            rowRepository.attachTo(documents, endpoint.getSubEntities());
+        }
+    }
+
+    private boolean applyChange(Long parentId, String field, SubEntityChange change) {
+        try {
+            return rowChanges.get(change.kind()).apply(parentId, field, change);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private static SubEntityRow toRow(Long parentId, String field, Map<String, Object> element) {
+        Object id = element.get("id");
+        if (!(id instanceof Number subId)) {
+            throw new IllegalArgumentException("Sub-entity in field '" + field + "' has no numeric id");
+        }
+        return new SubEntityRow(parentId, field, subId.longValue(), Boolean.TRUE.equals(element.get("isDeleted")),
+                element);
+    }
+
+    @FunctionalInterface
+    private interface RowChange {
+        boolean apply(Long parentId, String field, SubEntityChange change);
+    }
+}
@@ -1,5 +1,7 @@
 package sigma.service.write.subentity;
 
+import sigma.model.update.SubEntityChange;
+
 import java.util.Map;
 
 /**
@@ -19,4 +21,9 @@ class UpdateSubEntityCommand implements SubEntityCommand {
     public void apply(SubEntityCollection collection) {
         collection.update(id, attributes);
     }
+
+    @Override
+    public SubEntityChange compile(SubEntityIdGenerator idGenerator) {
+        return SubEntityChange.merge(id, attributes);
+    }
 }
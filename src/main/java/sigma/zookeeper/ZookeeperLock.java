@@ -0,0 +1,86 @@
+package sigma.zookeeper;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Non-blocking cluster-wide lock on an ephemeral Zookeeper node.
+ * The node disappears with the holder's session, so a crashed holder never keeps the lock.
+ */
+@Component
+public class ZookeeperLock {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZookeeperLock.class);
+
+    private final ZooKeeper zooKeeper;
+    private final byte[] owner = ManagementFactory.getRuntimeMXBean().getName().getBytes(StandardCharsets.UTF_8);
+
+    public ZookeeperLock(ZooKeeper zooKeeper) {
+        this.zooKeeper = zooKeeper;
+    }
+
+    /**
+     * Takes the lock unless another session holds it
+     *
+     * @return true if this node now holds the lock
+     */
+    public boolean tryAcquire(String lockPath) {
+        try {
+            createParents(lockPath);
+            zooKeeper.create(lockPath, owner, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL);
+            logger.debug("Acquired lock {}", lockPath);
+            return true;
+        } catch (KeeperException.NodeExistsException e) {
+            logger.debug("Lock {} is held by another node", lockPath);
+            return false;
+        } catch (KeeperException e) {
+            logger.warn("Could not acquire lock {}: {}", lockPath, e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Releases the lock if this session holds it
+     */
+    public void release(String lockPath) {
+        try {
+            Stat stat = zooKeeper.exists(lockPath, false);
+            if (stat != null && stat.getEphemeralOwner() == zooKeeper.getSessionId()) {
+                zooKeeper.delete(lockPath, stat.getVersion());
+                logger.debug("Released lock {}", lockPath);
+            }
+        } catch (KeeperException e) {
+            // The node goes away with the session anyway
+            logger.warn("Could not release lock {}: {}", lockPath, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void createParents(String lockPath) throws KeeperException, InterruptedException {
+        int slash = lockPath.indexOf('/', 1);
+        while (slash > 0) {
+            String parent = lockPath.substring(0, slash);
+            if (zooKeeper.exists(parent, false) == null) {
+                try {
+                    zooKeeper.create(parent, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                } catch (KeeperException.NodeExistsException e) {
+                    // Created concurrently by another node
+                }
+            }
+            slash = lockPath.indexOf('/', slash + 1);
+        }
+    }
+}
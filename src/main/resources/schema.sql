@@ -10,7 +10,8 @@ CREATE TABLE IF NOT EXISTS dynamic_documents (
     last_modified_by VARCHAR(255),
     created_at TIMESTAMP WITH TIME ZONE,
     last_modified_at TIMESTAMP WITH TIME ZONE,
-    sequence_number BIGINT NOT NULL DEFAULT 0
+    sequence_number BIGINT NOT NULL DEFAULT 0,
+    content_hash VARCHAR(64)
 );
 
 -- Indexes for common query patterns
@@ -40,3 +41,33 @@ CREATE TRIGGER trg_update_sequence_number
     BEFORE INSERT OR UPDATE ON dynamic_documents
     FOR EACH ROW
     EXECUTE FUNCTION update_sequence_number();
+
+-- Stored write responses, replayed when a client retries with the same X-Request-ID
+CREATE TABLE IF NOT EXISTS write_idempotency (
+    request_id VARCHAR(255) NOT NULL,
+    endpoint VARCHAR(255) NOT NULL,
+    response_type VARCHAR(32) NOT NULL,
+    response TEXT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (request_id, endpoint)
+);
+CREATE INDEX IF NOT EXISTS idx_write_idempotency_created_at ON write_idempotency(created_at);
+
+-- Soft-deleted documents moved out of dynamic_documents after their collection's retention.
+-- Rows keep their sequence_number and serve as the delete tombstones of the sequence feed.
+CREATE TABLE IF NOT EXISTS dynamic_documents_archive (
+    id BIGINT PRIMARY KEY,
+    table_name VARCHAR(255) NOT NULL,
+    data JSONB,
+    version BIGINT,
+    is_deleted BOOLEAN,
+    latest_request_id VARCHAR(255),
+    created_by VARCHAR(255),
+    last_modified_by VARCHAR(255),
+    created_at TIMESTAMP WITH TIME ZONE,
+    last_modified_at TIMESTAMP WITH TIME ZONE,
+    sequence_number BIGINT NOT NULL,
+    content_hash VARCHAR(64),
+    archived_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_dynamic_documents_archive_sequence ON dynamic_documents_archive(table_name, sequence_number);
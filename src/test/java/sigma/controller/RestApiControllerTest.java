@@ -1,5 +1,7 @@
 package sigma.controller;
 
+import sigma.dto.request.BulkWriteRequest;
+import sigma.dto.request.ClaimRequest;
 import sigma.dto.request.QueryRequest;
 import sigma.dto.request.WriteRequest;
 import sigma.dto.response.QueryResponse;
@@ -16,6 +18,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -134,6 +139,74 @@ class RestApiControllerTest {
         assertNotNull(response);
     }
     
+    /**
+     * Tests POST {endpoint}/_bulk routes to the bulk parser regardless of the POST write method
+     */
+    @Test
+    void testPostBulkActionRoutesToBulkWrite() {
+        // Given: A _bulk path; each operation is validated later, so POST need not be a write method
+        BulkWriteRequest bulkRequest = new BulkWriteRequest(List.of(), "req-123", true);
+        String body = "{\"operations\": [{\"create\": {\"name\": \"Alice\"}}]}";
+        when(requestParser.parseBulkWrite(eq(body), any())).thenReturn(bulkRequest);
+        when(orchestrator.executeWrite(any(), any())).thenReturn(writeResponse);
+        when(responseBuilder.buildWrite(any())).thenReturn(ResponseEntity.ok().build());
+
+        // When: POST request received on the bulk action
+        ResponseEntity<?> response = controller.handleRestRequest("POST", "/test/_bulk", body, endpoint, httpRequest);
+
+        // Then: Should be executed as one bulk write
+        verify(orchestrator).executeWrite(eq(bulkRequest), eq(endpoint));
+        verify(requestParser, never()).parseWrite(any(), any(), any(), any());
+        verify(requestParser, never()).parse(any(), any(), any(), any());
+        verify(endpoint, never()).isWriteMethodAllowed(any());
+        assertNotNull(response);
+    }
+
+    /**
+     * Tests POST {endpoint}/_claim routes to the claim parser instead of a create or filtered read
+     */
+    @Test
+    void testPostClaimActionRoutesToClaim() {
+        // Given: A _claim path
+        ClaimRequest claimRequest = new ClaimRequest(Map.of("status", "PENDING"), Map.of("status", "RUNNING"), 5,
+                "req-123");
+        String body = "{\"filter\": {\"status\": \"PENDING\"}, \"limit\": 5, \"set\": {\"status\": \"RUNNING\"}}";
+        when(requestParser.parseClaim(eq(body), any(), eq(endpoint))).thenReturn(claimRequest);
+        when(orchestrator.executeWrite(any(), any())).thenReturn(writeResponse);
+        when(responseBuilder.buildWrite(any())).thenReturn(ResponseEntity.ok().build());
+
+        // When: POST request received on the claim action
+        ResponseEntity<?> response = controller.handleRestRequest("POST", "/test/_claim", body, endpoint, httpRequest);
+
+        // Then: Executed as a claim, never as a create or a read
+        verify(orchestrator).executeWrite(eq(claimRequest), eq(endpoint));
+        verify(requestParser, never()).parseWrite(any(), any(), any(), any());
+        verify(requestParser, never()).parse(any(), any(), any(), any());
+        assertNotNull(response);
+    }
+
+    /**
+     * Tests Prefer: respond-async queues the write instead of executing it on the request thread
+     */
+    @Test
+    void testRespondAsyncSubmitsWrite() {
+        // Given: A write with the async preference
+        when(endpoint.isWriteMethodAllowed("POST")).thenReturn(true);
+        when(requestParser.parseWrite(eq("POST"), any(), any(), any())).thenReturn(writeRequest);
+        when(requestParser.isRespondAsync(httpRequest)).thenReturn(true);
+        when(orchestrator.submitWrite(writeRequest, endpoint)).thenReturn(writeResponse);
+        when(responseBuilder.buildWrite(writeResponse)).thenReturn(ResponseEntity.accepted().build());
+
+        // When: POST request received
+        ResponseEntity<?> response = controller.handleRestRequest(
+            "POST", "/test", "{\"name\": \"Alice\"}", endpoint, httpRequest);
+
+        // Then: Submitted, not executed
+        verify(orchestrator).submitWrite(writeRequest, endpoint);
+        verify(orchestrator, never()).executeWrite(any(), any());
+        assertNotNull(response);
+    }
+
     /**
      * Tests that GET is always treated as READ
      */
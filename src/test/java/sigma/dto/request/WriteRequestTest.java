@@ -212,4 +212,56 @@ class WriteRequestTest {
         assertEquals(1, result.size());
         assertTrue(result.get(0).isEmpty());
     }
+
+    /**
+     * Tests requests without conditional headers carry no precondition
+     */
+    @Test
+    void testWriteRequestsDefaultToNoPrecondition() {
+        // Given: Requests built without a precondition
+        WriteRequest create = new CreateRequest(Map.of("name", "Alice"), "req-123");
+        WriteRequest update = new UpdateRequest(Map.of("id", 1), Map.of("name", "Bob"), "req-123", false);
+
+        // Then: Both report no precondition
+        assertFalse(create.getPrecondition().isPresent());
+        assertFalse(update.getPrecondition().isPresent());
+    }
+
+    /**
+     * Tests If-Match / If-None-Match preconditions against the stored version
+     */
+    @Test
+    void testPreconditionIsSatisfiedByVersion() {
+        // Given: The three precondition forms
+        WritePrecondition ifVersion = WritePrecondition.ifVersion(3L);
+        WritePrecondition ifExists = WritePrecondition.ifExists();
+        WritePrecondition ifAbsent = WritePrecondition.ifAbsent();
+
+        // Then: Only a matching version (or any version for *) satisfies If-Match
+        assertTrue(ifVersion.isSatisfiedBy(3L));
+        assertFalse(ifVersion.isSatisfiedBy(4L));
+        assertTrue(WritePrecondition.ifVersion(0L).isSatisfiedBy(null));
+        assertTrue(ifExists.isSatisfiedBy(7L));
+        assertFalse(ifAbsent.isSatisfiedBy(7L));
+        assertEquals(ifVersion, new UpsertRequest(Map.of(), Map.of(), "req-123", ifVersion).getPrecondition());
+    }
+
+    /**
+     * Tests single requests are their own operation and BULK exposes its operations in order
+     */
+    @Test
+    void testBulkRequestExposesOrderedOperations() {
+        // Given: A single create and a bulk wrapping a create and a delete
+        WriteRequest create = new CreateRequest(Map.of("name", "Alice"), "req-123");
+        WriteRequest delete = new DeleteRequest(Map.of("id", 1), "req-123", false);
+        BulkWriteRequest bulk = new BulkWriteRequest(List.of(create, delete), "req-123", false);
+
+        // Then: The single request is its own operation; the bulk keeps order and carries no filter
+        assertEquals(List.of(create), create.getOperations());
+        assertEquals(List.of(create, delete), bulk.getOperations());
+        assertEquals(WriteRequest.WriteType.BULK, bulk.getType());
+        assertFalse(bulk.isOrdered());
+        assertNull(bulk.getFilter());
+        assertNull(bulk.getDocumentsForValidation());
+    }
 }
@@ -0,0 +1,149 @@
+package sigma.filter;
+
+import sigma.model.filter.FilterConfig;
+import sigma.model.filter.FilterOperator;
+import sigma.model.filter.FilterShape;
+import sigma.model.filter.SqlPredicate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for FilterCompilationCache - shape keys, LRU bound and metrics
+ */
+class FilterCompilationCacheTest {
+
+    private FilterParser parser;
+    private SimpleMeterRegistry meterRegistry;
+    private FilterCompilationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        parser = spy(new FilterParser());
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new FilterCompilationCache(parser, new FilterOptimizer(true), meterRegistry, 2);
+    }
+
+    /**
+     * Tests filters differing only in their literals share one parsed entry
+     */
+    @Test
+    void testSameShapeIsParsedOnce() {
+        // Given
+        Map<String, Object> first = Map.of("status", "shipped");
+        Map<String, Object> second = Map.of("status", "pending");
+
+        // When
+        CompiledFilter compiledFirst = cache.get(parser.shapeOf(first), first);
+        CompiledFilter compiledSecond = cache.get(parser.shapeOf(second), second);
+
+        // Then
+        assertSame(compiledFirst, compiledSecond);
+        verify(parser, times(1)).parse(anyMap());
+        assertEquals(1.0, meterRegistry.counter("sigma.query.filter-cache", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("sigma.query.filter-cache", "result", "miss").count());
+    }
+
+    /**
+     * Tests a request binds its own literals when an earlier request of its shape only validated,
+     * so the cached tree still holds the earlier request's values
+     */
+    @Test
+    void testFirstTranslationBindsItsOwnLiterals() {
+        // Given: A rejected request created the entry without translating it
+        Map<String, Object> validated = Map.of("status", "shipped");
+        cache.get(parser.shapeOf(validated), validated);
+        Map<String, Object> translated = Map.of("status", "pending");
+        FilterShape shape = parser.shapeOf(translated);
+
+        // When
+        SqlPredicate predicate = cache.get(shape, translated).toPredicate(shape.getLiterals());
+
+        // Then
+        assertEquals("pending", predicate.getParameters().get("status_1"));
+    }
+
+    /**
+     * Tests literal kinds are part of the shape, since validation depends on them
+     */
+    @Test
+    void testLiteralKindChangesShape() {
+        // Given
+        FilterShape number = parser.shapeOf(Map.of("total", Map.of("gt", 5)));
+        FilterShape list = parser.shapeOf(Map.of("total", Map.of("gt", List.of(5))));
+
+        // Then
+        assertNotEquals(number.getKey(), list.getKey());
+        assertEquals(List.of(5), number.getLiterals());
+    }
+
+    /**
+     * Tests the least recently used shape is evicted past the cache size
+     */
+    @Test
+    void testEvictsLeastRecentlyUsedShape() {
+        // Given: A cache of two entries
+        Map<String, Object> a = Map.of("a", 1);
+        Map<String, Object> b = Map.of("b", 1);
+        Map<String, Object> c = Map.of("c", 1);
+        cache.get(parser.shapeOf(a), a);
+        cache.get(parser.shapeOf(b), b);
+        cache.get(parser.shapeOf(a), a);
+
+        // When
+        cache.get(parser.shapeOf(c), c);
+        cache.get(parser.shapeOf(a), a);
+        cache.get(parser.shapeOf(b), b);
+
+        // Then: c evicted b, then b evicted c, while a stayed
+        assertEquals(2.0, meterRegistry.counter("sigma.query.filter-cache.evictions").count());
+        verify(parser, times(2)).parse(b);
+        verify(parser, times(1)).parse(a);
+    }
+
+    /**
+     * Tests validation runs once per filter config
+     */
+    @Test
+    void testValidationIsKeptPerConfig() {
+        // Given
+        Map<String, Object> filter = Map.of("status", "shipped");
+        FilterConfig config = new FilterConfig(Map.of("status", List.of(FilterOperator.EQ)), true);
+        CompiledFilter compiled = cache.get(parser.shapeOf(filter), filter);
+        AtomicInteger validations = new AtomicInteger();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            compiled.validationErrors(config, c -> {
+                validations.incrementAndGet();
+                return compiled.getTree().validate(c);
+            });
+        }
+
+        // Then
+        assertEquals(1, validations.get());
+    }
+
+    /**
+     * Tests filters that cannot be parsed are not cached
+     */
+    @Test
+    void testParseFailureIsNotCached() {
+        // Given
+        Map<String, Object> filter = Map.of("and", "not-a-list");
+
+        // When
+        assertThrows(IllegalArgumentException.class, () -> cache.get(parser.shapeOf(filter), filter));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(parser.shapeOf(filter), filter));
+
+        // Then
+        verify(parser, times(2)).parse(filter);
+    }
+}
@@ -0,0 +1,336 @@
+package sigma.filter;
+
+import sigma.model.filter.FilterOperator;
+import sigma.model.filter.FilterShape;
+import sigma.model.filter.ParameterNames;
+import sigma.model.filter.SqlPredicate;
+import sigma.model.filter.node.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for FilterOptimizer - rewrites must keep SQL's three-valued semantics and literal bindings
+ */
+class FilterOptimizerTest {
+
+    private static final List<String> FIELDS = List.of("a", "b");
+    private static final List<String> OPERATORS = List.of("eq", "ne", "gt", "gte", "lt", "lte", "in", "nin", "exists");
+
+    private final FilterParser parser = new FilterParser();
+    private final FilterOptimizer optimizer = new FilterOptimizer(true);
+
+    /**
+     * Tests nested ands are flattened and a gte/lte pair split across branches becomes a BETWEEN
+     */
+    @Test
+    void testMergesRangeAcrossAndBranches() {
+        // Given
+        Map<String, Object> filter = Map.of("and", List.of(
+                Map.of("price", Map.of("gte", 10)),
+                Map.of("and", List.of(Map.of("status", "open"), Map.of("price", Map.of("lte", 20))))));
+
+        // When
+        FilterNode optimized = optimizer.optimize(parser.parse(filter));
+
+        // Then
+        LogicalFilterNode and = assertInstanceOf(LogicalFilterNode.class, optimized);
+        assertEquals(FilterOperator.AND, and.getOperator());
+        assertEquals(2, and.getChildren().size());
+        BetweenFilterNode between = assertInstanceOf(BetweenFilterNode.class, and.getChildren().get(0));
+        assertEquals(10, between.getLow());
+        assertEquals(20, between.getHigh());
+        assertTrue(optimized.toPredicate(new ParameterNames()).getSql().contains("BETWEEN"));
+    }
+
+    /**
+     * Tests ored equalities on one field collapse into a single IN
+     */
+    @Test
+    void testCollapsesOredEqualitiesIntoIn() {
+        // Given
+        List<Object> conditions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            conditions.add(Map.of("status", "s" + i));
+        }
+
+        // When
+        FilterNode optimized = optimizer.optimize(parser.parse(Map.of("or", conditions)));
+
+        // Then
+        InFilterNode in = assertInstanceOf(InFilterNode.class, optimized);
+        assertEquals(200, in.getValues().size());
+        SqlPredicate predicate = optimized.toPredicate(new ParameterNames());
+        assertEquals(Set.of("status_1", "status_1_json"), predicate.getParameters().keySet());
+        assertTrue(predicate.getSql().contains(" IN ("));
+    }
+
+    /**
+     * Tests not is folded into range comparisons but kept around equalities
+     */
+    @Test
+    void testFoldsNotOnlyWhereExact() {
+        // When
+        FilterNode range = optimizer.optimize(parser.parse(Map.of("not", Map.of("price", Map.of("gt", 5)))));
+        FilterNode equality = optimizer.optimize(parser.parse(Map.of("not", Map.of("price", 5))));
+
+        // Then: ne also matches missing fields, so not(eq) cannot become ne
+        ComparisonFilterNode lte = assertInstanceOf(ComparisonFilterNode.class, range);
+        assertEquals(FilterOperator.LTE, lte.getOperator());
+        LogicalFilterNode not = assertInstanceOf(LogicalFilterNode.class, equality);
+        assertEquals(FilterOperator.NOT, not.getOperator());
+    }
+
+    /**
+     * Tests always-true terms are dropped and constant branches fold away
+     */
+    @Test
+    void testPrunesConstantTerms() {
+        // Given: {} is 1=1 and an empty or is 1=0
+        Map<String, Object> filter = Map.of("and", List.of(
+                Map.of(),
+                Map.of("status", "open"),
+                Map.of("or", List.of(Map.of("nor", List.of()), Map.of("status", "closed")))));
+
+        // When
+        FilterNode optimized = optimizer.optimize(parser.parse(filter));
+
+        // Then
+        ComparisonFilterNode status = assertInstanceOf(ComparisonFilterNode.class, optimized);
+        assertEquals("open", status.getValue());
+    }
+
+    /**
+     * Tests a disabled optimizer returns the parsed tree as is
+     */
+    @Test
+    void testDisabledOptimizerKeepsTree() {
+        // Given
+        FilterNode tree = parser.parse(Map.of("or", List.of(Map.of("status", "a"), Map.of("status", "b"))));
+
+        // When / Then
+        assertSame(tree, new FilterOptimizer(false).optimize(tree));
+    }
+
+    /**
+     * Tests random filters evaluate the same before and after optimizing on every sample document,
+     * and every parameter of the optimized SQL is bound from the right request literal
+     */
+    @Test
+    void testRandomFiltersAreEquivalent() {
+        // Given
+        Random random = new Random(42);
+        List<Map<String, Object>> documents = sampleDocuments();
+
+        for (int i = 0; i < 2000; i++) {
+            Map<String, Object> filter = randomFilter(random, 3);
+            FilterNode original = parser.parse(filter);
+
+            // When
+            FilterNode optimized = optimizer.optimize(original);
+
+            // Then
+            for (Map<String, Object> document : documents) {
+                assertEquals(evaluate(original, document), evaluate(optimized, document),
+                        () -> "filter " + filter + " on " + document + " optimized to " + optimized);
+            }
+            assertSlotsBindLiterals(filter, optimized);
+        }
+    }
+
+    private void assertSlotsBindLiterals(Map<String, Object> filter, FilterNode optimized) {
+        FilterShape shape = parser.shapeOf(filter);
+        ParameterNames names = new ParameterNames();
+        SqlPredicate predicate = optimized.toPredicate(names);
+        assertEquals(predicate.getParameters().keySet(),
+                names.getSlots().stream().map(ParameterNames.Slot::name).collect(Collectors.toSet()),
+                () -> "parameters without a slot in " + filter);
+        for (ParameterNames.Slot slot : names.getSlots()) {
+            assertEquals(predicate.getParameters().get(slot.name()), slot.bind(shape.getLiterals()),
+                    () -> "slot " + slot.name() + " of " + filter);
+        }
+    }
+
+    private static List<Map<String, Object>> sampleDocuments() {
+        List<Object> values = new ArrayList<>(List.of(1, 2, 3));
+        values.add(null); // missing field
+        List<Map<String, Object>> documents = new ArrayList<>();
+        for (Object a : values) {
+            for (Object b : values) {
+                Map<String, Object> document = new HashMap<>();
+                if (a != null) document.put("a", a);
+                if (b != null) document.put("b", b);
+                documents.add(document);
+            }
+        }
+        return documents;
+    }
+
+    private static Map<String, Object> randomFilter(Random random, int depth) {
+        Map<String, Object> filter = new LinkedHashMap<>();
+        int keys = random.nextInt(3);
+        for (int k = 0; k <= keys; k++) {
+            int choice = random.nextInt(depth > 0 ? 8 : 4);
+            if (choice < 4) {
+                String field = FIELDS.get(random.nextInt(FIELDS.size()));
+                filter.putIfAbsent(field, randomOperators(random));
+            } else {
+                String operator = List.of("and", "or", "nor", "not").get(choice - 4);
+                if (operator.equals("not")) {
+                    filter.putIfAbsent(operator, randomFilter(random, depth - 1));
+                } else {
+                    List<Object> conditions = new ArrayList<>();
+                    int count = random.nextInt(4);
+                    for (int c = 0; c < count; c++) {
+                        conditions.add(randomFilter(random, depth - 1));
+                    }
+                    filter.putIfAbsent(operator, conditions);
+                }
+            }
+        }
+        return filter;
+    }
+
+    private static Object randomOperators(Random random) {
+        if (random.nextInt(3) == 0) {
+            return 1 + random.nextInt(4); // { "a": null } is not supported by the parser
+        }
+        Map<String, Object> operators = new LinkedHashMap<>();
+        int count = random.nextInt(3);
+        for (int i = 0; i <= count; i++) {
+            String operator = OPERATORS.get(random.nextInt(OPERATORS.size()));
+            Object value;
+            if (operator.equals("exists")) {
+                value = random.nextBoolean();
+            } else if (operator.equals("in") || operator.equals("nin")) {
+                value = Arrays.asList(randomValue(random), randomValue(random));
+            } else {
+                value = randomValue(random);
+            }
+            operators.putIfAbsent(operator, value);
+        }
+        return operators;
+    }
+
+    private static Object randomValue(Random random) {
+        int value = random.nextInt(5);
+        return value == 0 ? null : value;
+    }
+
+    // Three-valued evaluation of a filter tree the way the generated SQL behaves; null is UNKNOWN
+
+    private static Boolean evaluate(FilterNode node, Map<String, Object> document) {
+        if (node instanceof FieldFilterNode field) {
+            List<Boolean> results = new ArrayList<>();
+            field.getOperators().forEach((operator, value) ->
+                    results.add(compare(document.get(field.getFieldName()), FilterOperator.fromString(operator), value)));
+            return and(results);
+        }
+        if (node instanceof ComparisonFilterNode comparison) {
+            return compare(document.get(comparison.getFieldName()), comparison.getOperator(), comparison.getValue());
+        }
+        if (node instanceof InFilterNode in) {
+            return compare(document.get(in.getFieldName()), FilterOperator.IN, in.getValues());
+        }
+        if (node instanceof BetweenFilterNode between) {
+            Object value = document.get(between.getFieldName());
+            return and(Arrays.asList(compare(value, FilterOperator.GTE, between.getLow()),
+                    compare(value, FilterOperator.LTE, between.getHigh())));
+        }
+        if (node instanceof CompositeFilterNode composite) {
+            return and(evaluateAll(composite.getChildren(), document));
+        }
+        LogicalFilterNode logical = (LogicalFilterNode) node;
+        List<Boolean> children = evaluateAll(logical.getChildren(), document);
+        switch (logical.getOperator()) {
+            case AND:
+                return and(children);
+            case OR:
+                return or(children);
+            case NOR:
+                return not(or(children));
+            default:
+                return children.isEmpty() ? Boolean.TRUE : not(children.get(0));
+        }
+    }
+
+    private static List<Boolean> evaluateAll(List<FilterNode> nodes, Map<String, Object> document) {
+        List<Boolean> results = new ArrayList<>();
+        for (FilterNode node : nodes) {
+            results.add(evaluate(node, document));
+        }
+        return results;
+    }
+
+    private static Boolean compare(Object field, FilterOperator operator, Object value) {
+        switch (operator) {
+            case EXISTS:
+                return (field != null) == (Boolean) value;
+            case EQ:
+                return field == null || value == null ? null : field.toString().equals(value.toString());
+            case NE:
+                return field == null ? Boolean.TRUE : not(compare(field, FilterOperator.EQ, value));
+            case IN: {
+                List<Boolean> matches = new ArrayList<>();
+                for (Object candidate : (List<?>) value) {
+                    matches.add(compare(field, FilterOperator.EQ, candidate));
+                }
+                return or(matches);
+            }
+            case NIN:
+                return field == null ? Boolean.TRUE : not(compare(field, FilterOperator.IN, value));
+            default: {
+                if (field == null || value == null) {
+                    return null;
+                }
+                int order = Double.compare(((Number) field).doubleValue(), ((Number) value).doubleValue());
+                return switch (operator) {
+                    case GT -> order > 0;
+                    case GTE -> order >= 0;
+                    case LT -> order < 0;
+                    default -> order <= 0;
+                };
+            }
+        }
+    }
+
+    private static Boolean and(List<Boolean> values) {
+        Boolean result = Boolean.TRUE;
+        for (Boolean value : values) {
+            if (Boolean.FALSE.equals(value)) {
+                return Boolean.FALSE;
+            }
+            if (value == null) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    private static Boolean or(List<Boolean> values) {
+        Boolean result = Boolean.FALSE;
+        for (Boolean value : values) {
+            if (Boolean.TRUE.equals(value)) {
+                return Boolean.TRUE;
+            }
+            if (value == null) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    private static Boolean not(Boolean value) {
+        return value == null ? null : !value;
+    }
+}
@@ -2,18 +2,22 @@ package sigma.filter;
 
 import sigma.model.filter.FilterRequest;
 import sigma.model.filter.FilterResult;
+import sigma.model.filter.FilterShape;
 import sigma.model.filter.SqlPredicate;
-import sigma.model.filter.node.FieldFilterNode;
 import sigma.model.filter.node.FilterNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,11 +26,14 @@ class FilterTranslatorTest {
     @Mock
     private FilterParser filterParser;
 
+    private SimpleMeterRegistry meterRegistry;
+
     private FilterTranslator filterTranslator;
 
     @BeforeEach
     void setUp() {
-        filterTranslator = new FilterTranslator(filterParser);
+        meterRegistry = new SimpleMeterRegistry();
+        filterTranslator = translator(filterParser);
     }
 
     @Test
@@ -45,9 +52,10 @@ class FilterTranslatorTest {
         FilterRequest filterRequest = new FilterRequest(filterMap, options);
 
         FilterNode filterNode = mock(FilterNode.class);
-        SqlPredicate predicate = SqlPredicate.jsonbEquals("field", "value", "param0");
+        SqlPredicate predicate = new SqlPredicate("d.data->>'field' = :param0", "param0", "value");
+        when(filterParser.shapeOf(filterMap)).thenReturn(new FilterShape("{5:field", List.of("value")));
         when(filterParser.parse(filterMap)).thenReturn(filterNode);
-        when(filterNode.toPredicate()).thenReturn(predicate);
+        when(filterNode.toPredicate(any())).thenReturn(predicate);
 
         // When
         FilterResult result = filterTranslator.translate(filterRequest);
@@ -117,4 +125,198 @@ class FilterTranslatorTest {
         assertNotNull(result.getOrderByClause());
         assertTrue(result.getOrderByClause().contains("ASC"));
     }
+
+    /**
+     * Tests the same filter shape translates to byte-identical SQL with the same parameter names
+     */
+    @Test
+    void testTranslate_SameShapeProducesIdenticalSql() {
+        // Given: A real parser and two requests differing only in their literals
+        filterTranslator = translator(new FilterParser());
+        FilterRequest first = new FilterRequest(shapedFilter("shipped", 10, List.of("a", "b")), null);
+        FilterRequest second = new FilterRequest(shapedFilter("pending", 99, List.of("c", "d")), null);
+
+        // When
+        FilterResult firstResult = filterTranslator.translate(first);
+        FilterResult secondResult = filterTranslator.translate(second);
+
+        // Then
+        assertEquals(firstResult.getWhereClause(), secondResult.getWhereClause());
+        assertEquals(firstResult.getParameters().keySet(), secondResult.getParameters().keySet());
+        assertEquals("pending", secondResult.getParameters().get("status_1"));
+        assertEquals(1.0, meterRegistry.counter("sigma.query.statement-cache", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("sigma.query.statement-cache", "result", "miss").count());
+    }
+
+    /**
+     * Tests GET parameters are numbered per request rather than by a process-wide counter
+     */
+    @Test
+    void testTranslateGetParameters_NamesStartOverPerRequest() {
+        // Given
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("name", "Alice");
+        params.put("age", "30");
+
+        // When
+        FilterResult first = filterTranslator.translateGetParameters(params);
+        FilterResult second = filterTranslator.translateGetParameters(params);
+
+        // Then
+        assertEquals(first.getWhereClause(), second.getWhereClause());
+        assertEquals(Map.of("name_1", "Alice", "age_2", "30",
+                "name_1_json", List.of("{\"name\":\"Alice\"}", "{\"name\":\"Alice\"}"),
+                "age_2_json", List.of("{\"age\":\"30\"}", "{\"age\":30}")), second.getParameters());
+    }
+
+    /**
+     * Tests fields whose sanitized names collide still get distinct parameters
+     */
+    @Test
+    void testTranslateGetParameters_CollidingFieldNamesGetDistinctParameters() {
+        // Given: "a.b" and "a_b" both sanitize to a_b
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("a.b", "x");
+        params.put("a_b", "y");
+
+        // When
+        FilterResult result = filterTranslator.translateGetParameters(params);
+
+        // Then
+        assertEquals("x", result.getParameters().get("a_b_1"));
+        assertEquals("y", result.getParameters().get("a_b_2"));
+        assertEquals(List.of("{\"a.b\":\"x\"}", "{\"a.b\":\"x\"}"), result.getParameters().get("a_b_1_json"));
+        assertEquals(List.of("{\"a_b\":\"y\"}", "{\"a_b\":\"y\"}"), result.getParameters().get("a_b_2_json"));
+    }
+
+    /**
+     * Tests a cached shape binds each request's own literals, converted as the operators would
+     */
+    @Test
+    void testTranslate_CachedShapeBindsNewLiterals() {
+        // Given
+        filterTranslator = translator(new FilterParser());
+        filterTranslator.translate(new FilterRequest(shapedFilter("shipped", 10, List.of("a", "b")), null));
+
+        // When
+        FilterResult result = filterTranslator.translate(
+                new FilterRequest(shapedFilter("pending", 99, List.of(1, 2)), null));
+
+        // Then
+        assertEquals(Map.of("status_1", "pending", "total_2", 99.0, "tag_3", List.of("1", "2"),
+                "status_1_json", List.of("{\"status\":\"pending\"}", "{\"status\":\"pending\"}"),
+                "tag_3_json", List.of("{\"tag\":\"1\"}", "{\"tag\":1}", "{\"tag\":\"2\"}", "{\"tag\":2}")),
+                result.getParameters());
+        assertEquals(1.0, meterRegistry.counter("sigma.query.filter-cache", "result", "hit").count());
+    }
+
+    /**
+     * Tests values written into the SQL (exists) are part of the shape
+     */
+    @Test
+    void testTranslate_InlinedValuesAreNotShared() {
+        // Given
+        filterTranslator = translator(new FilterParser());
+
+        // When
+        FilterResult exists = filterTranslator.translate(
+                new FilterRequest(Map.of("archived", Map.of("exists", true)), null));
+        FilterResult missing = filterTranslator.translate(
+                new FilterRequest(Map.of("archived", Map.of("exists", false)), null));
+
+        // Then
+        assertNotEquals(exists.getWhereClause(), missing.getWhereClause());
+        assertEquals(0.0, meterRegistry.counter("sigma.query.filter-cache", "result", "hit").count());
+    }
+
+    /**
+     * Tests a range split across and-branches is translated as BETWEEN and a cached shape binds its bounds
+     */
+    @Test
+    void testTranslate_CachedRangeBindsBothBounds() {
+        // Given
+        filterTranslator = translator(new FilterParser());
+        filterTranslator.translate(new FilterRequest(rangeFilter(10, "open", 20), null));
+
+        // When
+        FilterResult result = filterTranslator.translate(new FilterRequest(rangeFilter(5, "closed", 50), null));
+
+        // Then
+        assertTrue(result.getWhereClause().contains("BETWEEN"));
+        assertEquals(5.0, result.getParameters().get("price_1"));
+        assertEquals(50.0, result.getParameters().get("price_2"));
+        assertEquals("closed", result.getParameters().get("status_3"));
+    }
+
+    /**
+     * Tests ored equalities on one field are translated as a single IN parameter
+     */
+    @Test
+    void testTranslate_OredEqualitiesBecomeIn() {
+        // Given
+        filterTranslator = translator(new FilterParser());
+        filterTranslator.translate(new FilterRequest(Map.of("or", List.of(
+                Map.of("status", "a"), Map.of("status", "b"), Map.of("status", "c"))), null));
+
+        // When
+        FilterResult result = filterTranslator.translate(new FilterRequest(Map.of("or", List.of(
+                Map.of("status", "d"), Map.of("status", "e"), Map.of("status", "f"))), null));
+
+        // Then
+        assertTrue(result.getWhereClause().contains(" IN ("));
+        assertEquals(List.of("d", "e", "f"), result.getParameters().get("status_1"));
+        assertEquals(6, ((List<?>) result.getParameters().get("status_1_json")).size());
+    }
+
+    /**
+     * Tests equality is ANDed with a JSON containment test the GIN index can serve
+     */
+    @Test
+    void testTranslate_EqualityUsesContainment() {
+        // Given
+        filterTranslator = translator(new FilterParser());
+
+        // When
+        FilterResult result = filterTranslator.translate(new FilterRequest(Map.of("status", "open"), null));
+
+        // Then
+        assertEquals("(d.data @> ANY (CAST(ARRAY[:status_1_json] AS jsonb[])) AND d.data->>'status' = :status_1)",
+                result.getWhereClause());
+    }
+
+    /**
+     * Tests no containment is added under not, where a missing field must stay UNKNOWN rather than FALSE
+     */
+    @Test
+    void testTranslate_NegatedEqualityKeepsTextMatch() {
+        // Given
+        filterTranslator = translator(new FilterParser());
+
+        // When
+        FilterResult result = filterTranslator.translate(new FilterRequest(
+                Map.of("not", Map.of("status", "open")), null));
+
+        // Then
+        assertFalse(result.getWhereClause().contains("@>"));
+        assertEquals(Map.of("status_1", "open"), result.getParameters());
+    }
+
+    private FilterTranslator translator(FilterParser parser) {
+        return new FilterTranslator(parser, new FilterCompilationCache(parser, new FilterOptimizer(true), meterRegistry, 100),
+                new StatementCacheMetrics(meterRegistry, 256));
+    }
+
+    private Map<String, Object> shapedFilter(String status, int minTotal, List<?> tags) {
+        Map<String, Object> filter = new LinkedHashMap<>();
+        filter.put("status", status);
+        filter.put("total", Map.of("gte", minTotal));
+        filter.put("or", List.of(Map.of("tag", Map.of("in", tags)), Map.of("archived", Map.of("exists", false))));
+        return filter;
+    }
+
+    private Map<String, Object> rangeFilter(int minPrice, String status, int maxPrice) {
+        return Map.of("and", List.of(
+                Map.of("price", Map.of("gte", minPrice)),
+                Map.of("and", List.of(Map.of("status", status), Map.of("price", Map.of("lte", maxPrice))))));
+    }
 }
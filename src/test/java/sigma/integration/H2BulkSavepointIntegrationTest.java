@@ -0,0 +1,171 @@
+package sigma.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import sigma.config.properties.ZookeeperConfigProperties;
+import sigma.controller.EndpointRegistry;
+import sigma.dto.request.BulkWriteRequest;
+import sigma.dto.request.CreateRequest;
+import sigma.dto.request.WriteRequest;
+import sigma.dto.response.BulkOperationResult;
+import sigma.dto.response.BulkWriteResponse;
+import sigma.filter.FilterTranslator;
+import sigma.model.DynamicDocument;
+import sigma.model.Endpoint;
+import sigma.persistence.dialect.DatabaseInitializer;
+import sigma.persistence.dialect.H2Dialect;
+import sigma.persistence.repository.DocumentTtlPolicies;
+import sigma.persistence.repository.DynamicDocumentJpaRepository;
+import sigma.persistence.repository.DynamicDocumentRepository;
+import sigma.service.write.DocumentChangeDetector;
+import sigma.service.write.IdempotencyStore;
+import sigma.service.write.WriteService;
+import sigma.service.write.subentity.SubEntityProcessor;
+import sigma.service.write.subentity.SubEntityTableWriter;
+import sigma.zookeeper.ZookeeperLock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * H2 integration test for _bulk savepoints: an operation that fails after writing is rolled back
+ * to its own savepoint while the operations before it commit.
+ *
+ * Runs WriteService and a transactional DynamicDocumentRepository on a real H2 database; the
+ * collaborators outside the write path are mocked, and the sub-entity writer fails the operation
+ * whose document is named "Bad" after its row has been inserted.
+ */
+@ExtendWith(MockitoExtension.class)
+class H2BulkSavepointIntegrationTest {
+
+    private static final String TABLE_NAME = "orders";
+
+    @Mock
+    private Endpoint endpoint;
+
+    @Mock
+    private SubEntityProcessor subEntityProcessor;
+
+    @Mock
+    private SubEntityTableWriter subEntityTableWriter;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private WriteService writeService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bulk-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        H2Dialect dialect = new H2Dialect();
+        EndpointRegistry endpointRegistry = mock(EndpointRegistry.class);
+        new DatabaseInitializer(jdbcTemplate, dialect, endpointRegistry, mock(ZookeeperLock.class),
+                mock(ZookeeperConfigProperties.class)).initializeSchema();
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        DynamicDocumentRepository repository = transactional(new DynamicDocumentRepository(
+                new NamedParameterJdbcTemplate(jdbcTemplate), mock(DynamicDocumentJpaRepository.class),
+                new ObjectMapper(), dialect, new DocumentTtlPolicies(dialect), 500), transactionManager);
+        writeService = new WriteService(repository, mock(FilterTranslator.class), subEntityProcessor,
+                subEntityTableWriter, mock(DocumentChangeDetector.class), mock(IdempotencyStore.class),
+                new SimpleMeterRegistry(), transactionManager, 3, 0, 1000, 1000);
+
+        lenient().when(endpoint.getName()).thenReturn(TABLE_NAME);
+        lenient().when(endpoint.getDatabaseCollection()).thenReturn(TABLE_NAME);
+        lenient().when(endpoint.getSubEntities()).thenReturn(Set.of());
+        lenient().when(subEntityProcessor.prepareForCreate(any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().doThrow(new IllegalArgumentException("Bad document"))
+                .when(subEntityTableWriter).store(eq(endpoint), argThat(H2BulkSavepointIntegrationTest::containsBad), any());
+    }
+
+    /**
+     * Tests the failed operation's row is rolled back while the operations around it commit
+     */
+    @Test
+    void testFailedOperationRollsBackToItsSavepoint() {
+        // Given
+        BulkWriteRequest request = bulk(false, "A", "Bad", "C");
+
+        // When
+        BulkWriteResponse response = (BulkWriteResponse) writeService.execute(request, endpoint);
+
+        // Then
+        assertEquals(List.of(BulkOperationResult.Status.SUCCEEDED, BulkOperationResult.Status.FAILED,
+                BulkOperationResult.Status.SUCCEEDED), statuses(response));
+        assertEquals("Bad document", response.getResults().get(1).getError());
+        assertEquals(List.of("A", "C"), storedNames());
+    }
+
+    /**
+     * Tests an ordered request keeps what committed before the failure and skips the rest
+     */
+    @Test
+    void testOrderedRequestKeepsEarlierOperations() {
+        // Given
+        BulkWriteRequest request = bulk(true, "A", "Bad", "C");
+
+        // When
+        BulkWriteResponse response = (BulkWriteResponse) writeService.execute(request, endpoint);
+
+        // Then
+        assertEquals(List.of(BulkOperationResult.Status.SUCCEEDED, BulkOperationResult.Status.FAILED,
+                BulkOperationResult.Status.SKIPPED), statuses(response));
+        assertEquals(List.of("A"), storedNames());
+    }
+
+    private BulkWriteRequest bulk(boolean ordered, String... names) {
+        List<WriteRequest> operations = Arrays.stream(names)
+                .map(name -> (WriteRequest) new CreateRequest(Map.of("name", name), "req-" + name))
+                .toList();
+        return new BulkWriteRequest(operations, "bulk-1", ordered);
+    }
+
+    private List<BulkOperationResult.Status> statuses(BulkWriteResponse response) {
+        return response.getResults().stream()
+                .map(BulkOperationResult::getStatus)
+                .toList();
+    }
+
+    private List<String> storedNames() {
+        return jdbcTemplate.queryForList("SELECT data FROM dynamic_documents WHERE table_name = ? ORDER BY id",
+                        String.class, TABLE_NAME).stream()
+                .map(data -> data.replaceAll(".*\"name\":\"([^\"]*)\".*", "$1"))
+                .toList();
+    }
+
+    private static boolean containsBad(List<DynamicDocument> documents) {
+        return documents != null && documents.stream().anyMatch(document -> "Bad".equals(document.getField("name")));
+    }
+
+    /**
+     * Applies the repository's @Transactional methods as the application context would
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T transactional(T target, DataSourceTransactionManager transactionManager) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        return (T) factory.getProxy();
+    }
+}
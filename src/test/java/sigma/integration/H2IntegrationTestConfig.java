@@ -183,7 +183,13 @@ public class H2IntegrationTestConfig {
             null,  // schemaReference
             Set.of("POST", "PUT", "DELETE"),  // allowedWriteMethods
             Set.of(),  // subEntities
-            null   // fatherDocument
+            null,  // fatherDocument
+            List.of(),  // upsertKeys
+            null,  // groupCommit
+            null,  // subEntityStorage
+            null,  // writeReturn
+            null,  // ttl
+            null   // deletedRetention
         );
     }
 
@@ -216,6 +222,12 @@ public class H2IntegrationTestConfig {
             null,
             Set.of("POST"),
             Set.of(),
+            null,
+            List.of(),
+            null,
+            null,
+            null,
+            null,
             null
         );
     }
@@ -228,7 +240,7 @@ public class H2IntegrationTestConfig {
         private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
 
         public TestEndpointRegistry() {
-            super(null, null); // Pass nulls - we override all methods
+            super(null, null, null); // Pass nulls - we override all methods
         }
 
         @Override
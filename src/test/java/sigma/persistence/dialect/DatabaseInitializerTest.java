@@ -0,0 +1,286 @@
+package sigma.persistence.dialect;
+
+import sigma.config.properties.ZookeeperConfigProperties;
+import sigma.controller.EndpointRegistry;
+import sigma.model.Endpoint;
+import sigma.model.filter.FilterConfig;
+import sigma.model.filter.IndexedFieldType;
+import sigma.zookeeper.ZookeeperLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for DatabaseInitializer - upsert key indexes and field indexes declared in readFilter configs
+ */
+@ExtendWith(MockitoExtension.class)
+class DatabaseInitializerTest {
+
+    private static final String LOCK_PATH = "/test/locks/sigma/field-indexes";
+
+    private final PostgreSqlDialect dialect = new PostgreSqlDialect();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EndpointRegistry endpointRegistry;
+
+    @Mock
+    private Endpoint endpoint;
+
+    @Mock
+    private ZookeeperLock lock;
+
+    @Mock
+    private ZookeeperConfigProperties configProperties;
+
+    private DatabaseInitializer initializer;
+
+    private String customerIndex;
+
+    @BeforeEach
+    void setUp() {
+        initializer = new DatabaseInitializer(jdbcTemplate, dialect, endpointRegistry, lock, configProperties, Runnable::run);
+        lenient().when(configProperties.getLocksBasePath()).thenReturn("/test/locks/sigma");
+        lenient().when(lock.tryAcquire(LOCK_PATH)).thenReturn(true);
+        customerIndex = dialect.fieldIndexName("orders", "customerId", IndexedFieldType.TEXT);
+    }
+
+    /**
+     * Tests a declared field index is created online
+     */
+    @Test
+    void testCreatesDeclaredFieldIndex() {
+        // Given
+        givenOrdersEndpoint();
+        when(jdbcTemplate.queryForList(dialect.getFieldIndexesQuery())).thenReturn(List.of());
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        verify(jdbcTemplate).execute(dialect.getCreateFieldIndexSql("orders", "customerId", IndexedFieldType.TEXT));
+    }
+
+    /**
+     * Tests field indexes are reconciled on the executor only once the rest of the schema exists
+     */
+    @Test
+    void testReconcilesFieldIndexesInBackground() {
+        // Given
+        List<Runnable> tasks = new ArrayList<>();
+        initializer = new DatabaseInitializer(jdbcTemplate, dialect, endpointRegistry, lock, configProperties,
+                tasks::add);
+        givenOrdersEndpoint();
+        when(jdbcTemplate.queryForList(dialect.getFieldIndexesQuery())).thenReturn(List.of());
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        verify(jdbcTemplate).execute(dialect.getArchiveTableSql().get(0));
+        verify(lock, never()).tryAcquire(any());
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        verify(jdbcTemplate).execute(dialect.getCreateFieldIndexSql("orders", "customerId", IndexedFieldType.TEXT));
+        verify(lock).release(LOCK_PATH);
+    }
+
+    /**
+     * Tests a valid existing index is kept and one no longer declared is dropped
+     */
+    @Test
+    void testDropsStaleFieldIndex() {
+        // Given
+        givenOrdersEndpoint();
+        when(jdbcTemplate.queryForList(dialect.getFieldIndexesQuery())).thenReturn(List.of(
+                Map.of("index_name", customerIndex, "valid", true),
+                Map.of("index_name", "ix_dyn_docs_orders_0badc0de", "valid", true)));
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        verify(jdbcTemplate).execute("DROP INDEX CONCURRENTLY IF EXISTS ix_dyn_docs_orders_0badc0de");
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE INDEX CONCURRENTLY"));
+        verify(jdbcTemplate, never()).execute("DROP INDEX CONCURRENTLY IF EXISTS " + customerIndex);
+    }
+
+    /**
+     * Tests an index left invalid by a failed online build is dropped and built again
+     */
+    @Test
+    void testRebuildsInvalidFieldIndex() {
+        // Given
+        givenOrdersEndpoint();
+        when(jdbcTemplate.queryForList(dialect.getFieldIndexesQuery())).thenReturn(List.of(
+                Map.of("index_name", customerIndex, "valid", false)));
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        var order = inOrder(jdbcTemplate, lock);
+        order.verify(jdbcTemplate).execute("DROP INDEX CONCURRENTLY IF EXISTS " + customerIndex);
+        order.verify(jdbcTemplate).execute(
+                dialect.getCreateFieldIndexSql("orders", "customerId", IndexedFieldType.TEXT));
+        order.verify(lock).release(LOCK_PATH);
+    }
+
+    /**
+     * Tests an invalid index another node is still building online is neither dropped nor rebuilt
+     */
+    @Test
+    void testKeepsInvalidFieldIndexStillBeingBuilt() {
+        // Given
+        givenOrdersEndpoint();
+        when(jdbcTemplate.queryForList(dialect.getFieldIndexesQuery())).thenReturn(List.of(
+                Map.of("index_name", customerIndex, "valid", false, "building", true)));
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        verify(jdbcTemplate, never()).execute("DROP INDEX CONCURRENTLY IF EXISTS " + customerIndex);
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE INDEX CONCURRENTLY"));
+    }
+
+    /**
+     * Tests field indexes are left to the node holding the lock, and the lock is released after use
+     */
+    @Test
+    void testFieldIndexesOnlyChangedUnderLock() {
+        // Given
+        when(endpointRegistry.getAllEndpoints()).thenReturn(Map.of("orders", endpoint));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(false);
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        verify(jdbcTemplate, never()).queryForList(dialect.getFieldIndexesQuery());
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE INDEX CONCURRENTLY"));
+        verify(lock, never()).release(any());
+    }
+
+    /**
+     * Tests nothing is dropped when no endpoints are loaded, as the registry may have failed to load
+     */
+    @Test
+    void testKeepsFieldIndexesWithoutEndpoints() {
+        // Given
+        when(endpointRegistry.getAllEndpoints()).thenReturn(Map.of());
+        when(jdbcTemplate.queryForList(dialect.getFieldIndexesQuery())).thenReturn(List.of(
+                Map.of("index_name", customerIndex, "valid", true)));
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        verify(jdbcTemplate, never()).execute(startsWith("DROP INDEX CONCURRENTLY"));
+    }
+
+    /**
+     * Tests startup fails when an upsert key index cannot be built, as upserts would not be atomic
+     */
+    @Test
+    void testFailsWhenUpsertKeyIndexCannotBeBuilt() {
+        // Given
+        givenOrdersEndpoint();
+        when(endpoint.hasUpsertKeys()).thenReturn(true);
+        when(endpoint.getUpsertKeys()).thenReturn(List.of("sku"));
+        when(jdbcTemplate.queryForList(dialect.getFieldIndexesQuery())).thenReturn(List.of());
+        doThrow(new DuplicateKeyException("could not create unique index"))
+                .when(jdbcTemplate).execute(dialect.getCreateUpsertKeyIndexSql("orders", List.of("sku")));
+
+        // When / Then
+        IllegalStateException e = assertThrows(IllegalStateException.class, initializer::initializeSchema);
+        assertTrue(e.getMessage().contains("orders on [sku]"));
+        verify(jdbcTemplate).execute("DROP INDEX CONCURRENTLY IF EXISTS "
+                + dialect.upsertKeyIndexName("orders", List.of("sku")));
+    }
+
+    /**
+     * Tests an upsert key index left invalid by a failed online build is dropped and built again
+     */
+    @Test
+    void testRebuildsInvalidUpsertKeyIndex() {
+        // Given
+        givenOrdersEndpoint();
+        when(endpoint.hasUpsertKeys()).thenReturn(true);
+        when(endpoint.getUpsertKeys()).thenReturn(List.of("sku"));
+        String upsertKeyIndex = dialect.upsertKeyIndexName("orders", List.of("sku"));
+        when(jdbcTemplate.queryForList(dialect.getUpsertKeyIndexesQuery())).thenReturn(List.of(
+                Map.of("index_name", upsertKeyIndex, "valid", false)));
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        var order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute("DROP INDEX CONCURRENTLY IF EXISTS " + upsertKeyIndex);
+        order.verify(jdbcTemplate).execute(dialect.getCreateUpsertKeyIndexSql("orders", List.of("sku")));
+    }
+
+    /**
+     * Tests an upsert key index another node is still building online is left to that node
+     */
+    @Test
+    void testKeepsUpsertKeyIndexStillBeingBuilt() {
+        // Given
+        givenOrdersEndpoint();
+        when(endpoint.hasUpsertKeys()).thenReturn(true);
+        when(endpoint.getUpsertKeys()).thenReturn(List.of("sku"));
+        when(jdbcTemplate.queryForList(dialect.getUpsertKeyIndexesQuery())).thenReturn(List.of(
+                Map.of("index_name", dialect.upsertKeyIndexName("orders", List.of("sku")), "valid", false,
+                        "building", true)));
+
+        // When
+        initializer.initializeSchema();
+
+        // Then
+        verify(jdbcTemplate, never()).execute(startsWith("DROP INDEX CONCURRENTLY"));
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE UNIQUE INDEX"));
+    }
+
+    /**
+     * Tests startup fails when an Oracle table with an IDENTITY id cannot be moved onto the id sequence
+     */
+    @Test
+    void testFailsWhenIdSequenceUpgradeFails() {
+        // Given
+        OracleDialect oracle = new OracleDialect();
+        DatabaseInitializer oracleInitializer =
+                new DatabaseInitializer(jdbcTemplate, oracle, endpointRegistry, lock, configProperties, Runnable::run);
+        doThrow(new BadSqlGrammarException("upgrade", "ALTER TABLE",
+                new SQLException("ORA-01031: insufficient privileges")))
+                .when(jdbcTemplate).execute(oracle.getIdSequenceUpgradeSql().get(0));
+
+        // When / Then
+        IllegalStateException e = assertThrows(IllegalStateException.class, oracleInitializer::initializeSchema);
+        assertInstanceOf(BadSqlGrammarException.class, e.getCause());
+    }
+
+    private void givenOrdersEndpoint() {
+        when(endpointRegistry.getAllEndpoints()).thenReturn(Map.of("orders", endpoint));
+        when(endpoint.getDatabaseCollection()).thenReturn("orders");
+        when(endpoint.getReadFilterConfig()).thenReturn(new FilterConfig(Map.of(), true,
+                Map.of("customerId", IndexedFieldType.TEXT)));
+    }
+}
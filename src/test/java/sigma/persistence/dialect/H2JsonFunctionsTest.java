@@ -0,0 +1,159 @@
+package sigma.persistence.dialect;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for H2JsonFunctions - the update operators and sub-entity changes behind the H2 aliases
+ */
+class H2JsonFunctionsTest {
+
+    /**
+     * Tests $inc adds to the stored number and counts a missing field as 0
+     */
+    @Test
+    void testIncAddsToStoredOrMissingNumber() throws SQLException {
+        // When
+        String incremented = H2JsonFunctions.applyOperation("{\"qty\":2}", "$inc", "qty", "3");
+        String created = H2JsonFunctions.applyOperation("{}", "$inc", "stats.views", "1.5");
+
+        // Then
+        assertEquals("{\"qty\":5}", incremented);
+        assertEquals("{\"stats\":{\"views\":1.5}}", created);
+    }
+
+    /**
+     * Tests $inc on a non-numeric value fails instead of overwriting it
+     */
+    @Test
+    void testIncRejectsNonNumericValue() {
+        assertThrows(SQLException.class,
+                () -> H2JsonFunctions.applyOperation("{\"qty\":\"two\"}", "$inc", "qty", "1"));
+    }
+
+    /**
+     * Tests $push appends to the array and creates a missing one
+     */
+    @Test
+    void testPushAppendsAndCreatesArray() throws SQLException {
+        // When
+        String appended = H2JsonFunctions.applyOperation("{\"tags\":[\"a\"]}", "$push", "tags", "{\"b\":1}");
+        String created = H2JsonFunctions.applyOperation("{}", "$push", "tags", "\"a\"");
+
+        // Then
+        assertEquals("{\"tags\":[\"a\",{\"b\":1}]}", appended);
+        assertEquals("{\"tags\":[\"a\"]}", created);
+    }
+
+    /**
+     * Tests $pull removes every element equal to the value
+     */
+    @Test
+    void testPullRemovesEveryEqualElement() throws SQLException {
+        // When
+        String result = H2JsonFunctions.applyOperation("{\"tags\":[\"a\",\"b\",\"a\"]}", "$pull", "tags", "\"a\"");
+
+        // Then
+        assertEquals("{\"tags\":[\"b\"]}", result);
+    }
+
+    /**
+     * Tests $push and $pull fail on a field that is not an array
+     */
+    @Test
+    void testArrayOperatorsRejectNonArrayField() {
+        assertThrows(SQLException.class,
+                () -> H2JsonFunctions.applyOperation("{\"tags\":\"a\"}", "$push", "tags", "\"b\""));
+        assertThrows(SQLException.class,
+                () -> H2JsonFunctions.applyOperation("{\"tags\":\"a\"}", "$pull", "tags", "\"a\""));
+    }
+
+    /**
+     * Tests $unset removes a nested field and keeps its siblings
+     */
+    @Test
+    void testUnsetRemovesNestedField() throws SQLException {
+        // When
+        String result = H2JsonFunctions.applyOperation("{\"address\":{\"city\":\"X\",\"zip\":\"1\"}}",
+                "$unset", "address.zip", null);
+
+        // Then
+        assertEquals("{\"address\":{\"city\":\"X\"}}", result);
+    }
+
+    /**
+     * Tests an unknown operator fails as an SQL error
+     */
+    @Test
+    void testRejectsUnknownOperator() {
+        assertThrows(SQLException.class, () -> H2JsonFunctions.applyOperation("{}", "$rename", "a", "\"b\""));
+    }
+
+    /**
+     * Tests APPEND adds the element and creates a missing array
+     */
+    @Test
+    void testSubEntityAppend() throws SQLException {
+        // When
+        String result = H2JsonFunctions.applySubEntityChange("{}", "items", "APPEND", "1", "{\"id\":1,\"sku\":\"A\"}");
+
+        // Then
+        assertEquals("{\"items\":[{\"id\":1,\"sku\":\"A\"}]}", result);
+    }
+
+    /**
+     * Tests MERGE updates the live element with the id and DELETE marks it deleted
+     */
+    @Test
+    void testSubEntityMergeAndDelete() throws SQLException {
+        // Given
+        String data = "{\"items\":[{\"id\":1,\"sku\":\"A\",\"qty\":1},{\"id\":2,\"sku\":\"B\"}]}";
+
+        // When
+        String merged = H2JsonFunctions.applySubEntityChange(data, "items", "MERGE", "1", "{\"qty\":4}");
+        String deleted = H2JsonFunctions.applySubEntityChange(data, "items", "DELETE", "2", null);
+
+        // Then
+        assertEquals("{\"items\":[{\"id\":1,\"sku\":\"A\",\"qty\":4},{\"id\":2,\"sku\":\"B\"}]}", merged);
+        assertEquals("{\"items\":[{\"id\":1,\"sku\":\"A\",\"qty\":1},{\"id\":2,\"sku\":\"B\",\"isDeleted\":true}]}",
+                deleted);
+    }
+
+    /**
+     * Tests MERGE fails for an element that is already deleted
+     */
+    @Test
+    void testSubEntityMergeRejectsDeletedElement() {
+        // Given
+        String data = "{\"items\":[{\"id\":1,\"isDeleted\":true}]}";
+
+        // When / Then
+        assertThrows(SQLException.class,
+                () -> H2JsonFunctions.applySubEntityChange(data, "items", "MERGE", "1", "{\"qty\":4}"));
+    }
+
+    /**
+     * Tests an ISO-8601 instant is read with its offset and anything else reads as null
+     */
+    @Test
+    void testTimestampValueReadsInstantsOnly() {
+        assertEquals(OffsetDateTime.parse("2024-05-01T12:00:00.5+02:00"),
+                H2JsonFunctions.timestampValue("2024-05-01T12:00:00.5+02:00"));
+        assertNull(H2JsonFunctions.timestampValue("tomorrow"));
+        assertNull(H2JsonFunctions.timestampValue("2023-02-29T00:00:00Z"));
+        assertNull(H2JsonFunctions.timestampValue(null));
+    }
+
+    /**
+     * Tests documents with the same values in another key order do not differ
+     */
+    @Test
+    void testDiffersIgnoresKeyOrder() throws SQLException {
+        assertFalse(H2JsonFunctions.differs("{\"a\":1,\"b\":[1,2]}", "{\"b\":[1,2],\"a\":1}"));
+        assertTrue(H2JsonFunctions.differs("{\"a\":1}", "{\"a\":1,\"b\":null}"));
+    }
+}
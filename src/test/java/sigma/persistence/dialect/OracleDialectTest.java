@@ -0,0 +1,148 @@
+package sigma.persistence.dialect;
+
+import org.junit.jupiter.api.Test;
+import sigma.model.update.UpdateOperation;
+import sigma.model.update.UpdateOperator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for OracleDialect - shallow JSON merges and update operators
+ */
+class OracleDialectTest {
+
+    /**
+     * Tests a merge sets each top-level key, so nested objects are replaced and nulls are stored
+     */
+    @Test
+    void testJsonMergeSetsTopLevelKeys() {
+        // When
+        String sql = new OracleDialect().jsonMerge("d.data", "patch", List.of("a", "b"));
+
+        // Then
+        assertEquals("JSON_TRANSFORM(d.data, SET '$.\"a\"' = :patch0 FORMAT JSON, "
+                + "SET '$.\"b\"' = :patch1 FORMAT JSON RETURNING CLOB)", sql);
+    }
+
+    /**
+     * Tests an empty patch keeps the column as it is
+     */
+    @Test
+    void testJsonMergeWithoutKeysKeepsColumn() {
+        assertEquals("d.data", new OracleDialect().jsonMerge("d.data", "patch", List.of()));
+    }
+
+    /**
+     * Tests the upsert merges the matched document key by key rather than with JSON_MERGEPATCH
+     */
+    @Test
+    void testUpsertMergesTopLevelKeys() {
+        // When
+        String sql = new OracleDialect().getUpsertSql("orders", List.of("sku"), List.of("sku", "qty"));
+
+        // Then
+        assertFalse(sql.contains("JSON_MERGEPATCH"));
+        assertTrue(sql.contains("SET d.data = JSON_TRANSFORM(d.data, SET '$.\"sku\"' = :data0 FORMAT JSON, "
+                + "SET '$.\"qty\"' = :data1 FORMAT JSON RETURNING CLOB)"));
+    }
+
+    /**
+     * Tests the upsert looks the key up with the unique index's own expression
+     */
+    @Test
+    void testUpsertLooksUpKeyWithIndexExpression() {
+        // Given
+        OracleDialect dialect = new OracleDialect();
+
+        // When
+        String indexSql = dialect.getCreateUpsertKeyIndexSql("orders", List.of("sku"));
+        String upsertSql = dialect.getUpsertSql("orders", List.of("sku"), List.of("sku"));
+
+        // Then
+        String expression = "CASE WHEN table_name = 'orders' AND is_deleted = 0 THEN JSON_VALUE(data, '$.sku') END";
+        assertTrue(indexSql.contains(expression.replace("'", "''")));
+        assertTrue(upsertSql.contains("WHERE " + expression.replace("table_name", "e.table_name")
+                .replace("is_deleted", "e.is_deleted").replace("(data", "(e.data") + " = :upsertKey0"));
+    }
+
+    /**
+     * Tests $inc adds to the stored number, counting a missing value as 0
+     */
+    @Test
+    void testIncOperator() {
+        // When
+        String sql = new OracleDialect().jsonApplyOperations("d.data",
+                List.of(new UpdateOperation(UpdateOperator.INC, "stats.views", 1)), "op");
+
+        // Then
+        assertEquals("JSON_TRANSFORM(d.data, SET '$.stats.views' = NVL(JSON_VALUE(d.data, '$.stats.views' "
+                + "RETURNING NUMBER), 0) + JSON_VALUE(:op0, '$' RETURNING NUMBER) RETURNING CLOB)", sql);
+    }
+
+    /**
+     * Tests $push appends to the array and creates it when missing
+     */
+    @Test
+    void testPushOperator() {
+        // When
+        String sql = new OracleDialect().jsonApplyOperations("d.data",
+                List.of(new UpdateOperation(UpdateOperator.PUSH, "tags", "a")), "op");
+
+        // Then
+        assertEquals("JSON_TRANSFORM(d.data, APPEND '$.tags' = :op0 FORMAT JSON CREATE ON MISSING RETURNING CLOB)", sql);
+    }
+
+    /**
+     * Tests $pull removes the equal elements through a filter variable passed from the operand
+     */
+    @Test
+    void testPullOperatorPassesOperand() {
+        // When
+        String sql = new OracleDialect().jsonApplyOperations("d.data",
+                List.of(new UpdateOperation(UpdateOperator.PULL, "tags", "a")), "op");
+
+        // Then
+        assertEquals("JSON_TRANSFORM(d.data, REMOVE '$.tags[*]?(@ == $op0)' RETURNING CLOB "
+                + "PASSING JSON_VALUE(:op0, '$') AS \"op0\")", sql);
+    }
+
+    /**
+     * Tests $unset removes the field and is combined with the other operators in one JSON_TRANSFORM
+     */
+    @Test
+    void testUnsetCombinedWithOtherOperators() {
+        // When
+        String sql = new OracleDialect().jsonApplyOperations("d.data", List.of(
+                new UpdateOperation(UpdateOperator.UNSET, "address.zip", ""),
+                new UpdateOperation(UpdateOperator.SET, "name", "x")), "op");
+
+        // Then
+        assertEquals("JSON_TRANSFORM(d.data, REMOVE '$.address.zip', SET '$.name' = :op1 FORMAT JSON "
+                + "RETURNING CLOB)", sql);
+    }
+
+    /**
+     * Tests the upgrade moves an IDENTITY id onto the sequence and restarts it past the existing ids
+     */
+    @Test
+    void testIdSequenceUpgradeReplacesIdentity() {
+        // When
+        String sql = new OracleDialect().getIdSequenceUpgradeSql().get(0);
+
+        // Then
+        assertTrue(sql.contains("MODIFY id DROP IDENTITY"));
+        assertTrue(sql.contains("MODIFY id DEFAULT dynamic_documents_id_seq.NEXTVAL"));
+        assertTrue(sql.contains("NVL(MAX(id), 0) + 1"));
+        assertTrue(sql.contains("RESTART START WITH"));
+    }
+
+    /**
+     * Tests Oracle has no single-statement UPDATE ... RETURNING, so callers select the ids first
+     */
+    @Test
+    void testUpdateReturningIsUnavailable() {
+        assertNull(new OracleDialect().updateReturning("UPDATE dynamic_documents d SET version = 1 WHERE d.id = 1", "*"));
+    }
+}
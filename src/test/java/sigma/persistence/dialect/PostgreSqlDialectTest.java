@@ -0,0 +1,125 @@
+package sigma.persistence.dialect;
+
+import sigma.model.filter.IndexedFieldType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PostgreSqlDialect - GIN index operator class, containment filters and field indexes
+ */
+class PostgreSqlDialectTest {
+
+    /**
+     * Tests the default GIN index keeps jsonb_ops, which also serves the ? operator of exists
+     */
+    @Test
+    void testDefaultDataIndexUsesJsonbOps() {
+        // When
+        List<String> sql = new PostgreSqlDialect().getCreateIndexesSql();
+
+        // Then
+        assertTrue(sql.contains(
+                "CREATE INDEX IF NOT EXISTS idx_dynamic_documents_data ON dynamic_documents USING GIN (data jsonb_ops)"));
+        assertTrue(sql.contains("DROP INDEX IF EXISTS idx_dynamic_documents_data_path_ops"));
+    }
+
+    /**
+     * Tests a TTL field is only cast when it holds an ISO-8601 instant with fields in range
+     */
+    @Test
+    void testTimestampValueGuardsTheCast() {
+        // When
+        String sql = new PostgreSqlDialect().jsonTimestampValue("d.data", "expiresAt");
+
+        // Then
+        assertTrue(sql.startsWith("CASE WHEN (d.data->>'expiresAt') ~ '"));
+        assertTrue(sql.endsWith("THEN CAST((d.data->>'expiresAt') AS TIMESTAMPTZ) END END"));
+        Pattern pattern = Pattern.compile(sql.substring(sql.indexOf("~ '") + 3, sql.indexOf("' THEN")));
+        assertTrue(pattern.matcher("2024-05-01T12:00:00Z").find());
+        assertTrue(pattern.matcher("2024-05-01T12:00:00.123+02:00").find());
+        assertFalse(pattern.matcher("tomorrow").find());
+        assertFalse(pattern.matcher("2024-13-01T12:00:00Z").find());
+        assertFalse(pattern.matcher("0000-01-01T12:00:00Z").find());
+        assertFalse(pattern.matcher("2024-05-01 12:00:00").find());
+    }
+
+    /**
+     * Tests jsonb_path_ops builds its own index before the jsonb_ops one is dropped
+     */
+    @Test
+    void testPathOpsReplacesDataIndex() {
+        // When
+        List<String> sql = new PostgreSqlDialect(true, "jsonb_path_ops").getCreateIndexesSql();
+
+        // Then
+        int create = sql.indexOf(
+                "CREATE INDEX IF NOT EXISTS idx_dynamic_documents_data_path_ops ON dynamic_documents USING GIN (data jsonb_path_ops)");
+        int drop = sql.indexOf("DROP INDEX IF EXISTS idx_dynamic_documents_data");
+        assertTrue(create >= 0 && drop > create);
+    }
+
+    /**
+     * Tests an unknown operator class is rejected
+     */
+    @Test
+    void testRejectsUnknownOperatorClass() {
+        assertThrows(IllegalArgumentException.class, () -> new PostgreSqlDialect(true, "btree"));
+    }
+
+    /**
+     * Tests containment is written so a bitmap scan of the GIN index can answer it
+     */
+    @Test
+    void testContainsAnySql() {
+        // Given
+        PostgreSqlDialect dialect = new PostgreSqlDialect(true, "jsonb_ops");
+
+        // When / Then
+        assertEquals("d.data @> ANY (CAST(ARRAY[:status_1_json] AS jsonb[]))",
+                dialect.jsonContainsAny("d.data", "status_1_json"));
+        assertNull(new PostgreSqlDialect(false, "jsonb_ops").jsonContainsAny("d.data", "status_1_json"));
+    }
+
+    /**
+     * Tests a field index is built online over the expression the filters compare, limited to the
+     * live documents of its collection
+     */
+    @Test
+    void testFieldIndexSql() {
+        // Given
+        PostgreSqlDialect dialect = new PostgreSqlDialect();
+        String name = dialect.fieldIndexName("orders", "total", IndexedFieldType.NUMBER);
+
+        // When
+        String sql = dialect.getCreateFieldIndexSql("orders", "total", IndexedFieldType.NUMBER);
+
+        // Then
+        assertTrue(name.startsWith("ix_dyn_docs_orders_"));
+        assertEquals("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON dynamic_documents "
+                + "((CAST(data->>'total' AS DOUBLE PRECISION))) WHERE table_name = 'orders' AND is_deleted = false", sql);
+        assertEquals("DROP INDEX CONCURRENTLY IF EXISTS " + name, dialect.getDropFieldIndexSql(name));
+    }
+
+    /**
+     * Tests index names differ per field type and stay within the 63 character identifier limit
+     */
+    @Test
+    void testFieldIndexNames() {
+        // Given
+        PostgreSqlDialect dialect = new PostgreSqlDialect();
+        String collection = "a_very_long_collection_name_that_keeps_going_and_going";
+
+        // When
+        String text = dialect.fieldIndexName(collection, "customerId", IndexedFieldType.TEXT);
+        String number = dialect.fieldIndexName(collection, "customerId", IndexedFieldType.NUMBER);
+
+        // Then
+        assertNotEquals(text, number);
+        assertTrue(text.length() <= 63);
+        assertTrue(text.matches("[a-z0-9_]+"));
+    }
+}
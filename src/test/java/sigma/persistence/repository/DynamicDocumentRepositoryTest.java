@@ -1,8 +1,14 @@
 package sigma.persistence.repository;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import sigma.model.DynamicDocument;
+import sigma.model.TtlConfig;
+import sigma.model.update.SubEntityChange;
+import sigma.model.update.UpdateOperation;
+import sigma.model.update.UpdateOperator;
 import sigma.persistence.dialect.DatabaseDialect;
+import sigma.persistence.dialect.OracleDialect;
 import sigma.persistence.dialect.PostgreSqlDialect;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,12 +17,27 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.KeyHolder;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -35,6 +56,9 @@ class DynamicDocumentRepositoryTest {
     @Mock
     private DynamicDocumentJpaRepository crudRepository;
 
+    @Mock
+    private JdbcOperations jdbcOperations;
+
     @Captor
     private ArgumentCaptor<String> sqlCaptor;
 
@@ -44,13 +68,16 @@ class DynamicDocumentRepositoryTest {
     private DynamicDocumentRepository repository;
     private ObjectMapper objectMapper;
     private DatabaseDialect dialect;
+    private DocumentTtlPolicies ttlPolicies;
     private final String TABLE_NAME = "test-collection";
+    private final int INSERT_BATCH_SIZE = 2;
 
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
         dialect = new PostgreSqlDialect();
-        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, dialect);
+        ttlPolicies = new DocumentTtlPolicies(dialect);
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, dialect, ttlPolicies, INSERT_BATCH_SIZE);
     }
 
     @Test
@@ -91,6 +118,94 @@ class DynamicDocumentRepositoryTest {
         assertTrue(capturedSql.contains("table_name = :tableName"));
     }
 
+    @Test
+    void testFindWithQuery_HidesExpiredDocumentsOfTtlCollection() {
+        // Given
+        ttlPolicies.replaceAll(Map.of(TABLE_NAME, TtlConfig.of(Duration.ofHours(1), "expiresFrom")));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // When
+        repository.findWithQuery(TABLE_NAME, "data->>'field' = :value", "d.id", 10, null, Map.of("value", "test"));
+
+        // Then
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        String capturedSql = sqlCaptor.getValue();
+        String expiresFrom = dialect.jsonTimestampValue("d.data", "expiresFrom");
+        assertTrue(capturedSql.contains("AND (" + expiresFrom + " IS NULL OR " + expiresFrom + " >= :ttlCutoff)"));
+        assertTrue(capturedSql.indexOf(":ttlCutoff") < capturedSql.indexOf("ORDER BY"));
+        assertInstanceOf(Timestamp.class, paramsCaptor.getValue().getValue("ttlCutoff"));
+    }
+
+    @Test
+    void testFindById_TtlCollectionHidesExpiredDocument() {
+        // Given
+        ttlPolicies.replaceAll(Map.of(TABLE_NAME, TtlConfig.of(Duration.ofDays(1), TtlConfig.CREATED_AT)));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // When
+        DynamicDocument result = repository.findById(TABLE_NAME, 7L);
+
+        // Then
+        assertNull(result);
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        assertTrue(sqlCaptor.getValue().contains("d.id = :id AND d.table_name = :tableName AND (d.created_at IS NULL"));
+        assertEquals(7L, paramsCaptor.getValue().getValue("id"));
+        verifyNoInteractions(crudRepository);
+    }
+
+    @Test
+    void testUpdate_TtlCollectionSkipsExpiredDocuments() {
+        // Given
+        ttlPolicies.replaceAll(Map.of(TABLE_NAME, TtlConfig.of(Duration.ofDays(1), TtlConfig.LAST_MODIFIED_AT)));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // When
+        repository.update(TABLE_NAME, null, Map.of("field", "newValue"), Map.of(), true);
+
+        // Then
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        assertTrue(sqlCaptor.getValue().contains("is_deleted = false AND (d.last_modified_at IS NULL"
+                + " OR d.last_modified_at >= :ttlCutoff)"));
+        assertInstanceOf(Timestamp.class, paramsCaptor.getValue().getValue("ttlCutoff"));
+    }
+
+    @Test
+    void testFindAll_TtlCollectionIsReadWithLiveCondition() {
+        // Given
+        ttlPolicies.replaceAll(Map.of(TABLE_NAME, TtlConfig.of(Duration.ofDays(1), TtlConfig.CREATED_AT)));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // When
+        repository.findAll(TABLE_NAME);
+
+        // Then
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        assertTrue(sqlCaptor.getValue().contains("d.created_at >= :ttlCutoff"));
+        assertInstanceOf(Timestamp.class, paramsCaptor.getValue().getValue("ttlCutoff"));
+        verifyNoInteractions(crudRepository);
+    }
+
+    @Test
+    void testExpireBatch_SoftDeletesBoundedBatchOfExpiredDocuments() {
+        // Given
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(3);
+
+        // When
+        int expired = repository.expireBatch(TABLE_NAME, TtlConfig.of(Duration.ofHours(1), TtlConfig.LAST_MODIFIED_AT), 50);
+
+        // Then
+        assertEquals(3, expired);
+        verify(jdbcTemplate).update(sqlCaptor.capture(), paramsCaptor.capture());
+        String capturedSql = sqlCaptor.getValue();
+        assertTrue(capturedSql.startsWith("UPDATE dynamic_documents d SET is_deleted = :isDeleted"));
+        assertTrue(capturedSql.contains("is_deleted = false AND d.last_modified_at < :ttlCutoff LIMIT 50)"));
+        assertEquals("ttl-expiry", paramsCaptor.getValue().getValue("latestRequestId"));
+    }
+
     @Test
     void testFindRaw_DoesNotAddNotDeletedFilter() {
         // Given
@@ -150,7 +265,7 @@ class DynamicDocumentRepositoryTest {
         // Mock the JDBC update to return a generated key
         doAnswer(invocation -> {
             KeyHolder keyHolder = invocation.getArgument(2);
-            // Simulate key generation - in real test we'd need proper KeyHolder mock
+            keyHolder.getKeyList().add(Map.of("id", 1L));
             return 1;
         }).when(jdbcTemplate).update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class));
 
@@ -158,38 +273,265 @@ class DynamicDocumentRepositoryTest {
         Long id = repository.insertOne(TABLE_NAME, document);
 
         // Then
+        assertEquals(1L, id);
+        assertEquals(1L, document.getId());
+        assertEquals(0L, document.getVersion());
+        assertNotNull(document.getCreatedAt());
         verify(jdbcTemplate).update(sqlCaptor.capture(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class));
         String capturedSql = sqlCaptor.getValue();
         assertTrue(capturedSql.contains("INSERT INTO dynamic_documents"));
         assertTrue(capturedSql.contains("RETURNING id"));
     }
 
+    @Test
+    void testInsertMany_BatchesWithGeneratedKeysInInputOrder() {
+        // Given
+        List<DynamicDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            DynamicDocument document = new DynamicDocument();
+            document.setDynamicFields(Map.of("index", i));
+            documents.add(document);
+        }
+
+        long[] nextKey = {100L};
+        doAnswer(invocation -> {
+            SqlParameterSource[] batch = invocation.getArgument(1);
+            KeyHolder keyHolder = invocation.getArgument(2);
+            for (int i = 0; i < batch.length; i++) {
+                keyHolder.getKeyList().add(Map.of("id", nextKey[0]++));
+            }
+            return new int[batch.length];
+        }).when(jdbcTemplate).batchUpdate(anyString(), any(SqlParameterSource[].class), any(KeyHolder.class), any(String[].class));
+
+        // When
+        List<Long> ids = repository.insertMany(TABLE_NAME, documents);
+
+        // Then
+        assertEquals(List.of(100L, 101L, 102L, 103L, 104L), ids);
+        for (int i = 0; i < documents.size(); i++) {
+            assertEquals(ids.get(i), documents.get(i).getId());
+            assertEquals(TABLE_NAME, documents.get(i).getTableName());
+            assertEquals(0L, documents.get(i).getVersion());
+        }
+        // 5 documents with batch size 2 -> 3 round trips, no per-row inserts
+        verify(jdbcTemplate, times(3)).batchUpdate(contains("INSERT INTO dynamic_documents"),
+                any(SqlParameterSource[].class), any(KeyHolder.class), any(String[].class));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class));
+    }
+
+    @Test
+    void testInsertMany_ReservesIdsWhenBatchKeysUnsupported() {
+        // Given
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, new OracleDialect(), ttlPolicies, INSERT_BATCH_SIZE);
+        DynamicDocument first = new DynamicDocument();
+        first.setDynamicFields(Map.of("name", "first"));
+        DynamicDocument second = new DynamicDocument();
+        second.setDynamicFields(Map.of("name", "second"));
+
+        when(jdbcTemplate.queryForList(contains("NEXTVAL"), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(7L, 8L));
+
+        // When
+        List<Long> ids = repository.insertMany(TABLE_NAME, List.of(first, second));
+
+        // Then
+        assertEquals(List.of(7L, 8L), ids);
+        ArgumentCaptor<SqlParameterSource[]> batchCaptor = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(sqlCaptor.capture(), batchCaptor.capture());
+        assertTrue(sqlCaptor.getValue().contains(":id"));
+        assertEquals(7L, batchCaptor.getValue()[0].getValue("id"));
+        assertEquals(8L, batchCaptor.getValue()[1].getValue("id"));
+        verify(jdbcTemplate, never()).queryForObject(contains("CURRVAL"), any(MapSqlParameterSource.class), eq(Long.class));
+    }
+
+    @Test
+    void testInsertMany_EmptyList() {
+        // When
+        List<Long> ids = repository.insertMany(TABLE_NAME, List.of());
+
+        // Then
+        assertTrue(ids.isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testInsertIfAbsent_InsertsWithNotExistsGuard() {
+        // Given
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1"));
+        doAnswer(invocation -> {
+            KeyHolder keyHolder = invocation.getArgument(2);
+            keyHolder.getKeyList().add(Map.of("id", 11L));
+            return 1;
+        }).when(jdbcTemplate).update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class));
+
+        // When
+        Long id = repository.insertIfAbsent(TABLE_NAME, "data->>'sku' = :sku", Map.of("sku", "A-1"), document);
+
+        // Then
+        assertEquals(11L, id);
+        assertEquals(11L, document.getId());
+        verify(jdbcTemplate).update(sqlCaptor.capture(), paramsCaptor.capture(), any(KeyHolder.class), any(String[].class));
+        assertTrue(sqlCaptor.getValue().contains("WHERE NOT EXISTS (SELECT 1 FROM dynamic_documents d WHERE d.table_name = :tableName"));
+        assertTrue(sqlCaptor.getValue().contains("data->>'sku' = :sku"));
+        assertEquals("A-1", paramsCaptor.getValue().getValue("sku"));
+    }
+
+    @Test
+    void testInsertIfAbsent_ReturnsNullWhenDocumentExists() {
+        // Given
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1"));
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class)))
+                .thenReturn(0);
+
+        // When
+        Long id = repository.insertIfAbsent(TABLE_NAME, "data->>'sku' = :sku", Map.of("sku", "A-1"), document);
+
+        // Then
+        assertNull(id);
+        assertNull(document.getId());
+    }
+
+    @Test
+    void testInsertIfAbsent_ReservesIdWhenGeneratedKeysUnsupported() {
+        // Given
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, new OracleDialect(), ttlPolicies, INSERT_BATCH_SIZE);
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1"));
+        when(jdbcTemplate.queryForObject(contains("NEXTVAL"), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(12L);
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(1);
+
+        // When
+        Long id = repository.insertIfAbsent(TABLE_NAME, null, Map.of(), document);
+
+        // Then
+        assertEquals(12L, id);
+        verify(jdbcTemplate).update(sqlCaptor.capture(), paramsCaptor.capture());
+        assertTrue(sqlCaptor.getValue().contains("FROM DUAL"));
+        assertEquals(12L, paramsCaptor.getValue().getValue("id"));
+    }
+
     @Test
     void testUpdate_UpdateMultiple() {
         // Given
         String whereClause = "data->>'status' = :status";
-        Map<String, Object> updates = Map.of("field", "newValue");
+        Map<String, Object> updates = Map.of("field", "newValue", "latestRequestId", "req-1");
         Map<String, Object> params = Map.of("status", "active");
 
-        DynamicDocument doc1 = new DynamicDocument();
-        doc1.setId(1L);
-        doc1.setVersion(1L);
-        doc1.setDynamicFields(Map.of("status", "active"));
-        DynamicDocument doc2 = new DynamicDocument();
-        doc2.setId(2L);
-        doc2.setVersion(1L);
-        doc2.setDynamicFields(Map.of("status", "active"));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(new DynamicDocument(1L, TABLE_NAME, Map.of("field", "newValue")),
+                        new DynamicDocument(2L, TABLE_NAME, Map.of("field", "newValue"))));
+
+        // When
+        List<Map<String, Object>> result = repository.update(TABLE_NAME, whereClause, updates, params, true);
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).get("id"));
+        assertEquals("newValue", result.get(1).get("field"));
+        // Single set-based statement returns the written rows, no per-row rewrite or re-read
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+        verifyNoInteractions(crudRepository);
+        String capturedSql = sqlCaptor.getValue();
+        assertTrue(capturedSql.startsWith("UPDATE dynamic_documents d SET data = d.data || :patch::jsonb"));
+        assertTrue(capturedSql.contains("version = COALESCE(d.version, 0) + 1"));
+        assertTrue(capturedSql.contains("latest_request_id = :latestRequestId"));
+        assertTrue(capturedSql.contains(whereClause));
+        assertFalse(capturedSql.contains("LIMIT 1"));
+        assertTrue(capturedSql.endsWith("RETURNING *"));
+
+        MapSqlParameterSource capturedParams = paramsCaptor.getValue();
+        assertEquals("{\"field\":\"newValue\"}", capturedParams.getValue("patch"));
+        assertEquals("req-1", capturedParams.getValue("latestRequestId"));
+        assertEquals("active", capturedParams.getValue("status"));
+    }
 
+    @Test
+    void testUpdateChanged_SkipsDocumentsTheMergeLeavesUnchanged() {
+        // Given
         when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
-                .thenReturn(List.of(doc1, doc2));
+                .thenReturn(List.of());
+
+        // When
+        List<Map<String, Object>> result = repository.updateChanged(TABLE_NAME, "d.data->>'status' = :status",
+                Map.of("field", "newValue"), Map.of("status", "active"), true, false);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        assertTrue(sqlCaptor.getValue().contains(
+                "(d.data->>'status' = :status) AND (d.data) IS DISTINCT FROM (d.data || :patch::jsonb)"));
+    }
+
+    @Test
+    void testUpdateWithOperations_CompilesToJsonbFunctions() {
+        // Given
+        List<UpdateOperation> operations = List.of(
+                new UpdateOperation(UpdateOperator.INC, "stats.views", 1),
+                new UpdateOperation(UpdateOperator.SET, "stats.lastSeen", "today"),
+                new UpdateOperation(UpdateOperator.PUSH, "tags", "new"),
+                new UpdateOperation(UpdateOperator.UNSET, "legacy", null));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(new DynamicDocument(1L, TABLE_NAME, Map.of("tags", List.of("new")))));
+
+        // When
+        List<Map<String, Object>> result = repository.updateWithOperations(TABLE_NAME, "d.id = :id", operations,
+                "req-1", Map.of("id", 1L), false);
+
+        // Then
+        assertEquals(1, result.size());
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        String sql = sqlCaptor.getValue();
+        // Both stats operators rebuild the stats object once, from the stored value
+        assertTrue(sql.contains("jsonb_set(COALESCE(d.data #> '{stats}', '{}'::jsonb), '{views}', "
+                + "to_jsonb(COALESCE(CAST(d.data #> '{stats,views}' #>> '{}' AS numeric), 0) + CAST(:updateOp0 AS numeric)), true)"));
+        assertTrue(sql.contains("'{lastSeen}', CAST(:updateOp1 AS jsonb), true)"));
+        assertTrue(sql.contains("jsonb_insert(COALESCE(d.data #> '{tags}', '[]'::jsonb), '{-1}', CAST(:updateOp2 AS jsonb), true)"));
+        assertTrue(sql.contains("#- '{legacy}')"));
+        assertTrue(sql.contains("version = COALESCE(d.version, 0) + 1"));
+        assertTrue(sql.contains("LIMIT 1)"));
+
+        MapSqlParameterSource params = paramsCaptor.getValue();
+        assertEquals("1", params.getValue("updateOp0"));
+        assertEquals("\"today\"", params.getValue("updateOp1"));
+        assertEquals("req-1", params.getValue("latestRequestId"));
+    }
+
+    @Test
+    void testUpdateSubEntitiesInPlace_LocatesElementsById() {
+        // Given
+        Map<String, List<SubEntityChange>> changes = Map.of("lines", List.of(
+                SubEntityChange.append(101L, Map.of("sku", "A-1", "id", 101L, "isDeleted", false)),
+                SubEntityChange.merge(7L, Map.of("qty", 3)),
+                SubEntityChange.delete(8L)));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(new DynamicDocument(1L, TABLE_NAME, Map.of("status", "open"))));
 
         // When
-        int result = repository.update(TABLE_NAME, whereClause, updates, params, true);
+        List<Map<String, Object>> result = repository.updateSubEntitiesInPlace(TABLE_NAME, "d.id = :docId",
+                Map.of("status", "open", "latestRequestId", "req-1"), changes, Map.of("docId", 1L));
 
         // Then
-        assertEquals(2, result);
-        // Verify update was called for each document
-        verify(jdbcTemplate, times(2)).update(contains("UPDATE dynamic_documents"), any(MapSqlParameterSource.class));
+        assertEquals(1, result.size());
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        verifyNoInteractions(crudRepository);
+        String sql = sqlCaptor.getValue();
+        // Plain fields are merged, the array is changed element by element
+        assertTrue(sql.contains("d.data || :patch::jsonb"));
+        assertTrue(sql.contains("jsonb_insert("));
+        assertTrue(sql.contains("'{lines,-1}', CAST(:subEntity0_0 AS jsonb), true)"));
+        assertTrue(sql.contains("ARRAY['lines', CAST((SELECT CAST(e.idx - 1 AS int) FROM jsonb_array_elements(d.data->'lines')"));
+        assertTrue(sql.contains("'isDeleted'], 'true'::jsonb, true)"));
+        // Guards: the new id is unused, the changed ids exist and are live
+        assertTrue(sql.contains("NOT EXISTS (SELECT 1 FROM jsonb_array_elements(COALESCE(d.data->'lines', '[]'::jsonb)) AS e(value) WHERE e.value->>'id' = :subEntity0_0Id)"));
+        assertTrue(sql.contains("WHERE e.value->>'id' = :subEntity0_1Id AND COALESCE(e.value->>'isDeleted', 'false') <> 'true')"));
+        assertTrue(sql.contains("LIMIT 1)"));
+
+        MapSqlParameterSource params = paramsCaptor.getValue();
+        assertEquals("{\"status\":\"open\"}", params.getValue("patch"));
+        assertEquals("7", params.getValue("subEntity0_1Id"));
+        assertEquals("{\"qty\":3}", params.getValue("subEntity0_1"));
+        assertNull(params.getValue("subEntity0_2"));
     }
 
     @Test
@@ -199,22 +541,95 @@ class DynamicDocumentRepositoryTest {
         Map<String, Object> updates = Map.of("field", "newValue");
         Map<String, Object> params = Map.of("status", "active");
 
-        DynamicDocument doc = new DynamicDocument();
-        doc.setId(1L);
-        doc.setVersion(1L);
-        doc.setDynamicFields(Map.of("status", "active"));
-
         when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
-                .thenReturn(List.of(doc));
+                .thenReturn(List.of(new DynamicDocument(1L, TABLE_NAME, Map.of("field", "newValue"))));
 
         // When
-        int result = repository.update(TABLE_NAME, whereClause, updates, params, false);
+        List<Map<String, Object>> result = repository.update(TABLE_NAME, whereClause, updates, params, false);
 
         // Then
-        assertEquals(1, result);
-        // Verify select had LIMIT 1
+        assertEquals(1, result.size());
+        // Verify the matched set is limited to one row
         verify(jdbcTemplate).query(sqlCaptor.capture(), any(MapSqlParameterSource.class), any(RowMapper.class));
-        assertTrue(sqlCaptor.getValue().contains("LIMIT 1"));
+        assertTrue(sqlCaptor.getValue().contains("d.id IN (SELECT d.id FROM dynamic_documents d WHERE"));
+        assertTrue(sqlCaptor.getValue().contains("LIMIT 1)"));
+        assertFalse(sqlCaptor.getValue().contains("latest_request_id"));
+    }
+
+    @Test
+    void testUpdate_SelectsIdsFirstWhenUpdateReturningUnsupported() {
+        // Given
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, new OracleDialect(), ttlPolicies, INSERT_BATCH_SIZE);
+        Map<String, Object> updates = Map.of("field", "newValue");
+
+        when(jdbcTemplate.queryForList(startsWith("SELECT d.id"), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(3L, 4L));
+        when(jdbcTemplate.query(contains("d.id IN (:ids)"), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(new DynamicDocument(3L, TABLE_NAME, Map.of("field", "newValue")),
+                        new DynamicDocument(4L, TABLE_NAME, Map.of("field", "newValue"))));
+
+        // When
+        List<Map<String, Object>> result = repository.update(TABLE_NAME, null, updates, Map.of(), true);
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals(4L, result.get(1).get("id"));
+        verify(jdbcTemplate).update(sqlCaptor.capture(), paramsCaptor.capture());
+        assertTrue(sqlCaptor.getValue().contains("JSON_TRANSFORM(d.data, SET '$.\"field\"' = :patch0 FORMAT JSON RETURNING CLOB)"));
+        assertEquals("\"newValue\"", paramsCaptor.getValue().getValue("patch0"));
+        assertTrue(sqlCaptor.getValue().endsWith("d.id IN (:ids)"));
+        assertEquals(List.of(3L, 4L), paramsCaptor.getValue().getValue("ids"));
+    }
+
+    @Test
+    void testUpdateIfVersion_GuardsOnIdAndVersion() {
+        // Given
+        Map<String, Object> updates = Map.of("field", "newValue");
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(new DynamicDocument(1L, TABLE_NAME, Map.of("field", "newValue"))));
+
+        // When
+        List<Map<String, Object>> result = repository.updateIfVersion(TABLE_NAME, 1L, 4L, updates);
+
+        // Then
+        assertEquals(1, result.size());
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        assertTrue(sqlCaptor.getValue().contains("d.id = :documentId AND COALESCE(d.version, 0) = :expectedVersion"));
+        assertFalse(sqlCaptor.getValue().contains("LIMIT 1"));
+        assertEquals(1L, paramsCaptor.getValue().getValue("documentId"));
+        assertEquals(4L, paramsCaptor.getValue().getValue("expectedVersion"));
+    }
+
+    @Test
+    void testTouch_BumpsVersionWithoutRewritingData() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(new DynamicDocument(1L, TABLE_NAME, Map.of("field", "value"))));
+
+        // When
+        List<Map<String, Object>> result = repository.touch(TABLE_NAME, "d.id = :documentId", "req-1",
+                Map.of("documentId", 1L), false);
+
+        // Then
+        assertEquals(1, result.size());
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        String sql = sqlCaptor.getValue();
+        assertTrue(sql.startsWith("UPDATE dynamic_documents d SET version = COALESCE(d.version, 0) + 1"));
+        assertFalse(sql.contains("data ="));
+        assertFalse(sql.contains("content_hash"));
+        assertTrue(sql.contains("latest_request_id = :latestRequestId"));
+        assertEquals("req-1", paramsCaptor.getValue().getValue("latestRequestId"));
+    }
+
+    @Test
+    void testUpdateIfVersion_ThrowsWhenVersionMoved() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // When / Then
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> repository.updateIfVersion(TABLE_NAME, 1L, 4L, Map.of("field", "newValue")));
     }
 
     @Test
@@ -227,36 +642,250 @@ class DynamicDocumentRepositoryTest {
         // Return empty list to simulate no existing document
         when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
                 .thenReturn(List.of());
-        doAnswer(invocation -> 1).when(jdbcTemplate).update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class));
+        doAnswer(invocation -> {
+            KeyHolder keyHolder = invocation.getArgument(2);
+            keyHolder.getKeyList().add(Map.of("id", 5L));
+            return 1;
+        }).when(jdbcTemplate).update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class));
 
         // When
         Map<String, Object> result = repository.upsert(TABLE_NAME, whereClause, documentData, params);
 
         // Then
-        assertNotNull(result.get("upsertedId"));
+        assertEquals(5L, result.get("upsertedId"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> writtenDocument = (Map<String, Object>) result.get("document");
+        assertEquals(5L, writtenDocument.get("id"));
+        assertEquals(42, writtenDocument.get("value"));
     }
 
     @Test
     void testUpsert_UpdateExisting() {
         // Given
         String whereClause = "data->>'name' = :name";
-        Map<String, Object> documentData = Map.of("name", "test", "value", 42);
+        Map<String, Object> documentData = Map.of("name", "test", "value", 42, "latestRequestId", "req-2");
         Map<String, Object> params = Map.of("name", "test");
 
-        DynamicDocument existingDoc = new DynamicDocument();
-        existingDoc.setId(1L);
-        existingDoc.setVersion(1L);
-        existingDoc.setDynamicFields(Map.of("name", "test", "value", 10));
+        DynamicDocument updatedDoc = new DynamicDocument(1L, TABLE_NAME, Map.of("name", "test", "value", 42));
+        updatedDoc.setVersion(2L);
 
         when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
-                .thenReturn(List.of(existingDoc));
+                .thenReturn(List.of(updatedDoc));
 
         // When
         Map<String, Object> result = repository.upsert(TABLE_NAME, whereClause, documentData, params);
 
+        // Then: One statement merges in the database and stores the hash of the sent fields
+        assertEquals(1L, result.get("matchedCount"));
+        assertEquals(1L, result.get("modifiedCount"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> writtenDocument = (Map<String, Object>) result.get("document");
+        assertEquals(42, writtenDocument.get("value"));
+        assertEquals(2L, writtenDocument.get("version"));
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        String capturedSql = sqlCaptor.getValue();
+        assertTrue(capturedSql.startsWith("UPDATE dynamic_documents d SET data = d.data || :patch::jsonb, "
+                + "content_hash = :contentHash"));
+        assertTrue(capturedSql.contains("AND (d.content_hash IS NULL OR d.content_hash <> :contentHash) "
+                + "AND (d.data) IS DISTINCT FROM (d.data || :patch::jsonb)"));
+        assertEquals(contentHash(Map.of("name", "test", "value", 42)), paramsCaptor.getValue().getValue("contentHash"));
+        assertEquals("req-2", paramsCaptor.getValue().getValue("latestRequestId"));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+    }
+
+    @Test
+    void testUpsert_PicksFirstMatchBeforeTheGuards() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(new DynamicDocument(1L, TABLE_NAME, Map.of("value", 42))));
+
+        // When
+        repository.upsert(TABLE_NAME, "data->>'name' = :name", Map.of("value", 42), Map.of("name", "test"));
+
+        // Then: An unchanged first match is not passed over for a later one
+        verify(jdbcTemplate).query(sqlCaptor.capture(), any(MapSqlParameterSource.class), any(RowMapper.class));
+        assertTrue(sqlCaptor.getValue().contains("d.id IN (SELECT d.id FROM dynamic_documents d WHERE "
+                + "d.table_name = :tableName AND d.is_deleted = false AND data->>'name' = :name LIMIT 1) "
+                + "AND (d.content_hash IS NULL"));
+    }
+
+    @Test
+    void testUpsert_SkipsWriteWhenMergeChangesNothing() {
+        // Given: The guarded merge writes nothing, the stored document already holds the upserted values
+        DynamicDocument existingDoc = new DynamicDocument(1L, TABLE_NAME, Map.of("name", "test", "value", 42));
+        existingDoc.setVersion(4L);
+
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(), List.of(existingDoc));
+
+        // When: Re-sent with a new request id
+        Map<String, Object> result = repository.upsert(TABLE_NAME, null,
+                Map.of("value", 42, "latestRequestId", "req-2"), Map.of());
+
+        // Then: Nothing is written and the version is kept
+        assertEquals(1L, result.get("matchedCount"));
+        assertEquals(0L, result.get("modifiedCount"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> document = (Map<String, Object>) result.get("document");
+        assertEquals(4L, document.get("version"));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class),
+                any(String[].class));
+    }
+
+    @Test
+    void testUpsertByKey_InsertsWithOnConflict() {
+        // Given
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1", "price", 10));
+        DynamicDocument written = new DynamicDocument(7L, TABLE_NAME, Map.of("sku", "A-1", "price", 10));
+        written.setVersion(0L);
+
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(written));
+
+        // When
+        Map<String, Object> result = repository.upsertByKey(TABLE_NAME, List.of("sku"), document);
+
+        // Then
+        assertEquals(7L, result.get("upsertedId"));
+        assertFalse(result.containsKey("matchedCount"));
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        String capturedSql = sqlCaptor.getValue();
+        assertTrue(capturedSql.contains("ON CONFLICT (table_name, (data->>'sku')) WHERE table_name = 'test-collection' AND is_deleted = false"));
+        assertTrue(capturedSql.contains("DO UPDATE SET data = d.data || EXCLUDED.data"));
+        assertTrue(capturedSql.contains("WHERE d.content_hash IS DISTINCT FROM EXCLUDED.content_hash"));
+        assertTrue(capturedSql.endsWith("RETURNING *"));
+        assertEquals("A-1", paramsCaptor.getValue().getValue("upsertKey0"));
+        assertEquals(contentHash(Map.of("sku", "A-1", "price", 10)), paramsCaptor.getValue().getValue("contentHash"));
+    }
+
+    @Test
+    void testUpsertByKey_BindsKeysAsTheirJsonText() {
+        // Given
+        DynamicDocument document = new DynamicDocument(Map.of("sku", 15, "owner", Map.of("id", 3)));
+        DynamicDocument written = new DynamicDocument(7L, TABLE_NAME, Map.of("sku", 15, "owner", Map.of("id", 3)));
+        written.setVersion(0L);
+
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(written));
+
+        // When
+        repository.upsertByKey(TABLE_NAME, List.of("sku", "owner"), document);
+
+        // Then: The same text data->>'sku' yields for the serialized document
+        verify(jdbcTemplate).query(anyString(), paramsCaptor.capture(), any(RowMapper.class));
+        assertEquals("15", paramsCaptor.getValue().getValue("upsertKey0"));
+        assertEquals("{\"id\":3}", paramsCaptor.getValue().getValue("upsertKey1"));
+    }
+
+    @Test
+    void testUpsertByKey_ReadsDocumentWhenContentIsUnchanged() {
+        // Given: The guarded merge writes nothing, the re-read finds the live document
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1", "price", 10));
+        DynamicDocument stored = new DynamicDocument(7L, TABLE_NAME, Map.of("sku", "A-1", "price", 10));
+        stored.setVersion(3L);
+
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(), List.of(stored));
+
+        // When
+        Map<String, Object> result = repository.upsertByKey(TABLE_NAME, List.of("sku"), document);
+
+        // Then: Reported as matched but not modified
+        assertFalse(result.containsKey("upsertedId"));
+        assertEquals(1L, result.get("matchedCount"));
+        assertEquals(0L, result.get("modifiedCount"));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+    }
+
+    @Test
+    void testUpsertByKey_KeepsHashOfSentDocument() {
+        // Given: The stored document keeps a field the sent one lacks
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1", "price", 12));
+        DynamicDocument written = new DynamicDocument(7L, TABLE_NAME, Map.of("sku", "A-1", "price", 12, "color", "red"));
+        written.setVersion(3L);
+
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(written));
+
+        // When
+        repository.upsertByKey(TABLE_NAME, List.of("sku"), document);
+
+        // Then: The row keeps the hash of the sent document, so re-sending it short-circuits; no second write
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        assertTrue(sqlCaptor.getValue().contains("content_hash = EXCLUDED.content_hash"));
+        assertTrue(sqlCaptor.getValue().contains("AND (d.data) IS DISTINCT FROM (d.data || EXCLUDED.data)"));
+        assertEquals(contentHash(Map.of("sku", "A-1", "price", 12)), paramsCaptor.getValue().getValue("contentHash"));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+    }
+
+    @Test
+    void testUpsertByKey_ReportsMergeOfExistingDocument() {
+        // Given
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1", "price", 12));
+        DynamicDocument written = new DynamicDocument(7L, TABLE_NAME, Map.of("sku", "A-1", "price", 12));
+        written.setVersion(3L);
+
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(written));
+
+        // When
+        Map<String, Object> result = repository.upsertByKey(TABLE_NAME, List.of("sku"), document);
+
         // Then
+        assertFalse(result.containsKey("upsertedId"));
         assertEquals(1L, result.get("matchedCount"));
         assertEquals(1L, result.get("modifiedCount"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> writtenDocument = (Map<String, Object>) result.get("document");
+        assertEquals(12, writtenDocument.get("price"));
+    }
+
+    @Test
+    void testUpsertByKey_MergesAndReselectsWhenUpdateReturningUnsupported() {
+        // Given
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, new OracleDialect(), ttlPolicies, INSERT_BATCH_SIZE);
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1"));
+        DynamicDocument written = new DynamicDocument(9L, TABLE_NAME, Map.of("sku", "A-1"));
+        written.setVersion(0L);
+
+        when(jdbcTemplate.update(startsWith("MERGE INTO dynamic_documents d"), any(MapSqlParameterSource.class)))
+                .thenReturn(1);
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(written));
+
+        // When
+        Map<String, Object> result = repository.upsertByKey(TABLE_NAME, List.of("sku"), document);
+
+        // Then
+        assertEquals(9L, result.get("upsertedId"));
+        verify(jdbcTemplate).update(startsWith("MERGE INTO dynamic_documents d"), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate).query(sqlCaptor.capture(), any(MapSqlParameterSource.class), any(RowMapper.class));
+        assertTrue(sqlCaptor.getValue().contains("CASE WHEN d.table_name = 'test-collection' AND d.is_deleted = 0 "
+                + "THEN JSON_VALUE(d.data, '$.sku') END = :upsertKey0"));
+    }
+
+    @Test
+    void testUpsertByKey_RetriesWhenKeyIsInsertedConcurrently() {
+        // Given: The first MERGE loses the race to insert the key, the retry merges into that row
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, new OracleDialect(), ttlPolicies, INSERT_BATCH_SIZE);
+        DynamicDocument document = new DynamicDocument(Map.of("sku", "A-1", "price", 12));
+        DynamicDocument written = new DynamicDocument(9L, TABLE_NAME, Map.of("sku", "A-1", "price", 12));
+        written.setVersion(1L);
+
+        when(jdbcTemplate.update(startsWith("MERGE INTO dynamic_documents d"), any(MapSqlParameterSource.class)))
+                .thenThrow(new DuplicateKeyException("ORA-00001: unique constraint violated"))
+                .thenReturn(1);
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(written));
+
+        // When
+        Map<String, Object> result = repository.upsertByKey(TABLE_NAME, List.of("sku"), document);
+
+        // Then
+        assertEquals(1L, result.get("matchedCount"));
+        assertEquals(1L, result.get("modifiedCount"));
+        verify(jdbcTemplate, times(2)).update(startsWith("MERGE INTO dynamic_documents d"), any(MapSqlParameterSource.class));
     }
 
     @Test
@@ -268,24 +897,167 @@ class DynamicDocumentRepositoryTest {
 
         DynamicDocument doc = new DynamicDocument();
         doc.setId(1L);
-        doc.setVersion(1L);
+        doc.setVersion(2L);
+        doc.setDeleted(true);
+        doc.setLatestRequestId(requestId);
         doc.setDynamicFields(Map.of("name", "test"));
 
         when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
                 .thenReturn(List.of(doc));
 
         // When
-        int result = repository.delete(TABLE_NAME, whereClause, params, false, requestId);
+        List<Map<String, Object>> result = repository.delete(TABLE_NAME, whereClause, params, false, requestId);
 
         // Then
-        assertEquals(1, result);
-        // Verify update was called with is_deleted = true
-        verify(jdbcTemplate).update(contains("SET data ="), paramsCaptor.capture());
+        assertEquals(1, result.size());
+        assertEquals(true, result.get(0).get("isDeleted"));
+        assertEquals("test", result.get(0).get("name"));
+        // One statement flips the flag and returns the rows; the JSON column is not rewritten
+        verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(), any(RowMapper.class));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+        String capturedSql = sqlCaptor.getValue();
+        assertTrue(capturedSql.startsWith("UPDATE dynamic_documents d SET is_deleted = :isDeleted"));
+        assertFalse(capturedSql.contains("data ="));
+        assertTrue(capturedSql.contains("LIMIT 1)"));
+        assertTrue(capturedSql.endsWith("RETURNING *"));
         MapSqlParameterSource capturedParams = paramsCaptor.getValue();
         assertEquals(true, capturedParams.getValue("isDeleted"));
         assertEquals(requestId, capturedParams.getValue("latestRequestId"));
     }
 
+    @Test
+    void testDelete_ReloadsRowsWhenUpdateReturningUnsupported() {
+        // Given
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, new OracleDialect(), ttlPolicies, INSERT_BATCH_SIZE);
+        DynamicDocument doc = new DynamicDocument();
+        doc.setId(5L);
+        doc.setDeleted(true);
+
+        when(jdbcTemplate.queryForList(startsWith("SELECT d.id"), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(5L));
+        when(jdbcTemplate.query(contains("d.id IN (:ids)"), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(doc));
+
+        // When
+        List<Map<String, Object>> result = repository.delete(TABLE_NAME, null, Map.of(), true, null);
+
+        // Then
+        assertEquals(1, result.size());
+        verify(jdbcTemplate).update(sqlCaptor.capture(), paramsCaptor.capture());
+        assertTrue(sqlCaptor.getValue().startsWith("UPDATE dynamic_documents d SET is_deleted = :isDeleted"));
+        assertEquals(1, paramsCaptor.getValue().getValue("isDeleted"));
+    }
+
+    @Test
+    void testDelete_IdsOnlyReturnsIdColumn() {
+        // Given
+        when(jdbcTemplate.queryForList(anyString(), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(7L, 8L));
+
+        // When
+        List<Map<String, Object>> result = repository.delete(TABLE_NAME, null, Map.of(), true, "req-1", true);
+
+        // Then: Only ids come back; the rows are neither returned nor reloaded
+        assertEquals(List.of(Map.of("id", 7L), Map.of("id", 8L)), result);
+        verify(jdbcTemplate).queryForList(sqlCaptor.capture(), any(MapSqlParameterSource.class), eq(Long.class));
+        assertTrue(sqlCaptor.getValue().endsWith("RETURNING id"));
+        verify(jdbcTemplate, never()).query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class));
+    }
+
+    @Test
+    void testUpdate_IdsOnlySkipsReloadWhenUpdateReturningUnsupported() {
+        // Given
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, new OracleDialect(), ttlPolicies, INSERT_BATCH_SIZE);
+        when(jdbcTemplate.queryForList(startsWith("SELECT d.id"), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(5L));
+
+        // When
+        List<Map<String, Object>> result = repository.update(TABLE_NAME, null, Map.of("name", "Bob"), Map.of(),
+                true, true);
+
+        // Then
+        assertEquals(List.of(Map.of("id", 5L)), result);
+        verify(jdbcTemplate).update(startsWith("UPDATE dynamic_documents d SET data"), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate, never()).query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class));
+    }
+
+    @Test
+    void testClaim_LocksSkippingLockedRowsThenPatchesThem() throws Exception {
+        // Given: Two free documents match
+        when(jdbcTemplate.getJdbcOperations()).thenReturn(jdbcOperations);
+        when(jdbcOperations.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+                .thenReturn(List.of(3L, 4L));
+        when(jdbcTemplate.queryForList(anyString(), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(3L, 4L));
+
+        // When
+        List<Map<String, Object>> result = repository.claim(TABLE_NAME, "data->>'status' = :status",
+                Map.of("status", "PENDING"), Map.of("status", "RUNNING"), 2, "req-1", true);
+
+        // Then: The select locks in id order, the update merges set into exactly the locked ids
+        assertEquals(List.of(Map.of("id", 3L), Map.of("id", 4L)), result);
+        assertTrue(claimSelect(2).endsWith("ORDER BY d.id LIMIT 2 FOR UPDATE SKIP LOCKED"));
+        verify(jdbcTemplate).queryForList(sqlCaptor.capture(), paramsCaptor.capture(), eq(Long.class));
+        assertTrue(sqlCaptor.getValue().contains("d.id IN (:claimedIds)"));
+        assertEquals(List.of(3L, 4L), paramsCaptor.getValue().getValue("claimedIds"));
+        assertEquals("{\"status\":\"RUNNING\"}", paramsCaptor.getValue().getValue("patch"));
+    }
+
+    @Test
+    void testClaim_OracleLocksOnlyTheRowsItFetches() throws Exception {
+        // Given: Oracle locks rows as they are fetched
+        repository = new DynamicDocumentRepository(jdbcTemplate, crudRepository, objectMapper, new OracleDialect(),
+                ttlPolicies, INSERT_BATCH_SIZE);
+        when(jdbcTemplate.getJdbcOperations()).thenReturn(jdbcOperations);
+        when(jdbcOperations.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+                .thenReturn(List.of());
+
+        // When
+        repository.claim(TABLE_NAME, "1=1", Map.of(), Map.of("status", "RUNNING"), 5, "req-1", true);
+
+        // Then: No ORDER BY, which would lock every match before returning the first
+        String sql = claimSelect(5);
+        assertFalse(sql.contains("ttlCutoff"));
+        assertTrue(sql.endsWith("FOR UPDATE SKIP LOCKED"));
+        assertFalse(sql.contains("ORDER BY"));
+    }
+
+    /**
+     * Prepares the captured claim select on a mock connection, checks it fetches limit rows at a time
+     * and returns its SQL
+     */
+    private String claimSelect(int limit) throws Exception {
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcOperations).query(creator.capture(), any(ResultSetExtractor.class));
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        creator.getValue().createPreparedStatement(connection);
+
+        verify(statement).setFetchSize(limit);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection).prepareStatement(sql.capture());
+        return sql.getValue();
+    }
+
+    @Test
+    void testClaim_NothingFreeWritesNothing() {
+        // Given: Every matching document is locked by another claim
+        when(jdbcTemplate.getJdbcOperations()).thenReturn(jdbcOperations);
+        when(jdbcOperations.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+                .thenReturn(List.of());
+
+        // When
+        List<Map<String, Object>> result = repository.claim(TABLE_NAME, null, Map.of(), Map.of("status", "RUNNING"),
+                5, "req-1", false);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(jdbcTemplate, never()).query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class));
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+    }
+
     @Test
     void testFindById() {
         // Given
@@ -352,4 +1124,72 @@ class DynamicDocumentRepositoryTest {
         assertTrue(capturedSql.contains("sequence_number > :startSequence"));
         assertTrue(capturedSql.contains("ORDER BY sequence_number ASC"));
     }
+
+    @Test
+    void testGetNextPageBySequence_ReadsArchivedTombstones() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // When
+        repository.getNextPageBySequence(TABLE_NAME, 7L, 5);
+
+        // Then: Both tables are read one page deep and merged by sequence number
+        verify(jdbcTemplate).query(sqlCaptor.capture(), any(MapSqlParameterSource.class), any(RowMapper.class));
+        String capturedSql = sqlCaptor.getValue();
+        assertTrue(capturedSql.contains("FROM dynamic_documents d WHERE"));
+        assertTrue(capturedSql.contains("FROM dynamic_documents_archive d WHERE"));
+        assertTrue(capturedSql.contains(" UNION ALL "));
+        assertTrue(capturedSql.endsWith("ORDER BY sequence_number ASC LIMIT 5"));
+    }
+
+    @Test
+    void testArchiveDeletedBatch_MovesDeletedRowsToArchive() {
+        // Given
+        Instant deletedBefore = Instant.parse("2024-01-01T00:00:00Z");
+        when(jdbcTemplate.queryForList(anyString(), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of(4L, 9L));
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(2);
+
+        // When
+        int archived = repository.archiveDeletedBatch(TABLE_NAME, deletedBefore, 100);
+
+        // Then
+        assertEquals(2, archived);
+        verify(jdbcTemplate).queryForList(sqlCaptor.capture(), paramsCaptor.capture(), eq(Long.class));
+        assertTrue(sqlCaptor.getValue().contains("is_deleted = true AND d.last_modified_at < :deletedBefore ORDER BY d.id LIMIT 100"));
+        assertEquals(Timestamp.from(deletedBefore), paramsCaptor.getValue().getValue("deletedBefore"));
+
+        verify(jdbcTemplate, times(2)).update(sqlCaptor.capture(), paramsCaptor.capture());
+        List<String> statements = sqlCaptor.getAllValues().subList(1, 3);
+        assertTrue(statements.get(0).startsWith("INSERT INTO dynamic_documents_archive ("));
+        assertTrue(statements.get(0).contains(", :archivedAt FROM dynamic_documents WHERE id IN (:ids)"));
+        assertEquals("DELETE FROM dynamic_documents WHERE id IN (:ids)", statements.get(1));
+        assertEquals(List.of(4L, 9L), paramsCaptor.getValue().getValue("ids"));
+    }
+
+    @Test
+    void testArchiveDeletedBatch_NothingDueSkipsWrites() {
+        // Given
+        when(jdbcTemplate.queryForList(anyString(), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(List.of());
+
+        // When
+        int archived = repository.archiveDeletedBatch(TABLE_NAME, Instant.now(), 100);
+
+        // Then
+        assertEquals(0, archived);
+        verify(jdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+    }
+
+    private String contentHash(Map<String, Object> data) {
+        try {
+            String json = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+                    .writeValueAsString(data);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(json.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,154 @@
+package sigma.service.request;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import sigma.dto.request.BulkWriteRequest;
+import sigma.dto.request.ClaimRequest;
+import sigma.dto.request.UpdateRequest;
+import sigma.dto.request.WritePrecondition;
+import sigma.dto.request.WriteRequest;
+import sigma.model.update.UpdateOperation;
+import sigma.model.update.UpdateOperator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for WriteRequestFactory - PATCH update operator parsing, return=minimal and _claim
+ */
+class WriteRequestFactoryTest {
+
+    private final WriteRequestFactory factory = new WriteRequestFactory(new ObjectMapper());
+
+    /**
+     * Tests plain PATCH bodies keep replacing top-level values
+     */
+    @Test
+    void testPlainUpdatesHaveNoOperators() {
+        // Given: Replacement values only
+        String body = "{\"filter\":{\"id\":1},\"updates\":{\"name\":\"Bob\"}}";
+
+        // When: Parse
+        UpdateRequest request = parsePatch(body);
+
+        // Then: Treated as a merge of top-level keys
+        assertFalse(request.hasUpdateOperators());
+        assertEquals(Map.of("name", "Bob"), request.getUpdates());
+    }
+
+    /**
+     * Tests each operator and dotted path becomes one update operation
+     */
+    @Test
+    void testOperatorsAreParsedPerPath() {
+        // Given: Every supported operator
+        String body = "{\"filter\":{\"id\":1},\"updates\":{"
+                + "\"$set\":{\"address.city\":\"Oslo\"},"
+                + "\"$inc\":{\"stats.views\":1},"
+                + "\"$push\":{\"tags\":\"new\"},"
+                + "\"$pull\":{\"labels\":\"old\"},"
+                + "\"$unset\":{\"legacy\":\"\"}}}";
+
+        // When: Parse
+        UpdateRequest request = parsePatch(body);
+
+        // Then: One operation per path, $unset carries no operand
+        assertTrue(request.hasUpdateOperators());
+        assertEquals(List.of(
+                new UpdateOperation(UpdateOperator.SET, "address.city", "Oslo"),
+                new UpdateOperation(UpdateOperator.INC, "stats.views", 1),
+                new UpdateOperation(UpdateOperator.PUSH, "tags", "new"),
+                new UpdateOperation(UpdateOperator.PULL, "labels", "old"),
+                new UpdateOperation(UpdateOperator.UNSET, "legacy", null)
+        ), request.getUpdateOperations());
+    }
+
+    /**
+     * Tests invalid operator bodies are rejected before reaching the database
+     */
+    @Test
+    void testInvalidOperatorsAreRejected() {
+        // Mixed operators and plain fields
+        assertThrows(IllegalArgumentException.class,
+                () -> parsePatch("{\"updates\":{\"$inc\":{\"a\":1},\"name\":\"Bob\"}}"));
+        // Unknown operator
+        assertThrows(IllegalArgumentException.class,
+                () -> parsePatch("{\"updates\":{\"$rename\":{\"a\":\"b\"}}}"));
+        // Non-numeric increment
+        assertThrows(IllegalArgumentException.class,
+                () -> parsePatch("{\"updates\":{\"$inc\":{\"a\":\"1\"}}}"));
+        // Path with characters outside field names
+        assertThrows(IllegalArgumentException.class,
+                () -> parsePatch("{\"updates\":{\"$set\":{\"a'--\":1}}}"));
+        // Overlapping paths
+        assertThrows(IllegalArgumentException.class,
+                () -> parsePatch("{\"updates\":{\"$set\":{\"address\":{}},\"$unset\":{\"address.city\":\"\"}}}"));
+    }
+
+    /**
+     * Tests the return=minimal preference is carried by every single-operation request
+     */
+    @Test
+    void testReturnMinimalIsCarriedByRequest() {
+        // Given: One body per write method
+        Map<String, String> bodies = Map.of(
+                "POST", "{\"name\":\"Alice\"}",
+                "PUT", "{\"filter\":{\"id\":1},\"document\":{\"name\":\"Alice\"}}",
+                "PATCH", "{\"filter\":{\"id\":1},\"updates\":{\"$inc\":{\"views\":1}}}",
+                "DELETE", "{\"filter\":{\"id\":1}}");
+
+        bodies.forEach((method, body) -> {
+            // When: Parse with and without the preference
+            WriteRequest minimal = factory.create(method, body, null, "req-1", WritePrecondition.none(), true);
+            WriteRequest representation = factory.create(method, body, null, "req-1", WritePrecondition.none());
+
+            // Then: Only the first asks for ids and counts
+            assertTrue(minimal.isReturnMinimal(), method);
+            assertFalse(representation.isReturnMinimal(), method);
+        });
+    }
+
+    /**
+     * Tests bulk operations always return minimal, since bulk results only list ids
+     */
+    @Test
+    void testBulkOperationsReturnMinimal() {
+        // Given: A bulk body with an update and a delete
+        String body = "{\"operations\":[{\"update\":{\"filter\":{\"id\":1},\"updates\":{\"a\":1}}},"
+                + "{\"delete\":{\"filter\":{\"id\":2}}}]}";
+
+        // When: Parse
+        BulkWriteRequest request = factory.createBulk(body, null, "req-1");
+
+        // Then: No operation re-reads its documents
+        assertTrue(request.getOperations().stream().allMatch(WriteRequest::isReturnMinimal));
+    }
+
+    /**
+     * Tests a _claim body carries filter, limit and set, with limit defaulting to one document
+     */
+    @Test
+    void testClaimBodyIsParsed() {
+        // Given: A claim with and without a limit
+        String body = "{\"filter\":{\"status\":\"PENDING\"},\"limit\":10,\"set\":{\"status\":\"RUNNING\"}}";
+        String withoutLimit = "{\"filter\":{\"status\":\"PENDING\"},\"set\":{\"status\":\"RUNNING\"}}";
+
+        // When: Parse
+        ClaimRequest request = factory.createClaim(body, "req-1", false);
+        ClaimRequest single = factory.createClaim(withoutLimit, "req-1", false);
+
+        // Then
+        assertEquals(Map.of("status", "PENDING"), request.getFilter());
+        assertEquals(Map.of("status", "RUNNING"), request.getSet());
+        assertEquals(10, request.getLimit());
+        assertEquals(1, single.getLimit());
+        assertEquals("PATCH", request.getHttpMethod());
+        assertThrows(IllegalArgumentException.class, () -> factory.createClaim("", "req-1", false));
+    }
+
+    private UpdateRequest parsePatch(String body) {
+        return (UpdateRequest) factory.create("PATCH", body, null, "req-1", WritePrecondition.none());
+    }
+}
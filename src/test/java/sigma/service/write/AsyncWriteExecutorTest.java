@@ -0,0 +1,137 @@
+package sigma.service.write;
+
+import sigma.dto.request.WriteRequest;
+import sigma.dto.response.CreateResponse;
+import sigma.dto.response.OperationStatusResponse;
+import sigma.dto.response.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for AsyncWriteExecutor - bounded queue and operation status tracking
+ */
+class AsyncWriteExecutorTest {
+
+    private AsyncWriteExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Tests a submitted write is PENDING first and exposes its minimal response once completed
+     */
+    @Test
+    void testSubmittedOperationCompletesWithResult() throws Exception {
+        // Given: One thread and a write that waits for a signal
+        executor = new AsyncWriteExecutor(new SimpleMeterRegistry(), 1, 10, 60_000, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        Response writeResponse = new CreateResponse(List.of("1"), List.of(Map.of("id", 1L)), "Document created successfully.");
+
+        // When: Submit
+        OperationStatusResponse submitted = executor.submit(WriteRequest.WriteType.CREATE, () -> {
+            await(release);
+            return writeResponse;
+        });
+
+        // Then: Not completed until the write returns
+        assertFalse(submitted.isCompleted());
+        assertEquals(WriteRequest.WriteType.CREATE, submitted.getWriteType());
+        assertFalse(executor.find(submitted.getOperationId()).orElseThrow().isCompleted());
+
+        release.countDown();
+        OperationStatusResponse completed = awaitCompletion(submitted.getOperationId());
+        CreateResponse result = (CreateResponse) completed.getResult();
+        assertEquals(List.of("1"), result.getInsertedIds());
+        assertNull(result.getDocuments());
+        assertNotNull(completed.getCompletedAt());
+    }
+
+    /**
+     * Tests the queue is bounded: submissions beyond capacity are rejected
+     */
+    @Test
+    void testFullQueueRejectsSubmission() {
+        // Given: One busy thread and a queue of one
+        executor = new AsyncWriteExecutor(new SimpleMeterRegistry(), 1, 1, 60_000, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(WriteRequest.WriteType.CREATE, () -> await(release));
+        executor.submit(WriteRequest.WriteType.CREATE, () -> await(release));
+
+        // When/Then: The third submission does not fit
+        assertThrows(RejectedExecutionException.class,
+                () -> executor.submit(WriteRequest.WriteType.CREATE, () -> await(release)));
+        release.countDown();
+    }
+
+    /**
+     * Tests unknown operations and completed operations past their retention are not found
+     */
+    @Test
+    void testExpiredOperationsAreEvicted() throws Exception {
+        // Given: Zero retention
+        executor = new AsyncWriteExecutor(new SimpleMeterRegistry(), 1, 10, 0, 100);
+        OperationStatusResponse submitted = executor.submit(WriteRequest.WriteType.DELETE, () -> null);
+
+        // When: The operation completes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.find(submitted.getOperationId()).isPresent() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then: It is gone, like an unknown id
+        assertTrue(executor.find(submitted.getOperationId()).isEmpty());
+        assertTrue(executor.find("unknown").isEmpty());
+    }
+
+    /**
+     * Tests the oldest completed operations are evicted once more than max-retained are kept
+     */
+    @Test
+    void testOldestCompletedOperationsAreEvictedOverLimit() throws Exception {
+        // Given: Room for two operations
+        executor = new AsyncWriteExecutor(new SimpleMeterRegistry(), 1, 10, 60_000, 2);
+        OperationStatusResponse first = executor.submit(WriteRequest.WriteType.DELETE, () -> null);
+        awaitCompletion(first.getOperationId());
+        OperationStatusResponse second = executor.submit(WriteRequest.WriteType.DELETE, () -> null);
+        awaitCompletion(second.getOperationId());
+
+        // When: A third operation is submitted
+        OperationStatusResponse third = executor.submit(WriteRequest.WriteType.DELETE, () -> null);
+
+        // Then: Only the oldest completed operation is gone
+        assertTrue(executor.find(first.getOperationId()).isEmpty());
+        assertTrue(executor.find(second.getOperationId()).isPresent());
+        assertTrue(executor.find(third.getOperationId()).isPresent());
+    }
+
+    private OperationStatusResponse awaitCompletion(String operationId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        OperationStatusResponse status = executor.find(operationId).orElseThrow();
+        while (!status.isCompleted() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = executor.find(operationId).orElseThrow();
+        }
+        assertTrue(status.isCompleted());
+        return status;
+    }
+
+    private static Response await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,162 @@
+package sigma.service.write;
+
+import sigma.config.properties.ZookeeperConfigProperties;
+import sigma.controller.EndpointRegistry;
+import sigma.model.Endpoint;
+import sigma.persistence.repository.DynamicDocumentRepository;
+import sigma.zookeeper.ZookeeperLock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for DeletedDocumentArchiver - batched, lock-guarded archival of soft-deleted documents
+ */
+@ExtendWith(MockitoExtension.class)
+class DeletedDocumentArchiverTest {
+
+    private static final String LOCK_PATH = "/test/locks/sigma/document-archive";
+
+    @Mock
+    private DynamicDocumentRepository repository;
+
+    @Mock
+    private EndpointRegistry endpointRegistry;
+
+    @Mock
+    private ZookeeperLock lock;
+
+    @Mock
+    private ZookeeperConfigProperties configProperties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DeletedDocumentArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        archiver = new DeletedDocumentArchiver(repository, endpointRegistry, lock, configProperties, meterRegistry,
+                true, 2, 3, 0);
+        lenient().when(configProperties.getLocksBasePath()).thenReturn("/test/locks/sigma");
+    }
+
+    /**
+     * Tests documents deleted before the retention are archived batch by batch, with progress metrics
+     */
+    @Test
+    void testArchivesInBatchesUntilShortBatch() {
+        // Given: A full batch of deleted orders followed by a short one
+        registerEndpoints(endpoint("orders", Duration.ofDays(7)));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(true);
+        when(repository.archiveDeletedBatch(eq("orders"), any(Instant.class), eq(2))).thenReturn(2, 1);
+
+        // When
+        Instant before = Instant.now();
+        archiver.archiveDeletedDocuments();
+
+        // Then
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(repository, times(2)).archiveDeletedBatch(eq("orders"), cutoff.capture(), eq(2));
+        assertFalse(cutoff.getValue().isAfter(Instant.now().minus(Duration.ofDays(7))));
+        assertFalse(cutoff.getValue().isBefore(before.minus(Duration.ofDays(7))));
+        verify(lock).release(LOCK_PATH);
+        assertEquals(3.0, meterRegistry.counter("sigma.write.archive.documents", "collection", "orders").count());
+        assertEquals(2, meterRegistry.timer("sigma.write.archive.batches", "collection", "orders").count());
+    }
+
+    /**
+     * Tests endpoints sharing a collection archive after the longest of their retentions
+     */
+    @Test
+    void testLongestRetentionWins() {
+        // Given
+        registerEndpoints(endpoint("orders", Duration.ofDays(1)), endpoint("orders", Duration.ofDays(30)));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(true);
+        when(repository.archiveDeletedBatch(eq("orders"), any(Instant.class), eq(2))).thenReturn(0);
+
+        // When
+        archiver.archiveDeletedDocuments();
+
+        // Then
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(repository).archiveDeletedBatch(eq("orders"), cutoff.capture(), eq(2));
+        assertFalse(cutoff.getValue().isAfter(Instant.now().minus(Duration.ofDays(30))));
+    }
+
+    /**
+     * Tests a run stops after its batch budget even if more documents are due
+     */
+    @Test
+    void testStopsAtBatchBudget() {
+        // Given: Every batch is full
+        registerEndpoints(endpoint("orders", Duration.ofDays(7)));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(true);
+        when(repository.archiveDeletedBatch(eq("orders"), any(Instant.class), eq(2))).thenReturn(2);
+
+        // When
+        archiver.archiveDeletedDocuments();
+
+        // Then: maxBatchesPerRun is 3
+        verify(repository, times(3)).archiveDeletedBatch(eq("orders"), any(Instant.class), eq(2));
+    }
+
+    /**
+     * Tests nothing is archived while another node holds the lock
+     */
+    @Test
+    void testSkipsRunWithoutLock() {
+        // Given
+        registerEndpoints(endpoint("orders", Duration.ofDays(7)));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(false);
+
+        // When
+        archiver.archiveDeletedDocuments();
+
+        // Then
+        verifyNoInteractions(repository);
+    }
+
+    /**
+     * Tests collections without a retention keep their deleted documents
+     */
+    @Test
+    void testNoRetentionSkipsLock() {
+        // Given
+        registerEndpoints(endpoint("orders", null));
+
+        // When
+        archiver.archiveDeletedDocuments();
+
+        // Then
+        verifyNoInteractions(lock, repository);
+    }
+
+    private Endpoint endpoint(String collection, Duration retention) {
+        Endpoint endpoint = mock(Endpoint.class);
+        lenient().when(endpoint.getDatabaseCollection()).thenReturn(collection);
+        when(endpoint.getDeletedRetention()).thenReturn(retention);
+        return endpoint;
+    }
+
+    private void registerEndpoints(Endpoint... endpoints) {
+        Map<String, Endpoint> byKey = new HashMap<>();
+        for (int i = 0; i < endpoints.length; i++) {
+            byKey.put("GET:/e" + i, endpoints[i]);
+        }
+        when(endpointRegistry.getAllEndpoints()).thenReturn(byKey);
+    }
+}
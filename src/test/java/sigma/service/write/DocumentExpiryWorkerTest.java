@@ -0,0 +1,139 @@
+package sigma.service.write;
+
+import sigma.config.properties.ZookeeperConfigProperties;
+import sigma.model.TtlConfig;
+import sigma.persistence.repository.DocumentTtlPolicies;
+import sigma.persistence.repository.DynamicDocumentRepository;
+import sigma.zookeeper.ZookeeperLock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for DocumentExpiryWorker - batched, lock-guarded expiry of TTL collections
+ */
+@ExtendWith(MockitoExtension.class)
+class DocumentExpiryWorkerTest {
+
+    private static final String LOCK_PATH = "/test/locks/sigma/document-expiry";
+    private static final TtlConfig TTL = TtlConfig.of(Duration.ofHours(1), TtlConfig.CREATED_AT);
+
+    @Mock
+    private DynamicDocumentRepository repository;
+
+    @Mock
+    private DocumentTtlPolicies ttlPolicies;
+
+    @Mock
+    private ZookeeperLock lock;
+
+    @Mock
+    private ZookeeperConfigProperties configProperties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DocumentExpiryWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        worker = new DocumentExpiryWorker(repository, ttlPolicies, lock, configProperties, meterRegistry,
+                true, 2, 3, 0);
+        lenient().when(configProperties.getLocksBasePath()).thenReturn("/test/locks/sigma");
+    }
+
+    /**
+     * Tests batches run until one comes back short, and the lock is released afterwards
+     */
+    @Test
+    void testExpiresInBatchesUntilShortBatch() {
+        // Given: A full batch of expired sessions followed by a short one
+        when(ttlPolicies.getPolicies()).thenReturn(Map.of("sessions", TTL));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(true);
+        when(repository.expireBatch("sessions", TTL, 2)).thenReturn(2, 1);
+
+        // When
+        worker.expireDocuments();
+
+        // Then
+        verify(repository, times(2)).expireBatch("sessions", TTL, 2);
+        verify(lock).release(LOCK_PATH);
+        assertEquals(3.0, meterRegistry.counter("sigma.write.expiry.documents", "collection", "sessions").count());
+    }
+
+    /**
+     * Tests a run stops after its batch budget even if more documents are expired
+     */
+    @Test
+    void testStopsAtBatchBudget() {
+        // Given: Every batch is full
+        when(ttlPolicies.getPolicies()).thenReturn(Map.of("sessions", TTL));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(true);
+        when(repository.expireBatch("sessions", TTL, 2)).thenReturn(2);
+
+        // When
+        worker.expireDocuments();
+
+        // Then: maxBatchesPerRun is 3
+        verify(repository, times(3)).expireBatch("sessions", TTL, 2);
+    }
+
+    /**
+     * Tests nothing is expired while another node holds the lock
+     */
+    @Test
+    void testSkipsRunWithoutLock() {
+        // Given
+        when(ttlPolicies.getPolicies()).thenReturn(Map.of("sessions", TTL));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(false);
+
+        // When
+        worker.expireDocuments();
+
+        // Then
+        verifyNoInteractions(repository);
+        verify(lock, never()).release(anyString());
+    }
+
+    /**
+     * Tests the lock is not even requested when no collection has a TTL
+     */
+    @Test
+    void testNoTtlCollectionsSkipsLock() {
+        // Given
+        when(ttlPolicies.getPolicies()).thenReturn(Map.of());
+
+        // When
+        worker.expireDocuments();
+
+        // Then
+        verifyNoInteractions(lock, repository);
+    }
+
+    /**
+     * Tests a failing batch releases the lock
+     */
+    @Test
+    void testFailureReleasesLock() {
+        // Given
+        when(ttlPolicies.getPolicies()).thenReturn(Map.of("sessions", TTL));
+        when(lock.tryAcquire(LOCK_PATH)).thenReturn(true);
+        when(repository.expireBatch(anyString(), any(), anyInt())).thenThrow(new IllegalStateException("boom"));
+
+        // When
+        assertDoesNotThrow(() -> worker.expireDocuments());
+
+        // Then
+        verify(lock).release(LOCK_PATH);
+    }
+}
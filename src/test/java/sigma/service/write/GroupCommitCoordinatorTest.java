@@ -0,0 +1,235 @@
+package sigma.service.write;
+
+import sigma.dto.request.CreateRequest;
+import sigma.dto.request.UpdateRequest;
+import sigma.dto.response.CreateResponse;
+import sigma.dto.response.WriteResponse;
+import sigma.model.Endpoint;
+import sigma.model.GroupCommitConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for GroupCommitCoordinator - coalescing of concurrent single-document creates
+ */
+@ExtendWith(MockitoExtension.class)
+class GroupCommitCoordinatorTest {
+
+    @Mock
+    private WriteService writeService;
+
+    @Mock
+    private Endpoint endpoint;
+
+    private GroupCommitCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        coordinator = new GroupCommitCoordinator(writeService, new SimpleMeterRegistry(), 1, 5_000);
+        lenient().when(endpoint.getName()).thenReturn("users");
+    }
+
+    @AfterEach
+    void tearDown() {
+        coordinator.shutdown();
+    }
+
+    /**
+     * Tests writes bypass the queue when the endpoint has not enabled group commit
+     */
+    @Test
+    void testDisabledEndpointExecutesDirectly() {
+        // Given: Endpoint without group commit
+        CreateRequest request = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        WriteResponse response = createResponse("1");
+        when(endpoint.getGroupCommit()).thenReturn(GroupCommitConfig.disabled());
+        when(writeService.execute(request, endpoint)).thenReturn(response);
+
+        // When: Execute
+        WriteResponse result = coordinator.execute(request, endpoint);
+
+        // Then: Delegated as-is
+        assertSame(response, result);
+        verify(writeService, never()).executeGroupCommit(any(), any());
+    }
+
+    /**
+     * Tests only single-document creates are queued on a group-commit endpoint
+     */
+    @Test
+    void testNonCoalescableWritesExecuteDirectly() {
+        // Given: Group-commit endpoint and an update
+        UpdateRequest request = new UpdateRequest(Map.of("id", 1), Map.of("name", "Bob"), "req-1", false);
+        WriteResponse response = createResponse("1");
+        when(endpoint.getGroupCommit()).thenReturn(GroupCommitConfig.of(1_000, 2));
+        when(writeService.execute(request, endpoint)).thenReturn(response);
+
+        // When: Execute
+        WriteResponse result = coordinator.execute(request, endpoint);
+
+        // Then: Not queued
+        assertSame(response, result);
+        verify(writeService, never()).executeGroupCommit(any(), any());
+    }
+
+    /**
+     * Tests concurrent creates are inserted in one group commit and each caller gets its own response
+     */
+    @Test
+    void testConcurrentCreatesShareOneGroupCommit() throws Exception {
+        // Given: Batch size 2 with a long delay, so only a full batch triggers the flush
+        CreateRequest alice = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        CreateRequest bob = new CreateRequest(Map.of("name", "Bob"), "req-2");
+        WriteResponse aliceResponse = createResponse("1");
+        WriteResponse bobResponse = createResponse("2");
+        when(endpoint.getGroupCommit()).thenReturn(GroupCommitConfig.of(60_000, 2));
+        when(writeService.executeGroupCommit(eq(List.of(alice, bob)), eq(endpoint)))
+                .thenReturn(List.of(aliceResponse, bobResponse));
+
+        // When: Alice waits in the queue while Bob fills the batch
+        CompletableFuture<WriteResponse> aliceResult =
+                CompletableFuture.supplyAsync(() -> coordinator.execute(alice, endpoint));
+        verifyNoInteractionsWithin(50);
+        WriteResponse bobResult = coordinator.execute(bob, endpoint);
+
+        // Then: One flush, each caller gets its own response
+        assertSame(bobResponse, bobResult);
+        assertSame(aliceResponse, aliceResult.get(5, TimeUnit.SECONDS));
+        verify(writeService).executeGroupCommit(List.of(alice, bob), endpoint);
+        verify(writeService, never()).execute(any(), any());
+    }
+
+    /**
+     * Tests a queued create is flushed alone once the delay elapses
+     */
+    @Test
+    void testDelayFlushesPartialBatch() {
+        // Given: Short delay and a batch that never fills
+        CreateRequest alice = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        WriteResponse aliceResponse = createResponse("1");
+        when(endpoint.getGroupCommit()).thenReturn(GroupCommitConfig.of(5, 64));
+        when(writeService.executeGroupCommit(List.of(alice), endpoint)).thenReturn(List.of(aliceResponse));
+
+        // When: Execute
+        WriteResponse result = coordinator.execute(alice, endpoint);
+
+        // Then: Flushed by the delay
+        assertSame(aliceResponse, result);
+    }
+
+    /**
+     * Tests a failed group commit is retried per create so each caller sees only its own outcome
+     */
+    @Test
+    void testFailedGroupCommitFallsBackToIndividualCreates() throws Exception {
+        // Given: The batch fails because Bob's document violates a constraint
+        CreateRequest alice = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        CreateRequest bob = new CreateRequest(Map.of("name", "Bob"), "req-2");
+        WriteResponse aliceResponse = createResponse("1");
+        when(endpoint.getGroupCommit()).thenReturn(GroupCommitConfig.of(60_000, 2));
+        when(writeService.executeGroupCommit(any(), eq(endpoint)))
+                .thenThrow(new IllegalArgumentException("duplicate email"));
+        when(writeService.execute(alice, endpoint)).thenReturn(aliceResponse);
+        when(writeService.execute(bob, endpoint)).thenThrow(new IllegalArgumentException("duplicate email"));
+
+        // When: Both creates are queued together
+        CompletableFuture<WriteResponse> aliceResult =
+                CompletableFuture.supplyAsync(() -> coordinator.execute(alice, endpoint));
+        verifyNoInteractionsWithin(50);
+
+        // Then: Alice succeeds on her own, Bob gets his error unwrapped
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> coordinator.execute(bob, endpoint));
+        assertEquals("duplicate email", error.getMessage());
+        assertSame(aliceResponse, aliceResult.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests a caller stops waiting after the timeout and its still-queued create is never written
+     */
+    @Test
+    void testTimedOutCreateIsWithdrawnFromItsBatch() throws Exception {
+        // Given: A batch that neither fills nor reaches its delay within the wait timeout
+        coordinator = new GroupCommitCoordinator(writeService, new SimpleMeterRegistry(), 1, 50);
+        CreateRequest alice = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        when(endpoint.getGroupCommit()).thenReturn(GroupCommitConfig.of(200, 64));
+
+        // When / Then
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> coordinator.execute(alice, endpoint));
+        assertTrue(error.getMessage().endsWith("the create was not written"));
+        verifyNoInteractionsWithin(300);
+    }
+
+    /**
+     * Tests shutdown flushes an open batch right away instead of waiting out its delay
+     */
+    @Test
+    void testShutdownFlushesOpenBatch() throws Exception {
+        // Given: A create queued behind a long delay
+        CreateRequest alice = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        WriteResponse aliceResponse = createResponse("1");
+        when(endpoint.getGroupCommit()).thenReturn(GroupCommitConfig.of(60_000, 64));
+        when(writeService.executeGroupCommit(List.of(alice), endpoint)).thenReturn(List.of(aliceResponse));
+        CompletableFuture<WriteResponse> aliceResult =
+                CompletableFuture.supplyAsync(() -> coordinator.execute(alice, endpoint));
+        verifyNoInteractionsWithin(50);
+
+        // When
+        coordinator.shutdown();
+
+        // Then
+        assertSame(aliceResponse, aliceResult.get(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests creates whose flush does not finish before shutdown completes fail instead of blocking forever
+     */
+    @Test
+    void testShutdownFailsCreatesStillWaiting() throws Exception {
+        // Given: The group commit hangs
+        CreateRequest alice = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        CountDownLatch release = new CountDownLatch(1);
+        when(endpoint.getGroupCommit()).thenReturn(GroupCommitConfig.of(1, 64));
+        when(writeService.executeGroupCommit(List.of(alice), endpoint)).thenAnswer(invocation -> {
+            release.await();
+            return List.of(createResponse("1"));
+        });
+        CompletableFuture<WriteResponse> aliceResult =
+                CompletableFuture.supplyAsync(() -> coordinator.execute(alice, endpoint));
+        verify(writeService, timeout(1_000)).executeGroupCommit(List.of(alice), endpoint);
+
+        // When
+        coordinator.shutdown();
+
+        // Then
+        ExecutionException error = assertThrows(ExecutionException.class, () -> aliceResult.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        release.countDown();
+    }
+
+    private void verifyNoInteractionsWithin(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        verifyNoInteractions(writeService);
+    }
+
+    private WriteResponse createResponse(String id) {
+        return new CreateResponse(List.of(id), List.of(Map.of("id", id)), "Document created successfully.");
+    }
+}
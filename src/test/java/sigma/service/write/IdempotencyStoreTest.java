@@ -0,0 +1,179 @@
+package sigma.service.write;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import sigma.dto.request.CreateRequest;
+import sigma.dto.request.UpdateRequest;
+import sigma.dto.request.WriteRequest;
+import sigma.dto.response.CreateResponse;
+import sigma.dto.response.UpdateResponse;
+import sigma.dto.response.WriteResponse;
+import sigma.model.Endpoint;
+import sigma.persistence.repository.IdempotencyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for IdempotencyStore - replay of writes retried with the same X-Request-ID
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    @Mock
+    private IdempotencyRepository repository;
+
+    @Mock
+    private Endpoint endpoint;
+
+    private final WriteResponseCodec codec = new WriteResponseCodec(new ObjectMapper());
+
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore(repository, codec, new SimpleMeterRegistry(), true, 60_000, 100);
+        lenient().when(endpoint.getName()).thenReturn("users");
+    }
+
+    /**
+     * Tests writes without a client X-Request-ID are neither stored nor looked up
+     */
+    @Test
+    void testGeneratedRequestIdIsIgnored() {
+        // Given: Request with a generated fallback id
+        CreateRequest request = new CreateRequest(Map.of("name", "Alice"),
+                WriteRequest.GENERATED_REQUEST_ID_PREFIX + "123");
+
+        // When: Record and look up
+        store.record(request, endpoint, createResponse("1"));
+        WriteResponse replay = store.find(request, endpoint);
+
+        // Then: Nothing stored, nothing replayed
+        assertNull(replay);
+        verifyNoInteractions(repository);
+    }
+
+    /**
+     * Tests a stored response is read back from the database and decoded
+     */
+    @Test
+    void testFindReplaysStoredResponse() {
+        // Given: A stored create response for req-1
+        CreateRequest request = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        String json = codec.encode(createResponse("42"));
+        when(repository.find(eq("req-1"), eq("users"), any()))
+                .thenReturn(new IdempotencyRepository.StoredResponse("CREATE", json));
+
+        // When: Look up the retried request
+        WriteResponse replay = store.find(request, endpoint);
+
+        // Then: The original response is returned
+        CreateResponse created = assertInstanceOf(CreateResponse.class, replay);
+        assertEquals(List.of("42"), created.getInsertedIds());
+        assertEquals("42", created.getDocuments().get(0).get("id"));
+    }
+
+    /**
+     * Tests a stored return=minimal response replays without documents
+     */
+    @Test
+    void testFindReplaysMinimalResponse() {
+        // Given: A stored minimal update response for req-1
+        UpdateRequest request = new UpdateRequest(Map.of("id", 1), Map.of("name", "Bob"), "req-1", false);
+        WriteResponse minimal = new UpdateResponse(1, 1, List.of(Map.of("id", 42L)), "Documents updated successfully.")
+                .toMinimal();
+        when(repository.find(eq("req-1"), eq("users"), any()))
+                .thenReturn(new IdempotencyRepository.StoredResponse("UPDATE", codec.encode(minimal)));
+
+        // When: Look up the retried request
+        WriteResponse replay = store.find(request, endpoint);
+
+        // Then: Still ids and counts only
+        UpdateResponse updated = assertInstanceOf(UpdateResponse.class, replay);
+        assertNull(updated.getDocuments());
+        assertEquals(List.of("42"), updated.getDocumentIds());
+        assertEquals(1, updated.getModifiedCount());
+    }
+
+    /**
+     * Tests the cached copy answers repeated lookups without another database read
+     */
+    @Test
+    void testFindUsesCacheAfterFirstRead() {
+        // Given: A stored create response for req-1
+        CreateRequest request = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        when(repository.find(eq("req-1"), eq("users"), any()))
+                .thenReturn(new IdempotencyRepository.StoredResponse("CREATE", codec.encode(createResponse("42"))));
+
+        // When: Look up twice
+        WriteResponse first = store.find(request, endpoint);
+        WriteResponse second = store.find(request, endpoint);
+
+        // Then: One database read, independent copies
+        verify(repository, times(1)).find(any(), any(), any());
+        assertNotSame(first, second);
+        assertEquals(first.getAffectedCount(), second.getAffectedCount());
+    }
+
+    /**
+     * Tests a request id reused for another write type is rejected instead of replayed
+     */
+    @Test
+    void testFindRejectsDifferentWriteType() {
+        // Given: req-1 was stored for a create
+        UpdateRequest request = new UpdateRequest(Map.of("id", 1), Map.of("name", "Bob"), "req-1", false);
+        when(repository.find(eq("req-1"), eq("users"), any()))
+                .thenReturn(new IdempotencyRepository.StoredResponse("CREATE", codec.encode(createResponse("1"))));
+
+        // When/Then: The update is rejected
+        assertThrows(IllegalArgumentException.class, () -> store.find(request, endpoint));
+    }
+
+    /**
+     * Tests the response is saved with its write type
+     */
+    @Test
+    void testRecordSavesEncodedResponse() {
+        // Given: Create with a client request id
+        CreateRequest request = new CreateRequest(Map.of("name", "Alice"), "req-1");
+
+        // When: Record
+        store.record(request, endpoint, createResponse("7"));
+
+        // Then: Saved under (req-1, users)
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(repository).save(eq("req-1"), eq("users"), eq("CREATE"), json.capture(), any());
+        assertTrue(json.getValue().contains("\"insertedIds\":[\"7\"]"));
+    }
+
+    /**
+     * Tests a concurrent duplicate surfaces as DuplicateRequestException so its write rolls back
+     */
+    @Test
+    void testRecordDuplicateThrows() {
+        // Given: The row already exists
+        CreateRequest request = new CreateRequest(Map.of("name", "Alice"), "req-1");
+        doThrow(new DuplicateKeyException("pk")).when(repository)
+                .save(any(), any(), any(), any(), any());
+
+        // When/Then
+        assertThrows(DuplicateRequestException.class,
+                () -> store.record(request, endpoint, createResponse("1")));
+    }
+
+    private WriteResponse createResponse(String id) {
+        return new CreateResponse(List.of(id), List.of(Map.of("id", id)), "Document created successfully.");
+    }
+}
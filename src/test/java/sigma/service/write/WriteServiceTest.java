@@ -0,0 +1,199 @@
+package sigma.service.write;
+
+import sigma.dto.request.UpdateRequest;
+import sigma.dto.request.UpsertRequest;
+import sigma.dto.request.WritePrecondition;
+import sigma.dto.request.WriteRequest;
+import sigma.dto.response.UpdateResponse;
+import sigma.dto.response.WriteResponse;
+import sigma.filter.FilterTranslator;
+import sigma.model.Endpoint;
+import sigma.model.filter.FilterResult;
+import sigma.persistence.repository.DynamicDocumentRepository;
+import sigma.service.write.subentity.SubEntityProcessor;
+import sigma.service.write.subentity.SubEntityTableWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for WriteService - transactions of conflicting write attempts, create-only upserts and PATCH merges
+ */
+@ExtendWith(MockitoExtension.class)
+class WriteServiceTest {
+
+    @Mock
+    private DynamicDocumentRepository repository;
+
+    @Mock
+    private FilterTranslator filterTranslator;
+
+    @Mock
+    private SubEntityProcessor subEntityProcessor;
+
+    @Mock
+    private SubEntityTableWriter subEntityTableWriter;
+
+    @Mock
+    private DocumentChangeDetector documentChangeDetector;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private WriteRequest request;
+
+    @Mock
+    private WriteResponse response;
+
+    @Mock
+    private Endpoint endpoint;
+
+    private WriteService writeService;
+
+    @BeforeEach
+    void setUp() {
+        writeService = new WriteService(repository, filterTranslator, subEntityProcessor, subEntityTableWriter,
+                documentChangeDetector, idempotencyStore, new SimpleMeterRegistry(), transactionManager,
+                3, 0, 1000, 1000);
+        lenient().when(endpoint.getName()).thenReturn("orders");
+        lenient().when(endpoint.getDatabaseCollection()).thenReturn("orders");
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    }
+
+    /**
+     * Tests a conflicting attempt is rolled back before the retry opens a transaction of its own
+     */
+    @Test
+    void testConflictRetryRunsInNewTransaction() {
+        // Given: The first attempt loses a version race
+        when(request.execute(writeService, "orders"))
+                .thenThrow(new OptimisticLockingFailureException("version changed"))
+                .thenReturn(response);
+
+        // When
+        WriteResponse result = writeService.execute(request, endpoint);
+
+        // Then
+        assertSame(response, result);
+        InOrder order = inOrder(transactionManager, idempotencyStore);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(transactionManager).rollback(any());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(idempotencyStore).record(request, endpoint, response);
+        order.verify(transactionManager).commit(any());
+    }
+
+    /**
+     * Tests the conflict surfaces once the attempts are used up, with every attempt rolled back
+     */
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        // Given
+        when(request.execute(writeService, "orders")).thenThrow(new OptimisticLockingFailureException("version changed"));
+
+        // When / Then
+        assertThrows(OptimisticLockingFailureException.class, () -> writeService.execute(request, endpoint));
+        verify(transactionManager, times(3)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(idempotencyStore, never()).record(any(), any(), any());
+    }
+
+    /**
+     * Tests a create-only PUT is refused without an upsert key index to reject concurrent inserts
+     */
+    @Test
+    void testCreateOnlyUpsertRequiresUpsertKey() {
+        // Given
+        UpsertRequest upsert = new UpsertRequest(Map.of("sku", "A-1"), Map.of("sku", "A-1"), "req-1",
+                WritePrecondition.ifAbsent());
+        when(endpoint.hasUpsertKeys()).thenReturn(false);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> writeService.execute(upsert, endpoint));
+        verify(repository, never()).insertIfAbsent(any(), any(), any(), any());
+    }
+
+    /**
+     * Tests a concurrent insert rejected by the upsert key index fails the precondition
+     */
+    @Test
+    void testCreateOnlyUpsertMapsDuplicateKeyToPreconditionFailed() {
+        // Given: The guarded INSERT races another insert of the same key
+        UpsertRequest upsert = new UpsertRequest(null, Map.of("sku", "A-1"), "req-1", WritePrecondition.ifAbsent());
+        when(endpoint.hasUpsertKeys()).thenReturn(true);
+        when(endpoint.getUpsertKeys()).thenReturn(List.of("sku"));
+        when(filterTranslator.translate(any())).thenReturn(FilterResult.builder()
+                .whereClause("d.data->>'sku' = :sku_0").parameters(Map.of("sku_0", "A-1")).build());
+        when(subEntityProcessor.prepareForCreate(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.insertIfAbsent(eq("orders"), any(), any(), any()))
+                .thenThrow(new DuplicateKeyException("uq_dyn_docs_orders"));
+
+        // When / Then
+        assertThrows(PreconditionFailedException.class, () -> writeService.execute(upsert, endpoint));
+        verify(transactionManager).rollback(any());
+    }
+
+    /**
+     * Tests a single-document PATCH resolves only the id of its target and updates it if the merge changes it
+     */
+    @Test
+    void testSingleDocumentPatchDoesNotLoadDocuments() {
+        // Given
+        UpdateRequest update = new UpdateRequest(Map.of("sku", "A-1"), Map.of("qty", 2), "req-1", false);
+        when(filterTranslator.translate(any())).thenReturn(FilterResult.builder()
+                .whereClause("d.data->>'sku' = :sku_0").parameters(Map.of("sku_0", "A-1")).build());
+        when(repository.findIds("orders", "d.data->>'sku' = :sku_0", Map.of("sku_0", "A-1"), 1))
+                .thenReturn(List.of(7L));
+        when(repository.updateChanged(eq("orders"), eq("d.id = :subEntityDocumentId"), any(),
+                eq(Map.of("subEntityDocumentId", 7L)), eq(false), eq(false)))
+                .thenReturn(List.of(Map.of("id", 7L, "qty", 2)));
+
+        // When
+        UpdateResponse result = (UpdateResponse) writeService.execute(update, endpoint);
+
+        // Then
+        assertEquals(1, result.getModifiedCount());
+        verify(repository, never()).findDocuments(any(), any(), any(), any());
+        verifyNoInteractions(documentChangeDetector);
+    }
+
+    /**
+     * Tests a multi-document PATCH that changes nothing writes nothing and reads no documents
+     */
+    @Test
+    void testMultiDocumentPatchWithoutChanges() {
+        // Given
+        UpdateRequest update = new UpdateRequest(Map.of("status", "open"), Map.of("qty", 2), "req-1", true);
+        when(filterTranslator.translate(any())).thenReturn(FilterResult.builder()
+                .whereClause("d.data->>'status' = :status_0").parameters(Map.of("status_0", "open")).build());
+        when(repository.updateChanged(eq("orders"), eq("d.data->>'status' = :status_0"), any(), any(),
+                eq(true), eq(false))).thenReturn(List.of());
+
+        // When
+        UpdateResponse result = (UpdateResponse) writeService.execute(update, endpoint);
+
+        // Then
+        assertEquals(0, result.getModifiedCount());
+        verify(repository, never()).findIds(any(), any(), any(), anyInt());
+        verify(repository, never()).findDocuments(any(), any(), any(), any());
+    }
+}
@@ -1,5 +1,6 @@
 package sigma.service.write;
 
+import sigma.dto.request.BulkWriteRequest;
 import sigma.dto.request.CreateRequest;
 import sigma.dto.request.DeleteRequest;
 import sigma.dto.request.UpdateRequest;
@@ -343,4 +344,27 @@ class WriteValidatorTest {
         verify(endpoint, never()).getReadFilterConfig();  // Should NOT call getReadFilterConfig()
         verify(filterValidator).validate(eq(filter), eq(writeFilterConfig));  // Use write config
     }
+
+    /**
+     * Tests BULK requests validate every operation and prefix errors with the operation index
+     */
+    @Test
+    void testBulkValidationReportsErrorsPerOperation() {
+        // Given: A bulk with an allowed create and a disallowed delete
+        CreateRequest create = new CreateRequest(List.of(Map.of("name", "Alice")), "req-123");
+        DeleteRequest delete = new DeleteRequest(Map.of("name", "Bob"), "req-123", false);
+        BulkWriteRequest bulk = new BulkWriteRequest(List.of(create, delete), "req-123", true);
+
+        when(endpoint.isWriteMethodAllowed("POST")).thenReturn(true);
+        when(endpoint.isWriteMethodAllowed("DELETE")).thenReturn(false);
+        when(endpoint.requiresSchemaValidation()).thenReturn(false);
+
+        // When: Validate request
+        ValidationResult result = writeValidator.validate(bulk, endpoint);
+
+        // Then: Only the delete fails, reported by its index
+        assertFalse(result.isValid());
+        assertEquals(List.of("operations[1]: Write method DELETE is not allowed for this endpoint"),
+                result.getErrors());
+    }
 }
@@ -0,0 +1,94 @@
+package sigma.service.write.subentity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sigma.persistence.repository.SubEntityRowRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for BlockSubEntityIdGenerator - hi/lo ids reserved from sub_entity_id_seq
+ */
+@ExtendWith(MockitoExtension.class)
+class BlockSubEntityIdGeneratorTest {
+
+    @Mock
+    private SubEntityRowRepository rowRepository;
+
+    /**
+     * Tests a block is used up before the next one is reserved
+     */
+    @Test
+    void testIdsComeFromReservedBlocks() {
+        // Given: Blocks of three, sequence yields 1 then 2
+        when(rowRepository.nextIdBlock()).thenReturn(1L, 2L);
+        BlockSubEntityIdGenerator generator = new BlockSubEntityIdGenerator(rowRepository, new SimpleMeterRegistry(), 3);
+
+        // When
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(generator.generate());
+        }
+
+        // Then: [3, 6) then the start of [6, 9)
+        assertEquals(List.of(3L, 4L, 5L, 6L), ids);
+        verify(rowRepository, times(2)).nextIdBlock();
+    }
+
+    /**
+     * Tests concurrent callers never receive the same id and reserve only the blocks they need
+     */
+    @Test
+    void testConcurrentIdsAreUnique() throws Exception {
+        // Given: Blocks of 100 from an incrementing sequence
+        AtomicLong sequence = new AtomicLong();
+        when(rowRepository.nextIdBlock()).thenAnswer(inv -> sequence.incrementAndGet());
+        BlockSubEntityIdGenerator generator = new BlockSubEntityIdGenerator(rowRepository, new SimpleMeterRegistry(), 100);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When: 8 threads take 1000 ids each
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        ids.add(generator.generate());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then: 8000 distinct ids from exactly 80 blocks
+        assertEquals(8000, ids.size());
+        assertEquals(80, sequence.get());
+    }
+
+    /**
+     * Tests a non-positive block size is rejected at startup
+     */
+    @Test
+    void testRejectsNonPositiveBlockSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new BlockSubEntityIdGenerator(rowRepository, new SimpleMeterRegistry(), 0));
+    }
+}
@@ -0,0 +1,97 @@
+package sigma.service.write.subentity;
+
+import sigma.model.update.SubEntityChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SubEntityProcessor - compiling sub-entity commands into in-place changes
+ */
+class SubEntityProcessorTest {
+
+    private SubEntityProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        AtomicLong sequence = new AtomicLong(100);
+        processor = new SubEntityProcessor(sequence::incrementAndGet);
+    }
+
+    /**
+     * Tests create, update and delete payloads become APPEND, MERGE and DELETE changes located by id
+     */
+    @Test
+    void testCompileUpdateOperations() {
+        // Given: One new line, one changed line, one removed line and a plain field
+        Map<String, Object> updates = new LinkedHashMap<>();
+        updates.put("status", "open");
+        updates.put("lines", List.of(
+                Map.of("sku", "A-1", "qty", 1),
+                Map.of("id", 7, "qty", 3),
+                Map.of("id", 8, "isDelete", true)));
+
+        // When: Compile
+        Map<String, List<SubEntityChange>> changes =
+                processor.compileUpdateOperations(updates, Set.of("lines"), false);
+
+        // Then: The array leaves the plain updates, each command is one targeted change
+        assertEquals(Map.of("status", "open"), updates);
+        List<SubEntityChange> lines = changes.get("lines");
+        assertEquals(3, lines.size());
+
+        assertEquals(SubEntityChange.Kind.APPEND, lines.get(0).kind());
+        assertEquals(101L, lines.get(0).id());
+        assertEquals(Map.of("sku", "A-1", "qty", 1, "id", 101L, "isDeleted", false), lines.get(0).value());
+
+        assertEquals(SubEntityChange.merge(7L, Map.of("qty", 3)), lines.get(1));
+        assertEquals(SubEntityChange.delete(8L), lines.get(2));
+    }
+
+    /**
+     * Tests updates without sub-entity fields are left alone
+     */
+    @Test
+    void testCompileWithoutSubEntityFields() {
+        // Given
+        Map<String, Object> updates = new HashMap<>(Map.of("status", "open"));
+
+        // When
+        Map<String, List<SubEntityChange>> changes =
+                processor.compileUpdateOperations(updates, Set.of("lines"), false);
+
+        // Then
+        assertTrue(changes.isEmpty());
+        assertEquals(Map.of("status", "open"), updates);
+    }
+
+    /**
+     * Tests invalid sub-entity payloads are rejected before any SQL is built
+     */
+    @Test
+    void testCompileRejectsInvalidPayloads() {
+        // Same id changed twice
+        Map<String, Object> twice = new HashMap<>(Map.of("lines", List.of(
+                Map.of("id", 7, "qty", 3), Map.of("id", 7, "isDelete", true))));
+        assertThrows(IllegalArgumentException.class,
+                () -> processor.compileUpdateOperations(twice, Set.of("lines"), false));
+
+        // Sub-entities on a multi-document update
+        Map<String, Object> multiple = new HashMap<>(Map.of("lines", List.of(Map.of("id", 7, "qty", 3))));
+        assertThrows(IllegalArgumentException.class,
+                () -> processor.compileUpdateOperations(multiple, Set.of("lines"), true));
+
+        // Delete without id
+        Map<String, Object> noId = new HashMap<>(Map.of("lines", List.of(Map.of("isDelete", true))));
+        assertThrows(IllegalArgumentException.class,
+                () -> processor.compileUpdateOperations(noId, Set.of("lines"), false));
+    }
+}
@@ -0,0 +1,151 @@
+package sigma.service.write.subentity;
+
+import sigma.model.DynamicDocument;
+import sigma.model.Endpoint;
+import sigma.model.update.SubEntityChange;
+import sigma.persistence.repository.SubEntityRowRepository;
+import sigma.persistence.repository.SubEntityRowRepository.SubEntityRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for SubEntityTableWriter - sub-entity arrays stored as rows of dynamic_sub_entities
+ */
+@ExtendWith(MockitoExtension.class)
+class SubEntityTableWriterTest {
+
+    @Mock
+    private SubEntityRowRepository rowRepository;
+
+    @Mock
+    private Endpoint endpoint;
+
+    private SubEntityTableWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new SubEntityTableWriter(rowRepository);
+        lenient().when(endpoint.storesSubEntitiesInTable()).thenReturn(true);
+        lenient().when(endpoint.getSubEntities()).thenReturn(Set.of("items"));
+    }
+
+    /**
+     * Tests arrays are kept out of the inserted document and stored as rows of the generated id
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDetachAndStoreInsertsRowsPerElement() {
+        // Given: A document with two items
+        List<Map<String, Object>> items = List.of(
+                item(1L, "apple"),
+                item(2L, "pear"));
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("orderNo", "A-1");
+        fields.put("items", items);
+        DynamicDocument document = new DynamicDocument("orders", fields);
+
+        // When: Detach, insert (id assigned), store
+        var detached = writer.detach(endpoint, List.of(document));
+        assertFalse(document.getDynamicFields().containsKey("items"));
+        document.setId(42L);
+        writer.store(endpoint, List.of(document), detached);
+
+        // Then: One batch with a row per element, arrays back on the document
+        ArgumentCaptor<List<SubEntityRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(rowRepository).insertAll(rows.capture());
+        assertEquals(List.of(1L, 2L), rows.getValue().stream().map(SubEntityRow::subId).toList());
+        assertTrue(rows.getValue().stream().allMatch(row -> row.parentId() == 42L && row.field().equals("items")));
+        assertEquals(items, document.getDynamicFields().get("items"));
+    }
+
+    /**
+     * Tests each change touches only its own row
+     */
+    @Test
+    void testApplyRoutesChangesToRows() {
+        // Given: Append, merge and delete on one parent
+        when(rowRepository.merge(7L, "items", 2L, Map.of("qty", 3))).thenReturn(true);
+        when(rowRepository.markDeleted(7L, "items", 3L)).thenReturn(true);
+
+        // When
+        writer.apply(7L, Map.of("items", List.of(
+                SubEntityChange.append(9L, item(9L, "plum")),
+                SubEntityChange.merge(2L, Map.of("qty", 3)),
+                SubEntityChange.delete(3L))));
+
+        // Then
+        verify(rowRepository).insertAll(argThat(rows -> rows.size() == 1 && rows.get(0).subId() == 9L));
+        verify(rowRepository).merge(7L, "items", 2L, Map.of("qty", 3));
+        verify(rowRepository).markDeleted(7L, "items", 3L);
+    }
+
+    /**
+     * Tests an update of a missing or deleted element fails the write
+     */
+    @Test
+    void testApplyRejectsMissingElement() {
+        // Given: No live row with id 5
+        when(rowRepository.merge(anyLong(), anyString(), anyLong(), any())).thenReturn(false);
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.apply(7L, Map.of("items", List.of(SubEntityChange.merge(5L, Map.of("qty", 1))))));
+    }
+
+    /**
+     * Tests appending an id that is already stored fails the write instead of surfacing the key violation
+     */
+    @Test
+    void testApplyRejectsDuplicateAppend() {
+        // Given: The primary key rejects the row
+        doThrow(new DuplicateKeyException("pk")).when(rowRepository).insertAll(any());
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.apply(7L, Map.of("items", List.of(SubEntityChange.append(1L, item(1L, "apple"))))));
+    }
+
+    /**
+     * Tests endpoints storing arrays in the document are left untouched
+     */
+    @Test
+    void testDocumentStorageIsNoOp() {
+        // Given: Default storage
+        when(endpoint.storesSubEntitiesInTable()).thenReturn(false);
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("items", new ArrayList<>(List.of(item(1L, "apple"))));
+        DynamicDocument document = new DynamicDocument("orders", fields);
+
+        // When
+        var detached = writer.detach(endpoint, List.of(document));
+        writer.store(endpoint, List.of(document), detached);
+        writer.attach(endpoint, List.of(document.toMap()));
+
+        // Then
+        assertTrue(document.getDynamicFields().containsKey("items"));
+        verifyNoInteractions(rowRepository);
+    }
+
+    private Map<String, Object> item(Long id, String name) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("name", name);
+        item.put("id", id);
+        item.put("isDeleted", false);
+        return item;
+    }
+}